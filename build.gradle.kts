@@ -31,6 +31,7 @@ dependencies {
     implementation("org.springframework.cloud:spring-cloud-starter-openfeign")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-validation")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.projectlombok:lombok")
@@ -48,11 +49,11 @@ dependencies {
     testImplementation("org.testcontainers:postgresql")
     runtimeOnly("org.springframework.boot:spring-boot-docker-compose")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
-    
-    
+
     // JSON Processing
     implementation("com.fasterxml.jackson.core:jackson-databind")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-csv")
 }
 
 dependencyManagement {
@@ -69,6 +70,18 @@ tasks.test {
     outputs.dir(project.extra["snippetsDir"]!!)
 }
 
+// Only the tests tagged "postgres", which fail here instead of being skipped when Docker is missing
+tasks.register<Test>("postgresTest") {
+    description = "Runs the PostgreSQL-backed tests; requires Docker."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("postgres")
+    }
+    systemProperty("postgres.tests.required", "true")
+}
+
 tasks.asciidoctor {
     inputs.dir(project.extra["snippetsDir"]!!)
     dependsOn(tasks.test)
@@ -0,0 +1,115 @@
+package com.shah_s.bakery_order_service.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+// DataLoader-style batcher: keys requested by any caller within a short window (or until the
+// batch is full) go out as one bulk call and results are scattered back to the callers.
+// A key that is already pending or in flight is shared rather than requested again.
+public class MicroBatcher<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final String name;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final Function<List<K>, Map<K, V>> bulkLoader;
+    private final ScheduledExecutorService scheduler;
+    private final Executor dispatchExecutor;
+
+    private final Object lock = new Object();
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private long generation;
+
+    public MicroBatcher(String name, long windowMicros, int maxBatchSize, Function<List<K>, Map<K, V>> bulkLoader,
+                        ScheduledExecutorService scheduler, Executor dispatchExecutor) {
+        this.name = name;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.bulkLoader = bulkLoader;
+        this.scheduler = scheduler;
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    // Returns a caller-private view of the shared future, so cancelling it never affects other callers
+    public CompletableFuture<V> load(K key) {
+        Map<K, CompletableFuture<V>> batchToDispatch = null;
+        CompletableFuture<V> future;
+
+        synchronized (lock) {
+            future = inFlight.get(key);
+            if (future == null) {
+                future = pending.get(key);
+            }
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+
+                if (pending.size() >= maxBatchSize) {
+                    batchToDispatch = drainPending();
+                } else if (pending.size() == 1) {
+                    long scheduledGeneration = generation;
+                    scheduler.schedule(() -> flush(scheduledGeneration), windowMicros, TimeUnit.MICROSECONDS);
+                }
+            }
+        }
+
+        if (batchToDispatch != null) {
+            dispatch(batchToDispatch);
+        }
+        return future.copy();
+    }
+
+    private void flush(long scheduledGeneration) {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            // A size-triggered flush already sent the batch this timer was armed for
+            if (scheduledGeneration != generation || pending.isEmpty()) {
+                return;
+            }
+            batch = drainPending();
+        }
+        dispatch(batch);
+    }
+
+    private Map<K, CompletableFuture<V>> drainPending() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        generation++;
+        inFlight.putAll(batch);
+        return batch;
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        dispatchExecutor.execute(() -> {
+            List<K> keys = new ArrayList<>(batch.keySet());
+            try {
+                Map<K, V> results = bulkLoader.apply(keys);
+                logger.debug("{} batch of {} keys completed", name, keys.size());
+
+                batch.forEach((key, future) -> {
+                    V value = results.get(key);
+                    if (value != null) {
+                        future.complete(value);
+                    } else {
+                        future.completeExceptionally(new NoSuchElementException(name + " returned no result for " + key));
+                    }
+                });
+            } catch (Exception e) {
+                logger.error("{} batch of {} keys failed: {}", name, keys.size(), e.getMessage());
+                batch.values().forEach(future -> future.completeExceptionally(e));
+            } finally {
+                batch.forEach(inFlight::remove);
+            }
+        });
+    }
+}
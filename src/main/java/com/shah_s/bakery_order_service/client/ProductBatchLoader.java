@@ -0,0 +1,87 @@
+package com.shah_s.bakery_order_service.client;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Coalesces product and availability lookups from concurrent orders into bulk product-service calls
+@Component
+public class ProductBatchLoader {
+
+    final private ProductServiceClient productServiceClient;
+
+    final private ScheduledExecutorService scheduler;
+
+    final private MicroBatcher<UUID, Map<String, Object>> productBatcher;
+
+    final private MicroBatcher<StockKey, Map<String, Object>> stockBatcher;
+
+    @Getter
+    final private boolean enabled;
+
+    public ProductBatchLoader(ProductServiceClient productServiceClient,
+                              @Qualifier("remoteCallExecutor") ExecutorService remoteCallExecutor,
+                              @Value("${order.product-batching.enabled:false}") boolean enabled,
+                              @Value("${order.product-batching.window-micros:2000}") long windowMicros,
+                              @Value("${order.product-batching.max-batch-size:100}") int maxBatchSize) {
+        this.productServiceClient = productServiceClient;
+        this.enabled = enabled;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.productBatcher = new MicroBatcher<>("product-batch", windowMicros, maxBatchSize,
+                this::loadProducts, scheduler, remoteCallExecutor);
+        this.stockBatcher = new MicroBatcher<>("stock-batch", windowMicros, maxBatchSize,
+                this::loadAvailability, scheduler, remoteCallExecutor);
+    }
+
+    public CompletableFuture<Map<String, Object>> getProduct(UUID productId) {
+        return productBatcher.load(productId);
+    }
+
+    public CompletableFuture<Map<String, Object>> checkStockAvailability(UUID productId, int quantity) {
+        return stockBatcher.load(new StockKey(productId, quantity));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Map<UUID, Map<String, Object>> loadProducts(List<UUID> productIds) {
+        Map<UUID, Map<String, Object>> results = new HashMap<>();
+        for (Map<String, Object> product : productServiceClient.getProductsByIds(productIds)) {
+            results.put(UUID.fromString(String.valueOf(product.get("id"))), product);
+        }
+        return results;
+    }
+
+    private Map<StockKey, Map<String, Object>> loadAvailability(List<StockKey> keys) {
+        List<Map<String, Object>> requests = keys.stream()
+                .map(key -> Map.<String, Object>of("productId", key.productId(), "quantity", key.quantity()))
+                .toList();
+
+        Map<StockKey, Map<String, Object>> results = new HashMap<>();
+        for (Map<String, Object> availability : productServiceClient.checkStockAvailabilityBatch(requests)) {
+            UUID productId = UUID.fromString(String.valueOf(availability.get("productId")));
+            int quantity = ((Number) availability.get("quantity")).intValue();
+            results.put(new StockKey(productId, quantity), availability);
+        }
+        return results;
+    }
+
+    private record StockKey(UUID productId, int quantity) {}
+}
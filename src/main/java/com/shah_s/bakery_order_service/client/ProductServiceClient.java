@@ -3,6 +3,7 @@ package com.shah_s.bakery_order_service.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -15,6 +16,14 @@ public interface ProductServiceClient {
     @GetMapping("/inventory/product/{productId}/availability")
     Map<String, Object> checkStockAvailability(@PathVariable UUID productId, @RequestParam Integer quantity);
 
+    // Bulk variants used by ProductBatchLoader
+    @PostMapping("/products/batch")
+    List<Map<String, Object>> getProductsByIds(@RequestBody List<UUID> productIds);
+
+    // Each request entry and response entry carries "productId" and "quantity"
+    @PostMapping("/inventory/availability/batch")
+    List<Map<String, Object>> checkStockAvailabilityBatch(@RequestBody List<Map<String, Object>> requests);
+
     @PostMapping("/inventory/product/{productId}/reserve")
     Map<String, Object> reserveStock(@PathVariable UUID productId, @RequestBody Map<String, Integer> request);
 
@@ -23,4 +32,13 @@ public interface ProductServiceClient {
 
     @PostMapping("/inventory/product/{productId}/consume")
     Map<String, Object> consumeStock(@PathVariable UUID productId, @RequestBody Map<String, Integer> request);
+
+    // Outbox deliveries, which may be repeated: product-service applies each Idempotency-Key once
+    @PostMapping("/inventory/product/{productId}/release-reserved")
+    Map<String, Object> releaseReservedStock(@PathVariable UUID productId, @RequestBody Map<String, Integer> request,
+                                             @RequestHeader("Idempotency-Key") String idempotencyKey);
+
+    @PostMapping("/inventory/product/{productId}/consume")
+    Map<String, Object> consumeStock(@PathVariable UUID productId, @RequestBody Map<String, Integer> request,
+                                     @RequestHeader("Idempotency-Key") String idempotencyKey);
 }
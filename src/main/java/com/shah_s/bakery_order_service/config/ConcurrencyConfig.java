@@ -0,0 +1,32 @@
+package com.shah_s.bakery_order_service.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    // Virtual threads for blocking remote calls (Feign); callers bound their own fan-out
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService remoteCallExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // Startup backfills of the statistics tables, one at a time and off the startup path
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService backfillExecutor() {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform().name("stats-backfill").daemon(true).factory());
+    }
+
+    // Renews the leases of idempotency keys being processed and of the order number node id; a
+    // thread of its own, so a slow scheduled job cannot hold a renewal back and make a live request
+    // look abandoned or stop order numbers from being issued
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService leaseRenewalScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("lease-renewal").daemon(true).factory());
+    }
+}
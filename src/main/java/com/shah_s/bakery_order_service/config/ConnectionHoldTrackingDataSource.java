@@ -0,0 +1,98 @@
+package com.shah_s.bakery_order_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Records how long each pooled connection is held, tagged with the phase the borrowing
+// thread was in (order.db.connection.hold). Phases are set with inPhase(...).
+public class ConnectionHoldTrackingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<String> currentPhase = new ThreadLocal<>();
+
+    private static final String UNTRACKED_PHASE = "untracked";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ConnectionHoldTrackingDataSource(DataSource targetDataSource, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(targetDataSource);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static <T> T inPhase(String phase, Supplier<T> work) {
+        String previous = currentPhase.get();
+        currentPhase.set(phase);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                currentPhase.remove();
+            } else {
+                currentPhase.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    // Keeps the pool's shutdown hook working once it is wrapped
+    @Override
+    public void close() throws SQLException {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Failed to close the wrapped data source", e);
+            }
+        }
+    }
+
+    private Connection track(Connection connection) {
+        String phase = currentPhase.get() != null ? currentPhase.get() : UNTRACKED_PHASE;
+        long borrowedAt = System.nanoTime();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                        record(phase, System.nanoTime() - borrowedAt);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private void record(String phase, long heldNanos) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Timer.builder("order.db.connection.hold")
+                    .description("Time a pooled JDBC connection was held, by phase")
+                    .tag("phase", phase)
+                    .register(registry)
+                    .record(heldNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.shah_s.bakery_order_service.controller;
 
 import com.shah_s.bakery_order_service.dto.*;
 import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.service.IdempotencyService;
 import com.shah_s.bakery_order_service.service.OrderService;
+import com.shah_s.bakery_order_service.service.OrderStatusStream;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,8 +15,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -29,10 +35,19 @@ public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final OrderService orderService;
 
-    public OrderController(OrderService orderService) {
+    private final IdempotencyService idempotencyService;
+
+    private final OrderStatusStream orderStatusStream;
+
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService,
+                           OrderStatusStream orderStatusStream) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderStatusStream = orderStatusStream;
     }
 
     // Create new order
@@ -40,7 +55,8 @@ public class OrderController {
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody OrderRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         logger.info("Create order request received for user: {}", request.getUserId());
 
@@ -49,10 +65,26 @@ public class OrderController {
             request.setUserId(userId);
         }
 
-        OrderResponse order = orderService.createOrder(request);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            OrderResponse order = orderService.createOrder(request);
+
+            logger.info("Order created successfully: {}", order.getOrderNumber());
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        }
 
-        logger.info("Order created successfully: {}", order.getOrderNumber());
-        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        if (idempotencyKey.length() > 100) {
+            throw new IllegalArgumentException("Idempotency-Key must not exceed 100 characters");
+        }
+
+        // Retries with the same key get the original order instead of a duplicate
+        IdempotencyService.Result result = idempotencyService.execute(idempotencyKey, request,
+                () -> orderService.createOrder(request));
+
+        logger.info("Order {} for Idempotency-Key {}: {}", result.isReplayed() ? "replayed" : "created",
+                idempotencyKey, result.getResponse().getOrderNumber());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(result.isReplayed()))
+                .body(result.getResponse());
     }
 
     // Get all orders with pagination
@@ -76,6 +108,21 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Get all orders, keyset-paginated: pass the returned nextCursor to fetch the following page
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get all orders by cursor request received (size: {})", size);
+
+        CursorPage<OrderResponse> orders = orderService.getAllOrdersAfter(cursor, size);
+
+        logger.info("Retrieved {} orders (more: {})", orders.getSize(), orders.isHasNext());
+        return ResponseEntity.ok(orders);
+    }
+
     // Get order by ID
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrderById(
@@ -96,6 +143,30 @@ public class OrderController {
         return ResponseEntity.ok(order);
     }
 
+    // Live status of one order (Server-Sent Events): the current status, then each change until it is
+    // delivered or cancelled. Replaces polling GET /{orderId}.
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<OrderStatusNotification>>> streamOrderStatus(
+            @PathVariable UUID orderId,
+            @RequestHeader(value = "X-User-Id", required = false) UUID userId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Order status stream requested: {}", orderId);
+
+        OrderStatusNotification order = orderStatusStream.current(orderId)
+                .orElseThrow(() -> new OrderServiceException("Order not found with ID: " + orderId));
+
+        // Check if user can access this order (unless admin)
+        if (userId != null && !"ADMIN".equals(userRole) && !order.getUserId().equals(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (orderStatusStream.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(orderStatusStream.forOrder(order));
+    }
+
     // Get order by order number
     @GetMapping("/number/{orderNumber}")
     public ResponseEntity<OrderResponse> getOrderByOrderNumber(
@@ -137,6 +208,26 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Live status of a user's orders (Server-Sent Events): their active orders, then each change
+    @GetMapping(value = "/user/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<OrderStatusNotification>>> streamUserOrderStatus(
+            @PathVariable UUID userId,
+            @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Order status stream requested for user: {}", userId);
+
+        // Check if user can access these orders (unless admin)
+        if (requestUserId != null && !"ADMIN".equals(userRole) && !userId.equals(requestUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (orderStatusStream.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(orderStatusStream.forUser(userId));
+    }
+
     // Get orders by user ID with pagination
     @GetMapping("/user/{userId}/paginated")
     public ResponseEntity<Page<OrderResponse>> getOrdersByUserIdWithPagination(
@@ -165,6 +256,28 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Get orders by user ID, keyset-paginated
+    @GetMapping("/user/{userId}/cursor")
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersByUserIdByCursor(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get orders by user ID by cursor: {}, size: {}", userId, size);
+
+        // Check if user can access these orders (unless admin)
+        if (requestUserId != null && !"ADMIN".equals(userRole) && !userId.equals(requestUserId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<OrderResponse> orders = orderService.getOrdersByUserIdAfter(userId, cursor, size);
+
+        logger.info("Retrieved {} orders for user (more: {})", orders.getSize(), orders.isHasNext());
+        return ResponseEntity.ok(orders);
+    }
+
     // Get orders by status
     @GetMapping("/status/{status}")
     public ResponseEntity<List<OrderResponse>> getOrdersByStatus(
@@ -178,7 +291,27 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
-    // Search orders
+    // Live orders in one status for the kitchen display (Server-Sent Events): the orders currently in it,
+    // then every order entering or leaving it
+    @GetMapping(value = "/status/{status}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<OrderStatusNotification>>> streamOrdersByStatus(
+            @PathVariable Order.OrderStatus status,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Order status stream requested for status: {}", status);
+
+        // Only admins and bakers watch the kitchen queue
+        if (!"ADMIN".equals(userRole) && !"BAKER".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (orderStatusStream.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(orderStatusStream.forStatus(status));
+    }
+
+    // Search orders by customer name or email
     @GetMapping("/search")
     public ResponseEntity<List<OrderResponse>> searchOrders(@RequestParam String query) {
         logger.info("Search orders request received with query: {}", query);
@@ -189,6 +322,22 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Search orders by customer name, email or phone, ranked by similarity, with pagination
+    @GetMapping("/search/paginated")
+    public ResponseEntity<Page<OrderResponse>> searchOrdersPaginated(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        logger.info("Paginated search orders request received with query: {}", query);
+
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.clamp(size, 1, MAX_SEARCH_PAGE_SIZE));
+        Page<OrderResponse> orders = orderService.searchOrders(query, pageable);
+
+        logger.info("Search returned {} orders (page {} of {})", orders.getContent().size(),
+                orders.getNumber() + 1, orders.getTotalPages());
+        return ResponseEntity.ok(orders);
+    }
+
     // Get recent orders
     @GetMapping("/recent")
     public ResponseEntity<List<OrderResponse>> getRecentOrders(
@@ -267,34 +416,6 @@ public class OrderController {
         return ResponseEntity.ok(order);
     }
 
-    // Get order statistics
-    @GetMapping("/statistics")
-    public ResponseEntity<Map<String, Object>> getOrderStatistics(
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
-
-        logger.info("Get order statistics request received");
-
-        // Only admins can view statistics
-        if (!"ADMIN".equals(userRole)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-        }
-
-        // Default to last 30 days if no dates provided
-        if (startDate == null) {
-            startDate = LocalDateTime.now().minusDays(30);
-        }
-        if (endDate == null) {
-            endDate = LocalDateTime.now();
-        }
-
-        Map<String, Object> statistics = orderService.getOrderStatistics(startDate, endDate);
-
-        logger.info("Order statistics retrieved");
-        return ResponseEntity.ok(statistics);
-    }
-
     // Health check
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
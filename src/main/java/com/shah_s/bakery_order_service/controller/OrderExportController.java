@@ -0,0 +1,69 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.repository.OrderFilter;
+import com.shah_s.bakery_order_service.service.OrderExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/orders/export")
+public class OrderExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportController.class);
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final OrderExportService orderExportService;
+
+    public OrderExportController(OrderExportService orderExportService) {
+        this.orderExportService = orderExportService;
+    }
+
+    // Streams every order matching the filters (same as GET /api/orders/filter), oldest first,
+    // as NDJSON (one order per line) or CSV (one item per row). Meant for large date ranges.
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "NDJSON") OrderExportService.Format format,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) Order.DeliveryType deliveryType,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Order export request received ({}, {} - {})", format, startDate, endDate);
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        OrderFilter filter = new OrderFilter(userId, status, deliveryType, minAmount, maxAmount, startDate, endDate);
+        boolean csv = format == OrderExportService.Format.CSV;
+        String filename = "orders-" + LocalDate.now() + (csv ? ".csv" : ".ndjson");
+
+        // Written on an async request thread, so the servlet thread is released while the export runs
+        StreamingResponseBody body = out -> orderExportService.export(filter, format, out);
+
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
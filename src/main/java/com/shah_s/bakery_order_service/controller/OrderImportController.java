@@ -0,0 +1,51 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.dto.OrderImportResult;
+import com.shah_s.bakery_order_service.service.OrderImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/orders/import")
+public class OrderImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderImportController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final OrderImportService orderImportService;
+
+    public OrderImportController(OrderImportService orderImportService) {
+        this.orderImportService = orderImportService;
+    }
+
+    // Bulk import (backfill) of historical orders, streamed as NDJSON (one order per line) or CSV
+    // (one item per row, grouped by orderRef). Bypasses product, stock and payment calls.
+    @PostMapping(consumes = {NDJSON, CSV})
+    public ResponseEntity<OrderImportResult> importOrders(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Order import request received ({})", contentType);
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        OrderImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? OrderImportService.Format.CSV
+                : OrderImportService.Format.NDJSON;
+
+        OrderImportResult result = orderImportService.importOrders(body, format);
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,243 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.service.DistinctCountService;
+import com.shah_s.bakery_order_service.service.FulfillmentDurationService;
+import com.shah_s.bakery_order_service.service.LiveOrderMetrics;
+import com.shah_s.bakery_order_service.service.OrderStatisticsService;
+import com.shah_s.bakery_order_service.service.ProductSalesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Admin statistics, answered from the hourly order rollups and daily product sales
+@RestController
+@RequestMapping("/api/orders/statistics")
+public class OrderStatisticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatisticsController.class);
+
+    private static final int MAX_LIVE_MINUTES = 24 * 60;
+
+    private static final int MAX_BEST_SELLERS = 100;
+
+    private final OrderStatisticsService orderStatisticsService;
+
+    private final ProductSalesService productSalesService;
+
+    private final DistinctCountService distinctCountService;
+
+    private final FulfillmentDurationService fulfillmentDurationService;
+
+    private final LiveOrderMetrics liveOrderMetrics;
+
+    public OrderStatisticsController(OrderStatisticsService orderStatisticsService,
+                                     ProductSalesService productSalesService,
+                                     DistinctCountService distinctCountService,
+                                     FulfillmentDurationService fulfillmentDurationService,
+                                     LiveOrderMetrics liveOrderMetrics) {
+        this.orderStatisticsService = orderStatisticsService;
+        this.productSalesService = productSalesService;
+        this.distinctCountService = distinctCountService;
+        this.fulfillmentDurationService = fulfillmentDurationService;
+        this.liveOrderMetrics = liveOrderMetrics;
+    }
+
+    // Get order statistics
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getOrderStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get order statistics request received");
+
+        // Only admins can view statistics
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Object> statistics = orderStatisticsService.getOrderStatistics(
+                startOrDefault(startDate), endOrDefault(endDate));
+
+        logger.info("Order statistics retrieved");
+        return ResponseEntity.ok(statistics);
+    }
+
+    // Get order count and sales per day
+    @GetMapping("/daily")
+    public ResponseEntity<List<Map<String, Object>>> getDailyOrderStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get daily order statistics request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<Map<String, Object>> statistics = orderStatisticsService.getDailyOrderStatistics(
+                startOrDefault(startDate), endOrDefault(endDate));
+
+        logger.info("Daily order statistics retrieved for {} days", statistics.size());
+        return ResponseEntity.ok(statistics);
+    }
+
+    // Get revenue breakdown (excluding cancelled orders)
+    @GetMapping("/revenue")
+    public ResponseEntity<Map<String, Object>> getRevenueStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get revenue statistics request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Object> statistics = orderStatisticsService.getRevenueStatistics(
+                startOrDefault(startDate), endOrDefault(endDate));
+
+        logger.info("Revenue statistics retrieved");
+        return ResponseEntity.ok(statistics);
+    }
+
+    // Get best-selling products (excluding cancelled orders)
+    @GetMapping("/products/best-sellers")
+    public ResponseEntity<List<Map<String, Object>>> getBestSellingProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get best-selling products request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<Map<String, Object>> products = productSalesService.getBestSellingProducts(
+                startOrDefault(startDate), endOrDefault(endDate), Math.clamp(limit, 1, MAX_BEST_SELLERS));
+
+        logger.info("Best-selling products retrieved: {}", products.size());
+        return ResponseEntity.ok(products);
+    }
+
+    // Get sales per product category (excluding cancelled orders)
+    @GetMapping("/categories")
+    public ResponseEntity<List<Map<String, Object>>> getSalesByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get sales by category request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<Map<String, Object>> categories = productSalesService.getSalesByCategory(
+                startOrDefault(startDate), endOrDefault(endDate));
+
+        logger.info("Sales by category retrieved for {} categories", categories.size());
+        return ResponseEntity.ok(categories);
+    }
+
+    // Get estimated unique customers and products, overall and per day, week or month
+    @GetMapping("/distinct")
+    public ResponseEntity<Map<String, Object>> getDistinctCounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "DAY") DistinctCountService.Granularity granularity,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get distinct counts request received ({})", granularity);
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Object> counts = distinctCountService.getDistinctCounts(
+                startOrDefault(startDate), endOrDefault(endDate), granularity);
+
+        logger.info("Distinct counts retrieved");
+        return ResponseEntity.ok(counts);
+    }
+
+    // Get p50/p90/p99 minutes per fulfilment stage and delivery type, optionally per hour of day
+    @GetMapping("/fulfillment")
+    public ResponseEntity<Map<String, Object>> getFulfillmentPercentiles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean byHourOfDay,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Get fulfillment percentiles request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Object> percentiles = fulfillmentDurationService.getFulfillmentPercentiles(
+                startOrDefault(startDate), endOrDefault(endDate), byHourOfDay);
+
+        logger.info("Fulfillment percentiles retrieved");
+        return ResponseEntity.ok(percentiles);
+    }
+
+    // Live counters kept in memory (orders placed since this instance started); cheap enough to poll
+    @GetMapping("/live")
+    public ResponseEntity<Map<String, Object>> getLiveStatistics(
+            @RequestParam(defaultValue = "60") int minutes,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(liveOrderMetrics.snapshot(Math.clamp(minutes, 0, MAX_LIVE_MINUTES)));
+    }
+
+    // Recompute the rollups, product sales, distinct counts and fulfilment durations for a date range from the orders table (backfills, repairs)
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Rebuild order rollups request received from {} to {}", startDate, endDate);
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        LocalDateTime end = endOrDefault(endDate);
+        if (startDate.isAfter(end)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+
+        long rows = orderStatisticsService.rebuild(startDate, end);
+        long productRows = productSalesService.rebuild(startDate, end);
+        long distinctRows = distinctCountService.rebuild(startDate, end);
+        long fulfillmentRows = fulfillmentDurationService.rebuild(startDate, end);
+        return ResponseEntity.ok(Map.of("rowsWritten", rows, "productRowsWritten", productRows,
+                "distinctRowsWritten", distinctRows, "fulfillmentRowsWritten", fulfillmentRows, "startDate", startDate.toString(), "endDate", end.toString()));
+    }
+
+    // Default to last 30 days if no dates provided
+    private static LocalDateTime startOrDefault(LocalDateTime startDate) {
+        return startDate != null ? startDate : LocalDateTime.now().minusDays(30);
+    }
+
+    private static LocalDateTime endOrDefault(LocalDateTime endDate) {
+        return endDate != null ? endDate : LocalDateTime.now();
+    }
+}
@@ -0,0 +1,53 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.service.ProductAffinityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/orders/products")
+public class ProductAffinityController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAffinityController.class);
+
+    private final ProductAffinityService productAffinityService;
+
+    public ProductAffinityController(ProductAffinityService productAffinityService) {
+        this.productAffinityService = productAffinityService;
+    }
+
+    // Products most often ordered together with the given product
+    @GetMapping("/{productId}/bought-together")
+    public ResponseEntity<List<ProductAffinityService.RelatedProduct>> getBoughtTogether(
+            @PathVariable UUID productId,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+
+        return ResponseEntity.ok(productAffinityService.getBoughtTogether(productId, limit));
+    }
+
+    // Recompute all product pairs from order history (backfills, repairs)
+    @PostMapping("/bought-together/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild(
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Rebuild product pairs request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        long rows = productAffinityService.rebuild();
+        return ResponseEntity.ok(Map.of("rowsWritten", rows));
+    }
+}
@@ -0,0 +1,64 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.service.ProductSnapshotCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/product-cache")
+public class ProductCacheController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheController.class);
+
+    private final ProductSnapshotCache productSnapshotCache;
+
+    public ProductCacheController(ProductSnapshotCache productSnapshotCache) {
+        this.productSnapshotCache = productSnapshotCache;
+    }
+
+    // Invalidate a cached product snapshot (e.g. after a price change); with a version,
+    // only snapshots taken from an older (or unknown) product version are dropped
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<Map<String, Object>> invalidateProduct(
+            @PathVariable UUID productId,
+            @RequestParam(required = false) Long version,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Product cache invalidation request received: {} (version: {})", productId, version);
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        boolean invalidated;
+        if (version != null) {
+            invalidated = productSnapshotCache.invalidateIfOlderThan(productId, version);
+        } else {
+            productSnapshotCache.invalidate(productId);
+            invalidated = true;
+        }
+
+        return ResponseEntity.ok(Map.of("productId", productId, "invalidated", invalidated));
+    }
+
+    // Drop every cached product snapshot
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> invalidateAll(
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Product cache flush request received");
+
+        if (!"ADMIN".equals(userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        productSnapshotCache.invalidateAll();
+        return ResponseEntity.ok(Map.of("invalidated", true));
+    }
+}
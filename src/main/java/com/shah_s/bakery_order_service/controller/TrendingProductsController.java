@@ -0,0 +1,50 @@
+package com.shah_s.bakery_order_service.controller;
+
+import com.shah_s.bakery_order_service.service.SpaceSavingSketch;
+import com.shah_s.bakery_order_service.service.TrendingProductsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// "Trending now" products, answered from in-memory sketches of this instance's recent orders
+@RestController
+@RequestMapping("/api/orders/trending")
+public class TrendingProductsController {
+
+    private static final int MAX_TRENDING = 50;
+
+    private final TrendingProductsService trendingProductsService;
+
+    public TrendingProductsController(TrendingProductsService trendingProductsService) {
+        this.trendingProductsService = trendingProductsService;
+    }
+
+    // Products with the most units ordered in the last `minutes` minutes (at most 60)
+    @GetMapping
+    public ResponseEntity<List<TrendingProductsService.TrendingProduct>> getTrending(
+            @RequestParam(defaultValue = "15") int minutes,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(trendingProductsService.getTrending(minutes, Math.clamp(limit, 1, MAX_TRENDING)));
+    }
+
+    // This instance's sketch for the window, to be combined with other instances' via /merge
+    @GetMapping("/sketch")
+    public ResponseEntity<SpaceSavingSketch.Snapshot> getSketch(@RequestParam(defaultValue = "15") int minutes) {
+        return ResponseEntity.ok(trendingProductsService.window(minutes));
+    }
+
+    // Ranking across instances from their /sketch responses for the same window
+    @PostMapping("/merge")
+    public ResponseEntity<List<TrendingProductsService.TrendingProduct>> merge(
+            @RequestBody List<SpaceSavingSketch.Snapshot> snapshots,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (snapshots.isEmpty()) {
+            throw new IllegalArgumentException("At least one sketch is required");
+        }
+
+        return ResponseEntity.ok(trendingProductsService.merge(snapshots, Math.clamp(limit, 1, MAX_TRENDING)));
+    }
+}
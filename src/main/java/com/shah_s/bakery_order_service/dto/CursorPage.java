@@ -0,0 +1,22 @@
+package com.shah_s.bakery_order_service.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// One slice of a keyset-paginated listing; pass nextCursor back to continue (null on the last page)
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final int size;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.size = items.size();
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.shah_s.bakery_order_service.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Item of an imported order; product details come from the source system, not product-service
+@Setter
+@Getter
+public class OrderImportItem {
+
+    @NotNull(message = "Product ID is required")
+    private UUID productId;
+
+    @NotBlank(message = "Product SKU is required")
+    @Size(max = 50, message = "Product SKU must not exceed 50 characters")
+    private String productSku;
+
+    @NotBlank(message = "Product name is required")
+    @Size(max = 200, message = "Product name must not exceed 200 characters")
+    private String productName;
+
+    @Size(max = 100, message = "Product category must not exceed 100 characters")
+    private String productCategory;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;
+
+    @NotNull(message = "Unit price is required")
+    @DecimalMin(value = "0.01", message = "Unit price must be greater than zero")
+    @Digits(integer = 8, fraction = 2, message = "Invalid unit price format")
+    private BigDecimal unitPrice;
+
+    @DecimalMin(value = "0.00", message = "Discount per item cannot be negative")
+    private BigDecimal discountPerItem;
+
+    @Size(max = 500, message = "Special instructions must not exceed 500 characters")
+    private String specialInstructions;
+
+    public OrderImportItem() {}
+}
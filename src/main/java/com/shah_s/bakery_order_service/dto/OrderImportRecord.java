@@ -0,0 +1,87 @@
+package com.shah_s.bakery_order_service.dto;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// One order in a bulk import (a line of NDJSON, or consecutive CSV rows sharing an orderRef)
+@Setter
+@Getter
+public class OrderImportRecord {
+
+    // CSV only: groups item rows into one order
+    private String orderRef;
+
+    // Optional; generated when absent
+    @Size(max = 20, message = "Order number must not exceed 20 characters")
+    private String orderNumber;
+
+    @NotNull(message = "User ID is required")
+    private UUID userId;
+
+    @NotBlank(message = "Customer name is required")
+    @Size(max = 200, message = "Customer name must not exceed 200 characters")
+    private String customerName;
+
+    @NotBlank(message = "Customer email is required")
+    @Email(message = "Invalid email format")
+    @Size(max = 255, message = "Email must not exceed 255 characters")
+    private String customerEmail;
+
+    @Size(max = 20, message = "Phone number must not exceed 20 characters")
+    private String customerPhone;
+
+    private Order.OrderStatus status = Order.OrderStatus.PENDING;
+
+    private Order.DeliveryType deliveryType = Order.DeliveryType.PICKUP;
+
+    private String deliveryAddress;
+
+    private LocalDateTime deliveryDate;
+
+    @Size(max = 1000, message = "Special instructions must not exceed 1000 characters")
+    private String specialInstructions;
+
+    @Size(max = 50, message = "Discount code must not exceed 50 characters")
+    private String discountCode;
+
+    @DecimalMin(value = "0.00", message = "Discount amount cannot be negative")
+    private BigDecimal discountAmount;
+
+    @DecimalMin(value = "0.00", message = "Delivery fee cannot be negative")
+    private BigDecimal deliveryFee;
+
+    // Optional; computed with the configured tax rate when absent
+    @DecimalMin(value = "0.00", message = "Tax amount cannot be negative")
+    private BigDecimal taxAmount;
+
+    // Original order time; defaults to the import time
+    private LocalDateTime createdAt;
+
+    // Lifecycle times from the source system. One the status implies but the record lacks is filled in
+    // by the importer (see OrderImportService.applyLifecycle).
+    private LocalDateTime confirmedAt;
+
+    private LocalDateTime readyAt;
+
+    private LocalDateTime completedAt;
+
+    private LocalDateTime cancelledAt;
+
+    @Size(max = 1000, message = "Cancellation reason must not exceed 1000 characters")
+    private String cancellationReason;
+
+    @Valid
+    @NotEmpty(message = "Order must contain at least one item")
+    private List<OrderImportItem> items = new ArrayList<>();
+
+    public OrderImportRecord() {}
+}
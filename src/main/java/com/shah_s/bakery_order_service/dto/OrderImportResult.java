@@ -0,0 +1,57 @@
+package com.shah_s.bakery_order_service.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk import: totals plus the chunks and records that were rejected
+@Setter
+@Getter
+public class OrderImportResult {
+
+    private long recordsRead;
+    private long ordersImported;
+    private long itemsImported;
+    private long recordsRejected;
+    private int chunksWritten;
+    private int chunksFailed;
+    private long elapsedMs;
+    private List<ChunkError> chunkErrors = new ArrayList<>();
+    private List<RecordError> recordErrors = new ArrayList<>();
+    // True when more record errors occurred than are listed
+    private boolean recordErrorsTruncated;
+
+    public OrderImportResult() {}
+
+    // A chunk whose write was rolled back; its orders were not imported
+    @Getter
+    public static class ChunkError {
+        private final int chunk;
+        private final long firstLine;
+        private final long lastLine;
+        private final int orders;
+        private final String message;
+
+        public ChunkError(int chunk, long firstLine, long lastLine, int orders, String message) {
+            this.chunk = chunk;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+            this.orders = orders;
+            this.message = message;
+        }
+    }
+
+    // A record skipped because it could not be parsed or failed validation
+    @Getter
+    public static class RecordError {
+        private final long line;
+        private final String message;
+
+        public RecordError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class OrderResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime confirmedAt;
+    private LocalDateTime readyAt;
     private LocalDateTime completedAt;
     private LocalDateTime cancelledAt;
     private String cancellationReason;
@@ -78,6 +79,7 @@ public class OrderResponse {
         response.createdAt = order.getCreatedAt();
         response.updatedAt = order.getUpdatedAt();
         response.confirmedAt = order.getConfirmedAt();
+        response.readyAt = order.getReadyAt();
         response.completedAt = order.getCompletedAt();
         response.cancelledAt = order.getCancelledAt();
         response.cancellationReason = order.getCancellationReason();
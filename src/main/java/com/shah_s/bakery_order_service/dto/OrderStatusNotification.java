@@ -0,0 +1,63 @@
+package com.shah_s.bakery_order_service.dto;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Status of one order as pushed to live subscribers; small enough to build without loading items
+@Getter
+public class OrderStatusNotification {
+
+    private final UUID orderId;
+    private final String orderNumber;
+    private final UUID userId;
+    private final Order.OrderStatus status;
+
+    // Null in snapshots sent when a stream opens
+    private final Order.OrderStatus previousStatus;
+
+    private final Order.DeliveryType deliveryType;
+    private final LocalDateTime estimatedReadyTime;
+    private final String cancellationReason;
+    private final LocalDateTime updatedAt;
+
+    private OrderStatusNotification(UUID orderId, String orderNumber, UUID userId, Order.OrderStatus status,
+                                    Order.OrderStatus previousStatus, Order.DeliveryType deliveryType,
+                                    LocalDateTime estimatedReadyTime, String cancellationReason,
+                                    LocalDateTime updatedAt) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.status = status;
+        this.previousStatus = previousStatus;
+        this.deliveryType = deliveryType;
+        this.estimatedReadyTime = estimatedReadyTime;
+        this.cancellationReason = cancellationReason;
+        this.updatedAt = updatedAt;
+    }
+
+    public static OrderStatusNotification from(Order order, Order.OrderStatus previousStatus) {
+        return new OrderStatusNotification(order.getId(), order.getOrderNumber(), order.getUserId(), order.getStatus(),
+                previousStatus, order.getDeliveryType(), order.getEstimatedReadyTime(), order.getCancellationReason(),
+                order.getUpdatedAt());
+    }
+
+    public static OrderStatusNotification snapshot(Order order) {
+        return from(order, null);
+    }
+
+    // From the order's columns alone, as read by OrderQueryRepository
+    public static OrderStatusNotification snapshot(UUID orderId, String orderNumber, UUID userId,
+                                                   Order.OrderStatus status, Order.DeliveryType deliveryType,
+                                                   LocalDateTime estimatedReadyTime, String cancellationReason,
+                                                   LocalDateTime updatedAt) {
+        return new OrderStatusNotification(orderId, orderNumber, userId, status, null, deliveryType,
+                estimatedReadyTime, cancellationReason, updatedAt);
+    }
+
+    public boolean isFinal() {
+        return status == Order.OrderStatus.DELIVERED || status == Order.OrderStatus.CANCELLED;
+    }
+}
@@ -0,0 +1,93 @@
+package com.shah_s.bakery_order_service.dto;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+public class ProductSnapshot {
+
+    // Product fields copied onto order items
+    private final UUID productId;
+    private final String sku;
+    private final String name;
+    private final String categoryName;
+    private final String description;
+    private final BigDecimal effectivePrice;
+    private final String primaryImageUrl;
+    private final Integer preparationTimeMinutes;
+
+    // Version of the product this snapshot was taken from (used for explicit invalidation)
+    private final long version;
+
+    // False when the product-service sent no version and a local load sequence stands in for it;
+    // the two numbering schemes cannot be compared
+    private final boolean versioned;
+
+    // False for a cached "product not found" answer
+    private final boolean found;
+
+    private ProductSnapshot(UUID productId, String sku, String name, String categoryName, String description,
+                            BigDecimal effectivePrice, String primaryImageUrl, Integer preparationTimeMinutes,
+                            long version, boolean versioned, boolean found) {
+        this.productId = productId;
+        this.sku = sku;
+        this.name = name;
+        this.categoryName = categoryName;
+        this.description = description;
+        this.effectivePrice = effectivePrice;
+        this.primaryImageUrl = primaryImageUrl;
+        this.preparationTimeMinutes = preparationTimeMinutes;
+        this.version = version;
+        this.versioned = versioned;
+        this.found = found;
+    }
+
+    // Static factory method (parses the product-service response)
+    public static ProductSnapshot from(UUID productId, Map<String, Object> productResponse, long fallbackVersion) {
+        Object versionObj = productResponse.get("version");
+        boolean versioned = versionObj instanceof Number;
+        long version = versioned ? ((Number) versionObj).longValue() : fallbackVersion;
+
+        return new ProductSnapshot(
+                productId,
+                (String) productResponse.get("sku"),
+                (String) productResponse.get("name"),
+                getCategoryName(productResponse),
+                (String) productResponse.get("description"),
+                getEffectivePrice(productResponse),
+                (String) productResponse.get("primaryImageUrl"),
+                getPreparationTime(productResponse),
+                version,
+                versioned,
+                true);
+    }
+
+    public static ProductSnapshot notFound(UUID productId, long version) {
+        return new ProductSnapshot(productId, null, null, null, null, BigDecimal.ZERO, null, null, version, false, false);
+    }
+
+    private static String getCategoryName(Map<String, Object> productResponse) {
+        Object categoryObj = productResponse.get("category");
+        if (categoryObj instanceof Map<?, ?> categoryMap) {
+            Object nameObj = categoryMap.get("name");
+            return nameObj != null ? nameObj.toString() : null;
+        }
+        return null;
+    }
+
+    private static BigDecimal getEffectivePrice(Map<String, Object> productResponse) {
+        Object effectivePrice = productResponse.get("effectivePrice");
+        if (effectivePrice instanceof Number) {
+            return BigDecimal.valueOf(((Number) effectivePrice).doubleValue());
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static Integer getPreparationTime(Map<String, Object> productResponse) {
+        Object prepTime = productResponse.get("preparationTimeMinutes");
+        return prepTime instanceof Number ? ((Number) prepTime).intValue() : 30; // Default 30 minutes
+    }
+}
@@ -0,0 +1,64 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// t-digest of how long one fulfilment stage took, for the orders of one delivery type that finished
+// the stage within one hour. Percentile queries merge the hour rows instead of scanning orders.
+@Setter
+@Getter
+@Entity
+@Table(name = "fulfillment_duration_hourly")
+public class FulfillmentDurationDigest {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+
+    @Column(name = "digest", nullable = false)
+    private byte[] digest;
+
+    public enum Stage {
+        CREATED_TO_CONFIRMED,
+        CONFIRMED_TO_READY,
+        READY_TO_DELIVERED
+    }
+
+    @Setter
+    @Getter
+    @Embeddable
+    public static class Key implements Serializable {
+
+        // Start of the hour in which the stage ended
+        @Column(name = "bucket_start", nullable = false)
+        private LocalDateTime bucketStart;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "stage", nullable = false, length = 30)
+        private Stage stage;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "delivery_type", nullable = false, length = 20)
+        private Order.DeliveryType deliveryType;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(bucketStart, key.bucketStart) && stage == key.stage
+                    && deliveryType == key.deliveryType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, stage, deliveryType);
+        }
+    }
+}
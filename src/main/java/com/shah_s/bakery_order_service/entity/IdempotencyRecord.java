@@ -0,0 +1,97 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "order_idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_expires", columnList = "expires_at")
+})
+public class IdempotencyRecord implements Persistable<String> {
+
+    // Getters and Setters
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 of the request body, so a key cannot be replayed for a different order
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RecordStatus status = RecordStatus.IN_PROGRESS;
+
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    // Serialized OrderResponse returned to replays
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Renewed by the node processing the request; once it lapses the owner is taken to be dead.
+    // Nullable only for claims written before leases existed, which count as lapsed.
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    // Assigned keys must be INSERTed (never merged) so a concurrent claim fails on the primary key
+    @Transient
+    private boolean newRecord = true;
+
+    // Constructors
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String idempotencyKey, String requestHash, LocalDateTime expiresAt, Duration lease) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        // At the stored precision, so the claim can later be matched by the value it was written with
+        this.createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        this.expiresAt = expiresAt;
+        this.leaseExpiresAt = createdAt.plus(lease);
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+
+    public boolean isLeaseExpired(LocalDateTime now) {
+        return leaseExpiresAt == null || leaseExpiresAt.isBefore(now);
+    }
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newRecord = false;
+    }
+
+    // Enums
+    public enum RecordStatus {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
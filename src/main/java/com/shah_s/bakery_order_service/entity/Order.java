@@ -4,13 +4,18 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Setter
@@ -19,15 +24,29 @@ import java.util.UUID;
 @Table(name = "orders", indexes = {
     @Index(name = "idx_order_user", columnList = "user_id"),
     @Index(name = "idx_order_status", columnList = "status"),
+    @Index(name = "idx_order_status_created", columnList = "status, created_at, id"),
     @Index(name = "idx_order_date", columnList = "created_at"),
     @Index(name = "idx_order_number", columnList = "order_number"),
     @Index(name = "idx_order_delivery_date", columnList = "delivery_date")
 })
 public class Order {
 
+    // Allowed status changes, one EnumSet (a bit mask) per status; DELIVERED and CANCELLED are terminal
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(OrderStatus.PENDING, EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.CONFIRMED, EnumSet.of(OrderStatus.PREPARING, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.PREPARING, EnumSet.of(OrderStatus.READY));
+        TRANSITIONS.put(OrderStatus.READY, EnumSet.of(OrderStatus.OUT_FOR_DELIVERY, OrderStatus.DELIVERED));
+        TRANSITIONS.put(OrderStatus.OUT_FOR_DELIVERY, EnumSet.of(OrderStatus.DELIVERED));
+        TRANSITIONS.put(OrderStatus.DELIVERED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(OrderStatus.CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+
     // Getters and Setters
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(name = "order_number", unique = true, nullable = false, length = 20)
@@ -57,6 +76,12 @@ public class Order {
     @Column(nullable = false)
     private OrderStatus status = OrderStatus.PENDING;
 
+    // Bumped by every write; status changes only apply if it still matches what was read.
+    // Defaults to 0 for rows written before it existed and for bulk imports.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "delivery_type", nullable = false)
     private DeliveryType deliveryType = DeliveryType.PICKUP;
@@ -72,7 +97,9 @@ public class Order {
     private String specialInstructions;
 
     // Order Items
+    // Lazy collections initialised in one session are loaded together, up to 100 orders per query
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<OrderItem> orderItems = new ArrayList<>();
 
     // Pricing Information
@@ -126,6 +153,9 @@ public class Order {
     @Column(name = "confirmed_at")
     private LocalDateTime confirmedAt;
 
+    @Column(name = "ready_at")
+    private LocalDateTime readyAt;
+
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
@@ -151,7 +181,6 @@ public class Order {
         this.customerName = customerName;
         this.customerEmail = customerEmail;
         this.deliveryType = deliveryType;
-        this.orderNumber = generateOrderNumber();
     }
 
     // Utility Methods
@@ -170,10 +199,23 @@ public class Order {
     }
 
     public boolean canBeCancelled() {
-        return status == OrderStatus.PENDING || status == OrderStatus.CONFIRMED;
+        return canBeCancelled(status);
     }
 
     public boolean canBeModified() {
+        return canBeModified(status);
+    }
+
+    // Status rules shared with read paths that never load the entity
+    public static boolean canBeCancelled(OrderStatus status) {
+        return canTransition(status, OrderStatus.CANCELLED);
+    }
+
+    public static boolean canTransition(OrderStatus from, OrderStatus to) {
+        return TRANSITIONS.get(from).contains(to);
+    }
+
+    public static boolean canBeModified(OrderStatus status) {
         return status == OrderStatus.PENDING;
     }
 
@@ -206,13 +248,6 @@ public class Order {
                 .setScale(2, java.math.RoundingMode.HALF_UP);
     }
 
-    private String generateOrderNumber() {
-        // Generate order number: ORD-YYYYMMDD-XXXX
-        String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomPart = String.valueOf((int) (Math.random() * 9000) + 1000);
-        return "ORD-" + timestamp + "-" + randomPart;
-    }
-
     // Enums
     public enum OrderStatus {
         PENDING,
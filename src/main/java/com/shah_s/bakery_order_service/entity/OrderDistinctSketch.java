@@ -0,0 +1,57 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// HyperLogLog registers for one day and metric (unique customers or unique products). Range
+// queries merge the day rows instead of counting distinct ids over orders.
+@Setter
+@Getter
+@Entity
+@Table(name = "order_distinct_daily")
+public class OrderDistinctSketch {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "sketch_precision", nullable = false)
+    private Integer sketchPrecision;
+
+    @Column(name = "registers", nullable = false)
+    private byte[] registers;
+
+    public enum Metric {
+        CUSTOMERS,
+        PRODUCTS
+    }
+
+    @Setter
+    @Getter
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "order_date", nullable = false)
+        private LocalDate orderDate;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "metric", nullable = false, length = 20)
+        private Metric metric;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(orderDate, key.orderDate) && metric == key.metric;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(orderDate, metric);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class OrderItem {
 
     // Getters and Setters
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -97,23 +97,40 @@ public class OrderItem {
 
     // Utility Methods
     public BigDecimal getSubtotal() {
+        return subtotal(unitPrice, quantity, discountPerItem);
+    }
+
+    public BigDecimal getEffectiveUnitPrice() {
+        return effectiveUnitPrice(unitPrice, discountPerItem);
+    }
+
+    public boolean hasDiscount() {
+        return hasDiscount(discountPerItem);
+    }
+
+    public Integer getTotalPreparationTime() {
+        return totalPreparationTime(preparationTimeMinutes, quantity);
+    }
+
+    // Pricing rules shared with read paths that never load the entity
+    public static BigDecimal subtotal(BigDecimal unitPrice, int quantity, BigDecimal discountPerItem) {
         BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
-        if (discountPerItem != null && discountPerItem.compareTo(BigDecimal.ZERO) > 0) {
+        if (hasDiscount(discountPerItem)) {
             BigDecimal totalDiscount = discountPerItem.multiply(BigDecimal.valueOf(quantity));
             subtotal = subtotal.subtract(totalDiscount);
         }
         return subtotal;
     }
 
-    public BigDecimal getEffectiveUnitPrice() {
+    public static BigDecimal effectiveUnitPrice(BigDecimal unitPrice, BigDecimal discountPerItem) {
         return unitPrice.subtract(discountPerItem != null ? discountPerItem : BigDecimal.ZERO);
     }
 
-    public boolean hasDiscount() {
+    public static boolean hasDiscount(BigDecimal discountPerItem) {
         return discountPerItem != null && discountPerItem.compareTo(BigDecimal.ZERO) > 0;
     }
 
-    public Integer getTotalPreparationTime() {
+    public static Integer totalPreparationTime(Integer preparationTimeMinutes, int quantity) {
         return preparationTimeMinutes != null ? preparationTimeMinutes * quantity : 0;
     }
 }
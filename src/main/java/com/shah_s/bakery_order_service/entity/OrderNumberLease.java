@@ -0,0 +1,28 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Lease on one order-number node id. An instance started without order.number.node-id holds one
+// while it runs and keeps renewing it; an expired lease goes to the next instance that needs an id.
+@Setter
+@Getter
+@Entity
+@Table(name = "order_number_leases")
+public class OrderNumberLease {
+
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    // Random id of the running instance that holds the lease
+    @Column(name = "holder", nullable = false, length = 64)
+    private String holder;
+
+    // Database time; compared with LOCALTIMESTAMP only, so instance clocks never matter
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
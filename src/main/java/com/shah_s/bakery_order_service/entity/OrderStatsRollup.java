@@ -0,0 +1,70 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Hourly order rollup: one row per (hour the orders were created in, current status, delivery type).
+// Maintained in the same transaction as order writes; statistics read these rows instead of orders.
+@Setter
+@Getter
+@Entity
+@Table(name = "order_stats_hourly")
+public class OrderStatsRollup {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "gross_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal grossAmount = BigDecimal.ZERO;
+
+    @Column(name = "subtotal_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal subtotalAmount = BigDecimal.ZERO;
+
+    @Column(name = "tax_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal taxAmount = BigDecimal.ZERO;
+
+    @Column(name = "discount_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal discountAmount = BigDecimal.ZERO;
+
+    @Column(name = "delivery_fee_amount", nullable = false, precision = 16, scale = 2)
+    private BigDecimal deliveryFeeAmount = BigDecimal.ZERO;
+
+    @Setter
+    @Getter
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "bucket_start", nullable = false)
+        private LocalDateTime bucketStart;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "status", nullable = false, length = 20)
+        private Order.OrderStatus status;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "delivery_type", nullable = false, length = 20)
+        private Order.DeliveryType deliveryType;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(bucketStart, key.bucketStart) && status == key.status
+                    && deliveryType == key.deliveryType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, status, deliveryType);
+        }
+    }
+}
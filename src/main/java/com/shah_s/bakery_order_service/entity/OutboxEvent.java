@@ -0,0 +1,89 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "order_outbox", indexes = {
+    @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id")
+})
+public class OutboxEvent {
+
+    // Getters and Setters
+    @Id
+    @UuidV7
+    private UUID id;
+
+    // Order the event belongs to
+    @Column(name = "aggregate_id", nullable = false)
+    @NotNull(message = "Aggregate ID is required")
+    private UUID aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private EventType eventType;
+
+    // Events of one order with the same key are delivered in the order they were written, one at a
+    // time: a product's stock calls (consume before release), the payment calls (create before cancel)
+    @Column(name = "ordering_key", length = 100)
+    private String orderingKey;
+
+    // JSON request body sent to the target service
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    // Not picked up before this time (retry backoff, or the lease of a dispatcher working on it)
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    // Constructors
+    public OutboxEvent() {}
+
+    public OutboxEvent(UUID aggregateId, EventType eventType, String orderingKey, String payload) {
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.orderingKey = orderingKey;
+        this.payload = payload;
+        this.nextAttemptAt = LocalDateTime.now();
+    }
+
+    // Enums
+    public enum EventType {
+        PAYMENT_CREATE,
+        PAYMENT_CANCEL,
+        STOCK_CONSUME, // One event per order item
+        STOCK_RELEASE
+    }
+
+    public enum OutboxStatus {
+        PENDING,
+        DISPATCHED,
+        FAILED // Gave up after max attempts; needs manual attention
+    }
+}
@@ -0,0 +1,51 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+// Product co-occurrence: how many live (not cancelled) orders contained both products. Each pair
+// is stored in both directions, so "bought together with X" is a range scan over X's rows.
+@Setter
+@Getter
+@Entity
+@Table(name = "product_pair_counts", indexes = {
+    // Serves the top-K lookup in pair_count order without sorting
+    @Index(name = "idx_product_pair_top", columnList = "product_id, pair_count, related_product_id")
+})
+public class ProductPairCount {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "pair_count", nullable = false)
+    private Long pairCount = 0L;
+
+    @Setter
+    @Getter
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "product_id", nullable = false)
+        private UUID productId;
+
+        @Column(name = "related_product_id", nullable = false)
+        private UUID relatedProductId;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(productId, key.productId) && Objects.equals(relatedProductId, key.relatedProductId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, relatedProductId);
+        }
+    }
+}
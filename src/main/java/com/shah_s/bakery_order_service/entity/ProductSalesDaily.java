@@ -0,0 +1,69 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+// Daily product sales: one row per (day the orders were created on, product), cancelled orders
+// excluded. Maintained in the same transaction as order writes; best-seller and category reports
+// sum these rows instead of scanning order_items.
+@Setter
+@Getter
+@Entity
+@Table(name = "product_sales_daily")
+public class ProductSalesDaily {
+
+    @EmbeddedId
+    private Key key;
+
+    // Latest snapshot seen for the product that day
+    @Column(name = "product_sku", nullable = false, length = 50)
+    private String productSku;
+
+    @Column(name = "product_name", nullable = false, length = 200)
+    private String productName;
+
+    @Column(name = "product_category", length = 100)
+    private String productCategory;
+
+    @Column(name = "quantity", nullable = false)
+    private Long quantity = 0L;
+
+    // unit price x quantity, before per-item discounts
+    @Column(name = "revenue", nullable = false, precision = 16, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    // Orders containing the product; each order falls on exactly one day, so this sums across days
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Setter
+    @Getter
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "sale_date", nullable = false)
+        private LocalDate saleDate;
+
+        @Column(name = "product_id", nullable = false)
+        private UUID productId;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(saleDate, key.saleDate) && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(saleDate, productId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.shah_s.bakery_order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Completed startup backfill of one derived statistics table (see StatsBackfill). Only written once
+// the rebuild has finished, so a backfill cut short by a restart is run again.
+@Setter
+@Getter
+@Entity
+@Table(name = "stats_backfills")
+public class StatsBackfillMarker {
+
+    // Name of the table that was backfilled
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,60 @@
+package com.shah_s.bakery_order_service.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// RFC 9562 UUIDv7: 48-bit Unix millis, version 7, 12-bit counter, variant, 62 random bits.
+// The millis+counter prefix comes from one CAS-advanced value, so ids from this JVM are
+// strictly increasing even within a millisecond or when the clock steps back.
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    // (unix millis << 12) | counter of the last id handed out
+    private static final AtomicLong lastTimestamp = new AtomicLong();
+
+    public static UUID generate() {
+        long timestamp = nextTimestamp();
+        long mostSigBits = (timestamp >>> COUNTER_BITS) << 16     // unix_ts_ms
+                | 0x7000L                                          // version
+                | (timestamp & 0xFFFL);                            // rand_a, used as counter
+        long leastSigBits = ThreadLocalRandom.current().nextLong() >>> 2
+                | 0x8000_0000_0000_0000L;                          // variant 10
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // Unix millis encoded in a v7 UUID
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    private static long nextTimestamp() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = lastTimestamp.get();
+            // A counter overflow simply borrows the next millisecond
+            long next = Math.max(now, last + 1);
+            if (lastTimestamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return generate();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,7 @@
+package com.shah_s.bakery_order_service.event;
+
+import com.shah_s.bakery_order_service.entity.Order;
+
+// Published inside the transaction that persists a new order placed through the API
+public record OrderCreatedEvent(Order order) {
+}
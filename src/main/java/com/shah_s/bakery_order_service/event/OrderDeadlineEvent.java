@@ -0,0 +1,18 @@
+package com.shah_s.bakery_order_service.event;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Published outside any transaction when an active order reaches a deadline. At least once: a
+// restart reloads timers that are already due, so listeners should check the order's current state.
+public record OrderDeadlineEvent(UUID orderId, Type type, LocalDateTime deadline) {
+
+    public enum Type {
+        // READY and past its estimated ready time: due for pickup or dispatch
+        READY,
+        // CONFIRMED or PREPARING and past its estimated ready time
+        OVERDUE,
+        // Still PENDING after order.deadlines.pending-timeout-minutes
+        PENDING_EXPIRED
+    }
+}
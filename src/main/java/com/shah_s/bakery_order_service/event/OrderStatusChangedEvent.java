@@ -0,0 +1,7 @@
+package com.shah_s.bakery_order_service.event;
+
+import com.shah_s.bakery_order_service.entity.Order;
+
+// Published inside the transaction that moves an order from previousStatus to order.getStatus()
+public record OrderStatusChangedEvent(Order order, Order.OrderStatus previousStatus) {
+}
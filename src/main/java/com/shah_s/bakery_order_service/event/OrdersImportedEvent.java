@@ -0,0 +1,22 @@
+package com.shah_s.bakery_order_service.event;
+
+import com.shah_s.bakery_order_service.entity.Order;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Published inside each bulk import chunk transaction, with the orders that chunk inserts.
+// Kept apart from OrderCreatedEvent so live views can ignore backfilled history.
+// derivedHistory holds the ids of orders whose creation or lifecycle times were not in the source
+// and were filled in by the importer; they are consistent but not measurements.
+public record OrdersImportedEvent(List<Order> orders, Set<UUID> derivedHistory) {
+
+    public OrdersImportedEvent(List<Order> orders) {
+        this(orders, Set.of());
+    }
+
+    public boolean hasMeasuredHistory(Order order) {
+        return !derivedHistory.contains(order.getId());
+    }
+}
@@ -0,0 +1,8 @@
+package com.shah_s.bakery_order_service.exception;
+
+public class IdempotencyConflictException extends OrderServiceException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package com.shah_s.bakery_order_service.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Trigram (pg_trgm) GiST index over the customer name, email and phone of each order. PostgreSQL
+// keeps it up to date on every insert and update, and it serves substring (LIKE '%term%') and
+// word-similarity matches as well as nearest-first (<<->) scans, which let a ranked search stop
+// after its best candidates instead of scoring every match. Hibernate's schema update cannot
+// express extensions or expression indexes, so they are created here once the schema exists.
+@Component
+public class CustomerSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    public static final String INDEX_NAME = "idx_order_customer_search_gist";
+
+    // The GIN index earlier versions built; it cannot return rows nearest-first
+    static final String LEGACY_INDEX_NAME = "idx_order_customer_search_trgm";
+
+    // The searchable text of an order. Queries must use this exact expression (on an unaliased
+    // orders table) for the planner to match it to the index.
+    public static final String DOCUMENT = "lower(coalesce(customer_name, '') || ' ' || " +
+            "coalesce(customer_email, '') || ' ' || coalesce(customer_phone, ''))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${order.search.create-index:true}")
+    private boolean createIndex;
+
+    public CustomerSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Built CONCURRENTLY so a first start against a large orders table does not block writes; the
+    // GIN index it replaces serves searches until then and is dropped once the new one is valid.
+    // Without the index search still works, only as a sequential scan. The internal-page signature
+    // is widened from the 12-byte default, which a document of several words fills up, so a scan
+    // can skip the subtrees that cannot hold a match.
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        if (!createIndex) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            // An interrupted concurrent build leaves an invalid index behind that IF NOT EXISTS would keep
+            Boolean valid = jdbcTemplate.query("SELECT i.indisvalid FROM pg_index i " +
+                    "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?",
+                    rs -> rs.next() ? rs.getBoolean(1) : null, INDEX_NAME);
+            if (Boolean.FALSE.equals(valid)) {
+                logger.warn("Dropping invalid customer search index {} before rebuilding it", INDEX_NAME);
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + INDEX_NAME);
+            }
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + INDEX_NAME +
+                    " ON orders USING gist ((" + DOCUMENT + ") gist_trgm_ops(siglen = 256))");
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + LEGACY_INDEX_NAME);
+            logger.info("Customer search index {} is in place", INDEX_NAME);
+        } catch (Exception e) {
+            logger.warn("Could not create customer search index {}: {}", INDEX_NAME, e.getMessage());
+        }
+    }
+}
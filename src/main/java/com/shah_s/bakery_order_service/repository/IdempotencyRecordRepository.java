@@ -0,0 +1,43 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Purge expired keys
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    // Deletes the record only if it is still the one that was read (same claim time and status);
+    // 0 means another node took the key over, completed or released it in the meantime
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt = :createdAt " +
+            "AND r.status = :status")
+    int deleteIfUnchanged(@Param("key") String key, @Param("createdAt") LocalDateTime createdAt,
+                          @Param("status") IdempotencyRecord.RecordStatus status);
+
+    // Deletes an in-progress claim only if it is still the one that was read and its lease has lapsed;
+    // 0 means the owner renewed it, or another node took it over, in the meantime
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt = :createdAt " +
+            "AND r.status = 'IN_PROGRESS' AND (r.leaseExpiresAt IS NULL OR r.leaseExpiresAt < :now)")
+    int deleteIfLeaseExpired(@Param("key") String key, @Param("createdAt") LocalDateTime createdAt,
+                             @Param("now") LocalDateTime now);
+
+    // Extends the lease of a claim that is still in progress; 0 means it was completed, released or
+    // taken over
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE r.idempotencyKey = :key AND r.createdAt = :createdAt AND r.status = 'IN_PROGRESS'")
+    int renewLease(@Param("key") String key, @Param("createdAt") LocalDateTime createdAt,
+                   @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+}
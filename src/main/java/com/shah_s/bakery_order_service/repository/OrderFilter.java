@@ -0,0 +1,13 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Optional criteria for order listings and exports; null fields are not filtered on
+public record OrderFilter(UUID userId, Order.OrderStatus status, Order.DeliveryType deliveryType,
+                          BigDecimal minAmount, BigDecimal maxAmount,
+                          LocalDateTime startDate, LocalDateTime endDate) {
+}
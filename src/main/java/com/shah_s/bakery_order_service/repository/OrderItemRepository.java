@@ -42,32 +42,6 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
     @Query("SELECT COALESCE(SUM(oi.unitPrice * oi.quantity), 0) FROM OrderItem oi WHERE oi.productId = :productId")
     BigDecimal getTotalRevenueForProduct(@Param("productId") UUID productId);
 
-    // Get best-selling products
-    @Query("SELECT oi.productId as productId, " +
-           "oi.productSku as productSku, " +
-           "oi.productName as productName, " +
-           "SUM(oi.quantity) as totalQuantity, " +
-           "COUNT(DISTINCT oi.order.id) as orderCount, " +
-           "SUM(oi.unitPrice * oi.quantity) as totalRevenue " +
-           "FROM OrderItem oi " +
-           "WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-           "GROUP BY oi.productId, oi.productSku, oi.productName " +
-           "ORDER BY SUM(oi.quantity) DESC")
-    List<Object[]> getBestSellingProducts(@Param("startDate") LocalDateTime startDate,
-                                         @Param("endDate") LocalDateTime endDate);
-
-    // Get products by category sales
-    @Query("SELECT oi.productCategory as category, " +
-           "SUM(oi.quantity) as totalQuantity, " +
-           "COUNT(DISTINCT oi.productId) as productCount, " +
-           "SUM(oi.unitPrice * oi.quantity) as totalRevenue " +
-           "FROM OrderItem oi " +
-           "WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-           "GROUP BY oi.productCategory " +
-           "ORDER BY SUM(oi.quantity) DESC")
-    List<Object[]> getSalesByCategory(@Param("startDate") LocalDateTime startDate,
-                                     @Param("endDate") LocalDateTime endDate);
-
     // Get order items with special instructions
     @Query("SELECT oi FROM OrderItem oi " +
            "WHERE oi.specialInstructions IS NOT NULL " +
@@ -103,16 +77,6 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
            "FROM OrderItem oi WHERE oi.order.id = :orderId")
     Integer getTotalPreparationTimeForOrder(@Param("orderId") UUID orderId);
 
-    // Find frequently ordered together products (basic version)
-    @Query("SELECT oi1.productId as product1, oi2.productId as product2, COUNT(*) as frequency " +
-           "FROM OrderItem oi1 " +
-           "JOIN OrderItem oi2 ON oi1.order.id = oi2.order.id " +
-           "WHERE oi1.productId < oi2.productId " +
-           "GROUP BY oi1.productId, oi2.productId " +
-           "HAVING COUNT(*) > :minFrequency " +
-           "ORDER BY COUNT(*) DESC")
-    List<Object[]> findFrequentlyOrderedTogether(@Param("minFrequency") Long minFrequency);
-
     // Get order item statistics
     @Query("SELECT " +
            "COUNT(oi) as totalItems, " +
@@ -0,0 +1,79 @@
+package com.shah_s.bakery_order_service.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Node id leases for OrderNumberGenerator. All expiry checks use the database clock.
+// PostgreSQL only (generate_series, INSERT ... ON CONFLICT ... RETURNING); on any other database
+// pin order.number.node-id instead of leasing one.
+@Repository
+public class OrderNumberLeaseRepository {
+
+    // Takes the lowest id that was never leased or whose lease expired. Two instances picking the
+    // same id collide on the primary key; the loser's conditional update matches nothing, so it
+    // gets no row back and tries again.
+    private static final String CLAIM_SQL =
+            "INSERT INTO order_number_leases (node_id, holder, expires_at) " +
+            "SELECT n, :holder, LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1 second' " +
+            "FROM generate_series(0, :maxNodeId) n " +
+            "WHERE NOT EXISTS (SELECT 1 FROM order_number_leases l WHERE l.node_id = n AND l.expires_at >= LOCALTIMESTAMP) " +
+            "ORDER BY n LIMIT 1 " +
+            "ON CONFLICT (node_id) DO UPDATE SET holder = EXCLUDED.holder, expires_at = EXCLUDED.expires_at " +
+            "WHERE order_number_leases.expires_at < LOCALTIMESTAMP " +
+            "RETURNING node_id";
+
+    private static final String RENEW_SQL =
+            "UPDATE order_number_leases SET expires_at = LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1 second' " +
+            "WHERE node_id = :nodeId AND holder = :holder";
+
+    private static final String RELEASE_SQL =
+            "DELETE FROM order_number_leases WHERE node_id = :nodeId AND holder = :holder";
+
+    private static final int CLAIM_ATTEMPTS = 5;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OrderNumberLeaseRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Empty when every id up to maxNodeId is held by a live lease
+    public Optional<Integer> claim(String holder, long ttlSeconds, int maxNodeId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("holder", holder)
+                .addValue("ttlSeconds", ttlSeconds)
+                .addValue("maxNodeId", maxNodeId);
+        for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+            List<Integer> claimed = jdbcTemplate.queryForList(CLAIM_SQL, params, Integer.class);
+            if (!claimed.isEmpty()) {
+                return Optional.of(claimed.get(0));
+            }
+            // No row back: either all ids are taken, or another instance won the same id
+            if (!hasFreeNodeId(maxNodeId)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    // False if the lease expired and was taken over by another instance
+    public boolean renew(int nodeId, String holder, long ttlSeconds) {
+        return jdbcTemplate.update(RENEW_SQL, new MapSqlParameterSource("nodeId", nodeId)
+                .addValue("holder", holder)
+                .addValue("ttlSeconds", ttlSeconds)) == 1;
+    }
+
+    public void release(int nodeId, String holder) {
+        jdbcTemplate.update(RELEASE_SQL, new MapSqlParameterSource("nodeId", nodeId).addValue("holder", holder));
+    }
+
+    private boolean hasFreeNodeId(int maxNodeId) {
+        Integer live = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_number_leases WHERE node_id <= :maxNodeId AND expires_at >= LOCALTIMESTAMP",
+                new MapSqlParameterSource("maxNodeId", maxNodeId), Integer.class);
+        return live == null || live <= maxNodeId;
+    }
+}
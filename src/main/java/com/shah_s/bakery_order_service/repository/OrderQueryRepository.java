@@ -0,0 +1,481 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.dto.CursorPage;
+import com.shah_s.bakery_order_service.dto.OrderItemResponse;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.dto.OrderStatusNotification;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Read model for order queries: one flat orders LEFT JOIN order_items query mapped straight into
+// OrderResponse trees, with no entities, persistence context or dirty-checking snapshots.
+// Paged queries limit the orders in a subquery so items never distort the page.
+@Repository
+public class OrderQueryRepository {
+
+    private static final String ORDER_COLUMNS = "o.id, o.order_number, o.user_id, o.customer_name, o.customer_email, " +
+            "o.customer_phone, o.status, o.delivery_type, o.delivery_address, o.delivery_date, o.special_instructions, " +
+            "o.subtotal, o.tax_amount, o.discount_amount, o.delivery_fee, o.total_amount, o.discount_code, " +
+            "o.discount_percentage, o.estimated_preparation_minutes, o.estimated_ready_time, o.created_at, " +
+            "o.updated_at, o.confirmed_at, o.ready_at, o.completed_at, o.cancelled_at, o.cancellation_reason";
+
+    private static final String ITEM_COLUMNS = "i.id AS item_id, i.product_id, i.product_sku, i.product_name, " +
+            "i.product_category, i.product_description, i.product_image_url, i.quantity, i.unit_price, " +
+            "i.discount_per_item, i.special_instructions AS item_special_instructions, i.preparation_time_minutes, " +
+            "i.created_at AS item_created_at";
+
+    // The columns a live status notification carries; no items, so a snapshot is one narrow scan
+    private static final String STATUS_COLUMNS = "o.id, o.order_number, o.user_id, o.status, o.delivery_type, " +
+            "o.estimated_ready_time, o.cancellation_reason, o.updated_at";
+
+    private static final RowMapper<OrderStatusNotification> STATUS_MAPPER = (rs, rowNum) ->
+            OrderStatusNotification.snapshot(rs.getObject("id", UUID.class), rs.getString("order_number"),
+                    rs.getObject("user_id", UUID.class), Order.OrderStatus.valueOf(rs.getString("status")),
+                    Order.DeliveryType.valueOf(rs.getString("delivery_type")),
+                    rs.getObject("estimated_ready_time", LocalDateTime.class), rs.getString("cancellation_reason"),
+                    rs.getObject("updated_at", LocalDateTime.class));
+
+    private static final String DEFAULT_ORDER_BY = "o.created_at DESC, o.id DESC";
+
+    // Sortable API properties and their columns; anything else is rejected rather than put into SQL
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "createdAt", "o.created_at",
+            "updatedAt", "o.updated_at",
+            "orderNumber", "o.order_number",
+            "status", "o.status",
+            "totalAmount", "o.total_amount",
+            "customerName", "o.customer_name",
+            "deliveryDate", "o.delivery_date",
+            "estimatedReadyTime", "o.estimated_ready_time");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Same data source, but rows are pulled from the server in batches instead of all at once
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public OrderQueryRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                @Value("${order.export.fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(exportFetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    public Optional<OrderResponse> findById(UUID orderId) {
+        return first(query("o.id = :id", new MapSqlParameterSource("id", orderId), DEFAULT_ORDER_BY));
+    }
+
+    public Optional<OrderResponse> findByOrderNumber(String orderNumber) {
+        return first(query("o.order_number = :orderNumber", new MapSqlParameterSource("orderNumber", orderNumber),
+                DEFAULT_ORDER_BY));
+    }
+
+    public List<OrderResponse> findByUserId(UUID userId) {
+        return query("o.user_id = :userId", new MapSqlParameterSource("userId", userId), DEFAULT_ORDER_BY);
+    }
+
+    public Page<OrderResponse> findByUserId(UUID userId, Pageable pageable) {
+        return page("o.user_id = :userId", new MapSqlParameterSource("userId", userId), pageable);
+    }
+
+    public List<OrderResponse> findByStatus(Order.OrderStatus status) {
+        return query("o.status = :status", new MapSqlParameterSource("status", status.name()), DEFAULT_ORDER_BY);
+    }
+
+    public Page<OrderResponse> findAll(Pageable pageable) {
+        return page("TRUE", new MapSqlParameterSource(), pageable);
+    }
+
+    // Keyset page over all orders, newest first
+    public CursorPage<OrderResponse> findAllAfter(OrderCursor cursor, int size) {
+        return keysetPage("TRUE", new MapSqlParameterSource(), cursor, size);
+    }
+
+    // Keyset page over one user's orders, newest first
+    public CursorPage<OrderResponse> findByUserIdAfter(UUID userId, OrderCursor cursor, int size) {
+        return keysetPage("o.user_id = :userId", new MapSqlParameterSource("userId", userId), cursor, size);
+    }
+
+    public List<OrderResponse> findCreatedSince(LocalDateTime since) {
+        return query("o.created_at >= :since", new MapSqlParameterSource("since", since), DEFAULT_ORDER_BY);
+    }
+
+    // Status snapshots for live streams
+    public Optional<OrderStatusNotification> findStatusById(UUID orderId) {
+        List<OrderStatusNotification> found = statuses("o.id = :id", new MapSqlParameterSource("id", orderId));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.getFirst());
+    }
+
+    public List<OrderStatusNotification> findStatusesByStatus(Order.OrderStatus status) {
+        return statuses("o.status = :status", new MapSqlParameterSource("status", status.name()));
+    }
+
+    public List<OrderStatusNotification> findStatusesByUserIdAndStatusIn(UUID userId, List<Order.OrderStatus> statuses) {
+        return statuses("o.user_id = :userId AND o.status IN (:statuses)", new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("statuses", statuses.stream().map(Enum::name).toList()));
+    }
+
+    // Substring search over customer name and email, newest first, every match. The first condition
+    // lets the trigram index narrow the rows for terms of three characters or more; the second keeps
+    // matches to name and email.
+    public List<OrderResponse> searchByCustomerInfo(String searchTerm) {
+        return query(CustomerSearchIndex.DOCUMENT + " LIKE :pattern" +
+                        " AND (LOWER(o.customer_name) LIKE :pattern OR LOWER(o.customer_email) LIKE :pattern)",
+                new MapSqlParameterSource("pattern", "%" + searchTerm.toLowerCase(Locale.ROOT) + "%"),
+                DEFAULT_ORDER_BY);
+    }
+
+    // Customer search over name, email and phone, served by the trigram index. Orders containing the
+    // term, or a word close to it, match; the maxCandidates nearest of them by word similarity (then
+    // newest first) are kept and paged in that order. Each kind of match is read nearest-first
+    // straight from the index and the read stops at maxCandidates, so a broad term costs no more
+    // than a narrow one; matches tied on similarity at the cut are kept in index order.
+    // totalElements counts the kept candidates, so it never exceeds maxCandidates.
+    public Page<OrderResponse> searchByCustomerInfo(String searchTerm, int maxCandidates, Pageable pageable) {
+        String term = searchTerm.trim().toLowerCase(Locale.ROOT);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", term)
+                .addValue("pattern", "%" + escapeLike(term) + "%")
+                .addValue("maxCandidates", maxCandidates)
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+
+        // One arm per kind of match: an OR of both could not be answered by a single ordered index scan
+        String candidates = "SELECT id, created_at, distance FROM (" +
+                nearestCustomers(CustomerSearchIndex.DOCUMENT + " LIKE :pattern") + " UNION " +
+                nearestCustomers(":term <% " + CustomerSearchIndex.DOCUMENT) + ") n" +
+                " ORDER BY distance, created_at DESC, id DESC" +
+                " LIMIT :maxCandidates";
+        String ranked = "SELECT id, distance, COUNT(*) OVER () AS total_matches FROM (" + candidates + ") c" +
+                " ORDER BY distance, created_at DESC, id DESC LIMIT :limit OFFSET :offset";
+        String sql = "SELECT " + ORDER_COLUMNS + ", " + ITEM_COLUMNS + ", r.total_matches" +
+                " FROM (" + ranked + ") r" +
+                " JOIN orders o ON o.id = r.id" +
+                " LEFT JOIN order_items i ON i.order_id = o.id" +
+                " ORDER BY r.distance, o.created_at DESC, o.id DESC, i.created_at, i.id";
+
+        OrderTreeExtractor extractor = new OrderTreeExtractor("total_matches");
+        List<OrderResponse> content = jdbcTemplate.query(sql, params, extractor);
+        return PageableExecutionUtils.getPage(content != null ? content : List.of(), pageable, () -> {
+            if (extractor.total > 0) {
+                return extractor.total;
+            }
+            // Only reached for a page past the end
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (" + candidates + ") c", params, Long.class);
+            return total != null ? total : 0;
+        });
+    }
+
+    // The maxCandidates orders matching the condition, nearest to the term first (word-similarity
+    // distance, 0 for a whole-word match), read in that order from the trigram index
+    private static String nearestCustomers(String condition) {
+        return "(SELECT id, created_at, :term <<-> " + CustomerSearchIndex.DOCUMENT + " AS distance" +
+                " FROM orders WHERE " + condition +
+                " ORDER BY :term <<-> " + CustomerSearchIndex.DOCUMENT +
+                " LIMIT :maxCandidates)";
+    }
+
+    public List<OrderResponse> findWithFilters(UUID userId, Order.OrderStatus status, Order.DeliveryType deliveryType,
+                                               BigDecimal minAmount, BigDecimal maxAmount,
+                                               LocalDateTime startDate, LocalDateTime endDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = where(new OrderFilter(userId, status, deliveryType, minAmount, maxAmount, startDate, endDate), params);
+        return query(where, params, DEFAULT_ORDER_BY);
+    }
+
+    // Hands matching orders to the sink one at a time, oldest first, reading through a forward-only
+    // cursor so only one fetch batch of rows is held at once. The PostgreSQL driver only fetches in
+    // batches with autocommit off, so this must run inside a transaction. Returns the number of orders.
+    public long streamWithFilters(OrderFilter filter, Consumer<OrderResponse> sink) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = "SELECT " + ORDER_COLUMNS + ", " + ITEM_COLUMNS +
+                " FROM orders o LEFT JOIN order_items i ON i.order_id = o.id" +
+                " WHERE " + where(filter, params) +
+                " ORDER BY o.created_at, o.id, i.created_at, i.id";
+
+        OrderStreamHandler handler = new OrderStreamHandler(sink);
+        streamingJdbcTemplate.query(sql, params, handler);
+        return handler.finish();
+    }
+
+    // Only the filters that are set end up in the WHERE clause
+    private static String where(OrderFilter filter, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.userId() != null) {
+            conditions.add("o.user_id = :userId");
+            params.addValue("userId", filter.userId());
+        }
+        if (filter.status() != null) {
+            conditions.add("o.status = :status");
+            params.addValue("status", filter.status().name());
+        }
+        if (filter.deliveryType() != null) {
+            conditions.add("o.delivery_type = :deliveryType");
+            params.addValue("deliveryType", filter.deliveryType().name());
+        }
+        if (filter.minAmount() != null) {
+            conditions.add("o.total_amount >= :minAmount");
+            params.addValue("minAmount", filter.minAmount());
+        }
+        if (filter.maxAmount() != null) {
+            conditions.add("o.total_amount <= :maxAmount");
+            params.addValue("maxAmount", filter.maxAmount());
+        }
+        if (filter.startDate() != null) {
+            conditions.add("o.created_at >= :startDate");
+            params.addValue("startDate", filter.startDate());
+        }
+        if (filter.endDate() != null) {
+            conditions.add("o.created_at <= :endDate");
+            params.addValue("endDate", filter.endDate());
+        }
+        return conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions);
+    }
+
+    // Seeks past the cursor instead of skipping rows, so every page costs the same however deep it is.
+    // One extra row is read to know whether another page follows; no COUNT is run.
+    private CursorPage<OrderResponse> keysetPage(String where, MapSqlParameterSource params, OrderCursor cursor, int size) {
+        String keyset = where;
+        if (cursor != null) {
+            // The first conjunct is a plain range on created_at, which idx_order_date can seek to
+            keyset += " AND o.created_at <= :cursorCreatedAt" +
+                    " AND (o.created_at < :cursorCreatedAt OR o.id < :cursorId)";
+            params.addValue("cursorCreatedAt", cursor.createdAt());
+            params.addValue("cursorId", cursor.id());
+        }
+
+        List<OrderResponse> orders = query(keyset, params, DEFAULT_ORDER_BY, size + 1, null);
+        if (orders.size() <= size) {
+            return new CursorPage<>(orders, null);
+        }
+        List<OrderResponse> page = orders.subList(0, size);
+        OrderResponse last = page.getLast();
+        return new CursorPage<>(new ArrayList<>(page), new OrderCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    private Page<OrderResponse> page(String where, MapSqlParameterSource params, Pageable pageable) {
+        List<OrderResponse> content = query(where, params, orderBy(pageable.getSort()),
+                pageable.getPageSize(), pageable.getOffset());
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders o WHERE " + where, params, Long.class);
+            return total != null ? total : 0;
+        });
+    }
+
+    private List<OrderStatusNotification> statuses(String where, MapSqlParameterSource params) {
+        return jdbcTemplate.query("SELECT " + STATUS_COLUMNS + " FROM orders o WHERE " + where +
+                " ORDER BY " + DEFAULT_ORDER_BY, params, STATUS_MAPPER);
+    }
+
+    private List<OrderResponse> query(String where, MapSqlParameterSource params, String orderBy) {
+        return query(where, params, orderBy, null, null);
+    }
+
+    private List<OrderResponse> query(String where, MapSqlParameterSource params, String orderBy,
+                                      Integer limit, Long offset) {
+        StringBuilder orders = new StringBuilder("SELECT * FROM orders o WHERE ").append(where)
+                .append(" ORDER BY ").append(orderBy);
+        if (limit != null) {
+            orders.append(" LIMIT :limit");
+            params.addValue("limit", limit);
+        }
+        if (offset != null && offset > 0) {
+            orders.append(" OFFSET :offset");
+            params.addValue("offset", offset);
+        }
+
+        String sql = "SELECT " + ORDER_COLUMNS + ", " + ITEM_COLUMNS +
+                " FROM (" + orders + ") o" +
+                " LEFT JOIN order_items i ON i.order_id = o.id" +
+                " ORDER BY " + orderBy + ", i.created_at, i.id";
+
+        List<OrderResponse> result = jdbcTemplate.query(sql, params, new OrderTreeExtractor());
+        return result != null ? result : List.of();
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return DEFAULT_ORDER_BY;
+        }
+        StringJoiner orderBy = new StringJoiner(", ");
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Cannot sort orders by " + order.getProperty());
+            }
+            orderBy.add(column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        // Stable order across pages
+        return orderBy.add("o.id").toString();
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Optional<OrderResponse> first(List<OrderResponse> orders) {
+        return orders.isEmpty() ? Optional.empty() : Optional.of(orders.getFirst());
+    }
+
+    // Streaming counterpart of OrderTreeExtractor: rows of one order are adjacent, so each order is
+    // handed on as soon as the next one starts and nothing else is kept
+    private static final class OrderStreamHandler implements RowCallbackHandler {
+
+        private final Consumer<OrderResponse> sink;
+        private OrderResponse current;
+        private long count;
+
+        OrderStreamHandler(Consumer<OrderResponse> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            UUID orderId = rs.getObject("id", UUID.class);
+            if (current == null || !current.getId().equals(orderId)) {
+                emit();
+                current = OrderTreeExtractor.mapOrder(rs, orderId);
+            }
+            if (rs.getObject("item_id") != null) {
+                OrderItemResponse item = OrderTreeExtractor.mapItem(rs);
+                current.getItems().add(item);
+                current.setTotalItems(current.getTotalItems() + item.getQuantity());
+            }
+        }
+
+        long finish() {
+            emit();
+            return count;
+        }
+
+        private void emit() {
+            if (current != null) {
+                sink.accept(current);
+                current = null;
+                count++;
+            }
+        }
+    }
+
+    // Folds the flat join (one row per item) into orders, keeping row order
+    private static final class OrderTreeExtractor implements ResultSetExtractor<List<OrderResponse>> {
+
+        // Optional window count repeated on every row, e.g. the number of search matches
+        private final String totalColumn;
+        private long total;
+
+        OrderTreeExtractor() {
+            this(null);
+        }
+
+        OrderTreeExtractor(String totalColumn) {
+            this.totalColumn = totalColumn;
+        }
+
+        @Override
+        public List<OrderResponse> extractData(ResultSet rs) throws SQLException {
+            Map<UUID, OrderResponse> orders = new LinkedHashMap<>();
+            while (rs.next()) {
+                if (totalColumn != null && total == 0) {
+                    total = rs.getLong(totalColumn);
+                }
+                UUID orderId = rs.getObject("id", UUID.class);
+                OrderResponse order = orders.get(orderId);
+                if (order == null) {
+                    order = mapOrder(rs, orderId);
+                    orders.put(orderId, order);
+                }
+                if (rs.getObject("item_id") != null) {
+                    OrderItemResponse item = mapItem(rs);
+                    order.getItems().add(item);
+                    order.setTotalItems(order.getTotalItems() + item.getQuantity());
+                }
+            }
+            return new ArrayList<>(orders.values());
+        }
+
+        private static OrderResponse mapOrder(ResultSet rs, UUID orderId) throws SQLException {
+            OrderResponse order = new OrderResponse();
+            Order.OrderStatus status = Order.OrderStatus.valueOf(rs.getString("status"));
+            order.setId(orderId);
+            order.setOrderNumber(rs.getString("order_number"));
+            order.setUserId(rs.getObject("user_id", UUID.class));
+            order.setCustomerName(rs.getString("customer_name"));
+            order.setCustomerEmail(rs.getString("customer_email"));
+            order.setCustomerPhone(rs.getString("customer_phone"));
+            order.setStatus(status);
+            order.setDeliveryType(Order.DeliveryType.valueOf(rs.getString("delivery_type")));
+            order.setDeliveryAddress(rs.getString("delivery_address"));
+            order.setDeliveryDate(rs.getObject("delivery_date", LocalDateTime.class));
+            order.setSpecialInstructions(rs.getString("special_instructions"));
+            order.setItems(new ArrayList<>());
+            order.setSubtotal(rs.getBigDecimal("subtotal"));
+            order.setTaxAmount(rs.getBigDecimal("tax_amount"));
+            order.setDiscountAmount(rs.getBigDecimal("discount_amount"));
+            order.setDeliveryFee(rs.getBigDecimal("delivery_fee"));
+            order.setTotalAmount(rs.getBigDecimal("total_amount"));
+            order.setDiscountCode(rs.getString("discount_code"));
+            order.setDiscountPercentage(rs.getBigDecimal("discount_percentage"));
+            order.setEstimatedPreparationMinutes(rs.getObject("estimated_preparation_minutes", Integer.class));
+            order.setEstimatedReadyTime(rs.getObject("estimated_ready_time", LocalDateTime.class));
+            order.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+            order.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+            order.setConfirmedAt(rs.getObject("confirmed_at", LocalDateTime.class));
+            order.setReadyAt(rs.getObject("ready_at", LocalDateTime.class));
+            order.setCompletedAt(rs.getObject("completed_at", LocalDateTime.class));
+            order.setCancelledAt(rs.getObject("cancelled_at", LocalDateTime.class));
+            order.setCancellationReason(rs.getString("cancellation_reason"));
+            order.setTotalItems(0);
+            order.setCanBeCancelled(Order.canBeCancelled(status));
+            order.setCanBeModified(Order.canBeModified(status));
+            return order;
+        }
+
+        private static OrderItemResponse mapItem(ResultSet rs) throws SQLException {
+            OrderItemResponse item = new OrderItemResponse();
+            int quantity = rs.getInt("quantity");
+            BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+            BigDecimal discountPerItem = rs.getBigDecimal("discount_per_item");
+            Integer preparationTime = rs.getObject("preparation_time_minutes", Integer.class);
+
+            item.setId(rs.getObject("item_id", UUID.class));
+            item.setProductId(rs.getObject("product_id", UUID.class));
+            item.setProductSku(rs.getString("product_sku"));
+            item.setProductName(rs.getString("product_name"));
+            item.setProductCategory(rs.getString("product_category"));
+            item.setProductDescription(rs.getString("product_description"));
+            item.setProductImageUrl(rs.getString("product_image_url"));
+            item.setQuantity(quantity);
+            item.setUnitPrice(unitPrice);
+            item.setDiscountPerItem(discountPerItem);
+            item.setEffectiveUnitPrice(OrderItem.effectiveUnitPrice(unitPrice, discountPerItem));
+            item.setSubtotal(OrderItem.subtotal(unitPrice, quantity, discountPerItem));
+            item.setSpecialInstructions(rs.getString("item_special_instructions"));
+            item.setPreparationTimeMinutes(preparationTime);
+            item.setTotalPreparationTime(OrderItem.totalPreparationTime(preparationTime, quantity));
+            item.setHasDiscount(OrderItem.hasDiscount(discountPerItem));
+            item.setCreatedAt(rs.getObject("item_created_at", LocalDateTime.class));
+            return item;
+        }
+    }
+}
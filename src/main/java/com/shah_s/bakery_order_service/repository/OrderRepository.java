@@ -1,10 +1,15 @@
 package com.shah_s.bakery_order_service.repository;
 
 import com.shah_s.bakery_order_service.entity.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -17,14 +22,20 @@ import java.util.UUID;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
 
+    // Items of the orders read below are batch-loaded (@BatchSize on Order.orderItems): one extra
+    // statement per batch of orders, never one per order. The read endpoints go through OrderQueryRepository.
+
     // Find order by order number
     Optional<Order> findByOrderNumber(String orderNumber);
 
     // Check if order number exists
     boolean existsByOrderNumber(String orderNumber);
 
-    // Find orders by user ID
-    List<Order> findByUserIdOrderByCreatedAtDesc(UUID userId);
+    // Highest generated order number in a range (byte-wise comparison, legacy shorter numbers excluded)
+    @Query(value = "SELECT MAX(o.order_number COLLATE \"C\") FROM orders o " +
+            "WHERE LENGTH(o.order_number) = :length AND o.order_number COLLATE \"C\" BETWEEN :from AND :to",
+            nativeQuery = true)
+    String findMaxOrderNumberBetween(@Param("from") String from, @Param("to") String to, @Param("length") int length);
 
     // Find orders by user ID with pagination
     Page<Order> findByUserId(UUID userId, Pageable pageable);
@@ -55,34 +66,45 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     @Query("SELECT o FROM Order o WHERE o.userId = :userId AND o.status IN :statuses ORDER BY o.createdAt DESC")
     List<Order> findByUserIdAndStatusIn(@Param("userId") UUID userId, @Param("statuses") List<Order.OrderStatus> statuses);
 
-    // Find recent orders (last N days)
-    @Query("SELECT o FROM Order o WHERE o.createdAt >= :sinceDate ORDER BY o.createdAt DESC")
-    List<Order> findRecentOrders(@Param("sinceDate") LocalDateTime sinceDate);
-
-    // Find orders pending confirmation (older than X minutes)
+    // Claim expired PENDING orders after a keyset position (createdAt, id), oldest first. Rows locked
+    // by checkout or another sweeper are skipped, never waited on (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
     @Query("SELECT o FROM Order o " +
             "WHERE o.status = 'PENDING' " +
             "AND o.createdAt <= :cutoffTime " +
-            "ORDER BY o.createdAt ASC")
-    List<Order> findPendingOrdersOlderThan(@Param("cutoffTime") LocalDateTime cutoffTime);
-
-    // Find orders ready for delivery/pickup
-    @Query("SELECT o FROM Order o " +
-            "WHERE o.status = 'READY' " +
-            "AND o.estimatedReadyTime <= :currentTime " +
-            "ORDER BY o.estimatedReadyTime ASC")
-    List<Order> findReadyOrders(@Param("currentTime") LocalDateTime currentTime);
+            "AND (o.createdAt > :afterCreatedAt OR (o.createdAt = :afterCreatedAt AND o.id > :afterId)) " +
+            "ORDER BY o.createdAt ASC, o.id ASC")
+    List<Order> findPendingOrdersOlderThan(@Param("cutoffTime") LocalDateTime cutoffTime,
+                                           @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                           @Param("afterId") UUID afterId,
+                                           Pageable pageable);
+
+    // Conditional status change: applies only while the row still has the status and version it was
+    // read with, and bumps the version. Returns 0 when a concurrent write got there first. Clears the
+    // persistence context so a retry reads the winner's row rather than the stale cached entity.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :newStatus, o.version = o.version + 1, o.updatedAt = :updatedAt, " +
+            "o.confirmedAt = :confirmedAt, o.readyAt = :readyAt, o.completedAt = :completedAt, " +
+            "o.cancelledAt = :cancelledAt, o.cancellationReason = :cancellationReason " +
+            "WHERE o.id = :id AND o.status = :expectedStatus AND o.version = :expectedVersion")
+    int updateStatusIfUnchanged(@Param("id") UUID id,
+                                @Param("expectedStatus") Order.OrderStatus expectedStatus,
+                                @Param("expectedVersion") Long expectedVersion,
+                                @Param("newStatus") Order.OrderStatus newStatus,
+                                @Param("updatedAt") LocalDateTime updatedAt,
+                                @Param("confirmedAt") LocalDateTime confirmedAt,
+                                @Param("readyAt") LocalDateTime readyAt,
+                                @Param("completedAt") LocalDateTime completedAt,
+                                @Param("cancelledAt") LocalDateTime cancelledAt,
+                                @Param("cancellationReason") String cancellationReason);
+
+    // Count orders in a status created at or before a time
+    long countByStatusAndCreatedAtLessThanEqual(Order.OrderStatus status, LocalDateTime createdAt);
 
     // Find orders by total amount range
     List<Order> findByTotalAmountBetweenOrderByCreatedAtDesc(BigDecimal minAmount, BigDecimal maxAmount);
 
-    // Search orders by customer name or email
-    @Query("SELECT o FROM Order o " +
-            "WHERE LOWER(o.customerName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-            "OR LOWER(o.customerEmail) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-            "ORDER BY o.createdAt DESC")
-    List<Order> searchByCustomerInfo(@Param("searchTerm") String searchTerm);
-
     // ✅ REMOVED: Payment method queries (now handled by Payment Service)
     // These methods are removed since Payment entity is no longer in Order Service:
     // - findByPaymentMethod
@@ -101,28 +123,6 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     // Count orders by status and date range
     long countByStatusAndCreatedAtBetween(Order.OrderStatus status, LocalDateTime startDate, LocalDateTime endDate);
 
-    // Get daily order statistics
-    @Query("SELECT DATE(o.createdAt) as orderDate, " +
-            "COUNT(o) as orderCount, " +
-            "SUM(o.totalAmount) as totalSales, " +
-            "AVG(o.totalAmount) as averageOrderValue " +
-            "FROM Order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY DATE(o.createdAt) " +
-            "ORDER BY DATE(o.createdAt) DESC")
-    List<Object[]> getDailyOrderStatistics(@Param("startDate") LocalDateTime startDate,
-                                           @Param("endDate") LocalDateTime endDate);
-
-    // Get order statistics by status
-    @Query("SELECT o.status as status, " +
-            "COUNT(o) as orderCount, " +
-            "SUM(o.totalAmount) as totalAmount " +
-            "FROM Order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY o.status")
-    List<Object[]> getOrderStatisticsByStatus(@Param("startDate") LocalDateTime startDate,
-                                              @Param("endDate") LocalDateTime endDate);
-
     // Get top customers by order count
     @Query("SELECT o.userId as userId, " +
             "o.customerName as customerName, " +
@@ -152,13 +152,6 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             "ORDER BY o.confirmedAt ASC")
     List<Order> findOrdersNeedingPreparationTimeUpdate();
 
-    // Find overdue orders (past estimated ready time)
-    @Query("SELECT o FROM Order o " +
-            "WHERE o.status IN ('CONFIRMED', 'PREPARING') " +
-            "AND o.estimatedReadyTime < :currentTime " +
-            "ORDER BY o.estimatedReadyTime ASC")
-    List<Order> findOverdueOrders(@Param("currentTime") LocalDateTime currentTime);
-
     // Find orders by delivery date range
     List<Order> findByDeliveryDateBetweenOrderByDeliveryDateAsc(LocalDateTime startDate, LocalDateTime endDate);
 
@@ -170,38 +163,4 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     // Find orders by discount code
     List<Order> findByDiscountCodeOrderByCreatedAtDesc(String discountCode);
-
-    // Get revenue statistics
-    @Query("SELECT " +
-            "COUNT(o) as totalOrders, " +
-            "SUM(o.totalAmount) as totalRevenue, " +
-            "AVG(o.totalAmount) as averageOrderValue, " +
-            "SUM(o.subtotal) as totalSubtotal, " +
-            "SUM(o.taxAmount) as totalTax, " +
-            "SUM(o.discountAmount) as totalDiscounts, " +
-            "SUM(o.deliveryFee) as totalDeliveryFees " +
-            "FROM Order o " +
-            "WHERE o.status != 'CANCELLED' " +
-            "AND o.createdAt BETWEEN :startDate AND :endDate")
-    Object[] getRevenueStatistics(@Param("startDate") LocalDateTime startDate,
-                                  @Param("endDate") LocalDateTime endDate);
-
-    // ✅ FIXED: Simplified advanced search without Payment entity
-    @Query("SELECT o FROM Order o " +
-            "WHERE (:userId IS NULL OR o.userId = :userId) " +
-            "AND (:status IS NULL OR o.status = :status) " +
-            "AND (:deliveryType IS NULL OR o.deliveryType = :deliveryType) " +
-            "AND (:minAmount IS NULL OR o.totalAmount >= :minAmount) " +
-            "AND (:maxAmount IS NULL OR o.totalAmount <= :maxAmount) " +
-            "AND (:startDate IS NULL OR o.createdAt >= :startDate) " +
-            "AND (:endDate IS NULL OR o.createdAt <= :endDate) " +
-            "ORDER BY o.createdAt DESC")
-    List<Order> findOrdersWithFilters(@Param("userId") UUID userId,
-                                      @Param("status") Order.OrderStatus status,
-                                      @Param("deliveryType") Order.DeliveryType deliveryType,
-                                      @Param("paymentMethod") Object paymentMethod, // Ignored parameter (kept for compatibility)
-                                      @Param("minAmount") BigDecimal minAmount,
-                                      @Param("maxAmount") BigDecimal maxAmount,
-                                      @Param("startDate") LocalDateTime startDate,
-                                      @Param("endDate") LocalDateTime endDate);
 }
@@ -0,0 +1,45 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Claim due events; rows locked by another dispatcher are skipped (lock timeout -2 = SKIP LOCKED).
+    // Only the oldest pending event of an order's ordering key can be due, so events sharing a key go
+    // out one at a time in the order they were written, while other keys (another product, the
+    // payment) are not held up; one left FAILED no longer holds back the rest.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e " +
+            "WHERE e.status = 'PENDING' " +
+            "AND e.nextAttemptAt <= :now " +
+            "AND NOT EXISTS (SELECT p.id FROM OutboxEvent p " +
+            "WHERE p.aggregateId = e.aggregateId AND p.orderingKey = e.orderingKey AND p.status = 'PENDING' " +
+            "AND (p.createdAt < e.createdAt OR (p.createdAt = e.createdAt AND p.id < e.id))) " +
+            "ORDER BY e.nextAttemptAt ASC")
+    List<OutboxEvent> findDueForDispatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Creation time of the oldest event not yet delivered
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = 'PENDING'")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    // Count events by status
+    long countByStatus(OutboxEvent.OutboxStatus status);
+
+    // Find events for an order
+    List<OutboxEvent> findByAggregateIdOrderByCreatedAtAsc(UUID aggregateId);
+}
@@ -0,0 +1,239 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderDistinctSketch.Metric;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Unique customers and unique products per day, kept as HyperLogLog sketches (order_distinct_daily)
+// so that any range is answered by merging at most two rows per day. Placed and imported orders are
+// added to in-memory sketches after commit and flushed periodically by merging into the stored
+// row under a row lock, so several instances can flush the same day. Adding an id twice is
+// harmless, which makes flushes, retries and rebuilds safe to overlap. Counts include orders that
+// were later cancelled: a sketch cannot remove ids.
+@Service
+public class DistinctCountService implements StatsBackfill.Source {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistinctCountService.class);
+
+    private static final String INSERT_IF_ABSENT = "INSERT INTO order_distinct_daily (order_date, metric, " +
+            "sketch_precision, registers) VALUES (?, ?, ?, ?) ON CONFLICT (order_date, metric) DO NOTHING";
+
+    private static final String REPLACE = "INSERT INTO order_distinct_daily (order_date, metric, " +
+            "sketch_precision, registers) VALUES (?, ?, ?, ?) ON CONFLICT (order_date, metric) DO UPDATE SET " +
+            "sketch_precision = EXCLUDED.sketch_precision, registers = EXCLUDED.registers";
+
+    public enum Granularity {
+        DAY,
+        WEEK,
+        MONTH
+    }
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    // Sketches not yet flushed, by day and metric
+    final private Map<Key, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    // 2^precision bytes per sketch; lowering it later is fine, stored rows are reduced when merged
+    final private int precision;
+
+    public DistinctCountService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${order.distinct.precision:12}") int precision) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.precision = HyperLogLog.checkPrecision(precision);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(event.order());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        event.orders().forEach(this::record);
+    }
+
+    // Writes pending sketches in one transaction, in key order so concurrent flushers lock rows alike.
+    // On failure the sketches go back to pending and are retried on the next run.
+    @Scheduled(fixedDelayString = "${order.distinct.flush-interval-ms:10000}")
+    public void flush() {
+        List<Key> keys = pending.keySet().stream().sorted().toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<Key, HyperLogLog> batch = new LinkedHashMap<>();
+        for (Key key : keys) {
+            HyperLogLog sketch = pending.remove(key);
+            if (sketch != null) {
+                batch.put(key, sketch);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::mergeIntoStored));
+            logger.debug("Flushed {} distinct count sketches", batch.size());
+        } catch (Exception e) {
+            logger.warn("Distinct count flush failed, will retry: {}", e.getMessage());
+            batch.forEach((key, sketch) -> pending.merge(key, sketch, HyperLogLog::union));
+        }
+    }
+
+    // Estimated unique customers and products over the whole range and per period in it
+    public Map<String, Object> getDistinctCounts(LocalDateTime startDate, LocalDateTime endDate, Granularity granularity) {
+        Map<LocalDate, Map<Metric, HyperLogLog>> periods = new TreeMap<>();
+        Map<Metric, HyperLogLog> total = new EnumMap<>(Metric.class);
+
+        jdbcTemplate.query("SELECT order_date, metric, sketch_precision, registers FROM order_distinct_daily " +
+                        "WHERE order_date BETWEEN ? AND ?",
+                (RowCallbackHandler) rs -> {
+                    LocalDate day = rs.getObject("order_date", LocalDate.class);
+                    Metric metric = Metric.valueOf(rs.getString("metric"));
+                    HyperLogLog sketch = HyperLogLog.fromBytes(rs.getInt("sketch_precision"), rs.getBytes("registers"));
+                    periods.computeIfAbsent(periodStart(day, granularity), p -> new EnumMap<>(Metric.class))
+                            .merge(metric, sketch, HyperLogLog::union);
+                    total.merge(metric, sketch, HyperLogLog::union);
+                },
+                startDate.toLocalDate(), endDate.toLocalDate());
+
+        List<Map<String, Object>> rows = new ArrayList<>(periods.size());
+        periods.forEach((periodStart, sketches) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("periodStart", periodStart.toString());
+            row.putAll(counts(sketches));
+            rows.add(row);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>(counts(total));
+        result.put("granularity", granularity.name());
+        result.put("periods", rows);
+        result.put("dateRange", Map.of("startDate", startDate.toLocalDate().toString(),
+                "endDate", endDate.toLocalDate().toString()));
+        return result;
+    }
+
+    // Recomputes the sketches of the days covering [startDate, endDate] from orders, one day per
+    // transaction. Returns the rows written.
+    public long rebuild(LocalDateTime startDate, LocalDateTime endDate) {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+
+        for (LocalDate day = startDate.toLocalDate(); !day.isAfter(endDate.toLocalDate()); day = day.plusDays(1)) {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = day.plusDays(1).atStartOfDay();
+            LocalDate orderDate = day;
+            Integer written = transactionTemplate.execute(status -> {
+                HyperLogLog customers = new HyperLogLog(precision);
+                jdbcTemplate.query("SELECT DISTINCT user_id FROM orders WHERE created_at >= ? AND created_at < ?",
+                        (RowCallbackHandler) rs -> customers.add(rs.getObject(1, UUID.class)), from, to);
+                HyperLogLog products = new HyperLogLog(precision);
+                jdbcTemplate.query("SELECT DISTINCT oi.product_id FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+                                "WHERE o.created_at >= ? AND o.created_at < ?",
+                        (RowCallbackHandler) rs -> products.add(rs.getObject(1, UUID.class)), from, to);
+                if (customers.estimate() == 0) {
+                    jdbcTemplate.update("DELETE FROM order_distinct_daily WHERE order_date = ?", orderDate);
+                    return 0;
+                }
+                jdbcTemplate.update(REPLACE, orderDate, Metric.CUSTOMERS.name(), precision, customers.toBytes());
+                jdbcTemplate.update(REPLACE, orderDate, Metric.PRODUCTS.name(), precision, products.toBytes());
+                return 2;
+            });
+            rows += written != null ? written : 0;
+        }
+
+        logger.info("Rebuilt distinct counts from {} to {}: {} rows in {} ms", startDate.toLocalDate(),
+                endDate.toLocalDate(), rows, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    @Override
+    public String backfillTable() {
+        return "order_distinct_daily";
+    }
+
+    // From the first order up to now
+    @Override
+    public void backfill() {
+        LocalDateTime firstOrder = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", LocalDateTime.class);
+        if (firstOrder != null) {
+            rebuild(firstOrder, LocalDateTime.now());
+        }
+    }
+
+    private void record(Order order) {
+        LocalDate day = (order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now()).toLocalDate();
+        add(new Key(day, Metric.CUSTOMERS), order.getUserId());
+        for (OrderItem item : order.getOrderItems()) {
+            add(new Key(day, Metric.PRODUCTS), item.getProductId());
+        }
+    }
+
+    private void add(Key key, UUID id) {
+        pending.compute(key, (k, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog(precision);
+            target.add(id);
+            return target;
+        });
+    }
+
+    private void mergeIntoStored(Key key, HyperLogLog sketch) {
+        int inserted = jdbcTemplate.update(INSERT_IF_ABSENT, key.day(), key.metric().name(), sketch.precision(),
+                sketch.toBytes());
+        if (inserted > 0) {
+            return;
+        }
+        HyperLogLog stored = jdbcTemplate.queryForObject("SELECT sketch_precision, registers FROM order_distinct_daily " +
+                        "WHERE order_date = ? AND metric = ? FOR UPDATE",
+                (rs, rowNum) -> HyperLogLog.fromBytes(rs.getInt("sketch_precision"), rs.getBytes("registers")),
+                key.day(), key.metric().name());
+        HyperLogLog merged = HyperLogLog.union(stored, sketch);
+        jdbcTemplate.update("UPDATE order_distinct_daily SET sketch_precision = ?, registers = ? " +
+                "WHERE order_date = ? AND metric = ?", merged.precision(), merged.toBytes(), key.day(), key.metric().name());
+    }
+
+    private static Map<String, Object> counts(Map<Metric, HyperLogLog> sketches) {
+        HyperLogLog customers = sketches.get(Metric.CUSTOMERS);
+        HyperLogLog products = sketches.get(Metric.PRODUCTS);
+        return Map.of("uniqueCustomers", customers != null ? customers.estimate() : 0L,
+                "uniqueProducts", products != null ? products.estimate() : 0L);
+    }
+
+    private static LocalDate periodStart(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    record Key(LocalDate day, Metric metric) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int byDay = day.compareTo(other.day);
+            return byDay != 0 ? byDay : metric.compareTo(other.metric);
+        }
+    }
+}
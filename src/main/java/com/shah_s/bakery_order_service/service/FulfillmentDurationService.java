@@ -0,0 +1,296 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.FulfillmentDurationDigest.Stage;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Percentiles of how long orders spend in each fulfilment stage (created -> confirmed -> ready ->
+// delivered), by delivery type, kept as hourly t-digests (fulfillment_duration_hourly). A duration is
+// recorded after commit when an order finishes a stage, in the hour it finished, and flushed
+// periodically by merging into the stored row under a row lock, like the distinct count sketches.
+// A range query merges at most (hours x stages x delivery types) small rows, never orders.
+// Orders that skip READY (no ready time) contribute no confirmed -> ready or ready -> delivered sample.
+@Service
+public class FulfillmentDurationService implements StatsBackfill.Source {
+
+    private static final Logger logger = LoggerFactory.getLogger(FulfillmentDurationService.class);
+
+    private static final String INSERT_IF_ABSENT = "INSERT INTO fulfillment_duration_hourly (bucket_start, stage, " +
+            "delivery_type, sample_count, digest) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (bucket_start, stage, delivery_type) DO NOTHING";
+
+    private static final String INSERT = "INSERT INTO fulfillment_duration_hourly (bucket_start, stage, " +
+            "delivery_type, sample_count, digest) VALUES (?, ?, ?, ?, ?)";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    // Digests not yet flushed, by hour, stage and delivery type
+    final private Map<Key, TDigest> pending = new ConcurrentHashMap<>();
+
+    // Centroids per digest, about compression * pi / 2 at most; rank error about pi / compression at p50
+    final private int compression;
+
+    public FulfillmentDurationService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${order.fulfillment.compression:100}") int compression) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compression = TDigest.checkCompression(compression);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Order order = event.order();
+        switch (order.getStatus()) {
+            case CONFIRMED -> record(order, Stage.CREATED_TO_CONFIRMED, order.getCreatedAt(), order.getConfirmedAt());
+            case READY -> record(order, Stage.CONFIRMED_TO_READY, order.getConfirmedAt(), order.getReadyAt());
+            case DELIVERED -> record(order, Stage.READY_TO_DELIVERED, order.getReadyAt(), order.getCompletedAt());
+            default -> {
+            }
+        }
+    }
+
+    // Imported orders bring their history with them: every stage they have both ends of. Orders whose
+    // times the importer had to fill in are left out, as those stages were never measured.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        for (Order order : event.orders()) {
+            if (!event.hasMeasuredHistory(order)) {
+                continue;
+            }
+            record(order, Stage.CREATED_TO_CONFIRMED, order.getCreatedAt(), order.getConfirmedAt());
+            record(order, Stage.CONFIRMED_TO_READY, order.getConfirmedAt(), order.getReadyAt());
+            record(order, Stage.READY_TO_DELIVERED, order.getReadyAt(), order.getCompletedAt());
+        }
+    }
+
+    // Writes pending digests in one transaction, in key order so concurrent flushers lock rows alike.
+    // On failure the digests go back to pending and are retried on the next run.
+    @Scheduled(fixedDelayString = "${order.fulfillment.flush-interval-ms:10000}")
+    public void flush() {
+        List<Key> keys = pending.keySet().stream().sorted().toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<Key, TDigest> batch = new LinkedHashMap<>();
+        for (Key key : keys) {
+            TDigest digest = pending.remove(key);
+            if (digest != null) {
+                batch.put(key, digest);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::mergeIntoStored));
+            logger.debug("Flushed {} fulfillment duration digests", batch.size());
+        } catch (Exception e) {
+            logger.warn("Fulfillment duration flush failed, will retry: {}", e.getMessage());
+            batch.forEach((key, digest) -> pending.merge(key, digest, TDigest::union));
+        }
+    }
+
+    // p50, p90 and p99 in minutes per stage and delivery type over the hours overlapping the range,
+    // and per hour of day (0-23) when byHourOfDay is set
+    public Map<String, Object> getFulfillmentPercentiles(LocalDateTime startDate, LocalDateTime endDate,
+                                                         boolean byHourOfDay) {
+        Map<Group, TDigest> total = new TreeMap<>();
+        Map<Group, TDigest> hourly = new TreeMap<>();
+
+        jdbcTemplate.query("SELECT bucket_start, stage, delivery_type, digest FROM fulfillment_duration_hourly " +
+                        "WHERE bucket_start >= ? AND bucket_start <= ?",
+                (RowCallbackHandler) rs -> {
+                    LocalDateTime bucketStart = rs.getObject("bucket_start", LocalDateTime.class);
+                    Stage stage = Stage.valueOf(rs.getString("stage"));
+                    Order.DeliveryType deliveryType = Order.DeliveryType.valueOf(rs.getString("delivery_type"));
+                    TDigest digest = TDigest.fromBytes(rs.getBytes("digest"));
+                    mergeInto(total, new Group(-1, stage, deliveryType), digest);
+                    if (byHourOfDay) {
+                        mergeInto(hourly, new Group(bucketStart.getHour(), stage, deliveryType), digest);
+                    }
+                },
+                startDate.truncatedTo(ChronoUnit.HOURS), endDate);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("stages", percentiles(total));
+        if (byHourOfDay) {
+            result.put("byHourOfDay", percentiles(hourly));
+        }
+        result.put("dateRange", Map.of("startDate", startDate.toString(), "endDate", endDate.toString()));
+        return result;
+    }
+
+    // Recomputes the hours of the days covering [startDate, endDate] from orders, one day per
+    // transaction, replacing their digests. Returns the rows written.
+    public long rebuild(LocalDateTime startDate, LocalDateTime endDate) {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+
+        for (LocalDate day = startDate.toLocalDate(); !day.isAfter(endDate.toLocalDate()); day = day.plusDays(1)) {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = day.plusDays(1).atStartOfDay();
+            Integer written = transactionTemplate.execute(status -> {
+                Map<Key, TDigest> digests = new TreeMap<>();
+                jdbcTemplate.query("SELECT delivery_type, created_at, confirmed_at, ready_at, completed_at FROM orders " +
+                                "WHERE (confirmed_at >= ? AND confirmed_at < ?) OR (ready_at >= ? AND ready_at < ?) " +
+                                "OR (completed_at >= ? AND completed_at < ?)",
+                        (RowCallbackHandler) rs -> {
+                            Order.DeliveryType deliveryType = Order.DeliveryType.valueOf(rs.getString("delivery_type"));
+                            LocalDateTime createdAt = rs.getObject("created_at", LocalDateTime.class);
+                            LocalDateTime confirmedAt = rs.getObject("confirmed_at", LocalDateTime.class);
+                            LocalDateTime readyAt = rs.getObject("ready_at", LocalDateTime.class);
+                            LocalDateTime completedAt = rs.getObject("completed_at", LocalDateTime.class);
+                            // Only the stages that ended on this day; the others belong to other days' rebuilds
+                            addIfWithin(digests, Stage.CREATED_TO_CONFIRMED, deliveryType, createdAt, confirmedAt, from, to);
+                            addIfWithin(digests, Stage.CONFIRMED_TO_READY, deliveryType, confirmedAt, readyAt, from, to);
+                            addIfWithin(digests, Stage.READY_TO_DELIVERED, deliveryType, readyAt, completedAt, from, to);
+                        },
+                        from, to, from, to, from, to);
+
+                jdbcTemplate.update("DELETE FROM fulfillment_duration_hourly WHERE bucket_start >= ? AND bucket_start < ?",
+                        from, to);
+                digests.forEach((key, digest) -> jdbcTemplate.update(INSERT, key.bucketStart(), key.stage().name(),
+                        key.deliveryType().name(), digest.count(), digest.toBytes()));
+                return digests.size();
+            });
+            rows += written != null ? written : 0;
+        }
+
+        logger.info("Rebuilt fulfillment durations from {} to {}: {} rows in {} ms", startDate.toLocalDate(),
+                endDate.toLocalDate(), rows, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    @Override
+    public String backfillTable() {
+        return "fulfillment_duration_hourly";
+    }
+
+    // From the first confirmation up to now; orders never confirmed have no stages
+    @Override
+    public void backfill() {
+        LocalDateTime firstConfirmed = jdbcTemplate.queryForObject("SELECT MIN(confirmed_at) FROM orders",
+                LocalDateTime.class);
+        if (firstConfirmed != null) {
+            rebuild(firstConfirmed, LocalDateTime.now());
+        }
+    }
+
+    private void record(Order order, Stage stage, LocalDateTime from, LocalDateTime to) {
+        Double seconds = seconds(from, to);
+        if (seconds == null) {
+            return;
+        }
+        Key key = new Key(to.truncatedTo(ChronoUnit.HOURS), stage, order.getDeliveryType());
+        pending.compute(key, (k, digest) -> {
+            TDigest target = digest != null ? digest : new TDigest(compression);
+            target.add(seconds);
+            return target;
+        });
+    }
+
+    private void addIfWithin(Map<Key, TDigest> digests, Stage stage, Order.DeliveryType deliveryType,
+                             LocalDateTime from, LocalDateTime to, LocalDateTime dayStart, LocalDateTime dayEnd) {
+        Double seconds = seconds(from, to);
+        if (seconds == null || to.isBefore(dayStart) || !to.isBefore(dayEnd)) {
+            return;
+        }
+        digests.computeIfAbsent(new Key(to.truncatedTo(ChronoUnit.HOURS), stage, deliveryType),
+                k -> new TDigest(compression)).add(seconds);
+    }
+
+    private void mergeIntoStored(Key key, TDigest digest) {
+        int inserted = jdbcTemplate.update(INSERT_IF_ABSENT, key.bucketStart(), key.stage().name(),
+                key.deliveryType().name(), digest.count(), digest.toBytes());
+        if (inserted > 0) {
+            return;
+        }
+        TDigest stored = jdbcTemplate.queryForObject("SELECT digest FROM fulfillment_duration_hourly " +
+                        "WHERE bucket_start = ? AND stage = ? AND delivery_type = ? FOR UPDATE",
+                (rs, rowNum) -> TDigest.fromBytes(rs.getBytes("digest")),
+                key.bucketStart(), key.stage().name(), key.deliveryType().name());
+        TDigest merged = TDigest.union(stored, digest);
+        jdbcTemplate.update("UPDATE fulfillment_duration_hourly SET sample_count = ?, digest = ? " +
+                        "WHERE bucket_start = ? AND stage = ? AND delivery_type = ?",
+                merged.count(), merged.toBytes(), key.bucketStart(), key.stage().name(), key.deliveryType().name());
+    }
+
+    private static void mergeInto(Map<Group, TDigest> digests, Group group, TDigest digest) {
+        digests.computeIfAbsent(group, g -> new TDigest(digest.compression())).merge(digest);
+    }
+
+    private static List<Map<String, Object>> percentiles(Map<Group, TDigest> digests) {
+        List<Map<String, Object>> rows = new ArrayList<>(digests.size());
+        digests.forEach((group, digest) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            if (group.hourOfDay() >= 0) {
+                row.put("hourOfDay", group.hourOfDay());
+            }
+            row.put("stage", group.stage().name());
+            row.put("deliveryType", group.deliveryType().name());
+            row.put("count", digest.count());
+            for (double q : QUANTILES) {
+                row.put("p" + Math.round(q * 100) + "Minutes", minutes(digest.quantile(q)));
+            }
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    // Null when either end is missing or the clock went backwards
+    private static Double seconds(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return null;
+        }
+        return Duration.between(from, to).toMillis() / 1000.0;
+    }
+
+    private static double minutes(double seconds) {
+        return Math.round(seconds / 60 * 100) / 100.0;
+    }
+
+    record Key(LocalDateTime bucketStart, Stage stage, Order.DeliveryType deliveryType) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::bucketStart)
+                .thenComparing(Key::stage).thenComparing(Key::deliveryType);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    // hourOfDay is -1 for the whole range
+    record Group(int hourOfDay, Stage stage, Order.DeliveryType deliveryType) implements Comparable<Group> {
+
+        private static final Comparator<Group> ORDER = Comparator.comparingInt(Group::hourOfDay)
+                .thenComparing(Group::stage).thenComparing(Group::deliveryType);
+
+        @Override
+        public int compareTo(Group other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_order_service.dto.OrderRequest;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.entity.IdempotencyRecord;
+import com.shah_s.bakery_order_service.exception.IdempotencyConflictException;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.IdempotencyRecordRepository;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Idempotency-Key support for order creation. Completed responses are served from an in-memory
+// cache in front of the durable key table; concurrent requests with a key that is still being
+// processed wait for the first one instead of creating a second order. A claim carries a lease the
+// owning node renews while the request runs, however long that takes; another node takes the key
+// over only once the lease has lapsed, i.e. the owner died.
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    final private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    final private ObjectMapper objectMapper;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private Cache<String, CompletedResponse> completed;
+
+    final private Map<String, InFlightRequest> inFlight = new ConcurrentHashMap<>();
+
+    final private Duration ttl;
+
+    final private ScheduledExecutorService leaseRenewalScheduler;
+
+    @Value("${order.idempotency.wait-timeout-ms:15000}")
+    private long waitTimeoutMs;
+
+    @Value("${order.idempotency.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${order.idempotency.lease-renewal-interval-ms:5000}")
+    private long leaseRenewalIntervalMs;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("leaseRenewalScheduler") ScheduledExecutorService leaseRenewalScheduler,
+                              @Value("${order.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${order.idempotency.cache-max-size:100000}") long cacheMaxSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseRenewalScheduler = leaseRenewalScheduler;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Run the action once per key; replays get the stored response
+    public Result execute(String key, OrderRequest request, Supplier<OrderResponse> action) {
+        String requestHash = hash(request);
+
+        CompletedResponse cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return replay(key, requestHash, cached);
+        }
+
+        CompletableFuture<OrderResponse> mine = new CompletableFuture<>();
+        InFlightRequest claim = new InFlightRequest(requestHash, mine);
+        InFlightRequest running = inFlight.putIfAbsent(key, claim);
+        if (running != null) {
+            if (!running.requestHash().equals(requestHash)) {
+                throw new IdempotencyConflictException("Idempotency-Key " + key + " is in use by a different request");
+            }
+            logger.info("Waiting for in-flight request with Idempotency-Key {}", key);
+            return new Result(awaitLocal(key, running.future()), true);
+        }
+
+        try {
+            Acquired acquired = acquire(key, requestHash);
+            if (acquired.stored() != null) {
+                completed.put(key, acquired.stored());
+                mine.complete(acquired.stored().response());
+                return replay(key, requestHash, acquired.stored());
+            }
+
+            OrderResponse response;
+            ScheduledFuture<?> renewal = scheduleLeaseRenewal(key, acquired.claimedAt());
+            try {
+                response = action.get();
+            } catch (RuntimeException e) {
+                // Let the client retry with the same key after a failure
+                renewal.cancel(false);
+                release(key, acquired.claimedAt());
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                renewal.cancel(false);
+            }
+
+            complete(key, requestHash, acquired.claimedAt(), response);
+            mine.complete(response);
+            return new Result(response, false);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, claim);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    // Claim the key in the durable table; returns either the stored response (the key already
+    // completed) or the creation time of this node's claim
+    private Acquired acquire(String key, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(key).orElse(null);
+
+            if (existing != null && !existing.isExpired(now)) {
+                if (!existing.getRequestHash().equals(requestHash)) {
+                    throw new IdempotencyConflictException("Idempotency-Key " + key + " was already used for a different request");
+                }
+                if (existing.getStatus() == IdempotencyRecord.RecordStatus.COMPLETED) {
+                    return new Acquired(new CompletedResponse(requestHash, deserialize(existing.getResponseBody())), null);
+                }
+                if (!existing.isLeaseExpired(now)) {
+                    // Another node is processing this key
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new IdempotencyConflictException("A request with Idempotency-Key " + key + " is still in progress");
+                    }
+                    sleepQuietly();
+                    continue;
+                }
+                logger.warn("Taking over Idempotency-Key {} whose owner stopped renewing its lease", key);
+            }
+
+            try {
+                IdempotencyRecord claim = transactionTemplate.execute(status -> {
+                    // Replace only the record that was read (an expired key, or a claim whose lease is
+                    // still lapsed); if it changed, its owner or another node got there first
+                    if (existing != null && replace(key, existing, now) == 0) {
+                        return null;
+                    }
+                    return idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(key, requestHash,
+                            now.plus(ttl), Duration.ofSeconds(leaseSeconds)));
+                });
+                if (claim != null) {
+                    return new Acquired(null, claim.getCreatedAt());
+                }
+                logger.debug("Idempotency-Key {} changed while being taken over, re-reading", key);
+            } catch (DataIntegrityViolationException e) {
+                // Lost the insert race to another node; re-read its record
+                logger.debug("Idempotency-Key {} claimed concurrently, re-reading", key);
+            }
+        }
+    }
+
+    private int replace(String key, IdempotencyRecord existing, LocalDateTime now) {
+        if (existing.isExpired(now) || existing.getStatus() != IdempotencyRecord.RecordStatus.IN_PROGRESS) {
+            return idempotencyRecordRepository.deleteIfUnchanged(key, existing.getCreatedAt(), existing.getStatus());
+        }
+        return idempotencyRecordRepository.deleteIfLeaseExpired(key, existing.getCreatedAt(), now);
+    }
+
+    // Keeps the claim's lease ahead of the clock until the returned future is cancelled
+    private ScheduledFuture<?> scheduleLeaseRenewal(String key, LocalDateTime claimedAt) {
+        return leaseRenewalScheduler.scheduleWithFixedDelay(() -> renewLease(key, claimedAt),
+                leaseRenewalIntervalMs, leaseRenewalIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void renewLease(String key, LocalDateTime claimedAt) {
+        try {
+            Integer renewed = transactionTemplate.execute(status -> idempotencyRecordRepository.renewLease(key,
+                    claimedAt, LocalDateTime.now().plusSeconds(leaseSeconds)));
+            if (renewed != null && renewed == 0) {
+                logger.warn("Idempotency-Key {} is no longer held by this request", key);
+            }
+        } catch (Exception e) {
+            // Retried on the next tick; the lease is several intervals long
+            logger.warn("Failed to renew lease of Idempotency-Key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void complete(String key, String requestHash, LocalDateTime claimedAt, OrderResponse response) {
+        try {
+            String body = objectMapper.writeValueAsString(response);
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.findById(key)
+                    .filter(record -> isClaim(record, claimedAt))
+                    .ifPresentOrElse(record -> {
+                        record.setStatus(IdempotencyRecord.RecordStatus.COMPLETED);
+                        record.setOrderId(response.getId());
+                        record.setResponseBody(body);
+                    }, () -> logger.warn("Idempotency-Key {} was taken over before its response was stored", key)));
+        } catch (Exception e) {
+            // The order exists; only replay protection across nodes is degraded
+            logger.error("Failed to store response for Idempotency-Key {}: {}", key, e.getMessage());
+        }
+        completed.put(key, new CompletedResponse(requestHash, response));
+    }
+
+    private void release(String key, LocalDateTime claimedAt) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.deleteIfUnchanged(key,
+                    claimedAt, IdempotencyRecord.RecordStatus.IN_PROGRESS));
+        } catch (Exception e) {
+            logger.error("Failed to release Idempotency-Key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static boolean isClaim(IdempotencyRecord record, LocalDateTime claimedAt) {
+        return record.getStatus() == IdempotencyRecord.RecordStatus.IN_PROGRESS && record.getCreatedAt().equals(claimedAt);
+    }
+
+    private Result replay(String key, String requestHash, CompletedResponse stored) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        logger.info("Replaying stored response for Idempotency-Key {}", key);
+        return new Result(stored.response(), true);
+    }
+
+    private OrderResponse awaitLocal(String key, CompletableFuture<OrderResponse> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new OrderServiceException("Request with Idempotency-Key " + key + " failed", cause);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with Idempotency-Key " + key + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderServiceException("Interrupted while waiting for Idempotency-Key " + key);
+        }
+    }
+
+    private String hash(OrderRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (Exception e) {
+            throw new OrderServiceException("Failed to fingerprint order request", e);
+        }
+    }
+
+    private OrderResponse deserialize(String body) {
+        try {
+            return objectMapper.readValue(body, OrderResponse.class);
+        } catch (Exception e) {
+            throw new OrderServiceException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderServiceException("Interrupted while waiting for an in-progress request");
+        }
+    }
+
+    private record InFlightRequest(String requestHash, CompletableFuture<OrderResponse> future) {}
+
+    private record CompletedResponse(String requestHash, OrderResponse response) {}
+
+    private record Acquired(CompletedResponse stored, LocalDateTime claimedAt) {}
+
+    // Response plus whether it was replayed from an earlier request
+    @Getter
+    public static class Result {
+
+        private final OrderResponse response;
+        private final boolean replayed;
+
+        Result(OrderResponse response, boolean replayed) {
+            this.response = response;
+            this.replayed = replayed;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Live order counters for the admin dashboard, kept in memory so polling never touches the database.
+// Writers only add to LongAdders (striped per core, no locks); readers sum them. Per-minute buckets
+// sit in a ring covering the last 24 hours. Fed after commit, so rolled-back orders are never counted.
+// Counts cover orders placed on this instance since it started (imports are not live traffic):
+// status changes only move an order between statuses if it was counted here. The gauges are bound
+// by Spring Boot's meter registry post-processor through MeterBinder.
+@Service
+public class LiveOrderMetrics implements MeterBinder {
+
+    static final int RING_MINUTES = 24 * 60;
+
+    // How long a counted order may take to reach DELIVERED or CANCELLED before it is forgotten.
+    // Also bounds the ids of orders counted here whose later changes happen on other instances.
+    private static final Duration TRACKED_ORDER_TTL = Duration.ofDays(2);
+
+    private final Clock clock;
+
+    private final Instant countingSince;
+
+    // Orders by current status and by delivery type, plus revenue in cents
+    private final Map<Order.OrderStatus, LongAdder> byStatus = new EnumMap<>(Order.OrderStatus.class);
+    private final Map<Order.DeliveryType, LongAdder> byDeliveryType = new EnumMap<>(Order.DeliveryType.class);
+    private final LongAdder revenueCents = new LongAdder();
+
+    private final AtomicReferenceArray<MinuteBucket> ring = new AtomicReferenceArray<>(RING_MINUTES);
+
+    // Orders counted here that have not reached a final status yet
+    private final Cache<UUID, Boolean> tracked = Caffeine.newBuilder()
+            .expireAfterWrite(TRACKED_ORDER_TTL)
+            .build();
+
+    @Autowired
+    public LiveOrderMetrics() {
+        this(Clock.systemUTC());
+    }
+
+    LiveOrderMetrics(Clock clock) {
+        this.clock = clock;
+        this.countingSince = clock.instant();
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            byStatus.put(status, new LongAdder());
+        }
+        for (Order.DeliveryType deliveryType : Order.DeliveryType.values()) {
+            byDeliveryType.put(deliveryType, new LongAdder());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        byStatus.forEach((status, counter) -> Gauge.builder("orders.live.status", counter, LongAdder::sum)
+                .description("Orders placed since startup, by current status")
+                .tag("status", status.name())
+                .register(meterRegistry));
+        byDeliveryType.forEach((deliveryType, counter) ->
+                Gauge.builder("orders.live.delivery_type", counter, LongAdder::sum)
+                        .description("Orders placed since startup, by delivery type")
+                        .tag("delivery_type", deliveryType.name())
+                        .register(meterRegistry));
+        for (Duration window : List.of(Duration.ofHours(1), Duration.ofHours(24))) {
+            String tag = window.toHours() + "h";
+            Gauge.builder("orders.live.window.orders", this, m -> m.window(window).orders())
+                    .description("Orders placed in the trailing window")
+                    .tag("window", tag)
+                    .register(meterRegistry);
+            Gauge.builder("orders.live.window.revenue", this, m -> m.window(window).revenue().doubleValue())
+                    .description("Revenue of orders placed in the trailing window")
+                    .tag("window", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderCreated(OrderCreatedEvent event) {
+        Order order = event.order();
+        long cents = cents(order.getTotalAmount());
+        if (order.getId() != null && !isFinal(order.getStatus())) {
+            tracked.put(order.getId(), Boolean.TRUE);
+        }
+        byStatus.get(order.getStatus()).increment();
+        byDeliveryType.get(order.getDeliveryType()).increment();
+        revenueCents.add(cents);
+
+        MinuteBucket bucket = currentBucket();
+        bucket.orders.increment();
+        bucket.revenueCents.add(cents);
+    }
+
+    @TransactionalEventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Order.OrderStatus status = event.order().getStatus();
+        if (event.previousStatus() == status) {
+            return;
+        }
+
+        // Cancellations and completions seen here count in the windows whoever placed the order
+        if (status == Order.OrderStatus.CANCELLED) {
+            currentBucket().cancellations.increment();
+        } else if (status == Order.OrderStatus.DELIVERED) {
+            currentBucket().completions.increment();
+        }
+
+        // Orders placed before startup or on another instance were never added to the totals
+        UUID orderId = event.order().getId();
+        boolean counted = orderId != null && (isFinal(status)
+                ? tracked.asMap().remove(orderId) != null
+                : tracked.getIfPresent(orderId) != null);
+        if (!counted) {
+            return;
+        }
+        byStatus.get(event.previousStatus()).decrement();
+        byStatus.get(status).increment();
+        if (status == Order.OrderStatus.CANCELLED) {
+            revenueCents.add(-cents(event.order().getTotalAmount()));
+        }
+    }
+
+    // Totals for the trailing window, ending with the current minute
+    public Window window(Duration window) {
+        long now = currentMinute();
+        int minutes = (int) Math.min(Math.max(window.toMinutes(), 1), RING_MINUTES);
+        long orders = 0;
+        long cents = 0;
+        long cancellations = 0;
+        long completions = 0;
+        for (long minute = now - minutes + 1; minute <= now; minute++) {
+            MinuteBucket bucket = ring.get(slot(minute));
+            if (bucket != null && bucket.minute == minute) {
+                orders += bucket.orders.sum();
+                cents += bucket.revenueCents.sum();
+                cancellations += bucket.cancellations.sum();
+                completions += bucket.completions.sum();
+            }
+        }
+        return new Window(window, orders, toAmount(cents), cancellations, completions);
+    }
+
+    public Map<String, Object> snapshot(int perMinuteHistory) {
+        long now = currentMinute();
+        int minutes = Math.min(Math.max(perMinuteHistory, 0), RING_MINUTES);
+        List<Map<String, Object>> perMinute = new ArrayList<>(minutes);
+        for (long minute = now - minutes + 1; minute <= now; minute++) {
+            MinuteBucket bucket = ring.get(slot(minute));
+            boolean current = bucket != null && bucket.minute == minute;
+            perMinute.add(Map.of(
+                    "minute", Instant.ofEpochSecond(minute * 60).toString(),
+                    "orders", current ? bucket.orders.sum() : 0L,
+                    "revenue", toAmount(current ? bucket.revenueCents.sum() : 0L)));
+        }
+
+        Map<String, Long> statusCounts = new LinkedHashMap<>();
+        byStatus.forEach((status, counter) -> statusCounts.put(status.name(), counter.sum()));
+        Map<String, Long> deliveryTypeCounts = new LinkedHashMap<>();
+        byDeliveryType.forEach((deliveryType, counter) -> deliveryTypeCounts.put(deliveryType.name(), counter.sum()));
+
+        return Map.of(
+                "byStatus", statusCounts,
+                "byDeliveryType", deliveryTypeCounts,
+                "revenue", toAmount(revenueCents.sum()),
+                "lastHour", window(Duration.ofHours(1)).toMap(),
+                "last24Hours", window(Duration.ofHours(24)).toMap(),
+                "perMinute", perMinute,
+                "countingSince", countingSince.toString(),
+                "asOf", clock.instant().toString());
+    }
+
+    private MinuteBucket currentBucket() {
+        long minute = currentMinute();
+        int slot = slot(minute);
+        while (true) {
+            MinuteBucket bucket = ring.get(slot);
+            if (bucket != null && bucket.minute == minute) {
+                return bucket;
+            }
+            // Only the first writer of a new minute allocates; a stale bucket from 24h ago is replaced
+            MinuteBucket fresh = new MinuteBucket(minute);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static boolean isFinal(Order.OrderStatus status) {
+        return status == Order.OrderStatus.DELIVERED || status == Order.OrderStatus.CANCELLED;
+    }
+
+    private long currentMinute() {
+        return clock.millis() / 60_000;
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) RING_MINUTES);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0;
+    }
+
+    private static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public record Window(Duration length, long orders, BigDecimal revenue, long cancellations, long completions) {
+
+        Map<String, Object> toMap() {
+            return Map.of("orders", orders, "revenue", revenue, "cancellations", cancellations,
+                    "completions", completions);
+        }
+    }
+
+    private static final class MinuteBucket {
+
+        private final long minute;
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+        private final LongAdder cancellations = new LongAdder();
+        private final LongAdder completions = new LongAdder();
+
+        MinuteBucket(long minute) {
+            this.minute = minute;
+        }
+    }
+}
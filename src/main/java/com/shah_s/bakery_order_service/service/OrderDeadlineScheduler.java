@@ -0,0 +1,155 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderDeadlineEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Fires OrderDeadlineEvent when an active order becomes due for pickup or dispatch, runs past its
+// estimated ready time or sits in PENDING too long, instead of polling the orders table for those
+// conditions. Each active order has at most one timer, chosen by its status and kept in a timer
+// wheel in memory; every committed status change reschedules or cancels it. On startup the wheel is
+// loaded with one query over the status index. Each instance fires for every order it knows about.
+@Service
+public class OrderDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderDeadlineScheduler.class);
+
+    private final Clock clock;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TimerWheel<UUID, OrderDeadlineEvent> wheel;
+
+    private final Map<OrderDeadlineEvent.Type, Counter> fired = new EnumMap<>(OrderDeadlineEvent.Type.class);
+
+    private final Duration pendingTimeout;
+
+    @Autowired
+    public OrderDeadlineScheduler(JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${order.deadlines.tick-ms:1000}") long tickMillis,
+                                  @Value("${order.deadlines.pending-timeout-minutes:30}") long pendingTimeoutMinutes) {
+        this(jdbcTemplate, eventPublisher, meterRegistry, tickMillis, pendingTimeoutMinutes, Clock.systemDefaultZone());
+    }
+
+    OrderDeadlineScheduler(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry, long tickMillis, long pendingTimeoutMinutes, Clock clock) {
+        this.clock = clock;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.wheel = new TimerWheel<>(tickMillis, clock.millis());
+        this.pendingTimeout = Duration.ofMinutes(pendingTimeoutMinutes);
+        for (OrderDeadlineEvent.Type type : OrderDeadlineEvent.Type.values()) {
+            fired.put(type, Counter.builder("orders.deadlines.fired")
+                    .description("Order deadline events fired")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("orders.deadlines.scheduled", wheel, TimerWheel::size)
+                .description("Active orders with a pending deadline")
+                .register(meterRegistry);
+    }
+
+    // Active orders only; delivered and cancelled ones never have a timer
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT id, status, created_at, estimated_ready_time FROM orders " +
+                        "WHERE status IN ('PENDING', 'CONFIRMED', 'PREPARING', 'READY')",
+                (RowCallbackHandler) rs -> schedule(rs.getObject("id", UUID.class),
+                        Order.OrderStatus.valueOf(rs.getString("status")),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("estimated_ready_time", LocalDateTime.class)));
+        logger.info("Loaded {} order deadlines in {} ms", wheel.size(), System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        schedule(event.order());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        schedule(event.order());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        event.orders().forEach(this::schedule);
+    }
+
+    // Fires the deadlines that came due since the last tick; work per tick is proportional to the
+    // timers due, not to the number of orders waiting
+    @Scheduled(fixedDelayString = "${order.deadlines.tick-ms:1000}")
+    public void tick() {
+        List<TimerWheel.Timer<UUID, OrderDeadlineEvent>> due = wheel.advance(clock.millis());
+        for (TimerWheel.Timer<UUID, OrderDeadlineEvent> timer : due) {
+            OrderDeadlineEvent event = timer.value();
+            try {
+                eventPublisher.publishEvent(event);
+                fired.get(event.type()).increment();
+            } catch (Exception e) {
+                logger.error("Order deadline listener failed for order {} ({}): {}", event.orderId(), event.type(),
+                        e.getMessage());
+            }
+        }
+        if (!due.isEmpty()) {
+            logger.debug("Fired {} order deadlines", due.size());
+        }
+    }
+
+    int scheduled() {
+        return wheel.size();
+    }
+
+    private void schedule(Order order) {
+        schedule(order.getId(), order.getStatus(), order.getCreatedAt(), order.getEstimatedReadyTime());
+    }
+
+    private void schedule(UUID orderId, Order.OrderStatus status, LocalDateTime createdAt, LocalDateTime estimatedReadyTime) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        OrderDeadlineEvent deadline = switch (status) {
+            case PENDING -> new OrderDeadlineEvent(orderId, OrderDeadlineEvent.Type.PENDING_EXPIRED,
+                    (createdAt != null ? createdAt : now).plus(pendingTimeout));
+            case CONFIRMED, PREPARING -> estimatedReadyTime != null
+                    ? new OrderDeadlineEvent(orderId, OrderDeadlineEvent.Type.OVERDUE, estimatedReadyTime)
+                    : null;
+            case READY -> new OrderDeadlineEvent(orderId, OrderDeadlineEvent.Type.READY,
+                    estimatedReadyTime != null ? estimatedReadyTime : now);
+            case OUT_FOR_DELIVERY, DELIVERED, CANCELLED -> null;
+        };
+        if (deadline == null) {
+            wheel.cancel(orderId);
+        } else {
+            wheel.schedule(orderId, deadline.deadline().atZone(clock.getZone()).toInstant().toEpochMilli(), deadline);
+        }
+    }
+}
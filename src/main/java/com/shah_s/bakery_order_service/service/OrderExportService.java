@@ -0,0 +1,195 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.shah_s.bakery_order_service.config.ConnectionHoldTrackingDataSource;
+import com.shah_s.bakery_order_service.dto.OrderItemResponse;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.repository.OrderFilter;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+// Order exports for finance dumps. Orders are read through a forward-only cursor and written to the
+// response as they arrive, so heap use stays flat however many rows match. Writes block while the
+// client is slow to read, which in turn holds back the next fetch from the database.
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    // Follows the CSV import layout: one row per item, grouped by orderRef
+    static final List<String> CSV_COLUMNS = List.of("orderRef", "orderNumber", "userId", "customerName",
+            "customerEmail", "customerPhone", "status", "deliveryType", "deliveryAddress", "deliveryDate",
+            "specialInstructions", "discountCode", "discountAmount", "deliveryFee", "taxAmount", "subtotal",
+            "totalAmount", "createdAt", "productId", "productSku", "productName", "productCategory", "quantity",
+            "unitPrice", "discountPerItem", "itemSpecialInstructions");
+
+    final private OrderQueryRepository orderQueryRepository;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private ObjectMapper objectMapper;
+
+    // Orders written between explicit flushes to the client
+    @Value("${order.export.flush-every:500}")
+    private int flushEvery;
+
+    public OrderExportService(OrderQueryRepository orderQueryRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    // Writes every matching order to out and returns how many were written. A client that goes away
+    // surfaces as an IOException; the cursor and its transaction are closed either way.
+    public long export(OrderFilter filter, Format format, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        OutputStream buffered = new BufferedOutputStream(out, OUTPUT_BUFFER_BYTES);
+
+        try (OrderWriter writer = format == Format.CSV ? new CsvOrderWriter(buffered) : new NdjsonOrderWriter(buffered)) {
+            Long exported = ConnectionHoldTrackingDataSource.inPhase("order-export", () -> transactionTemplate.execute(status ->
+                    orderQueryRepository.streamWithFilters(filter, order -> {
+                        try {
+                            if (writer.write(order) % flushEvery == 0) {
+                                writer.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })));
+
+            long count = exported != null ? exported : 0;
+            logger.info("Order export ({}) finished: {} orders in {} ms", format, count,
+                    System.currentTimeMillis() - started);
+            return count;
+        } catch (UncheckedIOException e) {
+            logger.warn("Order export ({}) aborted after {} ms: {}", format,
+                    System.currentTimeMillis() - started, e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private static String text(Object value) {
+        return Objects.toString(value, "");
+    }
+
+    // Serialises orders onto the buffered response; write returns the running order count
+    private interface OrderWriter extends Closeable {
+        long write(OrderResponse order) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    // One OrderResponse JSON document per line
+    private final class NdjsonOrderWriter implements OrderWriter {
+
+        private final OutputStream out;
+        private final ObjectWriter json;
+        private long written;
+
+        NdjsonOrderWriter(OutputStream out) {
+            this.out = out;
+            this.json = objectMapper.writerFor(OrderResponse.class);
+        }
+
+        @Override
+        public long write(OrderResponse order) throws IOException {
+            out.write(json.writeValueAsBytes(order));
+            out.write('\n');
+            return ++written;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    // Header row plus one row per item; an order without items still gets one row
+    private static final class CsvOrderWriter implements OrderWriter {
+
+        private final Writer out;
+        private final SequenceWriter rows;
+        private long written;
+
+        CsvOrderWriter(OutputStream out) throws IOException {
+            this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            CsvSchema schema = CsvSchema.builder().addColumns(CSV_COLUMNS, CsvSchema.ColumnType.STRING).build().withHeader();
+            this.rows = new CsvMapper()
+                    .writer(schema)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .writeValues(this.out);
+        }
+
+        @Override
+        public long write(OrderResponse order) throws IOException {
+            if (order.getItems().isEmpty()) {
+                rows.write(row(order, null));
+            }
+            for (OrderItemResponse item : order.getItems()) {
+                rows.write(row(order, item));
+            }
+            return ++written;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            rows.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Closing the sequence would close the response stream, which belongs to the container
+            rows.flush();
+            out.flush();
+        }
+
+        private static String[] row(OrderResponse order, OrderItemResponse item) {
+            return new String[] {
+                    order.getOrderNumber(), order.getOrderNumber(), text(order.getUserId()), order.getCustomerName(),
+                    order.getCustomerEmail(), text(order.getCustomerPhone()), text(order.getStatus()),
+                    text(order.getDeliveryType()), text(order.getDeliveryAddress()), text(order.getDeliveryDate()),
+                    text(order.getSpecialInstructions()), text(order.getDiscountCode()), text(order.getDiscountAmount()),
+                    text(order.getDeliveryFee()), text(order.getTaxAmount()), text(order.getSubtotal()),
+                    text(order.getTotalAmount()), text(order.getCreatedAt()),
+                    item != null ? text(item.getProductId()) : "",
+                    item != null ? item.getProductSku() : "",
+                    item != null ? item.getProductName() : "",
+                    item != null ? text(item.getProductCategory()) : "",
+                    item != null ? text(item.getQuantity()) : "",
+                    item != null ? text(item.getUnitPrice()) : "",
+                    item != null ? text(item.getDiscountPerItem()) : "",
+                    item != null ? text(item.getSpecialInstructions()) : ""
+            };
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.shah_s.bakery_order_service.config.ConnectionHoldTrackingDataSource;
+import com.shah_s.bakery_order_service.dto.OrderImportItem;
+import com.shah_s.bakery_order_service.dto.OrderImportRecord;
+import com.shah_s.bakery_order_service.dto.OrderImportResult;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.entity.UuidV7Generator;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Bulk order import for backfills (POS terminals, marketplaces). The body is streamed and written
+// in chunks of plain JDBC batch inserts (rewritten into multi-row INSERTs by the driver), each chunk
+// in its own transaction. Bad records are skipped and a failed chunk is rolled back and reported,
+// without stopping the rest of the load. No product, stock or payment calls are made.
+@Service
+public class OrderImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderImportService.class);
+
+    private static final String INSERT_ORDER = "INSERT INTO orders (id, order_number, user_id, customer_name, " +
+            "customer_email, customer_phone, status, delivery_type, delivery_address, delivery_date, " +
+            "special_instructions, subtotal, tax_amount, discount_amount, delivery_fee, total_amount, " +
+            "discount_code, created_at, updated_at, confirmed_at, ready_at, completed_at, cancelled_at, " +
+            "cancellation_reason) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_items (id, order_id, product_id, " +
+            "product_sku, product_name, product_category, quantity, unit_price, discount_per_item, " +
+            "special_instructions, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // CSV columns describing the item on each row; every other column belongs to the order
+    private static final Set<String> CSV_ITEM_COLUMNS = Set.of("productId", "productSku", "productName",
+            "productCategory", "quantity", "unitPrice", "discountPerItem", "itemSpecialInstructions");
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private ObjectMapper objectMapper;
+
+    final private Validator validator;
+
+    final private OrderNumberGenerator orderNumberGenerator;
+
+    final private ApplicationEventPublisher eventPublisher;
+
+    @Value("${order.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${order.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${order.tax.rate:0.08}")
+    private BigDecimal taxRate;
+
+    public OrderImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper, Validator validator,
+                              OrderNumberGenerator orderNumberGenerator,
+                              ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public OrderImportResult importOrders(InputStream body, Format format) {
+        long started = System.currentTimeMillis();
+        OrderImportResult result = new OrderImportResult();
+
+        try (RecordReader reader = format == Format.CSV ? new CsvRecordReader(body) : new NdjsonRecordReader(body)) {
+            List<PreparedOrder> chunk = new ArrayList<>(chunkSize);
+            int chunkNumber = 0;
+            ParsedRecord parsed;
+
+            while ((parsed = reader.next()) != null) {
+                result.setRecordsRead(result.getRecordsRead() + 1);
+                PreparedOrder prepared = prepare(parsed, result);
+                if (prepared == null) {
+                    continue;
+                }
+                chunk.add(prepared);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(++chunkNumber, chunk, result);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(++chunkNumber, chunk, result);
+            }
+        } catch (IOException e) {
+            throw new OrderServiceException("Failed to read import body: " + e.getMessage(), e);
+        }
+
+        result.setElapsedMs(System.currentTimeMillis() - started);
+        logger.info("Order import finished: {} records read, {} orders imported, {} rejected, {} chunks failed in {} ms",
+                result.getRecordsRead(), result.getOrdersImported(), result.getRecordsRejected(),
+                result.getChunksFailed(), result.getElapsedMs());
+        return result;
+    }
+
+    // Validate a record and turn it into rows; rejected records are reported and skipped
+    private PreparedOrder prepare(ParsedRecord parsed, OrderImportResult result) {
+        if (parsed.error() != null) {
+            reject(result, parsed.line(), parsed.error());
+            return null;
+        }
+
+        OrderImportRecord record = parsed.record();
+        Set<ConstraintViolation<OrderImportRecord>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            reject(result, parsed.line(), violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+
+        LocalDateTime createdAt = record.getCreatedAt() != null ? record.getCreatedAt() : LocalDateTime.now();
+
+        // Totals follow the same rules as orders placed through the API
+        Order order = new Order(record.getUserId(), record.getCustomerName(), record.getCustomerEmail(),
+                record.getDeliveryType() != null ? record.getDeliveryType() : Order.DeliveryType.PICKUP);
+        order.setId(UuidV7Generator.generate());
+        // A generated number carries today's date (the numbering date), not the order's created_at
+        order.setOrderNumber(record.getOrderNumber() != null ? record.getOrderNumber() : orderNumberGenerator.next());
+        order.setCustomerPhone(record.getCustomerPhone());
+        order.setStatus(record.getStatus() != null ? record.getStatus() : Order.OrderStatus.PENDING);
+        order.setDeliveryAddress(record.getDeliveryAddress());
+        order.setDeliveryDate(record.getDeliveryDate());
+        order.setSpecialInstructions(record.getSpecialInstructions());
+        order.setDiscountCode(record.getDiscountCode());
+        order.setDiscountAmount(record.getDiscountAmount() != null ? record.getDiscountAmount() : BigDecimal.ZERO);
+        order.setDeliveryFee(record.getDeliveryFee() != null ? record.getDeliveryFee() : BigDecimal.ZERO);
+        order.setCreatedAt(createdAt);
+        boolean derived = applyLifecycle(order, record) || record.getCreatedAt() == null;
+
+        for (OrderImportItem importItem : record.getItems()) {
+            OrderItem item = new OrderItem(order, importItem.getProductId(), importItem.getProductSku(),
+                    importItem.getProductName(), importItem.getQuantity(), importItem.getUnitPrice());
+            item.setId(UuidV7Generator.generate());
+            item.setProductCategory(importItem.getProductCategory());
+            item.setDiscountPerItem(importItem.getDiscountPerItem() != null ? importItem.getDiscountPerItem() : BigDecimal.ZERO);
+            item.setSpecialInstructions(importItem.getSpecialInstructions());
+            item.setCreatedAt(createdAt);
+            order.addOrderItem(item);
+        }
+
+        order.calculateTotals(taxRate);
+        if (record.getTaxAmount() != null) {
+            // Keep the tax the source system charged
+            order.setTotalAmount(order.getTotalAmount().subtract(order.getTaxAmount()).add(record.getTaxAmount()));
+            order.setTaxAmount(record.getTaxAmount());
+        }
+
+        return new PreparedOrder(parsed.line(), order, derived);
+    }
+
+    // Sets the lifecycle times the way status changes through OrderService would have left them.
+    // Times the source supplied are kept; a time the status implies but the source lacks is taken
+    // from the next later time supplied, or the creation time, so the times stay in order.
+    // Returns true when any time had to be filled in.
+    private static boolean applyLifecycle(Order order, OrderImportRecord record) {
+        Order.OrderStatus status = order.getStatus();
+        boolean confirmed = status != Order.OrderStatus.PENDING && status != Order.OrderStatus.CANCELLED;
+        boolean ready = status == Order.OrderStatus.READY || status == Order.OrderStatus.OUT_FOR_DELIVERY
+                || status == Order.OrderStatus.DELIVERED;
+
+        LocalDateTime completedAt = fill(status == Order.OrderStatus.DELIVERED, record.getCompletedAt(),
+                order.getCreatedAt());
+        LocalDateTime readyAt = fill(ready, record.getReadyAt(), firstNonNull(completedAt, order.getCreatedAt()));
+        LocalDateTime confirmedAt = fill(confirmed, record.getConfirmedAt(),
+                firstNonNull(readyAt, firstNonNull(completedAt, order.getCreatedAt())));
+        // A cancellation comes after whatever progress the order made
+        LocalDateTime cancelledAt = fill(status == Order.OrderStatus.CANCELLED, record.getCancelledAt(),
+                latest(order.getCreatedAt(), confirmedAt, readyAt));
+
+        order.setConfirmedAt(confirmedAt);
+        order.setReadyAt(readyAt);
+        order.setCompletedAt(completedAt);
+        order.setCancelledAt(cancelledAt);
+        order.setCancellationReason(record.getCancellationReason());
+
+        order.setUpdatedAt(latest(order.getCreatedAt(), confirmedAt, readyAt, completedAt, cancelledAt));
+
+        return (status == Order.OrderStatus.CANCELLED && record.getCancelledAt() == null)
+                || (status == Order.OrderStatus.DELIVERED && record.getCompletedAt() == null)
+                || (ready && record.getReadyAt() == null)
+                || (confirmed && record.getConfirmedAt() == null);
+    }
+
+    private static LocalDateTime fill(boolean implied, LocalDateTime supplied, LocalDateTime fallback) {
+        if (supplied != null) {
+            return supplied;
+        }
+        return implied ? fallback : null;
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime... others) {
+        LocalDateTime latest = first;
+        for (LocalDateTime time : others) {
+            if (time != null && time.isAfter(latest)) {
+                latest = time;
+            }
+        }
+        return latest;
+    }
+
+    private static LocalDateTime firstNonNull(LocalDateTime first, LocalDateTime second) {
+        return first != null ? first : second;
+    }
+
+    private void writeChunk(int chunkNumber, List<PreparedOrder> chunk, OrderImportResult result) {
+        List<Order> orders = chunk.stream().map(PreparedOrder::order).toList();
+        Set<UUID> derivedHistory = chunk.stream()
+                .filter(PreparedOrder::derivedHistory)
+                .map(prepared -> prepared.order().getId())
+                .collect(Collectors.toSet());
+        List<OrderItem> items = orders.stream().flatMap(o -> o.getOrderItems().stream()).toList();
+
+        try {
+            ConnectionHoldTrackingDataSource.inPhase("order-import", () -> transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(INSERT_ORDER, new OrderRows(orders));
+                jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM, new OrderItemRows(items));
+                eventPublisher.publishEvent(new OrdersImportedEvent(orders, derivedHistory));
+                return null;
+            }));
+            result.setChunksWritten(result.getChunksWritten() + 1);
+            result.setOrdersImported(result.getOrdersImported() + orders.size());
+            result.setItemsImported(result.getItemsImported() + items.size());
+        } catch (Exception e) {
+            String message = rootMessage(e);
+            logger.warn("Import chunk {} (lines {}-{}) rolled back: {}", chunkNumber,
+                    chunk.getFirst().line(), chunk.getLast().line(), message);
+            result.setChunksFailed(result.getChunksFailed() + 1);
+            result.getChunkErrors().add(new OrderImportResult.ChunkError(chunkNumber,
+                    chunk.getFirst().line(), chunk.getLast().line(), chunk.size(), message));
+        }
+    }
+
+    private void reject(OrderImportResult result, long line, String message) {
+        result.setRecordsRejected(result.getRecordsRejected() + 1);
+        if (result.getRecordErrors().size() < maxReportedErrors) {
+            result.getRecordErrors().add(new OrderImportResult.RecordError(line, message));
+        } else {
+            result.setRecordErrorsTruncated(true);
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    private record PreparedOrder(long line, Order order, boolean derivedHistory) {}
+
+    private record ParsedRecord(long line, OrderImportRecord record, String error) {}
+
+    private static final class OrderRows implements BatchPreparedStatementSetter {
+
+        private final List<Order> orders;
+
+        OrderRows(List<Order> orders) {
+            this.orders = orders;
+        }
+
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            Order order = orders.get(i);
+            ps.setObject(1, order.getId());
+            ps.setString(2, order.getOrderNumber());
+            ps.setObject(3, order.getUserId());
+            ps.setString(4, order.getCustomerName());
+            ps.setString(5, order.getCustomerEmail());
+            setNullable(ps, 6, order.getCustomerPhone(), Types.VARCHAR);
+            ps.setString(7, order.getStatus().name());
+            ps.setString(8, order.getDeliveryType().name());
+            setNullable(ps, 9, order.getDeliveryAddress(), Types.VARCHAR);
+            setNullable(ps, 10, order.getDeliveryDate(), Types.TIMESTAMP);
+            setNullable(ps, 11, order.getSpecialInstructions(), Types.VARCHAR);
+            ps.setBigDecimal(12, order.getSubtotal());
+            ps.setBigDecimal(13, order.getTaxAmount());
+            ps.setBigDecimal(14, order.getDiscountAmount());
+            ps.setBigDecimal(15, order.getDeliveryFee());
+            ps.setBigDecimal(16, order.getTotalAmount());
+            setNullable(ps, 17, order.getDiscountCode(), Types.VARCHAR);
+            ps.setObject(18, order.getCreatedAt(), Types.TIMESTAMP);
+            ps.setObject(19, order.getUpdatedAt(), Types.TIMESTAMP);
+            setNullable(ps, 20, order.getConfirmedAt(), Types.TIMESTAMP);
+            setNullable(ps, 21, order.getReadyAt(), Types.TIMESTAMP);
+            setNullable(ps, 22, order.getCompletedAt(), Types.TIMESTAMP);
+            setNullable(ps, 23, order.getCancelledAt(), Types.TIMESTAMP);
+            setNullable(ps, 24, order.getCancellationReason(), Types.VARCHAR);
+        }
+
+        @Override
+        public int getBatchSize() {
+            return orders.size();
+        }
+    }
+
+    private static final class OrderItemRows implements BatchPreparedStatementSetter {
+
+        private final List<OrderItem> items;
+
+        OrderItemRows(List<OrderItem> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            OrderItem item = items.get(i);
+            ps.setObject(1, item.getId());
+            ps.setObject(2, item.getOrder().getId());
+            ps.setObject(3, item.getProductId());
+            ps.setString(4, item.getProductSku());
+            ps.setString(5, item.getProductName());
+            setNullable(ps, 6, item.getProductCategory(), Types.VARCHAR);
+            ps.setInt(7, item.getQuantity());
+            ps.setBigDecimal(8, item.getUnitPrice());
+            ps.setBigDecimal(9, item.getDiscountPerItem());
+            setNullable(ps, 10, item.getSpecialInstructions(), Types.VARCHAR);
+            ps.setObject(11, item.getCreatedAt(), Types.TIMESTAMP);
+        }
+
+        @Override
+        public int getBatchSize() {
+            return items.size();
+        }
+    }
+
+    // Yields parsed records in body order, null at the end
+    private interface RecordReader extends Closeable {
+        ParsedRecord next() throws IOException;
+    }
+
+    // One JSON order per line; a bad line only rejects that record
+    private final class NdjsonRecordReader implements RecordReader {
+
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        NdjsonRecordReader(InputStream body) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ParsedRecord next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRecord(lineNumber, objectMapper.readValue(line, OrderImportRecord.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRecord(lineNumber, null, "Unreadable record: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // Header row plus one row per item; consecutive rows with the same orderRef form one order.
+    // Order columns are taken from the first row of each group.
+    private final class CsvRecordReader implements RecordReader {
+
+        private final MappingIterator<Map<String, String>> rows;
+        private Map<String, String> pendingRow;
+        private long pendingLine;
+        private long rowNumber;
+        private boolean failed;
+
+        CsvRecordReader(InputStream body) throws IOException {
+            this.rows = new CsvMapper()
+                    .readerFor(Map.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ParsedRecord next() {
+            if (failed) {
+                return null;
+            }
+            try {
+                if (pendingRow == null && !advance()) {
+                    return null;
+                }
+
+                long firstLine = pendingLine;
+                Map<String, String> first = pendingRow;
+                String orderRef = first.get("orderRef");
+                List<Map<String, String>> group = new ArrayList<>();
+                group.add(first);
+                pendingRow = null;
+
+                while (advance()) {
+                    if (orderRef == null || orderRef.isBlank() || !orderRef.equals(pendingRow.get("orderRef"))) {
+                        break;
+                    }
+                    group.add(pendingRow);
+                    pendingRow = null;
+                }
+
+                return toRecord(firstLine, group);
+            } catch (IOException | RuntimeException e) {
+                // The CSV stream cannot be resynchronised after a parse error
+                failed = true;
+                return new ParsedRecord(rowNumber + 1, null,
+                        "Unreadable CSV, import stopped at this line: " + rootMessage(e));
+            }
+        }
+
+        private boolean advance() throws IOException {
+            if (!rows.hasNextValue()) {
+                pendingRow = null;
+                return false;
+            }
+            pendingRow = rows.nextValue();
+            rowNumber++;
+            // The header is line 1
+            pendingLine = rowNumber + 1;
+            return true;
+        }
+
+        private ParsedRecord toRecord(long line, List<Map<String, String>> group) {
+            Map<String, Object> order = new HashMap<>();
+            group.getFirst().forEach((column, value) -> {
+                if (!CSV_ITEM_COLUMNS.contains(column) && value != null && !value.isBlank()) {
+                    order.put(column, value);
+                }
+            });
+
+            List<Map<String, Object>> items = new ArrayList<>(group.size());
+            for (Map<String, String> row : group) {
+                Map<String, Object> item = new HashMap<>();
+                for (String column : CSV_ITEM_COLUMNS) {
+                    String value = row.get(column);
+                    if (value != null && !value.isBlank()) {
+                        item.put("itemSpecialInstructions".equals(column) ? "specialInstructions" : column, value);
+                    }
+                }
+                items.add(item);
+            }
+            order.put("items", items);
+
+            try {
+                return new ParsedRecord(line, objectMapper.convertValue(order, OrderImportRecord.class), null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedRecord(line, null, "Unreadable record: " + rootMessage(e));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+}
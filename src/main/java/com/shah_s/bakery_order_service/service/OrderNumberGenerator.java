@@ -0,0 +1,327 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.OrderNumberLeaseRepository;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Order numbers: ORD-yyyyMMdd-XXXXXXX (20 chars). The 7 base-36 characters encode a 10-bit node id
+// and a 26-bit per-day sequence, so numbers are unique across nodes without a DB round trip.
+// The date is the day the number was issued, not the order's own date: an imported order with a
+// historical created_at and no number of its own gets the import day's prefix.
+// Threads draw from striped, padded counters that lease blocks of the day's sequence, so the shared
+// counter is only touched once per block and nothing ever blocks.
+// The node id is either pinned with order.number.node-id or, by default, leased from the
+// order_number_leases table so two running instances can never share one (PostgreSQL only, see
+// OrderNumberLeaseRepository). A leased id is only used while the lease is known to be live; if it
+// is lost, the generator claims another id and resumes it. Renewals run on the dedicated lease
+// renewal thread, so slow scheduled jobs cannot hold one back and stall checkout.
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 26;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    static final int ORDER_NUMBER_LENGTH = 20;
+
+    private static final int SUFFIX_LENGTH = 7;
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Longs between stripe counters, keeping each on its own cache line
+    private static final int PADDING = 8;
+    private static final long NO_BLOCK = -1;
+
+    // order.number.node-id value that asks for a leased id
+    static final int LEASED = -1;
+
+    final private boolean leased;
+
+    final private int pinnedNodeId;
+
+    final private long leaseSeconds;
+
+    final private ScheduledExecutorService leaseRenewalScheduler;
+
+    final private long leaseRenewMs;
+
+    private ScheduledFuture<?> leaseRenewal;
+
+    // Identifies this instance's leases; a fresh one per start so a restart never inherits a lease
+    final private String holder = UUID.randomUUID().toString();
+
+    // System.nanoTime() after which the leased id must not be used. Half the lease TTL after the
+    // renewal started, leaving the other half as margin before the database lets someone else take it.
+    private volatile long leaseValidUntil;
+
+    final private int blockSize;
+
+    final private int stripeMask;
+
+    final private Clock clock;
+
+    final private OrderRepository orderRepository;
+
+    final private OrderNumberLeaseRepository leaseRepository;
+
+    final private AtomicReference<DaySequence> current = new AtomicReference<>();
+
+    @Autowired
+    public OrderNumberGenerator(OrderRepository orderRepository,
+                                OrderNumberLeaseRepository leaseRepository,
+                                @Value("${order.number.node-id:-1}") int nodeId,
+                                @Value("${order.number.block-size:256}") int blockSize,
+                                @Value("${order.number.lease-seconds:60}") long leaseSeconds,
+                                @Value("${order.number.lease-renew-ms:20000}") long leaseRenewMs,
+                                @Qualifier("leaseRenewalScheduler") ScheduledExecutorService leaseRenewalScheduler) {
+        this(orderRepository, leaseRepository, nodeId, blockSize, leaseSeconds, leaseRenewMs, leaseRenewalScheduler,
+                Runtime.getRuntime().availableProcessors() * 4, Clock.systemDefaultZone());
+    }
+
+    // Pinned node id, no lease
+    OrderNumberGenerator(OrderRepository orderRepository, int nodeId, int blockSize, int stripes, Clock clock) {
+        this(orderRepository, null, nodeId, blockSize, 0, 0, null, stripes, clock);
+    }
+
+    // A null scheduler leaves renewals to the caller (tests call renewLease directly)
+    OrderNumberGenerator(OrderRepository orderRepository, OrderNumberLeaseRepository leaseRepository, int nodeId,
+                         int blockSize, long leaseSeconds, long leaseRenewMs,
+                         ScheduledExecutorService leaseRenewalScheduler, int stripes, Clock clock) {
+        if (nodeId < LEASED || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("order.number.node-id must be between 0 and " + MAX_NODE_ID
+                    + ", or " + LEASED + " to lease one");
+        }
+        if (nodeId == LEASED && leaseRepository == null) {
+            throw new IllegalArgumentException("A leased order number node id needs the lease repository");
+        }
+        if (nodeId == LEASED && leaseSeconds < 2) {
+            throw new IllegalArgumentException("order.number.lease-seconds must be at least 2");
+        }
+        if (blockSize < 2 || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("order.number.block-size must be a power of two of at least 2");
+        }
+        this.orderRepository = orderRepository;
+        this.leaseRepository = leaseRepository;
+        this.leased = nodeId == LEASED;
+        this.pinnedNodeId = nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.leaseRenewMs = leaseRenewMs;
+        this.leaseRenewalScheduler = leaseRenewalScheduler;
+        this.blockSize = blockSize;
+        this.stripeMask = Integer.highestOneBit(Math.max(1, stripes - 1) << 1) - 1;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!leased) {
+            resume(pinnedNodeId);
+            return;
+        }
+        long started = System.nanoTime();
+        resume(claim());
+        leaseValidUntil = started + leaseValidityNanos();
+        if (leaseRenewalScheduler != null) {
+            leaseRenewal = leaseRenewalScheduler.scheduleWithFixedDelay(this::renewLease,
+                    leaseRenewMs, leaseRenewMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Keeps the lease alive well inside its TTL. When it was lost (this instance stalled past the
+    // TTL and another one took the id), claim a different id rather than share it.
+    void renewLease() {
+        if (!leased) {
+            return;
+        }
+        long started = System.nanoTime();
+        int nodeId = current.get().nodeId;
+        try {
+            if (leaseRepository.renew(nodeId, holder, leaseSeconds)) {
+                leaseValidUntil = started + leaseValidityNanos();
+                return;
+            }
+            logger.warn("Order number node {} lease was lost; claiming another node id", nodeId);
+            // Stop issuing under the lost id straight away
+            leaseValidUntil = started;
+            resume(claim());
+            leaseValidUntil = started + leaseValidityNanos();
+        } catch (RuntimeException e) {
+            // The current lease stays usable until leaseValidUntil; the next run tries again
+            logger.error("Failed to renew order number node {} lease", nodeId, e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        DaySequence day = current.get();
+        if (!leased || day == null) {
+            return;
+        }
+        if (leaseRenewal != null) {
+            leaseRenewal.cancel(false);
+        }
+        try {
+            leaseRepository.release(day.nodeId, holder);
+        } catch (RuntimeException e) {
+            // Expires on its own after the TTL
+            logger.warn("Failed to release order number node {} lease: {}", day.nodeId, e.getMessage());
+        }
+    }
+
+    public String next() {
+        if (leased && System.nanoTime() - leaseValidUntil > 0) {
+            throw new OrderServiceException("Order number node lease is not live; refusing to issue order numbers");
+        }
+        DaySequence day = currentDay();
+        return day.prefix + encode(day.nodeId, day.nextSequence());
+    }
+
+    public int getNodeId() {
+        return current.get().nodeId;
+    }
+
+    private int claim() {
+        return leaseRepository.claim(holder, leaseSeconds, MAX_NODE_ID)
+                .orElseThrow(() -> new OrderServiceException("No free order number node id: all "
+                        + (MAX_NODE_ID + 1) + " are leased"));
+    }
+
+    // Resume after the highest number the node issued today, so neither a restart nor an instance
+    // taking over an expired lease ever reissues one
+    private void resume(int nodeId) {
+        LocalDate today = LocalDate.now(clock);
+        String prefix = prefix(today);
+        String highest = orderRepository == null ? null : orderRepository.findMaxOrderNumberBetween(
+                prefix + encode(nodeId, 0), prefix + encode(nodeId, MAX_SEQUENCE), ORDER_NUMBER_LENGTH);
+
+        long next = highest == null ? 0 : (decode(highest.substring(prefix.length())) & MAX_SEQUENCE) + 1;
+        current.set(new DaySequence(nodeId, today, next));
+        logger.info("Order number generator ready: node {}{}, next sequence for {} is {}",
+                nodeId, leased ? " (leased)" : "", today, next);
+    }
+
+    private long leaseValidityNanos() {
+        return TimeUnit.SECONDS.toNanos(leaseSeconds) / 2;
+    }
+
+    private DaySequence currentDay() {
+        while (true) {
+            DaySequence day = current.get();
+            LocalDate today = LocalDate.now(clock);
+            // Only ever roll forward: a clock stepping back keeps issuing under the later day
+            if (day != null && !today.isAfter(day.day)) {
+                return day;
+            }
+            DaySequence rolled = new DaySequence(day == null ? pinnedNodeId : day.nodeId, today, 0);
+            if (current.compareAndSet(day, rolled)) {
+                return rolled;
+            }
+        }
+    }
+
+    static String encode(int nodeId, long sequence) {
+        long value = ((long) nodeId << SEQUENCE_BITS) | sequence;
+        char[] chars = new char[SUFFIX_LENGTH];
+        for (int i = SUFFIX_LENGTH - 1; i >= 0; i--) {
+            chars[i] = DIGITS[(int) (value % 36)];
+            value /= 36;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String suffix) {
+        return Long.parseLong(suffix, 36);
+    }
+
+    static String prefix(LocalDate day) {
+        return "ORD-" + day.format(DAY_FORMAT) + "-";
+    }
+
+    private static int stripeFor(Thread thread) {
+        // Fibonacci hashing spreads sequential thread ids across stripes
+        return (int) ((thread.threadId() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    // Sequence state for one node id and calendar day, swapped as a whole when either changes
+    private final class DaySequence {
+
+        final private int nodeId;
+
+        final private LocalDate day;
+
+        final private String prefix;
+
+        // Next unleased block start
+        final private AtomicLong blocks;
+
+        // Per-stripe next sequence, NO_BLOCK until the stripe leases its first block
+        final private AtomicLongArray stripes;
+
+        DaySequence(int nodeId, LocalDate day, long start) {
+            this.nodeId = nodeId;
+            this.day = day;
+            this.prefix = prefix(day);
+            // Blocks are aligned to blockSize so a stripe can tell where its block ends
+            this.blocks = new AtomicLong((start + blockSize - 1) & -blockSize);
+            this.stripes = new AtomicLongArray((stripeMask + 1) * PADDING);
+            for (int i = 0; i <= stripeMask; i++) {
+                stripes.set(i * PADDING, NO_BLOCK);
+            }
+        }
+
+        long nextSequence() {
+            int slot = (stripeFor(Thread.currentThread()) & stripeMask) * PADDING;
+            while (true) {
+                long sequence = stripes.get(slot);
+                boolean lastInBlock = sequence == NO_BLOCK || ((sequence + 1) & (blockSize - 1)) == 0;
+
+                if (!lastInBlock) {
+                    if (stripes.compareAndSet(slot, sequence, sequence + 1)) {
+                        return sequence;
+                    }
+                    continue;
+                }
+
+                // Hand out the block's last value (if any) and move the stripe onto a fresh block
+                long leased = lease();
+                if (sequence == NO_BLOCK) {
+                    if (stripes.compareAndSet(slot, NO_BLOCK, leased + 1)) {
+                        return leased;
+                    }
+                } else if (stripes.compareAndSet(slot, sequence, leased)) {
+                    return sequence;
+                }
+                // Lost the race; the leased block is skipped, which only leaves a gap
+            }
+        }
+
+        private long lease() {
+            long start = blocks.getAndAdd(blockSize);
+            if (start + blockSize - 1 > MAX_SEQUENCE) {
+                throw new OrderServiceException("Order number sequence exhausted for " + day + " on node " + nodeId);
+            }
+            return start;
+        }
+    }
+}
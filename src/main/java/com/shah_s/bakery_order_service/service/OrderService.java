@@ -1,20 +1,33 @@
 package com.shah_s.bakery_order_service.service;
 
 import com.shah_s.bakery_order_service.client.ProductServiceClient;
-import com.shah_s.bakery_order_service.client.PaymentServiceClient;
+import com.shah_s.bakery_order_service.config.ConnectionHoldTrackingDataSource;
 import com.shah_s.bakery_order_service.dto.*;
 import com.shah_s.bakery_order_service.entity.Order;
 import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
 import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.OrderCursor;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
 import com.shah_s.bakery_order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,20 +35,38 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
+// Not transactional at class level: createOrder talks to product/payment services and must not
+// hold a pooled connection while doing so. Write paths open their own (short) transactions.
 @Service
-@Transactional
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
 
     final private OrderRepository orderRepository;
 
+    // Read paths map rows straight to responses, without loading entities
+    final private OrderQueryRepository orderQueryRepository;
+
     final private ProductServiceClient productServiceClient;
 
-    final private PaymentServiceClient paymentServiceClient;
+    final private ProductLookupService productLookupService;
+
+    final private OutboxDispatcher outboxDispatcher;
+
+    final private OrderNumberGenerator orderNumberGenerator;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private MeterRegistry meterRegistry;
+
+    // Order events are handled synchronously, inside the publishing transaction (rollups)
+    final private ApplicationEventPublisher eventPublisher;
+
+    final private Counter statusConflictCounter;
 
     @Value("${order.tax.rate:0.08}")
     private BigDecimal taxRate;
@@ -49,93 +80,56 @@ public class OrderService {
     @Value("${order.limits.max-order-value:500.00}")
     private BigDecimal maxOrderValue;
 
-    public OrderService(OrderRepository orderRepository, ProductServiceClient productServiceClient, PaymentServiceClient paymentServiceClient) {
+    // Shorter terms have too few trigrams to narrow the search
+    @Value("${order.search.min-term-length:3}")
+    private int searchMinTermLength;
+
+    @Value("${order.search.max-candidates:500}")
+    private int searchMaxCandidates;
+
+    @Value("${order.status.max-attempts:3}")
+    private int statusMaxAttempts;
+
+    public OrderService(OrderRepository orderRepository, OrderQueryRepository orderQueryRepository,
+                        ProductServiceClient productServiceClient, ProductLookupService productLookupService,
+                        OutboxDispatcher outboxDispatcher, OrderNumberGenerator orderNumberGenerator,
+                        PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                        ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
+        this.orderQueryRepository = orderQueryRepository;
         this.productServiceClient = productServiceClient;
-        this.paymentServiceClient = paymentServiceClient;
+        this.productLookupService = productLookupService;
+        this.outboxDispatcher = outboxDispatcher;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.statusConflictCounter = Counter.builder("orders.status.conflicts")
+                .description("Status changes that lost a race to a concurrent write and were retried")
+                .register(meterRegistry);
     }
 
     // Create new order
+    // Phase 1: remote pre-checks (product lookups, stock reservation) - no transaction
+    // Phase 2: short write transaction persisting the order and its payment outbox event
+    // Phase 3: post-commit side effects (nudge the outbox dispatcher)
+    // Reserved stock is handed back only when phase 1 or 2 fails; once the order has committed it
+    // keeps its reservation whatever happens afterwards.
     public OrderResponse createOrder(OrderRequest request) {
         logger.info("Creating new order for user: {}", request.getUserId());
 
+        Order savedOrder;
         try {
-            // Validate order request
-            validateOrderRequest(request);
-
-            // Create order entity
-            Order order = new Order(request.getUserId(), request.getCustomerName(),
-                    request.getCustomerEmail(), request.getDeliveryType());
-            order.setCustomerPhone(request.getCustomerPhone());
-            order.setDeliveryAddress(request.getDeliveryAddress());
-            order.setDeliveryDate(request.getDeliveryDate());
-            order.setSpecialInstructions(request.getSpecialInstructions());
-            order.setDiscountCode(request.getDiscountCode());
-
-            // Process order items
-            for (OrderItemRequest itemRequest : request.getItems()) {
-                OrderItem orderItem = createOrderItem(order, itemRequest);
-                order.addOrderItem(orderItem);
-            }
-
-            // Calculate preparation time
-            calculatePreparationTime(order);
-
-            // Apply discounts if any
-            applyDiscounts(order, request.getDiscountCode());
-
-            // Calculate totals
-            order.calculateTotals(taxRate);
+            Order order = inCreatePhase("remote-precheck", () -> prepareOrder(request));
 
-            // Set delivery fee
-            setDeliveryFee(order);
-
-            // Recalculate totals with delivery fee
-            order.calculateTotals(taxRate);
-
-            // Validate payment amount matches order total
-            if (request.getPaymentAmount() == null || request.getPaymentAmount().compareTo(order.getTotalAmount()) < 0) {
-                logger.error("Payment amount mismatch: provided {} but order total is {}", request.getPaymentAmount(), order.getTotalAmount());
-                throw new OrderServiceException("Payment amount does not match order total. Please provide the correct amount: " + order.getTotalAmount());
-            }
-
-            // Validate order limits
-            validateOrderLimits(order);
-
-            // Reserve stock for all items
-            reserveStockForOrder(order);
-
-            // ✅ Save order FIRST (without payment)
-            Order savedOrder = orderRepository.save(order);
-
-            // ✅ Create payment through Payment Service
-            Map<String, Object> paymentRequest = new java.util.HashMap<>();
-            paymentRequest.put("orderId", savedOrder.getId());
-            paymentRequest.put("userId", savedOrder.getUserId());
-            paymentRequest.put("paymentMethod", request.getPaymentMethod());
-            paymentRequest.put("amount", savedOrder.getTotalAmount());
-            paymentRequest.put("currencyCode", request.getCurrencyCode());
-            paymentRequest.put("description", "Payment for order " + savedOrder.getOrderNumber());
-            paymentRequest.put("cardLastFour", request.getCardLastFour());
-            paymentRequest.put("cardBrand", request.getCardBrand());
-            paymentRequest.put("cardType", request.getCardType());
-            paymentRequest.put("digitalWalletProvider", request.getDigitalWalletProvider());
-            paymentRequest.put("bankName", request.getBankName());
-            paymentRequest.put("notes", request.getPaymentNotes());
-
-            try {
-                Map<String, Object> paymentResponse = paymentServiceClient.createPayment(paymentRequest);
-                logger.info("Payment created for order: {} - Payment ID: {}",
-                        savedOrder.getOrderNumber(), paymentResponse.get("id"));
-            } catch (Exception e) {
-                logger.error("Failed to create payment for order {}: {}", savedOrder.getOrderNumber(), e.getMessage());
-                // Don't fail the order creation, payment can be retried
-            }
-
-            logger.info("Order created successfully: {} (Order Number: {})",
-                    savedOrder.getId(), savedOrder.getOrderNumber());
-
-            return OrderResponse.from(savedOrder);
+            // ✅ Save order together with its payment request (transactional outbox)
+            savedOrder = inCreatePhase("db-write", () -> transactionTemplate.execute(status -> {
+                Order persisted = orderRepository.save(order);
+                eventPublisher.publishEvent(new OrderCreatedEvent(persisted));
+                outboxDispatcher.enqueue(persisted.getId(), OutboxEvent.EventType.PAYMENT_CREATE,
+                        buildPaymentRequest(persisted, request));
+                return persisted;
+            }));
 
         } catch (Exception e) {
             logger.error("Failed to create order for user: {} - {}", request.getUserId(), e.getMessage());
@@ -143,6 +137,23 @@ public class OrderService {
             releaseStockForFailedOrder(request);
             throw new OrderServiceException("Failed to create order: " + e.getMessage());
         }
+
+        // ✅ Payment Service is called by the outbox dispatcher, with retries; if the nudge fails
+        // (e.g. the executor rejects it) the next scheduled poll delivers the payment instead
+        try {
+            inCreatePhase("post-commit", () -> {
+                outboxDispatcher.dispatchSoon();
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Post-commit step failed for order {}, left to the next outbox poll: {}",
+                    savedOrder.getId(), e.getMessage());
+        }
+
+        logger.info("Order created successfully: {} (Order Number: {})",
+                savedOrder.getId(), savedOrder.getOrderNumber());
+
+        return OrderResponse.from(savedOrder);
     }
 
     // Get order by ID
@@ -150,10 +161,8 @@ public class OrderService {
     public OrderResponse getOrderById(UUID orderId) {
         logger.debug("Fetching order by ID: {}", orderId);
 
-        Order order = orderRepository.findById(orderId)
+        return orderQueryRepository.findById(orderId)
                 .orElseThrow(() -> new OrderServiceException("Order not found with ID: " + orderId));
-
-        return OrderResponse.from(order);
     }
 
     // Get order by order number
@@ -161,8 +170,7 @@ public class OrderService {
     public Optional<OrderResponse> getOrderByOrderNumber(String orderNumber) {
         logger.debug("Fetching order by order number: {}", orderNumber);
 
-        return orderRepository.findByOrderNumber(orderNumber)
-                .map(OrderResponse::from);
+        return orderQueryRepository.findByOrderNumber(orderNumber);
     }
 
     // Get orders by user ID
@@ -170,9 +178,7 @@ public class OrderService {
     public List<OrderResponse> getOrdersByUserId(UUID userId) {
         logger.debug("Fetching orders for user: {}", userId);
 
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .map(OrderResponse::from)
-                .collect(Collectors.toList());
+        return orderQueryRepository.findByUserId(userId);
     }
 
     // Get orders by user ID with pagination
@@ -180,8 +186,15 @@ public class OrderService {
     public Page<OrderResponse> getOrdersByUserIdWithPagination(UUID userId, Pageable pageable) {
         logger.debug("Fetching orders for user with pagination: {}", userId);
 
-        return orderRepository.findByUserId(userId, pageable)
-                .map(OrderResponse::from);
+        return orderQueryRepository.findByUserId(userId, pageable);
+    }
+
+    // Get orders by user ID, keyset-paginated (cursor is null for the first page)
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersByUserIdAfter(UUID userId, String cursor, int size) {
+        logger.debug("Fetching orders for user after cursor: {}", userId);
+
+        return orderQueryRepository.findByUserIdAfter(userId, decodeCursor(cursor), cursorPageSize(size));
     }
 
     // Get orders by status
@@ -189,9 +202,7 @@ public class OrderService {
     public List<OrderResponse> getOrdersByStatus(Order.OrderStatus status) {
         logger.debug("Fetching orders by status: {}", status);
 
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(OrderResponse::from)
-                .collect(Collectors.toList());
+        return orderQueryRepository.findByStatus(status);
     }
 
     // Get all orders with pagination
@@ -199,69 +210,63 @@ public class OrderService {
     public Page<OrderResponse> getAllOrders(Pageable pageable) {
         logger.debug("Fetching all orders with pagination");
 
-        return orderRepository.findAll(pageable)
-                .map(OrderResponse::from);
+        return orderQueryRepository.findAll(pageable);
+    }
+
+    // Get all orders, keyset-paginated (cursor is null for the first page)
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getAllOrdersAfter(String cursor, int size) {
+        logger.debug("Fetching all orders after cursor");
+
+        return orderQueryRepository.findAllAfter(decodeCursor(cursor), cursorPageSize(size));
     }
 
     // Update order status
+    // The status write commits in its own short transaction; stock consumption for a confirmation is
+    // queued in the outbox with it and delivered after commit, so no row lock is held across a
+    // product-service call
     public OrderResponse updateOrderStatus(UUID orderId, OrderStatusUpdateRequest request) {
         logger.info("Updating order status: {} to {}", orderId, request.getStatus());
 
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderServiceException("Order not found with ID: " + orderId));
-
-        // Validate status transition
-        validateStatusTransition(order.getStatus(), request.getStatus());
-
-        Order.OrderStatus oldStatus = order.getStatus();
-        order.setStatus(request.getStatus());
-
-        // Handle status-specific logic
-        handleStatusTransition(order, oldStatus, request.getStatus(), request.getReason());
+        StatusChange change = transactionTemplate.execute(status -> {
+            StatusChange committed = changeStatus(orderId, request.getStatus(), request.getReason());
+            // Only the request that made the change consumes stock (the reservation made at checkout)
+            if (request.getStatus() == Order.OrderStatus.CONFIRMED) {
+                enqueueStockCalls(committed.order(), OutboxEvent.EventType.STOCK_CONSUME);
+            }
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(committed.order(), committed.previousStatus()));
+            return committed;
+        });
+        if (request.getStatus() == Order.OrderStatus.CONFIRMED) {
+            outboxDispatcher.dispatchSoon();
+        }
 
-        Order updatedOrder = orderRepository.save(order);
         logger.info("Order status updated successfully: {} from {} to {}",
-                orderId, oldStatus, request.getStatus());
-
-        return OrderResponse.from(updatedOrder);
+                orderId, change.previousStatus(), request.getStatus());
+        return OrderResponse.from(change.order());
     }
 
     // Cancel order
+    // Like a status update: the cancellation commits first, and releasing the reserved stock and
+    // cancelling the payment are delivered after commit by the outbox dispatcher, with retries
     public OrderResponse cancelOrder(UUID orderId, String reason) {
         logger.info("Cancelling order: {} with reason: {}", orderId, reason);
 
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderServiceException("Order not found with ID: " + orderId));
-
-        if (!order.canBeCancelled()) {
-            throw new OrderServiceException("Order cannot be cancelled in current status: " + order.getStatus());
-        }
-
-        order.setStatus(Order.OrderStatus.CANCELLED);
-        order.setCancelledAt(LocalDateTime.now());
-        order.setCancellationReason(reason);
-
-        // Release reserved stock
-        releaseStockForOrder(order);
-
-        // ✅ Cancel payment through Payment Service (if payment exists)
-        try {
-            Map<String, Object> paymentResponse = paymentServiceClient.getPaymentByOrderId(orderId);
-            if (paymentResponse != null) {
-                String paymentId = (String) paymentResponse.get("id");
-                Map<String, String> cancelRequest = Map.of("reason", reason);
-                paymentServiceClient.cancelPayment(UUID.fromString(paymentId), cancelRequest);
-                logger.info("Payment cancelled for order: {}", orderId);
-            }
-        } catch (Exception e) {
-            logger.error("Failed to cancel payment for order {}: {}", orderId, e.getMessage());
-            // Don't fail order cancellation if payment cancellation fails
-        }
+        StatusChange change = transactionTemplate.execute(status -> {
+            StatusChange committed = changeStatus(orderId, Order.OrderStatus.CANCELLED, reason);
+            // Only the request that made the change gets here
+            enqueueStockCalls(committed.order(), OutboxEvent.EventType.STOCK_RELEASE);
+            Map<String, Object> cancelRequest = new java.util.HashMap<>();
+            cancelRequest.put("orderId", orderId);
+            cancelRequest.put("reason", reason);
+            outboxDispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CANCEL, cancelRequest);
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(committed.order(), committed.previousStatus()));
+            return committed;
+        });
+        outboxDispatcher.dispatchSoon();
 
-        Order cancelledOrder = orderRepository.save(order);
         logger.info("Order cancelled successfully: {}", orderId);
-
-        return OrderResponse.from(cancelledOrder);
+        return OrderResponse.from(change.order());
     }
 
     // Get recent orders
@@ -270,19 +275,26 @@ public class OrderService {
         logger.debug("Fetching orders from last {} days", days);
 
         LocalDateTime sinceDate = LocalDateTime.now().minusDays(days);
-        return orderRepository.findRecentOrders(sinceDate).stream()
-                .map(OrderResponse::from)
-                .collect(Collectors.toList());
+        return orderQueryRepository.findCreatedSince(sinceDate);
     }
 
-    // Search orders
+    // Search orders by customer name or email
     @Transactional(readOnly = true)
     public List<OrderResponse> searchOrders(String searchTerm) {
         logger.debug("Searching orders with term: {}", searchTerm);
 
-        return orderRepository.searchByCustomerInfo(searchTerm).stream()
-                .map(OrderResponse::from)
-                .collect(Collectors.toList());
+        return orderQueryRepository.searchByCustomerInfo(searchTerm);
+    }
+
+    // Search orders by customer name, email or phone, best matches first
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> searchOrders(String searchTerm, Pageable pageable) {
+        logger.debug("Searching orders with term: {}", searchTerm);
+
+        if (searchTerm == null || searchTerm.trim().length() < searchMinTermLength) {
+            throw new IllegalArgumentException("Search term must be at least " + searchMinTermLength + " characters");
+        }
+        return orderQueryRepository.searchByCustomerInfo(searchTerm, searchMaxCandidates, pageable);
     }
 
     // ✅ FIXED: Remove Payment.PaymentMethod reference
@@ -295,59 +307,95 @@ public class OrderService {
         logger.debug("Fetching orders with filters");
 
         // For now, ignore paymentMethod filter since we don't have Payment entity in Order Service
-        return orderRepository.findOrdersWithFilters(userId, status, deliveryType, null,
-                        minAmount, maxAmount, startDate, endDate).stream()
-                .map(OrderResponse::from)
-                .collect(Collectors.toList());
+        return orderQueryRepository.findWithFilters(userId, status, deliveryType,
+                minAmount, maxAmount, startDate, endDate);
     }
 
-    // Get order statistics
-    @Transactional(readOnly = true)
-    public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
-        logger.debug("Fetching order statistics");
+    // Private helper methods
+    private OrderCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+    }
 
+    private int cursorPageSize(int size) {
+        return Math.clamp(size, 1, MAX_CURSOR_PAGE_SIZE);
+    }
+
+    private <T> T inCreatePhase(String phase, Supplier<T> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            // Simple counts and totals
-            long totalOrders = orderRepository.countByCreatedAtBetween(startDate, endDate);
-            long pendingOrders = orderRepository.countByStatusAndCreatedAtBetween(Order.OrderStatus.PENDING, startDate, endDate);
-            long completedOrders = orderRepository.countByStatusAndCreatedAtBetween(Order.OrderStatus.DELIVERED, startDate, endDate);
-            long cancelledOrders = orderRepository.countByStatusAndCreatedAtBetween(Order.OrderStatus.CANCELLED, startDate, endDate);
-
-            // Get orders for calculation
-            List<Order> orders = orderRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(startDate, endDate);
-
-            BigDecimal totalRevenue = orders.stream()
-                    .filter(o -> o.getStatus() != Order.OrderStatus.CANCELLED)
-                    .map(Order::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal averageOrderValue = totalOrders > 0 ?
-                    totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, java.math.RoundingMode.HALF_UP) :
-                    BigDecimal.ZERO;
-
-            return Map.of(
-                    "totalOrders", totalOrders,
-                    "totalRevenue", totalRevenue,
-                    "averageOrderValue", averageOrderValue,
-                    "pendingOrders", pendingOrders,
-                    "completedOrders", completedOrders,
-                    "cancelledOrders", cancelledOrders,
-                    "dateRange", Map.of(
-                            "startDate", startDate.toString(),
-                            "endDate", endDate.toString()
-                    )
-            );
+            return ConnectionHoldTrackingDataSource.inPhase("create-order." + phase, work);
+        } finally {
+            sample.stop(meterRegistry.timer("order.create.phase", "phase", phase));
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("Error fetching order statistics: {}", e.getMessage());
-            return Map.of(
-                    "error", "Statistics temporarily unavailable",
-                    "message", e.getMessage()
-            );
+    private Order prepareOrder(OrderRequest request) {
+        // Validate order request
+        validateOrderRequest(request);
+
+        // Create order entity
+        Order order = new Order(request.getUserId(), request.getCustomerName(),
+                request.getCustomerEmail(), request.getDeliveryType());
+        order.setOrderNumber(orderNumberGenerator.next());
+        order.setCustomerPhone(request.getCustomerPhone());
+        order.setDeliveryAddress(request.getDeliveryAddress());
+        order.setDeliveryDate(request.getDeliveryDate());
+        order.setSpecialInstructions(request.getSpecialInstructions());
+        order.setDiscountCode(request.getDiscountCode());
+
+        // Process order items (product and stock lookups fan out concurrently, results keep request order)
+        for (ProductLookupService.ItemLookup lookup : productLookupService.lookupItems(request.getItems())) {
+            OrderItem orderItem = createOrderItem(order, lookup);
+            order.addOrderItem(orderItem);
+        }
+
+        // Calculate preparation time
+        calculatePreparationTime(order);
+
+        // Apply discounts if any
+        applyDiscounts(order, request.getDiscountCode());
+
+        // Calculate totals
+        order.calculateTotals(taxRate);
+
+        // Set delivery fee
+        setDeliveryFee(order);
+
+        // Recalculate totals with delivery fee
+        order.calculateTotals(taxRate);
+
+        // Validate payment amount matches order total
+        if (request.getPaymentAmount() == null || request.getPaymentAmount().compareTo(order.getTotalAmount()) < 0) {
+            logger.error("Payment amount mismatch: provided {} but order total is {}", request.getPaymentAmount(), order.getTotalAmount());
+            throw new OrderServiceException("Payment amount does not match order total. Please provide the correct amount: " + order.getTotalAmount());
         }
+
+        // Validate order limits
+        validateOrderLimits(order);
+
+        // Reserve stock for all items
+        reserveStockForOrder(order);
+
+        return order;
+    }
+
+    private Map<String, Object> buildPaymentRequest(Order savedOrder, OrderRequest request) {
+        Map<String, Object> paymentRequest = new java.util.HashMap<>();
+        paymentRequest.put("orderId", savedOrder.getId());
+        paymentRequest.put("userId", savedOrder.getUserId());
+        paymentRequest.put("paymentMethod", request.getPaymentMethod());
+        paymentRequest.put("amount", savedOrder.getTotalAmount());
+        paymentRequest.put("currencyCode", request.getCurrencyCode());
+        paymentRequest.put("description", "Payment for order " + savedOrder.getOrderNumber());
+        paymentRequest.put("cardLastFour", request.getCardLastFour());
+        paymentRequest.put("cardBrand", request.getCardBrand());
+        paymentRequest.put("cardType", request.getCardType());
+        paymentRequest.put("digitalWalletProvider", request.getDigitalWalletProvider());
+        paymentRequest.put("bankName", request.getBankName());
+        paymentRequest.put("notes", request.getPaymentNotes());
+        return paymentRequest;
     }
 
-    // Private helper methods
     private void validateOrderRequest(OrderRequest request) {
         if (request.getItems().size() > maxItemsPerOrder) {
             throw new OrderServiceException("Order cannot contain more than " + maxItemsPerOrder + " items");
@@ -359,38 +407,30 @@ public class OrderService {
         }
     }
 
-    private OrderItem createOrderItem(Order order, OrderItemRequest itemRequest) {
-        // Get product details from Product Service
-        Map<String, Object> productResponse;
-        try {
-            productResponse = productServiceClient.getProductById(itemRequest.getProductId());
-        } catch (Exception e) {
-            throw new OrderServiceException("Product not found: " + itemRequest.getProductId());
-        }
-
-        // Check stock availability
-        Map<String, Object> stockResponse = productServiceClient.checkStockAvailability(
-                itemRequest.getProductId(), itemRequest.getQuantity());
+    private OrderItem createOrderItem(Order order, ProductLookupService.ItemLookup lookup) {
+        OrderItemRequest itemRequest = lookup.getItemRequest();
+        ProductSnapshot product = lookup.getProduct();
+        Map<String, Object> stockResponse = lookup.getStock();
 
         Boolean sufficient = (Boolean) stockResponse.get("sufficient");
         if (!sufficient) {
-            String productName = (String) productResponse.get("name");
-            throw new OrderServiceException("Insufficient stock for product: " + productName);
+            throw new OrderServiceException("Insufficient stock for product: " + product.getName());
         }
 
         // Create order item
         OrderItem orderItem = new OrderItem();
         orderItem.setOrder(order);
         orderItem.setProductId(itemRequest.getProductId());
-        orderItem.setProductSku((String) productResponse.get("sku"));
-        orderItem.setProductName((String) productResponse.get("name"));
-        orderItem.setProductCategory(getProductCategory(productResponse));
+        orderItem.setProductSku(product.getSku());
+        orderItem.setProductName(product.getName());
+        orderItem.setProductCategory(product.getCategoryName());
         orderItem.setQuantity(itemRequest.getQuantity());
-        orderItem.setUnitPrice(getProductPrice(productResponse, itemRequest.getUnitPriceOverride()));
+        orderItem.setUnitPrice(itemRequest.getUnitPriceOverride() != null ?
+                itemRequest.getUnitPriceOverride() : product.getEffectivePrice());
         orderItem.setSpecialInstructions(itemRequest.getSpecialInstructions());
-        orderItem.setProductDescription((String) productResponse.get("description"));
-        orderItem.setProductImageUrl(getProductImageUrl(productResponse));
-        orderItem.setPreparationTimeMinutes(getProductPreparationTime(productResponse));
+        orderItem.setProductDescription(product.getDescription());
+        orderItem.setProductImageUrl(product.getPrimaryImageUrl());
+        orderItem.setPreparationTimeMinutes(product.getPreparationTimeMinutes());
 
         return orderItem;
     }
@@ -446,14 +486,11 @@ public class OrderService {
         }
     }
 
-    private void releaseStockForOrder(Order order) {
+    // One event per item, so a retry only repeats the call that failed
+    private void enqueueStockCalls(Order order, OutboxEvent.EventType eventType) {
         for (OrderItem item : order.getOrderItems()) {
-            try {
-                Map<String, Integer> request = Map.of("quantity", item.getQuantity());
-                productServiceClient.releaseReservedStock(item.getProductId(), request);
-            } catch (Exception e) {
-                logger.error("Failed to release stock for product {}: {}", item.getProductId(), e.getMessage());
-            }
+            outboxDispatcher.enqueue(order.getId(), eventType,
+                    Map.of("productId", item.getProductId(), "quantity", item.getQuantity()));
         }
     }
 
@@ -469,84 +506,72 @@ public class OrderService {
         }
     }
 
-    private void validateStatusTransition(Order.OrderStatus currentStatus, Order.OrderStatus newStatus) {
-        // Define valid status transitions
-        boolean isValidTransition = switch (currentStatus) {
-            case PENDING -> newStatus == Order.OrderStatus.CONFIRMED || newStatus == Order.OrderStatus.CANCELLED;
-            case CONFIRMED -> newStatus == Order.OrderStatus.PREPARING || newStatus == Order.OrderStatus.CANCELLED;
-            case PREPARING -> newStatus == Order.OrderStatus.READY;
-            case READY -> newStatus == Order.OrderStatus.OUT_FOR_DELIVERY || newStatus == Order.OrderStatus.DELIVERED;
-            case OUT_FOR_DELIVERY -> newStatus == Order.OrderStatus.DELIVERED;
-            case DELIVERED, CANCELLED -> false; // Terminal states
-        };
-
-        if (!isValidTransition) {
-            throw new OrderServiceException("Invalid status transition from " + currentStatus + " to " + newStatus);
-        }
-    }
-
-    private void handleStatusTransition(Order order, Order.OrderStatus oldStatus,
-                                        Order.OrderStatus newStatus, String reason) {
-        LocalDateTime now = LocalDateTime.now();
-
-        switch (newStatus) {
-            case CONFIRMED -> {
-                order.setConfirmedAt(now);
-                // Consume reserved stock
-                consumeStockForOrder(order);
-            }
-            case DELIVERED -> {
-                order.setCompletedAt(now);
-                // ✅ REMOVED: Payment completion (handled by Payment Service)
+    // Optimistic status change: read, check the transition table, then write only if the status and
+    // version are still what was read. A concurrent change (payment webhook, admin, cancellation) makes
+    // the write miss; the order is then re-read and the transition re-checked against the winner's
+    // status, at most order.status.max-attempts times. Returns the order detached, items loaded.
+    private StatusChange changeStatus(UUID orderId, Order.OrderStatus newStatus, String reason) {
+        for (int attempt = 1; ; attempt++) {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new OrderServiceException("Order not found with ID: " + orderId));
+            validateStatusTransition(order.getStatus(), newStatus);
+            // The write clears the persistence context; stock calls and the response still need the items
+            Hibernate.initialize(order.getOrderItems());
+
+            StatusChange change = StatusChange.of(order, newStatus, reason, LocalDateTime.now());
+            int updated = orderRepository.updateStatusIfUnchanged(orderId, change.previousStatus(),
+                    order.getVersion(), newStatus, change.changedAt(), change.confirmedAt(), change.readyAt(),
+                    change.completedAt(), change.cancelledAt(), change.cancellationReason());
+            if (updated == 1) {
+                change.apply();
+                return change;
             }
-            case CANCELLED -> {
-                order.setCancelledAt(now);
-                order.setCancellationReason(reason);
-                // Stock release handled in cancelOrder method
-            }
-        }
-    }
 
-    private void consumeStockForOrder(Order order) {
-        for (OrderItem item : order.getOrderItems()) {
-            try {
-                Map<String, Integer> request = Map.of("quantity", item.getQuantity());
-                productServiceClient.consumeStock(item.getProductId(), request);
-            } catch (Exception e) {
-                logger.error("Failed to consume stock for product {}: {}", item.getProductId(), e.getMessage());
-                throw new OrderServiceException("Stock consumption failed: " + e.getMessage());
+            statusConflictCounter.increment();
+            if (attempt >= statusMaxAttempts) {
+                throw new OptimisticLockingFailureException("Order " + orderId +
+                        " was changed concurrently " + attempt + " times; retry the request");
             }
+            logger.debug("Status change of order {} to {} lost a race (attempt {}), retrying",
+                    orderId, newStatus, attempt);
         }
     }
 
-    // Utility methods for product response parsing
-    private String getProductCategory(Map<String, Object> productResponse) {
-        Object categoryObj = productResponse.get("category");
-        if (categoryObj instanceof Map<?, ?> categoryMap) {
-            Object nameObj = categoryMap.get("name");
-            return nameObj != null ? nameObj.toString() : null;
+    private void validateStatusTransition(Order.OrderStatus currentStatus, Order.OrderStatus newStatus) {
+        if (Order.canTransition(currentStatus, newStatus)) {
+            return;
+        }
+        if (newStatus == Order.OrderStatus.CANCELLED) {
+            throw new OrderServiceException("Order cannot be cancelled in current status: " + currentStatus);
         }
-        return null;
+        throw new OrderServiceException("Invalid status transition from " + currentStatus + " to " + newStatus);
     }
 
-    private BigDecimal getProductPrice(Map<String, Object> productResponse, BigDecimal priceOverride) {
-        if (priceOverride != null) {
-            return priceOverride;
+    // Columns written by one status change: the order's current lifecycle timestamps plus the one the
+    // new status sets (and the reason, for a cancellation)
+    private record StatusChange(Order order, Order.OrderStatus previousStatus, Order.OrderStatus newStatus,
+                                LocalDateTime changedAt, LocalDateTime confirmedAt, LocalDateTime readyAt,
+                                LocalDateTime completedAt, LocalDateTime cancelledAt, String cancellationReason) {
+
+        static StatusChange of(Order order, Order.OrderStatus newStatus, String reason, LocalDateTime now) {
+            return new StatusChange(order, order.getStatus(), newStatus, now,
+                    newStatus == Order.OrderStatus.CONFIRMED ? now : order.getConfirmedAt(),
+                    newStatus == Order.OrderStatus.READY ? now : order.getReadyAt(),
+                    newStatus == Order.OrderStatus.DELIVERED ? now : order.getCompletedAt(),
+                    newStatus == Order.OrderStatus.CANCELLED ? now : order.getCancelledAt(),
+                    newStatus == Order.OrderStatus.CANCELLED ? reason : order.getCancellationReason());
         }
 
-        Object effectivePrice = productResponse.get("effectivePrice");
-        if (effectivePrice instanceof Number) {
-            return BigDecimal.valueOf(((Number) effectivePrice).doubleValue());
+        // Mirrors the written row onto the detached entity
+        void apply() {
+            order.setStatus(newStatus);
+            order.setVersion(order.getVersion() + 1);
+            order.setUpdatedAt(changedAt);
+            order.setConfirmedAt(confirmedAt);
+            order.setReadyAt(readyAt);
+            order.setCompletedAt(completedAt);
+            order.setCancelledAt(cancelledAt);
+            order.setCancellationReason(cancellationReason);
         }
-        return BigDecimal.ZERO;
-    }
-
-    private String getProductImageUrl(Map<String, Object> productResponse) {
-        return (String) productResponse.get("primaryImageUrl");
-    }
-
-    private Integer getProductPreparationTime(Map<String, Object> productResponse) {
-        Object prepTime = productResponse.get("preparationTimeMinutes");
-        return prepTime instanceof Number ? ((Number) prepTime).intValue() : 30; // Default 30 minutes
     }
 }
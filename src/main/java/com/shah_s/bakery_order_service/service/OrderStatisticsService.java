@@ -0,0 +1,327 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Order statistics served from the hourly rollup table (order_stats_hourly) rather than by scanning
+// orders. The order events are turned into deltas after commit, summed in memory per rollup row and
+// flushed periodically as one batch, like the distinct count sketches, so checkouts and status
+// changes never wait on a rollup row lock. Figures trail the orders by up to one flush interval, and
+// deltas not yet flushed are lost if the instance dies; a rebuild of the affected hours restores
+// them. Ranges are widened to whole hours.
+@Service
+public class OrderStatisticsService implements StatsBackfill.Source {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatisticsService.class);
+
+    private static final String UPSERT = "INSERT INTO order_stats_hourly (bucket_start, status, delivery_type, " +
+            "order_count, gross_amount, subtotal_amount, tax_amount, discount_amount, delivery_fee_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (bucket_start, status, delivery_type) DO UPDATE SET " +
+            "order_count = order_stats_hourly.order_count + EXCLUDED.order_count, " +
+            "gross_amount = order_stats_hourly.gross_amount + EXCLUDED.gross_amount, " +
+            "subtotal_amount = order_stats_hourly.subtotal_amount + EXCLUDED.subtotal_amount, " +
+            "tax_amount = order_stats_hourly.tax_amount + EXCLUDED.tax_amount, " +
+            "discount_amount = order_stats_hourly.discount_amount + EXCLUDED.discount_amount, " +
+            "delivery_fee_amount = order_stats_hourly.delivery_fee_amount + EXCLUDED.delivery_fee_amount";
+
+    private static final String REBUILD = "INSERT INTO order_stats_hourly (bucket_start, status, delivery_type, " +
+            "order_count, gross_amount, subtotal_amount, tax_amount, discount_amount, delivery_fee_amount) " +
+            "SELECT date_trunc('hour', created_at), status, delivery_type, COUNT(*), " +
+            "COALESCE(SUM(total_amount), 0), COALESCE(SUM(subtotal), 0), COALESCE(SUM(tax_amount), 0), " +
+            "COALESCE(SUM(discount_amount), 0), COALESCE(SUM(delivery_fee), 0) " +
+            "FROM orders WHERE created_at >= ? AND created_at < ? " +
+            "GROUP BY 1, 2, 3";
+
+    // Locks rows in one order, so flushes from several instances cannot deadlock on each other's buckets
+    private static final Comparator<Delta> KEY_ORDER = Comparator.comparing(Delta::bucketStart)
+            .thenComparing(Delta::status)
+            .thenComparing(Delta::deliveryType);
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    // Deltas not yet flushed, summed per rollup row
+    final private Map<Delta.Key, Delta> pending = new ConcurrentHashMap<>();
+
+    public OrderStatisticsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(Delta.of(event.order(), event.order().getStatus(), 1));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.previousStatus() == event.order().getStatus()) {
+            return;
+        }
+        record(Delta.of(event.order(), event.previousStatus(), -1));
+        record(Delta.of(event.order(), event.order().getStatus(), 1));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        event.orders().forEach(order -> record(Delta.of(order, order.getStatus(), 1)));
+    }
+
+    // Writes pending deltas as one batch in one transaction, in key order so concurrent flushers lock
+    // rows alike. On failure the deltas go back to pending and are retried on the next run.
+    @Scheduled(fixedDelayString = "${order.stats.flush-interval-ms:1000}")
+    public void flush() {
+        List<Delta.Key> keys = pending.keySet().stream().toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Delta> batch = new ArrayList<>(keys.size());
+        for (Delta.Key key : keys) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                batch.add(delta);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            logger.debug("Flushed {} order rollup deltas", batch.size());
+        } catch (Exception e) {
+            logger.warn("Order rollup flush failed, will retry: {}", e.getMessage());
+            batch.forEach(this::record);
+        }
+    }
+
+    public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        long totalOrders = 0;
+        long pendingOrders = 0;
+        long completedOrders = 0;
+        long cancelledOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT status, SUM(order_count) AS orders, " +
+                "SUM(gross_amount) AS gross FROM order_stats_hourly " +
+                "WHERE bucket_start >= ? AND bucket_start < ? GROUP BY status", from(startDate), to(endDate))) {
+            Order.OrderStatus status = Order.OrderStatus.valueOf((String) row.get("status"));
+            long orders = ((Number) row.get("orders")).longValue();
+            totalOrders += orders;
+            switch (status) {
+                case PENDING -> pendingOrders = orders;
+                case DELIVERED -> completedOrders = orders;
+                case CANCELLED -> cancelledOrders = orders;
+                default -> { }
+            }
+            if (status != Order.OrderStatus.CANCELLED) {
+                totalRevenue = totalRevenue.add((BigDecimal) row.get("gross"));
+            }
+        }
+
+        return Map.of(
+                "totalOrders", totalOrders,
+                "totalRevenue", totalRevenue,
+                "averageOrderValue", average(totalRevenue, totalOrders),
+                "pendingOrders", pendingOrders,
+                "completedOrders", completedOrders,
+                "cancelledOrders", cancelledOrders,
+                "dateRange", Map.of(
+                        "startDate", startDate.toString(),
+                        "endDate", endDate.toString()
+                )
+        );
+    }
+
+    // One entry per day with orders, newest first
+    public List<Map<String, Object>> getDailyOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        return jdbcTemplate.query("SELECT CAST(bucket_start AS date) AS order_date, SUM(order_count) AS orders, " +
+                        "SUM(gross_amount) AS gross FROM order_stats_hourly " +
+                        "WHERE bucket_start >= ? AND bucket_start < ? " +
+                        "GROUP BY 1 HAVING SUM(order_count) > 0 ORDER BY 1 DESC",
+                (rs, rowNum) -> {
+                    long orders = rs.getLong("orders");
+                    BigDecimal gross = rs.getBigDecimal("gross");
+                    return Map.<String, Object>of(
+                            "orderDate", rs.getObject("order_date", LocalDate.class).toString(),
+                            "orderCount", orders,
+                            "totalSales", gross,
+                            "averageOrderValue", average(gross, orders));
+                },
+                from(startDate), to(endDate));
+    }
+
+    // Revenue figures exclude cancelled orders
+    public Map<String, Object> getRevenueStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT COALESCE(SUM(order_count), 0) AS orders, " +
+                "COALESCE(SUM(gross_amount), 0) AS gross, COALESCE(SUM(subtotal_amount), 0) AS subtotal, " +
+                "COALESCE(SUM(tax_amount), 0) AS tax, COALESCE(SUM(discount_amount), 0) AS discounts, " +
+                "COALESCE(SUM(delivery_fee_amount), 0) AS delivery_fees FROM order_stats_hourly " +
+                "WHERE bucket_start >= ? AND bucket_start < ? AND status <> 'CANCELLED'", from(startDate), to(endDate));
+
+        long orders = ((Number) row.get("orders")).longValue();
+        BigDecimal gross = (BigDecimal) row.get("gross");
+        return Map.of(
+                "totalOrders", orders,
+                "totalRevenue", gross,
+                "averageOrderValue", average(gross, orders),
+                "totalSubtotal", row.get("subtotal"),
+                "totalTax", row.get("tax"),
+                "totalDiscounts", row.get("discounts"),
+                "totalDeliveryFees", row.get("delivery_fees"),
+                "dateRange", Map.of(
+                        "startDate", startDate.toString(),
+                        "endDate", endDate.toString()
+                )
+        );
+    }
+
+    // Recomputes the rollups for the hours covering [startDate, endDate] from the orders table, one
+    // day per transaction, replacing what was there. Deltas pending before the rebuild are flushed
+    // first so they are not added on top of it again; only orders committed while it runs can still
+    // be counted twice. Returns the rows written.
+    public long rebuild(LocalDateTime startDate, LocalDateTime endDate) {
+        long started = System.currentTimeMillis();
+        flush();
+        LocalDateTime to = to(endDate);
+        long rows = 0;
+
+        for (LocalDateTime day = from(startDate); day.isBefore(to); ) {
+            LocalDateTime dayStart = day;
+            LocalDateTime dayEnd = min(dayStart.truncatedTo(ChronoUnit.DAYS).plusDays(1), to);
+            Integer written = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("DELETE FROM order_stats_hourly WHERE bucket_start >= ? AND bucket_start < ?",
+                        dayStart, dayEnd);
+                return jdbcTemplate.update(REBUILD, dayStart, dayEnd);
+            });
+            rows += written != null ? written : 0;
+            day = dayEnd;
+        }
+
+        logger.info("Rebuilt order rollups from {} to {}: {} rows in {} ms", from(startDate), to, rows,
+                System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    @Override
+    public String backfillTable() {
+        return "order_stats_hourly";
+    }
+
+    // From the first order up to now
+    @Override
+    public void backfill() {
+        LocalDateTime firstOrder = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", LocalDateTime.class);
+        if (firstOrder != null) {
+            rebuild(firstOrder, LocalDateTime.now());
+        }
+    }
+
+    private void record(Delta delta) {
+        pending.merge(delta.key(), delta, Delta::plus);
+    }
+
+    // An order created and moved on within one flush cancels out of its first status row
+    private void apply(List<Delta> deltas) {
+        List<Delta> rows = deltas.stream().filter(delta -> !delta.isZero()).sorted(KEY_ORDER).toList();
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Delta delta = rows.get(i);
+                ps.setObject(1, delta.bucketStart());
+                ps.setString(2, delta.status().name());
+                ps.setString(3, delta.deliveryType().name());
+                ps.setLong(4, delta.orders());
+                ps.setBigDecimal(5, delta.gross());
+                ps.setBigDecimal(6, delta.subtotal());
+                ps.setBigDecimal(7, delta.tax());
+                ps.setBigDecimal(8, delta.discount());
+                ps.setBigDecimal(9, delta.deliveryFee());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private static BigDecimal average(BigDecimal total, long count) {
+        return count > 0 ? total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    private static LocalDateTime from(LocalDateTime startDate) {
+        return startDate.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    // Exclusive: the hour containing endDate is included
+    private static LocalDateTime to(LocalDateTime endDate) {
+        return endDate.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    // Change to one rollup row; sign is -1 when an order leaves a status
+    record Delta(LocalDateTime bucketStart, Order.OrderStatus status, Order.DeliveryType deliveryType, long orders,
+                 BigDecimal gross, BigDecimal subtotal, BigDecimal tax, BigDecimal discount, BigDecimal deliveryFee) {
+
+        record Key(LocalDateTime bucketStart, Order.OrderStatus status, Order.DeliveryType deliveryType) {
+        }
+
+        static Delta of(Order order, Order.OrderStatus status, int sign) {
+            LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+            BigDecimal factor = BigDecimal.valueOf(sign);
+            return new Delta(createdAt.truncatedTo(ChronoUnit.HOURS), status, order.getDeliveryType(), sign,
+                    amount(order.getTotalAmount()).multiply(factor),
+                    amount(order.getSubtotal()).multiply(factor),
+                    amount(order.getTaxAmount()).multiply(factor),
+                    amount(order.getDiscountAmount()).multiply(factor),
+                    amount(order.getDeliveryFee()).multiply(factor));
+        }
+
+        Key key() {
+            return new Key(bucketStart, status, deliveryType);
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(bucketStart, status, deliveryType, orders + other.orders,
+                    gross.add(other.gross), subtotal.add(other.subtotal), tax.add(other.tax),
+                    discount.add(other.discount), deliveryFee.add(other.deliveryFee));
+        }
+
+        boolean isZero() {
+            return orders == 0 && gross.signum() == 0 && subtotal.signum() == 0 && tax.signum() == 0
+                    && discount.signum() == 0 && deliveryFee.signum() == 0;
+        }
+
+        private static BigDecimal amount(BigDecimal value) {
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+}
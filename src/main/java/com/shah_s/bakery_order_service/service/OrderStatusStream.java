@@ -0,0 +1,187 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shah_s.bakery_order_service.dto.OrderStatusNotification;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Pushes committed order status changes to Server-Sent Event subscribers so clients stop polling.
+// One multicast sink fans every change out to all streams, each of which filters for its order,
+// user or status. A subscriber that cannot keep up gets a bounded buffer; when it overflows the
+// stream is closed with a "dropped" event instead of holding memory or slowing the others, and the
+// client reconnects. Streams open with a snapshot of the current state read after subscribing, so
+// no change is missed between the two; clients keep the latest by updatedAt. Snapshots are read as
+// the notification columns only, never as entities with their items. Comment heartbeats keep idle
+// connections open through proxies and detect clients that went away.
+@Service
+public class OrderStatusStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusStream.class);
+
+    private static final List<Order.OrderStatus> ACTIVE_STATUSES = List.of(Order.OrderStatus.PENDING,
+            Order.OrderStatus.CONFIRMED, Order.OrderStatus.PREPARING, Order.OrderStatus.READY,
+            Order.OrderStatus.OUT_FOR_DELIVERY);
+
+    final private OrderQueryRepository orderQueryRepository;
+
+    // Best effort: a change is only lost for a subscriber whose own buffer is already full
+    final private Sinks.Many<OrderStatusNotification> hub = Sinks.many().multicast().directBestEffort();
+
+    // Last change published per order, kept briefly: a single-order stream opens from a snapshot its
+    // caller read before subscribing, and a change committed in between is replayed from here
+    final private Cache<UUID, OrderStatusNotification> recent = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(30))
+            .maximumSize(10_000)
+            .build();
+
+    final private AtomicInteger subscribers = new AtomicInteger();
+
+    final private Counter publishedCounter;
+
+    final private Counter droppedCounter;
+
+    final private int bufferSize;
+
+    final private Duration heartbeat;
+
+    final private int maxSubscribers;
+
+    public OrderStatusStream(OrderQueryRepository orderQueryRepository, MeterRegistry meterRegistry,
+                             @Value("${order.stream.buffer-size:64}") int bufferSize,
+                             @Value("${order.stream.heartbeat-seconds:15}") long heartbeatSeconds,
+                             @Value("${order.stream.max-subscribers:10000}") int maxSubscribers) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("order.stream.buffer-size must be at least 1");
+        }
+        this.orderQueryRepository = orderQueryRepository;
+        this.bufferSize = bufferSize;
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.maxSubscribers = maxSubscribers;
+
+        this.publishedCounter = Counter.builder("orders.stream.published")
+                .description("Order status changes pushed to live subscribers")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("orders.stream.dropped")
+                .description("Live subscribers disconnected for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("orders.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open order status streams")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        publish(OrderStatusNotification.from(event.order(), null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        publish(OrderStatusNotification.from(event.order(), event.previousStatus()));
+    }
+
+    // Called from whichever thread committed; the sink needs serialized emission
+    void publish(OrderStatusNotification notification) {
+        synchronized (hub) {
+            hub.tryEmitNext(notification);
+        }
+        recent.put(notification.getOrderId(), notification);
+        publishedCounter.increment();
+    }
+
+    public boolean isFull() {
+        return subscribers.get() >= maxSubscribers;
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public Optional<OrderStatusNotification> current(UUID orderId) {
+        return orderQueryRepository.findStatusById(orderId);
+    }
+
+    // Opens with the snapshot the caller already read (to check access), plus any newer change
+    // published since. Ends after the order reaches DELIVERED or CANCELLED.
+    public Flux<ServerSentEvent<OrderStatusNotification>> forOrder(OrderStatusNotification snapshot) {
+        UUID orderId = snapshot.getOrderId();
+        return stream(n -> orderId.equals(n.getOrderId()), () -> {
+            OrderStatusNotification latest = recent.getIfPresent(orderId);
+            return latest != null && isNewer(latest, snapshot) ? List.of(snapshot, latest) : List.of(snapshot);
+        }).takeUntil(event -> event.data() != null && event.data().isFinal());
+    }
+
+    // The user's active orders first, then every change to any of their orders
+    public Flux<ServerSentEvent<OrderStatusNotification>> forUser(UUID userId) {
+        return stream(n -> userId.equals(n.getUserId()),
+                () -> orderQueryRepository.findStatusesByUserIdAndStatusIn(userId, ACTIVE_STATUSES));
+    }
+
+    // Orders entering or leaving the status, so a kitchen display can add and remove them. Only active
+    // statuses get a snapshot; DELIVERED and CANCELLED would replay the whole history.
+    public Flux<ServerSentEvent<OrderStatusNotification>> forStatus(Order.OrderStatus status) {
+        return stream(n -> n.getStatus() == status || n.getPreviousStatus() == status, () -> ACTIVE_STATUSES.contains(status)
+                ? orderQueryRepository.findStatusesByStatus(status)
+                : List.of());
+    }
+
+    private Flux<ServerSentEvent<OrderStatusNotification>> stream(Predicate<OrderStatusNotification> filter,
+                                                                  Supplier<List<OrderStatusNotification>> snapshot) {
+        Flux<ServerSentEvent<OrderStatusNotification>> live = hub.asFlux()
+                .filter(filter)
+                .onBackpressureBuffer(bufferSize)
+                .map(n -> event("status", n));
+        // Subscribed after the live feed, so anything committed after the read is still delivered
+        Flux<ServerSentEvent<OrderStatusNotification>> initial = Flux.defer(() -> Flux.fromIterable(snapshot.get()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(n -> event("snapshot", n));
+        Flux<ServerSentEvent<OrderStatusNotification>> heartbeats = Flux.interval(heartbeat, heartbeat)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<OrderStatusNotification>builder().comment("heartbeat").build());
+
+        return Flux.merge(live, initial, heartbeats)
+                .onErrorResume(Exceptions::isOverflow, e -> {
+                    droppedCounter.increment();
+                    logger.warn("Dropped a slow order status subscriber ({} buffered changes)", bufferSize);
+                    return Flux.just(ServerSentEvent.<OrderStatusNotification>builder().event("dropped").build());
+                })
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    // Without both timestamps the change is replayed anyway; clients drop whichever is older
+    private static boolean isNewer(OrderStatusNotification change, OrderStatusNotification snapshot) {
+        return change.getUpdatedAt() == null || snapshot.getUpdatedAt() == null
+                || change.getUpdatedAt().isAfter(snapshot.getUpdatedAt());
+    }
+
+    private static ServerSentEvent<OrderStatusNotification> event(String name, OrderStatusNotification notification) {
+        return ServerSentEvent.builder(notification)
+                .event(name)
+                .id(notification.getOrderId() + ":" + notification.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,303 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.client.PaymentServiceClient;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains the order outbox: claims due events in short transactions, delivers them outside any
+// transaction, then records the outcome. Delivery is at-least-once - an event whose outcome was
+// never recorded (crash, lease expiry) is sent again, so every call carries the event id as an
+// idempotency key. Events of an order that must not overtake each other share an ordering key (a
+// product's stock calls, the payment calls) and are delivered in the order they were written: the
+// next one is only claimed once the one before it was delivered or failed for good. Events with
+// different keys, such as a cancellation's stock releases, go out together.
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    final private OutboxEventRepository outboxEventRepository;
+
+    final private PaymentServiceClient paymentServiceClient;
+
+    final private ProductServiceClient productServiceClient;
+
+    final private ObjectMapper objectMapper;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private ExecutorService remoteCallExecutor;
+
+    final private AtomicBoolean running = new AtomicBoolean();
+
+    final private AtomicLong oldestPendingEpochMillis = new AtomicLong();
+
+    final private AtomicLong failedEvents = new AtomicLong();
+
+    final private Counter dispatchedCounter;
+
+    final private Counter retryCounter;
+
+    final private Counter failedCounter;
+
+    @Value("${order.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${order.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${order.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.initial-backoff-ms:2000}")
+    private long initialBackoffMs;
+
+    @Value("${order.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, PaymentServiceClient paymentServiceClient,
+                            ProductServiceClient productServiceClient, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                            @Qualifier("remoteCallExecutor") ExecutorService remoteCallExecutor,
+                            MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.paymentServiceClient = paymentServiceClient;
+        this.productServiceClient = productServiceClient;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.remoteCallExecutor = remoteCallExecutor;
+
+        this.dispatchedCounter = Counter.builder("order.outbox.dispatched").register(meterRegistry);
+        this.retryCounter = Counter.builder("order.outbox.retries").register(meterRegistry);
+        this.failedCounter = Counter.builder("order.outbox.failed")
+                .description("Events abandoned after the maximum number of attempts")
+                .register(meterRegistry);
+        // Reads the field, not this bean, so the half-built dispatcher never escapes the constructor
+        Gauge.builder("order.outbox.lag.seconds", oldestPendingEpochMillis, OutboxDispatcher::lagSeconds)
+                .description("Age of the oldest undispatched outbox event")
+                .register(meterRegistry);
+        Gauge.builder("order.outbox.failed.events", failedEvents, AtomicLong::get)
+                .description("Events left FAILED, not retried until someone intervenes")
+                .register(meterRegistry);
+    }
+
+    // Serialize a request body and append it to the outbox; must run inside the order's transaction
+    public OutboxEvent enqueue(UUID orderId, OutboxEvent.EventType eventType, Map<String, Object> payload) {
+        try {
+            OutboxEvent event = new OutboxEvent(orderId, eventType, orderingKey(eventType, payload),
+                    objectMapper.writeValueAsString(payload));
+            return outboxEventRepository.save(event);
+        } catch (Exception e) {
+            throw new OrderServiceException("Failed to write outbox event for order " + orderId, e);
+        }
+    }
+
+    // Stock calls are ordered per product, payment calls among themselves
+    static String orderingKey(OutboxEvent.EventType eventType, Map<String, Object> payload) {
+        return switch (eventType) {
+            case PAYMENT_CREATE, PAYMENT_CANCEL -> "PAYMENT";
+            case STOCK_CONSUME, STOCK_RELEASE -> "STOCK:" + payload.get("productId");
+        };
+    }
+
+    // Ask for a dispatch run now instead of waiting for the next poll (e.g. right after commit)
+    public void dispatchSoon() {
+        remoteCallExecutor.execute(this::dispatchPending);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:1000}")
+    public void dispatchPending() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<ClaimedEvent> claimed = claimBatch();
+                if (claimed.isEmpty()) {
+                    break;
+                }
+                recordOutcomes(deliver(claimed));
+            }
+        } catch (Exception e) {
+            logger.error("Outbox dispatch run failed: {}", e.getMessage());
+        } finally {
+            // Also after a failed run, so the lag keeps rising while dispatch is broken
+            refreshGauges();
+            running.set(false);
+        }
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds(oldestPendingEpochMillis);
+    }
+
+    private static double lagSeconds(AtomicLong oldestPendingEpochMillis) {
+        long oldest = oldestPendingEpochMillis.get();
+        return oldest == 0 ? 0 : Math.max(0, (System.currentTimeMillis() - oldest) / 1000.0);
+    }
+
+    private List<ClaimedEvent> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<ClaimedEvent> claimed = new ArrayList<>();
+            for (OutboxEvent event : outboxEventRepository.findDueForDispatch(now, PageRequest.of(0, batchSize))) {
+                // The lease keeps other dispatchers away while this one delivers outside the transaction
+                event.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+                claimed.add(new ClaimedEvent(event.getId(), event.getEventType(), event.getPayload()));
+            }
+            return claimed;
+        });
+    }
+
+    private Map<UUID, String> deliver(List<ClaimedEvent> claimed) {
+        // Event id -> error message (null when delivered)
+        Map<UUID, String> outcomes = new HashMap<>();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(claimed.size());
+        for (ClaimedEvent event : claimed) {
+            deliveries.add(CompletableFuture.runAsync(() -> send(event), remoteCallExecutor)
+                    .handle((ignored, error) -> {
+                        synchronized (outcomes) {
+                            outcomes.put(event.id(), error == null ? null : rootMessage(error));
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0])).join();
+        return outcomes;
+    }
+
+    private void send(ClaimedEvent event) {
+        try {
+            Map<String, Object> payload = objectMapper.readValue(event.payload(), PAYLOAD_TYPE);
+            // Lets the receiver drop duplicates caused by redelivery
+            String idempotencyKey = event.id().toString();
+            payload.put("idempotencyKey", idempotencyKey);
+
+            switch (event.eventType()) {
+                case PAYMENT_CREATE -> {
+                    Map<String, Object> response = paymentServiceClient.createPayment(payload);
+                    logger.info("Payment created for order: {} - Payment ID: {}",
+                            payload.get("orderId"), response != null ? response.get("id") : null);
+                }
+                case PAYMENT_CANCEL -> cancelPayment(payload);
+                case STOCK_CONSUME -> productServiceClient.consumeStock(productId(payload), quantity(payload),
+                        idempotencyKey);
+                case STOCK_RELEASE -> productServiceClient.releaseReservedStock(productId(payload), quantity(payload),
+                        idempotencyKey);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OrderServiceException("Unreadable outbox payload for event " + event.id(), e);
+        }
+    }
+
+    private void cancelPayment(Map<String, Object> payload) {
+        UUID orderId = UUID.fromString((String) payload.get("orderId"));
+        Map<String, Object> payment = paymentServiceClient.getPaymentByOrderId(orderId);
+        if (payment == null) {
+            // The order's PAYMENT_CREATE went out before this event, so it failed for good or never existed
+            logger.info("No payment to cancel for order: {}", orderId);
+            return;
+        }
+        paymentServiceClient.cancelPayment(UUID.fromString((String) payment.get("id")),
+                Map.of("reason", Objects.toString(payload.get("reason"), ""),
+                        "idempotencyKey", (String) payload.get("idempotencyKey")));
+        logger.info("Payment cancelled for order: {}", orderId);
+    }
+
+    private static UUID productId(Map<String, Object> payload) {
+        return UUID.fromString((String) payload.get("productId"));
+    }
+
+    private static Map<String, Integer> quantity(Map<String, Object> payload) {
+        return Map.of("quantity", ((Number) payload.get("quantity")).intValue());
+    }
+
+    private void recordOutcomes(Map<UUID, String> outcomes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (OutboxEvent event : outboxEventRepository.findAllById(outcomes.keySet())) {
+                String error = outcomes.get(event.getId());
+                event.setAttempts(event.getAttempts() + 1);
+
+                if (error == null) {
+                    event.setStatus(OutboxEvent.OutboxStatus.DISPATCHED);
+                    event.setDispatchedAt(now);
+                    event.setLastError(null);
+                    dispatchedCounter.increment();
+                } else if (event.getAttempts() >= maxAttempts) {
+                    event.setStatus(OutboxEvent.OutboxStatus.FAILED);
+                    event.setLastError(error);
+                    failedCounter.increment();
+                    logger.error("Outbox event {} for order {} failed permanently after {} attempts: {}",
+                            event.getId(), event.getAggregateId(), event.getAttempts(), error);
+                } else {
+                    event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+                    event.setLastError(error);
+                    retryCounter.increment();
+                    logger.warn("Outbox event {} for order {} failed (attempt {}), retrying: {}",
+                            event.getId(), event.getAggregateId(), event.getAttempts(), error);
+                }
+            }
+        });
+    }
+
+    // Exponential backoff with jitter, capped at max-backoff-ms
+    Duration backoff(int attempts) {
+        long exponential = initialBackoffMs << Math.min(attempts - 1, 20);
+        long capped = Math.min(Math.max(exponential, initialBackoffMs), maxBackoffMs);
+        long jitter = (long) (capped * 0.2 * Math.random());
+        return Duration.ofMillis(capped + jitter);
+    }
+
+    // Keeps the last values if the database cannot be read; the lag gauge still ages from them
+    private void refreshGauges() {
+        try {
+            LocalDateTime oldest = outboxEventRepository.findOldestPendingCreatedAt();
+            oldestPendingEpochMillis.set(oldest == null ? 0 :
+                    oldest.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli());
+            failedEvents.set(outboxEventRepository.countByStatus(OutboxEvent.OutboxStatus.FAILED));
+        } catch (Exception e) {
+            logger.warn("Could not refresh outbox gauges: {}", e.getMessage());
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+
+    private record ClaimedEvent(UUID id, OutboxEvent.EventType eventType, String payload) {}
+}
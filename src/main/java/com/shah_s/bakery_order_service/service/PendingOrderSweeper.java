@@ -0,0 +1,222 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.event.OrderDeadlineEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cancels orders left in PENDING (payment never completed) past order.deadlines.pending-timeout-minutes
+// and gives their reserved stock back. Works in chunks walked by keyset (createdAt, id): each chunk
+// is claimed and cancelled in its own short transaction that skips rows locked by checkout. Each
+// order is cancelled with the same conditional update as a manual status change; one a concurrent
+// write got to first is left alone. As in a manual cancellation, the stock releases and payment
+// cancellations are queued in the outbox in that transaction and delivered after commit, with
+// retries. Runs on a fixed delay and whenever an expiry deadline fires; overlapping triggers are
+// dropped while a sweep is running.
+@Component
+public class PendingOrderSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingOrderSweeper.class);
+
+    // Keyset position before every real order
+    private static final LocalDateTime START_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID START_ID = new UUID(0, 0);
+
+    final private OrderRepository orderRepository;
+
+    final private OutboxDispatcher outboxDispatcher;
+
+    final private ApplicationEventPublisher eventPublisher;
+
+    final private ExecutorService remoteCallExecutor;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private AtomicBoolean running = new AtomicBoolean();
+
+    final private AtomicLong backlog = new AtomicLong();
+
+    final private Counter expiredCounter;
+
+    final private Counter skippedCounter;
+
+    final private Timer chunkTimer;
+
+    @Value("${order.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.deadlines.pending-timeout-minutes:30}")
+    private long pendingTimeoutMinutes;
+
+    @Value("${order.sweeper.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${order.sweeper.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    public PendingOrderSweeper(OrderRepository orderRepository, OutboxDispatcher outboxDispatcher,
+                               ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                               @Qualifier("remoteCallExecutor") ExecutorService remoteCallExecutor,
+                               MeterRegistry meterRegistry,
+                               @Value("${order.sweeper.chunk-timeout-seconds:5}") int chunkTimeoutSeconds) {
+        this.orderRepository = orderRepository;
+        this.outboxDispatcher = outboxDispatcher;
+        this.eventPublisher = eventPublisher;
+        this.remoteCallExecutor = remoteCallExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(chunkTimeoutSeconds);
+
+        this.expiredCounter = Counter.builder("orders.sweeper.expired")
+                .description("PENDING orders cancelled after the payment timeout")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("orders.sweeper.skipped")
+                .description("Expired orders left alone because a concurrent write changed them first")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("orders.sweeper.chunk")
+                .description("Time to claim and cancel one chunk and queue its outbox events")
+                .register(meterRegistry);
+        Gauge.builder("orders.sweeper.backlog", backlog, AtomicLong::get)
+                .description("Expired PENDING orders left after the last sweep")
+                .register(meterRegistry);
+    }
+
+    // An order just expired: sweep now rather than at the next interval
+    @EventListener
+    public void onDeadline(OrderDeadlineEvent event) {
+        if (enabled && event.type() == OrderDeadlineEvent.Type.PENDING_EXPIRED && !running.get()) {
+            remoteCallExecutor.execute(this::sweep);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.sweeper.interval-ms:60000}")
+    public void sweep() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(pendingTimeoutMinutes);
+            LocalDateTime afterCreatedAt = START_CREATED_AT;
+            UUID afterId = START_ID;
+            long expired = 0;
+
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                LocalDateTime fromCreatedAt = afterCreatedAt;
+                UUID fromId = afterId;
+                ExpiredChunk claimed = chunkTimer.record(() ->
+                        transactionTemplate.execute(status -> expireChunk(cutoff, fromCreatedAt, fromId)));
+                if (claimed == null || claimed.read() == 0) {
+                    break;
+                }
+                if (!claimed.cancelledIds().isEmpty()) {
+                    outboxDispatcher.dispatchSoon();
+                }
+                expired += claimed.cancelledIds().size();
+                afterCreatedAt = claimed.lastCreatedAt();
+                afterId = claimed.lastId();
+                if (claimed.read() < chunkSize) {
+                    break;
+                }
+            }
+
+            backlog.set(orderRepository.countByStatusAndCreatedAtLessThanEqual(Order.OrderStatus.PENDING, cutoff));
+            if (expired > 0) {
+                logger.info("Expired {} pending orders older than {}; {} left", expired, cutoff, backlog.get());
+            }
+        } catch (Exception e) {
+            logger.error("Pending order sweep failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ExpiredChunk expireChunk(LocalDateTime cutoff, LocalDateTime afterCreatedAt, UUID afterId) {
+        List<Order> orders = orderRepository.findPendingOrdersOlderThan(cutoff, afterCreatedAt, afterId,
+                PageRequest.of(0, chunkSize));
+        if (orders.isEmpty()) {
+            return ExpiredChunk.EMPTY;
+        }
+
+        // Each conditional update clears the persistence context; the stock releases still need the items
+        orders.forEach(order -> Hibernate.initialize(order.getOrderItems()));
+
+        LocalDateTime now = LocalDateTime.now();
+        String reason = "Payment not completed within " + pendingTimeoutMinutes + " minutes";
+        List<UUID> cancelledIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (cancel(order, reason, now)) {
+                enqueueCancellation(order, reason);
+                cancelledIds.add(order.getId());
+                eventPublisher.publishEvent(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+            } else {
+                skippedCounter.increment();
+                logger.debug("Expired order {} was changed concurrently; not cancelled", order.getId());
+            }
+        }
+        expiredCounter.increment(cancelledIds.size());
+
+        // The next chunk starts after the last order read, cancelled or not
+        Order last = orders.getLast();
+        return new ExpiredChunk(cancelledIds, orders.size(), last.getCreatedAt(), last.getId());
+    }
+
+    // Applies only while the order still has the status and version it was read with; false when a
+    // concurrent write got there first
+    private boolean cancel(Order order, String reason, LocalDateTime now) {
+        Order.OrderStatus previousStatus = order.getStatus();
+        if (!Order.canTransition(previousStatus, Order.OrderStatus.CANCELLED)) {
+            return false;
+        }
+        int updated = orderRepository.updateStatusIfUnchanged(order.getId(), previousStatus, order.getVersion(),
+                Order.OrderStatus.CANCELLED, now, order.getConfirmedAt(), order.getReadyAt(), order.getCompletedAt(),
+                now, reason);
+        if (updated == 0) {
+            return false;
+        }
+        // Mirrors the written row onto the now detached entity
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        order.setVersion(order.getVersion() + 1);
+        order.setUpdatedAt(now);
+        order.setCancelledAt(now);
+        order.setCancellationReason(reason);
+        return true;
+    }
+
+    // The events OrderService.cancelOrder writes: one stock release per item, then the payment cancel
+    private void enqueueCancellation(Order order, String reason) {
+        for (OrderItem item : order.getOrderItems()) {
+            outboxDispatcher.enqueue(order.getId(), OutboxEvent.EventType.STOCK_RELEASE,
+                    Map.of("productId", item.getProductId(), "quantity", item.getQuantity()));
+        }
+        outboxDispatcher.enqueue(order.getId(), OutboxEvent.EventType.PAYMENT_CANCEL,
+                Map.of("orderId", order.getId(), "reason", reason));
+    }
+
+    private record ExpiredChunk(List<UUID> cancelledIds, int read, LocalDateTime lastCreatedAt, UUID lastId) {
+
+        static final ExpiredChunk EMPTY = new ExpiredChunk(List.of(), 0, null, null);
+    }
+}
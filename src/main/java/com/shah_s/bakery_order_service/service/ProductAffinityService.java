@@ -0,0 +1,275 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// "Frequently ordered together", kept as product pair counts (product_pair_counts) that each order
+// adjusts once: placed and imported orders add one to every pair of distinct products in the basket,
+// cancellations take it back. The changes are summed in memory after commit and flushed
+// periodically as one batch, like the product sales rollup, so no order transaction locks pair rows.
+// The top K related products per product are cached and read through an index on
+// (product_id, pair_count), so a lookup touches K rows however long the history is.
+@Service
+public class ProductAffinityService implements StatsBackfill.Source {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAffinityService.class);
+
+    private static final String UPSERT = "INSERT INTO product_pair_counts (product_id, related_product_id, pair_count) " +
+            "VALUES (?, ?, ?) ON CONFLICT (product_id, related_product_id) DO UPDATE SET " +
+            "pair_count = product_pair_counts.pair_count + EXCLUDED.pair_count";
+
+    // Rows of one partition of product_id; partitions never share rows, so they rebuild in parallel
+    private static final String PARTITION = "(hashtext(CAST(product_id AS text)) & 2147483647) % ? = ?";
+
+    private static final String REBUILD_PARTITION = "INSERT INTO product_pair_counts (product_id, related_product_id, pair_count) " +
+            "WITH basket AS (SELECT DISTINCT oi.order_id, oi.product_id FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id WHERE o.status <> 'CANCELLED' " +
+            "AND oi.order_id IN (SELECT order_id FROM order_items GROUP BY order_id " +
+            "HAVING COUNT(DISTINCT product_id) BETWEEN 2 AND ?)) " +
+            "SELECT a.product_id, b.product_id, COUNT(*) FROM basket a " +
+            "JOIN basket b ON b.order_id = a.order_id AND b.product_id <> a.product_id " +
+            "WHERE (hashtext(CAST(a.product_id AS text)) & 2147483647) % ? = ? " +
+            "GROUP BY 1, 2";
+
+    private static final Comparator<PairDelta> KEY_ORDER = Comparator.comparing(PairDelta::productId)
+            .thenComparing(PairDelta::relatedProductId);
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    final private LoadingCache<UUID, List<RelatedProduct>> topRelated;
+
+    // Pair count changes not yet flushed
+    final private Map<PairDelta.Key, Long> pending = new ConcurrentHashMap<>();
+
+    // Larger baskets (catering, bulk) are left out: they add n^2 pairs and say little about affinity
+    final private int maxBasketProducts;
+
+    final private int topK;
+
+    final private int rebuildParallelism;
+
+    public ProductAffinityService(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${order.affinity.top-k:20}") int topK,
+                                  @Value("${order.affinity.max-basket-products:50}") int maxBasketProducts,
+                                  @Value("${order.affinity.cache-size:10000}") long cacheSize,
+                                  @Value("${order.affinity.cache-ttl-seconds:300}") long cacheTtlSeconds,
+                                  @Value("${order.affinity.rebuild-parallelism:4}") int rebuildParallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.topK = topK;
+        this.maxBasketProducts = maxBasketProducts;
+        this.rebuildParallelism = Math.max(rebuildParallelism, 1);
+
+        // Invalidated after each flush that touches a product; the TTL bounds staleness from other instances
+        this.topRelated = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build(this::loadTopRelated);
+        CaffeineCacheMetrics.monitor(meterRegistry, topRelated, "productAffinity");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (event.order().getStatus() != Order.OrderStatus.CANCELLED) {
+            record(pairs(event.order(), 1));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean wasCancelled = event.previousStatus() == Order.OrderStatus.CANCELLED;
+        boolean isCancelled = event.order().getStatus() == Order.OrderStatus.CANCELLED;
+        if (wasCancelled != isCancelled) {
+            record(pairs(event.order(), isCancelled ? -1 : 1));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        event.orders().stream()
+                .filter(order -> order.getStatus() != Order.OrderStatus.CANCELLED)
+                .forEach(order -> record(pairs(order, 1)));
+    }
+
+    // Writes pending pair counts as one batch in one transaction, then drops the cached lists of the
+    // products it touched, once the new counts are visible to other transactions. On failure the
+    // counts go back to pending and are retried on the next run.
+    @Scheduled(fixedDelayString = "${order.stats.flush-interval-ms:1000}")
+    public void flush() {
+        List<PairDelta.Key> keys = pending.keySet().stream().toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<PairDelta> batch = new ArrayList<>(keys.size());
+        for (PairDelta.Key key : keys) {
+            Long count = pending.remove(key);
+            if (count != null) {
+                batch.add(new PairDelta(key.productId(), key.relatedProductId(), count));
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            logger.debug("Flushed {} product pair counts", batch.size());
+        } catch (Exception e) {
+            logger.warn("Product pair flush failed, will retry: {}", e.getMessage());
+            record(batch);
+            return;
+        }
+        topRelated.invalidateAll(batch.stream().map(PairDelta::productId).distinct().toList());
+    }
+
+    // Products most often ordered together with productId, most first; at most top-k
+    public List<RelatedProduct> getBoughtTogether(UUID productId, int limit) {
+        List<RelatedProduct> related = topRelated.get(productId);
+        return related.size() > limit ? related.subList(0, limit) : related;
+    }
+
+    // Recomputes every pair from the order history, one product_id partition per worker and
+    // transaction, after flushing pending counts. Best run while order traffic is quiet; returns the
+    // rows written.
+    public long rebuild() {
+        long started = System.currentTimeMillis();
+        flush();
+        List<Future<Integer>> partitions = new ArrayList<>();
+        long rows = 0;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(rebuildParallelism)) {
+            for (int partition = 0; partition < rebuildParallelism; partition++) {
+                int current = partition;
+                partitions.add(executor.submit(() -> transactionTemplate.execute(status -> {
+                    jdbcTemplate.update("DELETE FROM product_pair_counts WHERE " + PARTITION, rebuildParallelism, current);
+                    return jdbcTemplate.update(REBUILD_PARTITION, maxBasketProducts, rebuildParallelism, current);
+                })));
+            }
+            for (Future<Integer> partition : partitions) {
+                Integer written = partition.get();
+                rows += written != null ? written : 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Product pair rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Product pair rebuild failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            topRelated.invalidateAll();
+        }
+
+        logger.info("Rebuilt product pairs in {} partitions: {} rows in {} ms", rebuildParallelism, rows,
+                System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    @Override
+    public String backfillTable() {
+        return "product_pair_counts";
+    }
+
+    @Override
+    public void backfill() {
+        rebuild();
+    }
+
+    private List<RelatedProduct> loadTopRelated(UUID productId) {
+        return jdbcTemplate.query("SELECT related_product_id, pair_count FROM product_pair_counts " +
+                        "WHERE product_id = ? AND pair_count > 0 " +
+                        "ORDER BY pair_count DESC, related_product_id DESC LIMIT ?",
+                (rs, rowNum) -> new RelatedProduct(rs.getObject("related_product_id", UUID.class), rs.getLong("pair_count")),
+                productId, topK);
+    }
+
+    private void record(List<PairDelta> deltas) {
+        for (PairDelta delta : deltas) {
+            pending.merge(delta.key(), delta.count(), Long::sum);
+        }
+    }
+
+    private void apply(List<PairDelta> deltas) {
+        List<PairDelta> rows = deltas.stream().filter(delta -> delta.count() != 0).sorted(KEY_ORDER).toList();
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Rows are written in key order so flushes from several instances cannot deadlock
+        jdbcTemplate.batchUpdate(UPSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PairDelta delta = rows.get(i);
+                ps.setObject(1, delta.productId());
+                ps.setObject(2, delta.relatedProductId());
+                ps.setLong(3, delta.count());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    // Every ordered pair of distinct products in the basket; nothing for single-product or oversized baskets
+    List<PairDelta> pairs(Order order, long sign) {
+        List<UUID> products = products(order);
+        if (products.size() < 2 || products.size() > maxBasketProducts) {
+            return List.of();
+        }
+        List<PairDelta> pairs = new ArrayList<>(products.size() * (products.size() - 1));
+        for (UUID product : products) {
+            for (UUID related : products) {
+                if (!product.equals(related)) {
+                    pairs.add(new PairDelta(product, related, sign));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static List<UUID> products(Order order) {
+        return order.getOrderItems().stream().map(OrderItem::getProductId).distinct().toList();
+    }
+
+    public record RelatedProduct(UUID productId, long timesOrderedTogether) {
+    }
+
+    record PairDelta(UUID productId, UUID relatedProductId, long count) {
+
+        record Key(UUID productId, UUID relatedProductId) {
+        }
+
+        Key key() {
+            return new Key(productId, relatedProductId);
+        }
+    }
+}
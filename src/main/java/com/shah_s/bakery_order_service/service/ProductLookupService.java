@@ -0,0 +1,209 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.client.ProductBatchLoader;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.dto.OrderItemRequest;
+import com.shah_s.bakery_order_service.dto.ProductSnapshot;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+@Service
+public class ProductLookupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductLookupService.class);
+
+    final private ProductServiceClient productServiceClient;
+
+    final private ExecutorService remoteCallExecutor;
+
+    final private ProductBatchLoader productBatchLoader;
+
+    final private ProductSnapshotCache productSnapshotCache;
+
+    @Value("${order.product-lookup.concurrent:true}")
+    private boolean concurrent;
+
+    @Value("${order.product-lookup.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${order.product-lookup.timeout-ms:10000}")
+    private long timeoutMs;
+
+    public ProductLookupService(ProductServiceClient productServiceClient,
+                                @Qualifier("remoteCallExecutor") ExecutorService remoteCallExecutor,
+                                ProductBatchLoader productBatchLoader,
+                                ProductSnapshotCache productSnapshotCache) {
+        this.productServiceClient = productServiceClient;
+        this.remoteCallExecutor = remoteCallExecutor;
+        this.productBatchLoader = productBatchLoader;
+        this.productSnapshotCache = productSnapshotCache;
+    }
+
+    // Fetch product snapshot and stock availability for every item, in request order
+    public List<ItemLookup> lookupItems(List<OrderItemRequest> items) {
+        List<ItemLookup> lookups = new ArrayList<>(items.size());
+        for (OrderItemRequest item : items) {
+            lookups.add(new ItemLookup(item));
+        }
+
+        if (productBatchLoader.isEnabled()) {
+            fetchBatched(lookups);
+            return lookups;
+        }
+
+        if (!concurrent || items.size() == 1) {
+            for (ItemLookup lookup : lookups) {
+                lookup.product = fetchProduct(lookup.itemRequest);
+                lookup.stock = fetchStock(lookup.itemRequest);
+            }
+            return lookups;
+        }
+
+        fetchConcurrently(lookups);
+        return lookups;
+    }
+
+    private void fetchConcurrently(List<ItemLookup> lookups) {
+        // Every product and availability call runs on its own virtual thread; the semaphore
+        // caps how many of this request's calls are in flight at once
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        CompletionService<Void> completion = new ExecutorCompletionService<>(remoteCallExecutor);
+        List<Future<Void>> futures = new ArrayList<>(lookups.size() * 2);
+
+        for (ItemLookup lookup : lookups) {
+            futures.add(completion.submit(() -> {
+                withPermit(permits, () -> lookup.product = fetchProduct(lookup.itemRequest));
+                return null;
+            }));
+            futures.add(completion.submit(() -> {
+                withPermit(permits, () -> lookup.stock = fetchStock(lookup.itemRequest));
+                return null;
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (int done = 0; done < futures.size(); done++) {
+                Future<Void> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new OrderServiceException("Product lookup timed out after " + timeoutMs + " ms");
+                }
+                next.get();
+            }
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new OrderServiceException("Product lookup failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new OrderServiceException("Product lookup interrupted");
+        } catch (RuntimeException e) {
+            cancelAll(futures);
+            throw e;
+        }
+
+        logger.debug("Fetched {} products concurrently (max in flight: {})", lookups.size(), maxConcurrency);
+    }
+
+    private void fetchBatched(List<ItemLookup> lookups) {
+        // Calls are coalesced with other in-flight orders; the futures are private copies,
+        // so giving up on them never cancels a batch another order is waiting on.
+        // Cached snapshots skip the product batch entirely.
+        List<CompletableFuture<Map<String, Object>>> products = new ArrayList<>(lookups.size());
+        List<CompletableFuture<Map<String, Object>>> stocks = new ArrayList<>(lookups.size());
+        for (ItemLookup lookup : lookups) {
+            OrderItemRequest item = lookup.itemRequest;
+            lookup.product = productSnapshotCache.getIfPresent(item.getProductId());
+            products.add(lookup.product == null ? productBatchLoader.getProduct(item.getProductId()) : null);
+            stocks.add(productBatchLoader.checkStockAvailability(item.getProductId(), item.getQuantity()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (int i = 0; i < lookups.size(); i++) {
+                ItemLookup lookup = lookups.get(i);
+                if (lookup.product == null) {
+                    lookup.product = awaitBatchedProduct(lookup.itemRequest, products.get(i), deadline);
+                }
+                productSnapshotCache.requireFound(lookup.product);
+                lookup.stock = stocks.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException e) {
+            throw new OrderServiceException("Stock availability check failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new OrderServiceException("Product lookup timed out after " + timeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderServiceException("Product lookup interrupted");
+        }
+    }
+
+    private ProductSnapshot awaitBatchedProduct(OrderItemRequest item, CompletableFuture<Map<String, Object>> future,
+                                                long deadline) throws InterruptedException, TimeoutException {
+        ProductSnapshot snapshot;
+        try {
+            Map<String, Object> product = future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            snapshot = ProductSnapshot.from(item.getProductId(), product, productSnapshotCache.nextVersion());
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof NoSuchElementException)) {
+                throw new OrderServiceException("Product not found: " + item.getProductId());
+            }
+            // Absent from the bulk response: remember the miss like a single-product 404
+            snapshot = ProductSnapshot.notFound(item.getProductId(), productSnapshotCache.nextVersion());
+        }
+        productSnapshotCache.put(snapshot);
+        return snapshot;
+    }
+
+    private void withPermit(Semaphore permits, Runnable call) throws InterruptedException {
+        permits.acquire();
+        try {
+            call.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void cancelAll(List<Future<Void>> futures) {
+        // Interrupts sibling calls still waiting for a permit or blocked on I/O
+        for (Future<Void> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private ProductSnapshot fetchProduct(OrderItemRequest itemRequest) {
+        return productSnapshotCache.get(itemRequest.getProductId());
+    }
+
+    private Map<String, Object> fetchStock(OrderItemRequest itemRequest) {
+        return productServiceClient.checkStockAvailability(itemRequest.getProductId(), itemRequest.getQuantity());
+    }
+
+    // Remote data gathered for a single order line
+    @Getter
+    public static class ItemLookup {
+
+        private final OrderItemRequest itemRequest;
+        private volatile ProductSnapshot product;
+        private volatile Map<String, Object> stock;
+
+        ItemLookup(OrderItemRequest itemRequest) {
+            this.itemRequest = itemRequest;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Best-seller and category reports served from daily per-product aggregates (product_sales_daily)
+// rather than by grouping order_items. Placed orders add their items and cancelled ones take them
+// back out, after commit: deltas are summed in memory per product-day and flushed periodically as
+// one batch, like the order rollups, so a checkout never waits on a popular product's row lock.
+// Reports trail the orders by up to one flush interval. Ranges are widened to whole days, so a
+// report reads at most (days x products) small rows.
+@Service
+public class ProductSalesService implements StatsBackfill.Source {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSalesService.class);
+
+    private static final String UPSERT = "INSERT INTO product_sales_daily (sale_date, product_id, product_sku, " +
+            "product_name, product_category, quantity, revenue, order_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (sale_date, product_id) DO UPDATE SET " +
+            "product_sku = EXCLUDED.product_sku, " +
+            "product_name = EXCLUDED.product_name, " +
+            "product_category = COALESCE(EXCLUDED.product_category, product_sales_daily.product_category), " +
+            "quantity = product_sales_daily.quantity + EXCLUDED.quantity, " +
+            "revenue = product_sales_daily.revenue + EXCLUDED.revenue, " +
+            "order_count = product_sales_daily.order_count + EXCLUDED.order_count";
+
+    private static final String REBUILD = "INSERT INTO product_sales_daily (sale_date, product_id, product_sku, " +
+            "product_name, product_category, quantity, revenue, order_count) " +
+            "SELECT CAST(o.created_at AS date), oi.product_id, " +
+            "(array_agg(oi.product_sku ORDER BY o.created_at DESC))[1], " +
+            "(array_agg(oi.product_name ORDER BY o.created_at DESC))[1], " +
+            "(array_agg(oi.product_category ORDER BY o.created_at DESC) FILTER (WHERE oi.product_category IS NOT NULL))[1], " +
+            "SUM(oi.quantity), SUM(oi.unit_price * oi.quantity), COUNT(DISTINCT o.id) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? AND o.status <> 'CANCELLED' " +
+            "GROUP BY 1, 2";
+
+    // Locks rows in one order, so flushes from several instances cannot deadlock
+    private static final Comparator<Delta> KEY_ORDER = Comparator.comparing(Delta::saleDate)
+            .thenComparing(Delta::productId);
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private TransactionTemplate transactionTemplate;
+
+    // Deltas not yet flushed, summed per product-day
+    final private Map<Delta.Key, Delta> pending = new ConcurrentHashMap<>();
+
+    public ProductSalesService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (event.order().getStatus() != Order.OrderStatus.CANCELLED) {
+            record(Delta.of(event.order(), 1));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean wasCancelled = event.previousStatus() == Order.OrderStatus.CANCELLED;
+        boolean isCancelled = event.order().getStatus() == Order.OrderStatus.CANCELLED;
+        if (wasCancelled != isCancelled) {
+            record(Delta.of(event.order(), isCancelled ? -1 : 1));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersImported(OrdersImportedEvent event) {
+        event.orders().stream()
+                .filter(order -> order.getStatus() != Order.OrderStatus.CANCELLED)
+                .forEach(order -> record(Delta.of(order, 1)));
+    }
+
+    // Writes pending deltas as one batch in one transaction, in key order. On failure the deltas go
+    // back to pending and are retried on the next run.
+    @Scheduled(fixedDelayString = "${order.stats.flush-interval-ms:1000}")
+    public void flush() {
+        List<Delta.Key> keys = pending.keySet().stream().toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Delta> batch = new ArrayList<>(keys.size());
+        for (Delta.Key key : keys) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                batch.add(delta);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            logger.debug("Flushed {} product sales deltas", batch.size());
+        } catch (Exception e) {
+            logger.warn("Product sales flush failed, will retry: {}", e.getMessage());
+            record(batch);
+        }
+    }
+
+    // Products by quantity sold, most first
+    public List<Map<String, Object>> getBestSellingProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        return jdbcTemplate.query("SELECT product_id, " +
+                        "(array_agg(product_sku ORDER BY sale_date DESC))[1] AS product_sku, " +
+                        "(array_agg(product_name ORDER BY sale_date DESC))[1] AS product_name, " +
+                        "SUM(quantity) AS quantity, SUM(order_count) AS orders, SUM(revenue) AS revenue " +
+                        "FROM product_sales_daily WHERE sale_date BETWEEN ? AND ? " +
+                        "GROUP BY product_id HAVING SUM(quantity) > 0 " +
+                        "ORDER BY SUM(quantity) DESC, product_id LIMIT ?",
+                (rs, rowNum) -> Map.<String, Object>of(
+                        "productId", rs.getObject("product_id", UUID.class),
+                        "productSku", rs.getString("product_sku"),
+                        "productName", rs.getString("product_name"),
+                        "totalQuantity", rs.getLong("quantity"),
+                        "orderCount", rs.getLong("orders"),
+                        "totalRevenue", rs.getBigDecimal("revenue")),
+                startDate.toLocalDate(), endDate.toLocalDate(), limit);
+    }
+
+    // Categories by quantity sold, most first; items without a category are grouped as "Uncategorized"
+    public List<Map<String, Object>> getSalesByCategory(LocalDateTime startDate, LocalDateTime endDate) {
+        return jdbcTemplate.query("SELECT COALESCE(product_category, 'Uncategorized') AS category, " +
+                        "SUM(quantity) AS quantity, COUNT(DISTINCT product_id) FILTER (WHERE quantity > 0) AS products, " +
+                        "SUM(revenue) AS revenue FROM product_sales_daily WHERE sale_date BETWEEN ? AND ? " +
+                        "GROUP BY 1 HAVING SUM(quantity) > 0 ORDER BY 2 DESC, 1",
+                (rs, rowNum) -> Map.<String, Object>of(
+                        "category", rs.getString("category"),
+                        "totalQuantity", rs.getLong("quantity"),
+                        "productCount", rs.getLong("products"),
+                        "totalRevenue", rs.getBigDecimal("revenue")),
+                startDate.toLocalDate(), endDate.toLocalDate());
+    }
+
+    // Recomputes the days covering [startDate, endDate] from order_items, one day per transaction;
+    // a day's rows are replaced as a whole. Pending deltas are flushed first, as for the order
+    // rollups. Returns the rows written.
+    public long rebuild(LocalDateTime startDate, LocalDateTime endDate) {
+        long started = System.currentTimeMillis();
+        flush();
+        long rows = 0;
+
+        for (LocalDate day = startDate.toLocalDate(); !day.isAfter(endDate.toLocalDate()); day = day.plusDays(1)) {
+            LocalDate saleDate = day;
+            Integer written = transactionTemplate.execute(status -> {
+                jdbcTemplate.update("DELETE FROM product_sales_daily WHERE sale_date = ?", saleDate);
+                return jdbcTemplate.update(REBUILD, saleDate.atStartOfDay(), saleDate.plusDays(1).atStartOfDay());
+            });
+            rows += written != null ? written : 0;
+        }
+
+        logger.info("Rebuilt product sales from {} to {}: {} rows in {} ms", startDate.toLocalDate(),
+                endDate.toLocalDate(), rows, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    @Override
+    public String backfillTable() {
+        return "product_sales_daily";
+    }
+
+    // From the first order up to now
+    @Override
+    public void backfill() {
+        LocalDateTime firstOrder = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", LocalDateTime.class);
+        if (firstOrder != null) {
+            rebuild(firstOrder, LocalDateTime.now());
+        }
+    }
+
+    private void record(List<Delta> deltas) {
+        for (Delta delta : deltas) {
+            pending.merge(delta.key(), delta, Delta::plus);
+        }
+    }
+
+    // An order placed and cancelled within one flush leaves nothing to write
+    private void apply(List<Delta> deltas) {
+        List<Delta> rows = deltas.stream().filter(delta -> !delta.isZero()).sorted(KEY_ORDER).toList();
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Delta delta = rows.get(i);
+                ps.setObject(1, delta.saleDate());
+                ps.setObject(2, delta.productId());
+                ps.setString(3, delta.productSku());
+                ps.setString(4, delta.productName());
+                ps.setString(5, delta.productCategory());
+                ps.setLong(6, delta.quantity());
+                ps.setBigDecimal(7, delta.revenue());
+                ps.setLong(8, delta.orders());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    // Change to one product-day row; sign is -1 when an order is cancelled
+    record Delta(LocalDate saleDate, UUID productId, String productSku, String productName, String productCategory,
+                 long quantity, BigDecimal revenue, long orders) {
+
+        record Key(LocalDate saleDate, UUID productId) {
+        }
+
+        // One delta per product in the order; a product on several lines counts the order once
+        static List<Delta> of(Order order, int sign) {
+            LocalDate saleDate = (order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now()).toLocalDate();
+            Map<UUID, Delta> byProduct = new LinkedHashMap<>();
+            for (OrderItem item : order.getOrderItems()) {
+                long quantity = (long) item.getQuantity() * sign;
+                Delta line = new Delta(saleDate, item.getProductId(), item.getProductSku(), item.getProductName(),
+                        item.getProductCategory(), quantity, item.getUnitPrice().multiply(BigDecimal.valueOf(quantity)), sign);
+                byProduct.merge(item.getProductId(), line, (a, b) -> new Delta(saleDate, a.productId, b.productSku,
+                        b.productName, b.productCategory != null ? b.productCategory : a.productCategory,
+                        a.quantity + b.quantity, a.revenue.add(b.revenue), a.orders));
+            }
+            return List.copyOf(byProduct.values());
+        }
+
+        Key key() {
+            return new Key(saleDate, productId);
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(saleDate, productId, other.productSku, other.productName,
+                    other.productCategory != null ? other.productCategory : productCategory,
+                    quantity + other.quantity, revenue.add(other.revenue), orders + other.orders);
+        }
+
+        boolean isZero() {
+            return quantity == 0 && orders == 0 && revenue.signum() == 0;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.dto.ProductSnapshot;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded product snapshot cache for the checkout path: size/TTL eviction, refresh-ahead
+// before expiry, short-lived negative entries for unknown products, versioned invalidation
+@Component
+public class ProductSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshotCache.class);
+
+    final private ProductServiceClient productServiceClient;
+
+    final private LoadingCache<UUID, ProductSnapshot> cache;
+
+    final private AtomicLong loadSequence = new AtomicLong();
+
+    final private Counter negativeHits;
+
+    final private boolean enabled;
+
+    public ProductSnapshotCache(ProductServiceClient productServiceClient,
+                                @Qualifier("remoteCallExecutor") ExecutorService remoteCallExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${order.product-cache.enabled:true}") boolean enabled,
+                                @Value("${order.product-cache.max-size:10000}") long maxSize,
+                                @Value("${order.product-cache.ttl-seconds:600}") long ttlSeconds,
+                                @Value("${order.product-cache.refresh-after-seconds:300}") long refreshAfterSeconds,
+                                @Value("${order.product-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this(productServiceClient, remoteCallExecutor, meterRegistry, enabled, maxSize, ttlSeconds, refreshAfterSeconds,
+                negativeTtlSeconds, Ticker.systemTicker());
+    }
+
+    // The loader refers to this cache but only runs on lookups, after construction has finished
+    @SuppressWarnings("this-escape")
+    ProductSnapshotCache(ProductServiceClient productServiceClient, Executor remoteCallExecutor,
+                         MeterRegistry meterRegistry, boolean enabled, long maxSize, long ttlSeconds,
+                         long refreshAfterSeconds, long negativeTtlSeconds, Ticker ticker) {
+        this.productServiceClient = productServiceClient;
+        this.enabled = enabled;
+
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        Duration negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<UUID, ProductSnapshot>() {
+                    @Override
+                    public long expireAfterCreate(UUID key, ProductSnapshot value, long currentTime) {
+                        return (value.isFound() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID key, ProductSnapshot value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID key, ProductSnapshot value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // Entries read after this age are reloaded in the background while the old value is served
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .executor(remoteCallExecutor)
+                .ticker(ticker)
+                .recordStats()
+                .build(this::load);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productSnapshots");
+        this.negativeHits = Counter.builder("order.product.cache.negative.hits")
+                .description("Lookups answered from a cached product-not-found entry")
+                .register(meterRegistry);
+    }
+
+    // Returns the snapshot, loading it on a miss; throws if the product does not exist
+    public ProductSnapshot get(UUID productId) {
+        ProductSnapshot snapshot = enabled ? cache.get(productId) : load(productId);
+        return requireFound(snapshot);
+    }
+
+    public ProductSnapshot getIfPresent(UUID productId) {
+        return enabled ? cache.getIfPresent(productId) : null;
+    }
+
+    public void put(ProductSnapshot snapshot) {
+        if (enabled) {
+            cache.put(snapshot.getProductId(), snapshot);
+        }
+    }
+
+    public ProductSnapshot requireFound(ProductSnapshot snapshot) {
+        if (!snapshot.isFound()) {
+            negativeHits.increment();
+            throw new OrderServiceException("Product not found: " + snapshot.getProductId());
+        }
+        return snapshot;
+    }
+
+    public long nextVersion() {
+        return loadSequence.incrementAndGet();
+    }
+
+    public void invalidate(UUID productId) {
+        cache.invalidate(productId);
+        logger.info("Product snapshot invalidated: {}", productId);
+    }
+
+    // Drops the entry only if it was taken from an older product version than the one given.
+    // Entries without a product-service version (including not-found answers) are always dropped.
+    public boolean invalidateIfOlderThan(UUID productId, long version) {
+        boolean[] removed = {false};
+        cache.asMap().computeIfPresent(productId, (id, snapshot) -> {
+            if (!snapshot.isVersioned() || snapshot.getVersion() < version) {
+                removed[0] = true;
+                return null;
+            }
+            return snapshot;
+        });
+        if (removed[0]) {
+            logger.info("Product snapshot invalidated: {} (older than version {})", productId, version);
+        }
+        return removed[0];
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private ProductSnapshot load(UUID productId) {
+        try {
+            return ProductSnapshot.from(productId, productServiceClient.getProductById(productId), nextVersion());
+        } catch (FeignException.NotFound e) {
+            logger.debug("Caching product-not-found for {}", productId);
+            return ProductSnapshot.notFound(productId, nextVersion());
+        } catch (Exception e) {
+            // Not cached: transient failures must not poison the cache
+            throw new OrderServiceException("Product not found: " + productId, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.shah_s.bakery_order_service.service;
+
+import java.util.*;
+
+// Weighted Space-Saving summary (Metwally et al.) of product quantities: at most `capacity` counters,
+// whatever the number of distinct products. When full, a new product takes over the smallest
+// counter and inherits its count as error. With N the total weight added and m the capacity:
+//   - a listed product's true total lies in [count - error, count], and count - true <= N / m
+//   - an unlisted product's true total is at most floor(), which is <= N / m
+// so every product with more than N / m is listed. Not thread-safe; callers synchronise.
+public final class SpaceSavingSketch {
+
+    private final int capacity;
+
+    private final Map<UUID, Counter> counters = new HashMap<>();
+
+    // Ordered by count, so the eviction victim is first
+    private final TreeSet<Counter> byCount = new TreeSet<>(Comparator.comparingLong(Counter::count)
+            .thenComparingLong(Counter::sequence));
+
+    private long total;
+
+    private long sequence;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(UUID item, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            byCount.remove(counter);
+            put(new Counter(item, counter.count() + weight, counter.error(), sequence++));
+        } else if (counters.size() < capacity) {
+            put(new Counter(item, weight, 0, sequence++));
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.item());
+            put(new Counter(item, smallest.count() + weight, smallest.count(), sequence++));
+        }
+    }
+
+    public Snapshot snapshot() {
+        long floor = counters.size() < capacity ? 0 : byCount.first().count();
+        List<Snapshot.Entry> entries = new ArrayList<>(counters.size());
+        for (Counter counter : byCount.descendingSet()) {
+            entries.add(new Snapshot.Entry(counter.item(), counter.count(), counter.error()));
+        }
+        return new Snapshot(capacity, total, floor, entries);
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.item(), counter);
+        byCount.add(counter);
+    }
+
+    private record Counter(UUID item, long count, long error, long sequence) {
+    }
+
+    // Immutable, serialisable view of a sketch. Snapshots from different time buckets or nodes merge
+    // into one covering all of their input; entries are sorted by count, largest first.
+    public record Snapshot(int capacity, long total, long floor, List<Entry> entries) {
+
+        public record Entry(UUID item, long count, long error) {
+        }
+
+        public static Snapshot empty(int capacity) {
+            return new Snapshot(capacity, 0, 0, List.of());
+        }
+
+        // Upper bound on any product's true total
+        public long estimate(UUID item) {
+            for (Entry entry : entries) {
+                if (entry.item().equals(item)) {
+                    return entry.count();
+                }
+            }
+            return floor;
+        }
+
+        public List<Entry> top(int k) {
+            return entries.size() > k ? entries.subList(0, k) : entries;
+        }
+
+        // A product missing from one input is charged that input's floor (its upper bound there),
+        // both as count and as error, so true totals stay within [count - error, count]. Only the
+        // largest `capacity` products are kept and the largest one dropped raises the floor.
+        // Each level of merging adds at most total / capacity to the bounds: merging the buckets
+        // of one node keeps overestimates <= N / m and the floor <= 2N / m, combining nodes'
+        // window snapshots keeps them <= 2N / m and <= 3N / m.
+        public static Snapshot merge(int capacity, Collection<Snapshot> snapshots) {
+            long total = snapshots.stream().mapToLong(Snapshot::total).sum();
+            long floorSum = snapshots.stream().mapToLong(Snapshot::floor).sum();
+
+            // Start every listed product at the sum of floors, then swap in its real counts
+            Map<UUID, long[]> combined = new HashMap<>();
+            for (Snapshot snapshot : snapshots) {
+                for (Entry entry : snapshot.entries()) {
+                    long[] counts = combined.computeIfAbsent(entry.item(), item -> new long[] {floorSum, floorSum});
+                    counts[0] += entry.count() - snapshot.floor();
+                    counts[1] += entry.error() - snapshot.floor();
+                }
+            }
+
+            List<Entry> merged = combined.entrySet().stream()
+                    .map(item -> new Entry(item.getKey(), item.getValue()[0], item.getValue()[1]))
+                    .sorted(Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::item))
+                    .toList();
+            long floor = floorSum;
+            if (merged.size() > capacity) {
+                floor = Math.max(floor, merged.get(capacity).count());
+                merged = merged.subList(0, capacity);
+            }
+            return new Snapshot(capacity, total, floor, List.copyOf(merged));
+        }
+    }
+}
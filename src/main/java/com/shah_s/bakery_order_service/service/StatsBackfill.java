@@ -0,0 +1,116 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.config.ConnectionHoldTrackingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Fills a derived statistics table from order history once, for the services that keep one.
+// Completion is recorded as a row in stats_backfills, written only after the rebuild finished, so
+// neither live traffic reaching the table first nor an instance killed mid-rebuild can leave it
+// half filled for good. Instances starting together take a PostgreSQL advisory lock per table,
+// held by a connection of its own: the first runs the rebuild, the others wait and then find the
+// marker. The lock goes with the session, so a killed instance never leaves it held.
+@Component
+public class StatsBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatsBackfill.class);
+
+    private static final String LOCK_KEY_PREFIX = "stats-backfill:";
+
+    final private DataSource dataSource;
+
+    final private JdbcTemplate jdbcTemplate;
+
+    final private ExecutorService backfillExecutor;
+
+    final private List<Source> sources;
+
+    @Value("${order.stats.backfill:true}")
+    private boolean enabled;
+
+    public StatsBackfill(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                         @Qualifier("backfillExecutor") ExecutorService backfillExecutor, List<Source> sources) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.backfillExecutor = backfillExecutor;
+        this.sources = sources;
+    }
+
+    // A statistics table derived from order history
+    public interface Source {
+
+        String backfillTable();
+
+        // Recomputes the whole table from the orders table, replacing what is there
+        void backfill();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAll() {
+        for (Source source : sources) {
+            submit(source.backfillTable(), source::backfill);
+        }
+    }
+
+    // Queues the backfill of a table unless it already completed; returns at once. The rebuild
+    // must recompute the table from scratch, as it runs again after an interrupted attempt.
+    public Future<?> submit(String table, Runnable rebuild) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return backfillExecutor.submit(() ->
+                ConnectionHoldTrackingDataSource.inPhase("stats-backfill", () -> runOnce(table, rebuild)));
+    }
+
+    public boolean isComplete(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM stats_backfills WHERE name = ?)", Boolean.class, table));
+    }
+
+    boolean runOnce(String table, Runnable rebuild) {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            advisoryLock(lockConnection, "SELECT pg_advisory_lock(hashtext(?))", table);
+            try {
+                if (isComplete(table)) {
+                    logger.debug("Backfill of {} already completed", table);
+                    return false;
+                }
+                long started = System.currentTimeMillis();
+                logger.info("Backfilling {} from order history", table);
+                rebuild.run();
+                jdbcTemplate.update("INSERT INTO stats_backfills (name, completed_at) VALUES (?, ?) " +
+                        "ON CONFLICT (name) DO NOTHING", table, LocalDateTime.now());
+                logger.info("Backfill of {} completed in {} ms", table, System.currentTimeMillis() - started);
+                return true;
+            } finally {
+                advisoryLock(lockConnection, "SELECT pg_advisory_unlock(hashtext(?))", table);
+            }
+        } catch (Exception e) {
+            logger.warn("Backfill of {} failed; it runs again on the next start: {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void advisoryLock(Connection connection, String sql, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, LOCK_KEY_PREFIX + table);
+            statement.execute();
+        }
+    }
+}
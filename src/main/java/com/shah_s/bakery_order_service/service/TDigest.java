@@ -0,0 +1,238 @@
+package com.shah_s.bakery_order_service.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Merging t-digest (Dunning & Ertl) of durations: a few hundred weighted centroids, whatever the
+// number of samples. Centroids are kept small near the tails (k1 scale function), so p99 is far more
+// precise than p50 in absolute rank: the rank error at quantile q is about q(1 - q) * pi / compression.
+// Digests merge by pooling their centroids and compressing again, so per-hour digests combine into
+// any range without going back to the samples. Exact min and max are kept for the extremes.
+// Not thread-safe; callers synchronise.
+public final class TDigest {
+
+    public static final int MIN_COMPRESSION = 20;
+    public static final int MAX_COMPRESSION = 1000;
+
+    // compression (int), count (long), min, max (double), centroids (int), then (mean, weight) pairs
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 8 + 4;
+
+    private static final int CENTROID_BYTES = 8 + 8;
+
+    private final int compression;
+
+    // Merged centroids, sorted by mean
+    private double[] means = new double[0];
+
+    private long[] weights = new long[0];
+
+    private int centroids;
+
+    // Samples not yet merged into the centroids
+    private final double[] buffer;
+
+    private int buffered;
+
+    private long count;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(int compression) {
+        this.compression = checkCompression(compression);
+        this.buffer = new double[compression * 5];
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Digest is truncated: " + bytes.length + " bytes");
+        }
+        TDigest digest = new TDigest(in.getInt());
+        long count = in.getLong();
+        double min = in.getDouble();
+        double max = in.getDouble();
+        int centroids = in.getInt();
+        if (centroids < 0 || in.remaining() != centroids * CENTROID_BYTES) {
+            throw new IllegalArgumentException("Digest declares " + centroids + " centroids, has " + in.remaining() + " bytes");
+        }
+        double[] means = new double[centroids];
+        long[] weights = new long[centroids];
+        for (int i = 0; i < centroids; i++) {
+            means[i] = in.getDouble();
+            weights[i] = in.getLong();
+        }
+        digest.combine(means, weights, centroids);
+        digest.count = count;
+        digest.min = Math.min(digest.min, min);
+        digest.max = Math.max(digest.max, max);
+        return digest;
+    }
+
+    // Union at the lower of the two compressions; neither input is modified
+    public static TDigest union(TDigest a, TDigest b) {
+        TDigest result = new TDigest(Math.min(a.compression, b.compression));
+        result.merge(a);
+        result.merge(b);
+        return result;
+    }
+
+    public int compression() {
+        return compression;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public byte[] toBytes() {
+        flushBuffer();
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + centroids * CENTROID_BYTES);
+        out.putInt(compression).putLong(count).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            out.putDouble(means[i]).putLong(weights[i]);
+        }
+        return out.array();
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN");
+        }
+        if (buffered == buffer.length) {
+            flushBuffer();
+        }
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Folds other's centroids into this digest; other is not modified
+    public void merge(TDigest other) {
+        if (other.count == 0) {
+            return;
+        }
+        flushBuffer();
+        double[] otherMeans = Arrays.copyOf(other.means, other.centroids + other.buffered);
+        long[] otherWeights = Arrays.copyOf(other.weights, other.centroids + other.buffered);
+        for (int i = 0; i < other.buffered; i++) {
+            otherMeans[other.centroids + i] = other.buffer[i];
+            otherWeights[other.centroids + i] = 1;
+        }
+        combine(otherMeans, otherWeights, otherMeans.length);
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    // Estimated value at quantile q in [0, 1], interpolating between centroid centres; NaN when empty
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1");
+        }
+        flushBuffer();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        double target = q * count;
+        // Between min and the centre of the first centroid
+        double firstCentre = weights[0] / 2.0;
+        if (target < firstCentre) {
+            return min + (means[0] - min) * target / firstCentre;
+        }
+        double before = 0;
+        for (int i = 0; i < centroids - 1; i++) {
+            double left = before + weights[i] / 2.0;
+            double right = before + weights[i] + weights[i + 1] / 2.0;
+            if (target < right) {
+                return means[i] + (means[i + 1] - means[i]) * (target - left) / (right - left);
+            }
+            before += weights[i];
+        }
+        // Between the centre of the last centroid and max
+        double lastCentre = count - weights[centroids - 1] / 2.0;
+        double span = count - lastCentre;
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, (target - lastCentre) / span);
+    }
+
+    private void flushBuffer() {
+        if (buffered == 0) {
+            return;
+        }
+        double[] samples = Arrays.copyOf(buffer, buffered);
+        long[] ones = new long[buffered];
+        Arrays.fill(ones, 1);
+        buffered = 0;
+        combine(samples, ones, samples.length);
+    }
+
+    // Pools the given centroids with the merged ones and compresses them in one sorted pass: a
+    // centroid absorbs its neighbour while their combined weight spans at most one unit of k
+    private void combine(double[] extraMeans, long[] extraWeights, int extra) {
+        int total = centroids + extra;
+        double[] poolMeans = Arrays.copyOf(means, total);
+        long[] poolWeights = Arrays.copyOf(weights, total);
+        System.arraycopy(extraMeans, 0, poolMeans, centroids, extra);
+        System.arraycopy(extraWeights, 0, poolWeights, centroids, extra);
+        Integer[] order = new Integer[total];
+        long totalWeight = 0;
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+            totalWeight += poolWeights[i];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(poolMeans[a], poolMeans[b]));
+
+        double[] mergedMeans = new double[total];
+        long[] mergedWeights = new long[total];
+        int merged = 0;
+        long before = 0;
+        double limit = 0;
+        for (int i = 0; i < total; i++) {
+            int next = order[i];
+            if (merged > 0 && before + mergedWeights[merged - 1] + poolWeights[next] <= limit * totalWeight) {
+                long weight = mergedWeights[merged - 1] + poolWeights[next];
+                mergedMeans[merged - 1] += (poolMeans[next] - mergedMeans[merged - 1]) * poolWeights[next] / weight;
+                mergedWeights[merged - 1] = weight;
+                continue;
+            }
+            if (merged > 0) {
+                before += mergedWeights[merged - 1];
+            }
+            mergedMeans[merged] = poolMeans[next];
+            mergedWeights[merged] = poolWeights[next];
+            merged++;
+            limit = quantileLimit((double) before / totalWeight);
+        }
+
+        // The k1 scale keeps this to about compression * pi / 2 centroids
+        means = Arrays.copyOf(mergedMeans, merged);
+        weights = Arrays.copyOf(mergedWeights, merged);
+        centroids = merged;
+    }
+
+    // Largest quantile a centroid starting at q may reach: k(limit) = k(q) + 1, with
+    // k(q) = compression / (2 pi) * asin(2q - 1)
+    private double quantileLimit(double q) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        if (k >= compression / 4.0) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    static int checkCompression(int compression) {
+        if (compression < MIN_COMPRESSION || compression > MAX_COMPRESSION) {
+            throw new IllegalArgumentException("compression must be between " + MIN_COMPRESSION + " and " + MAX_COMPRESSION);
+        }
+        return compression;
+    }
+}
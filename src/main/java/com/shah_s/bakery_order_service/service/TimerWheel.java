@@ -0,0 +1,160 @@
+package com.shah_s.bakery_order_service.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hierarchical timer wheel (Varghese & Lauck) holding at most one timer per key. Time advances in
+// ticks; level L has 64 slots of 64^L ticks each, and a timer sits on the level of the highest bit
+// in which its deadline differs from the current tick. When the lower bits of the current tick roll
+// over, the matching slot one level up is cascaded down, so each timer moves at most once per
+// level (11 levels cover every long) and scheduling, cancelling and firing are O(1) whatever the
+// deadline. Timers in slots are intrusive doubly linked nodes, so cancelling needs no search.
+// Thread-safe; timers are handed back from advance() rather than run under the lock.
+public final class TimerWheel<K, V> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private final long tickMillis;
+
+    // Sentinel heads of circular lists, one per slot
+    private final Node<K, V>[][] slots;
+
+    private final Map<K, Node<K, V>> byKey = new HashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long nowMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be at least 1");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.slots = (Node<K, V>[][]) new Node<?, ?>[LEVELS][SLOTS];
+        for (Node<K, V>[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = Node.sentinel();
+            }
+        }
+    }
+
+    // Replaces any timer already held for key; deadlines already passed fire on the next advance
+    public synchronized void schedule(K key, long deadlineMillis, V value) {
+        Node<K, V> existing = byKey.remove(key);
+        if (existing != null) {
+            existing.unlink();
+        }
+        // Rounded up to a whole tick, so timers never fire early
+        long deadlineTick = Math.ceilDiv(deadlineMillis, tickMillis);
+        Node<K, V> node = new Node<>(key, Math.max(deadlineTick, currentTick), deadlineMillis, value);
+        byKey.put(key, node);
+        place(node);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Node<K, V> node = byKey.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    public synchronized int size() {
+        return byKey.size();
+    }
+
+    // Moves time forward to nowMillis and returns the timers that came due, in deadline order per tick.
+    // A clock that went backwards is ignored.
+    public synchronized List<Timer<K, V>> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<Timer<K, V>> due = new ArrayList<>();
+        expire(slots[0][(int) (currentTick & (SLOTS - 1))], due);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade from the highest level whose lower bits rolled over, so timers can drop several levels
+            for (int level = highestRolledOver(currentTick); level >= 1; level--) {
+                cascade(slots[level][(int) ((currentTick >>> (level * SLOT_BITS)) & (SLOTS - 1))]);
+            }
+            expire(slots[0][(int) (currentTick & (SLOTS - 1))], due);
+        }
+        return due;
+    }
+
+    private void place(Node<K, V> node) {
+        long differing = node.deadlineTick ^ currentTick;
+        int level = differing == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+        int slot = (int) ((node.deadlineTick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        node.linkBefore(slots[level][slot]);
+    }
+
+    private void cascade(Node<K, V> head) {
+        Node<K, V> node = head.next;
+        while (node != head) {
+            Node<K, V> next = node.next;
+            node.unlink();
+            place(node);
+            node = next;
+        }
+    }
+
+    private void expire(Node<K, V> head, List<Timer<K, V>> due) {
+        int from = due.size();
+        Node<K, V> node = head.next;
+        while (node != head) {
+            Node<K, V> next = node.next;
+            node.unlink();
+            byKey.remove(node.key);
+            due.add(new Timer<>(node.key, node.deadlineMillis, node.value));
+            node = next;
+        }
+        due.subList(from, due.size()).sort((a, b) -> Long.compare(a.deadlineMillis(), b.deadlineMillis()));
+    }
+
+    // Highest level whose slot index changed on entering tick: the one above the trailing zero 6-bit groups
+    private static int highestRolledOver(long tick) {
+        return tick == 0 ? LEVELS - 1 : Math.min(Long.numberOfTrailingZeros(tick) / SLOT_BITS, LEVELS - 1);
+    }
+
+    public record Timer<K, V>(K key, long deadlineMillis, V value) {
+    }
+
+    private static final class Node<K, V> {
+
+        final K key;
+        final long deadlineTick;
+        final long deadlineMillis;
+        final V value;
+        Node<K, V> prev = this;
+        Node<K, V> next = this;
+
+        Node(K key, long deadlineTick, long deadlineMillis, V value) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+            this.deadlineMillis = deadlineMillis;
+            this.value = value;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            return new Node<>(null, 0, 0, null);
+        }
+
+        void linkBefore(Node<K, V> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// "Trending now" products by quantity ordered over the last minutes, for storefront page views.
+// Each minute gets its own Space-Saving sketch in a ring covering the longest window; a window is
+// the merge of its minutes, so it slides by dropping whole buckets. Memory is bounded by
+// MAX_WINDOW_MINUTES x capacity counters. Merged windows are cached briefly, since page views
+// read far more often than orders arrive. Fed after commit from placed orders only: cancellations
+// and imports are not trend signals, and the sketch cannot subtract.
+@Service
+public class TrendingProductsService {
+
+    static final int MAX_WINDOW_MINUTES = 60;
+
+    private final Clock clock;
+
+    // Counters per minute sketch; see SpaceSavingSketch for the error bounds this gives
+    private final int capacity;
+
+    private final long refreshMillis;
+
+    private final AtomicReferenceArray<MinuteSketch> ring = new AtomicReferenceArray<>(MAX_WINDOW_MINUTES);
+
+    private final Map<Integer, CachedWindow> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TrendingProductsService(@Value("${order.trending.capacity:200}") int capacity,
+                                   @Value("${order.trending.refresh-ms:1000}") long refreshMillis) {
+        this(capacity, refreshMillis, Clock.systemUTC());
+    }
+
+    TrendingProductsService(int capacity, long refreshMillis, Clock clock) {
+        this.capacity = capacity;
+        this.refreshMillis = refreshMillis;
+        this.clock = clock;
+    }
+
+    @TransactionalEventListener
+    public void onOrderCreated(OrderCreatedEvent event) {
+        MinuteSketch bucket = currentBucket();
+        synchronized (bucket) {
+            for (OrderItem item : event.order().getOrderItems()) {
+                bucket.sketch.add(item.getProductId(), item.getQuantity());
+            }
+        }
+    }
+
+    // Products with the most units ordered in the last `minutes` minutes, the current one included
+    public List<TrendingProduct> getTrending(int minutes, int limit) {
+        return toTrending(window(minutes), limit);
+    }
+
+    // Merged sketch for the window, for combining with other instances' snapshots
+    public SpaceSavingSketch.Snapshot window(int minutes) {
+        int length = Math.clamp(minutes, 1, MAX_WINDOW_MINUTES);
+        long now = clock.millis();
+        long minute = now / 60_000;
+
+        CachedWindow cached = windows.get(length);
+        if (cached != null && cached.minute == minute && cached.expiresAt > now) {
+            return cached.snapshot;
+        }
+
+        List<SpaceSavingSketch.Snapshot> buckets = new ArrayList<>(length);
+        for (long m = minute - length + 1; m <= minute; m++) {
+            MinuteSketch bucket = ring.get(slot(m));
+            if (bucket != null && bucket.minute == m) {
+                synchronized (bucket) {
+                    buckets.add(bucket.sketch.snapshot());
+                }
+            }
+        }
+        SpaceSavingSketch.Snapshot merged = SpaceSavingSketch.Snapshot.merge(capacity, buckets);
+        windows.put(length, new CachedWindow(minute, now + refreshMillis, merged));
+        return merged;
+    }
+
+    // Combines window snapshots from several instances into one ranking
+    public List<TrendingProduct> merge(Collection<SpaceSavingSketch.Snapshot> snapshots, int limit) {
+        return toTrending(SpaceSavingSketch.Snapshot.merge(capacity, snapshots), limit);
+    }
+
+    private static List<TrendingProduct> toTrending(SpaceSavingSketch.Snapshot snapshot, int limit) {
+        return snapshot.top(limit).stream()
+                .map(entry -> new TrendingProduct(entry.item(), entry.count(), entry.count() - entry.error()))
+                .toList();
+    }
+
+    private MinuteSketch currentBucket() {
+        long minute = clock.millis() / 60_000;
+        int slot = slot(minute);
+        while (true) {
+            MinuteSketch bucket = ring.get(slot);
+            if (bucket != null && bucket.minute == minute) {
+                return bucket;
+            }
+            MinuteSketch fresh = new MinuteSketch(minute, new SpaceSavingSketch(capacity));
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) MAX_WINDOW_MINUTES);
+    }
+
+    // estimatedQuantity is an upper bound on units ordered, minimumQuantity a lower bound
+    public record TrendingProduct(UUID productId, long estimatedQuantity, long minimumQuantity) {
+    }
+
+    private record MinuteSketch(long minute, SpaceSavingSketch sketch) {
+    }
+
+    private record CachedWindow(long minute, long expiresAt, SpaceSavingSketch.Snapshot snapshot) {
+    }
+}
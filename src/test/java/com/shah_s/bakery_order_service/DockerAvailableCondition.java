@@ -0,0 +1,23 @@
+package com.shah_s.bakery_order_service;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.testcontainers.DockerClientFactory;
+
+// Skips container-backed tests where Docker is unavailable. With -Dpostgres.tests.required=true (the
+// postgresTest task) they run regardless, so a missing Docker fails the build instead of passing it.
+public class DockerAvailableCondition implements ExecutionCondition {
+
+    static final String REQUIRED_PROPERTY = "postgres.tests.required";
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        if (Boolean.getBoolean(REQUIRED_PROPERTY)) {
+            return ConditionEvaluationResult.enabled(REQUIRED_PROPERTY + " is set");
+        }
+        return DockerClientFactory.instance().isDockerAvailable()
+                ? ConditionEvaluationResult.enabled("Docker is available")
+                : ConditionEvaluationResult.disabled("Docker is not available");
+    }
+}
@@ -0,0 +1,40 @@
+package com.shah_s.bakery_order_service;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistrar;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+// The PostgreSQL container behind every @PostgresTest: started by the first test context that needs
+// it and shared by all the others until the JVM exits. Pinned to the version docker-compose runs.
+@TestConfiguration(proxyBeanMethods = false)
+public class PostgresContainer {
+
+    public static final DockerImageName IMAGE = DockerImageName.parse("postgres:15-alpine");
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(IMAGE);
+
+    // Not a container bean: a context closing must not stop the container the others still use
+    @Bean
+    DynamicPropertyRegistrar postgresProperties() {
+        return registry -> {
+            start();
+            registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+            registry.add("spring.datasource.username", POSTGRES::getUsername);
+            registry.add("spring.datasource.password", POSTGRES::getPassword);
+            registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+            registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        };
+    }
+
+    // For tests that open their own connections
+    public static PostgreSQLContainer<?> start() {
+        synchronized (POSTGRES) {
+            if (!POSTGRES.isRunning()) {
+                POSTGRES.start();
+            }
+        }
+        return POSTGRES;
+    }
+}
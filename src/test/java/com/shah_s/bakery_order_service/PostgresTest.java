@@ -0,0 +1,19 @@
+package com.shah_s.bakery_order_service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.*;
+
+// A test that needs a real PostgreSQL (upserts, array_agg, advisory locks, trigram search). All of them
+// share one container and are tagged "postgres". Without Docker they are skipped, except under the
+// postgresTest task, which requires them to run. Combine with @AutoConfigureTestDatabase(replace = NONE).
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Tag("postgres")
+@ExtendWith(DockerAvailableCondition.class)
+@Import(PostgresContainer.class)
+public @interface PostgresTest {
+}
@@ -0,0 +1,66 @@
+package com.shah_s.bakery_order_service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Orders for tests. Items keep the totals current, the way OrderService builds an order before saving it.
+public final class TestOrders {
+
+    public static final BigDecimal TAX_RATE = new BigDecimal("0.08");
+
+    private TestOrders() {
+    }
+
+    // A pickup order from a new customer, with no items yet
+    public static Order order() {
+        return order(UUID.randomUUID(), Order.DeliveryType.PICKUP);
+    }
+
+    public static Order order(Order.DeliveryType deliveryType) {
+        return order(UUID.randomUUID(), deliveryType);
+    }
+
+    public static Order order(UUID userId, Order.DeliveryType deliveryType) {
+        return new Order(userId, "Customer", "customer@example.com", deliveryType);
+    }
+
+    // As if read back from the table: with an id and an order number
+    public static Order saved() {
+        Order order = order();
+        order.setId(UUID.randomUUID());
+        order.setOrderNumber("ORD-" + order.getId());
+        return order;
+    }
+
+    public static OrderItem addItem(Order order, UUID productId, int quantity, BigDecimal unitPrice) {
+        return addItem(order, productId, "SKU", "Product", quantity, unitPrice);
+    }
+
+    // SKU-<NAME>, so products added by name report under distinct SKUs
+    public static OrderItem addItem(Order order, UUID productId, String name, int quantity, BigDecimal unitPrice) {
+        return addItem(order, productId, "SKU-" + name.toUpperCase(), name, quantity, unitPrice);
+    }
+
+    // Persists the order and moves created_at, which is set on insert, to the given time
+    public static Order persistCreatedAt(TestEntityManager entityManager, Order order, LocalDateTime createdAt) {
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.getEntityManager().createNativeQuery("UPDATE orders SET created_at = ?1 WHERE id = ?2")
+                .setParameter(1, createdAt).setParameter(2, order.getId()).executeUpdate();
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+
+    private static OrderItem addItem(Order order, UUID productId, String sku, String name, int quantity,
+                                     BigDecimal unitPrice) {
+        OrderItem item = new OrderItem(order, productId, sku, name, quantity, unitPrice);
+        order.addOrderItem(item);
+        order.calculateTotals(TAX_RATE);
+        return item;
+    }
+}
@@ -0,0 +1,98 @@
+package com.shah_s.bakery_order_service.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductBatchLoaderTests {
+
+    private final StubProductServiceClient stub = new StubProductServiceClient();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ProductBatchLoader loader = new ProductBatchLoader(stub, executor, true, 20_000, 100);
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneDeduplicatedBulkRequest() throws Exception {
+        List<UUID> bestsellers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            bestsellers.add(stub.addProduct("bread-" + i, 3.5, 100));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            UUID productId = bestsellers.get(i % bestsellers.size());
+            results.add(executor.submit(() -> {
+                start.await();
+                return loader.getProduct(productId).get(5, TimeUnit.SECONDS);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < results.size(); i++) {
+            Map<String, Object> product = results.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(bestsellers.get(i % bestsellers.size()).toString(), product.get("id"));
+        }
+
+        int requestedKeys = stub.productBatches.stream().mapToInt(List::size).sum();
+        assertTrue(stub.productBatches.size() < 50, "calls should be coalesced");
+        assertEquals(new HashSet<>(bestsellers).size(), new HashSet<>(flatten(stub.productBatches)).size());
+        assertTrue(requestedKeys <= 50);
+        for (List<UUID> batch : stub.productBatches) {
+            assertEquals(batch.size(), new HashSet<>(batch).size(), "keys within a batch must be unique");
+        }
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        ProductBatchLoader smallBatches = new ProductBatchLoader(stub, executor, true, 60_000_000, 3);
+        try {
+            List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(smallBatches.getProduct(stub.addProduct("cake-" + i, 12.0, 5)));
+            }
+            for (CompletableFuture<Map<String, Object>> future : futures) {
+                assertNotNull(future.get(2, TimeUnit.SECONDS));
+            }
+            assertEquals(1, stub.productBatches.size());
+        } finally {
+            smallBatches.shutdown();
+        }
+    }
+
+    @Test
+    void missingProductFailsOnlyItsOwnCaller() throws Exception {
+        UUID known = stub.addProduct("croissant", 2.0, 10);
+        CompletableFuture<Map<String, Object>> found = loader.getProduct(known);
+        CompletableFuture<Map<String, Object>> missing = loader.getProduct(UUID.randomUUID());
+
+        assertEquals("croissant", found.get(5, TimeUnit.SECONDS).get("name"));
+        assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void availabilityIsBatchedPerProductAndQuantity() throws Exception {
+        UUID productId = stub.addProduct("baguette", 4.0, 3);
+
+        CompletableFuture<Map<String, Object>> enough = loader.checkStockAvailability(productId, 2);
+        CompletableFuture<Map<String, Object>> tooMany = loader.checkStockAvailability(productId, 5);
+
+        assertEquals(true, enough.get(5, TimeUnit.SECONDS).get("sufficient"));
+        assertEquals(false, tooMany.get(5, TimeUnit.SECONDS).get("sufficient"));
+        assertEquals(1, stub.availabilityBatches.size());
+        assertEquals(2, stub.availabilityBatches.get(0).size());
+    }
+
+    private static <T> List<T> flatten(List<List<T>> lists) {
+        return lists.stream().flatMap(List::stream).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.shah_s.bakery_order_service.client;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory payment-service for offline tests; can be told to fail the next N calls
+public class StubPaymentServiceClient implements PaymentServiceClient {
+
+    public final List<Map<String, Object>> createdPayments = new CopyOnWriteArrayList<>();
+    public final AtomicInteger failuresRemaining = new AtomicInteger();
+    private final Map<UUID, Map<String, Object>> paymentsById = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, Object> createPayment(Map<String, Object> request) {
+        if (failuresRemaining.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            throw new IllegalStateException("payment-service unavailable");
+        }
+        UUID paymentId = UUID.randomUUID();
+        Map<String, Object> payment = new HashMap<>(request);
+        payment.put("id", paymentId.toString());
+        payment.put("status", "PENDING");
+        paymentsById.put(paymentId, payment);
+        createdPayments.add(payment);
+        return payment;
+    }
+
+    @Override
+    public Map<String, Object> getPaymentById(UUID paymentId) {
+        return paymentsById.get(paymentId);
+    }
+
+    @Override
+    public Map<String, Object> getPaymentByOrderId(UUID orderId) {
+        return paymentsById.values().stream()
+                .filter(payment -> orderId.toString().equals(String.valueOf(payment.get("orderId"))))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public Map<String, Object> updatePaymentStatus(UUID paymentId, Map<String, String> request) {
+        Map<String, Object> payment = paymentsById.get(paymentId);
+        payment.put("status", request.get("status"));
+        return payment;
+    }
+
+    @Override
+    public Map<String, Object> cancelPayment(UUID paymentId, Map<String, String> request) {
+        Map<String, Object> payment = paymentsById.get(paymentId);
+        payment.put("status", "CANCELLED");
+        return payment;
+    }
+}
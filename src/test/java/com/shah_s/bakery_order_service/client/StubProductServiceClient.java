@@ -0,0 +1,75 @@
+package com.shah_s.bakery_order_service.client;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-memory product-service, including the bulk endpoints, for offline tests
+class StubProductServiceClient implements ProductServiceClient {
+
+    final Map<UUID, Map<String, Object>> products = new ConcurrentHashMap<>();
+    final Map<UUID, Integer> stock = new ConcurrentHashMap<>();
+    final List<List<UUID>> productBatches = new CopyOnWriteArrayList<>();
+    final List<List<Map<String, Object>>> availabilityBatches = new CopyOnWriteArrayList<>();
+
+    UUID addProduct(String name, double price, int available) {
+        UUID id = UUID.randomUUID();
+        products.put(id, Map.of("id", id.toString(), "sku", "SKU-" + name, "name", name, "effectivePrice", price));
+        stock.put(id, available);
+        return id;
+    }
+
+    @Override
+    public Map<String, Object> getProductById(UUID productId) {
+        Map<String, Object> product = products.get(productId);
+        if (product == null) {
+            throw new NoSuchElementException("Product not found: " + productId);
+        }
+        return product;
+    }
+
+    @Override
+    public Map<String, Object> checkStockAvailability(UUID productId, Integer quantity) {
+        return Map.of("productId", productId.toString(), "quantity", quantity,
+                "sufficient", stock.getOrDefault(productId, 0) >= quantity);
+    }
+
+    @Override
+    public List<Map<String, Object>> getProductsByIds(List<UUID> productIds) {
+        productBatches.add(List.copyOf(productIds));
+        return productIds.stream().filter(products::containsKey).map(products::get).toList();
+    }
+
+    @Override
+    public List<Map<String, Object>> checkStockAvailabilityBatch(List<Map<String, Object>> requests) {
+        availabilityBatches.add(List.copyOf(requests));
+        return requests.stream()
+                .map(request -> checkStockAvailability((UUID) request.get("productId"), (Integer) request.get("quantity")))
+                .toList();
+    }
+
+    @Override
+    public Map<String, Object> reserveStock(UUID productId, Map<String, Integer> request) {
+        return Map.of("success", true);
+    }
+
+    @Override
+    public Map<String, Object> releaseReservedStock(UUID productId, Map<String, Integer> request) {
+        return Map.of("success", true);
+    }
+
+    @Override
+    public Map<String, Object> consumeStock(UUID productId, Map<String, Integer> request) {
+        return Map.of("success", true);
+    }
+
+    @Override
+    public Map<String, Object> releaseReservedStock(UUID productId, Map<String, Integer> request, String idempotencyKey) {
+        return Map.of("success", true);
+    }
+
+    @Override
+    public Map<String, Object> consumeStock(UUID productId, Map<String, Integer> request, String idempotencyKey) {
+        return Map.of("success", true);
+    }
+}
@@ -0,0 +1,107 @@
+package com.shah_s.bakery_order_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Wrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionHoldTrackingDataSourceTests {
+
+    // Stands in for a driver/pool specific interface reached through unwrap
+    interface PoolConnection extends Wrapper {
+    }
+
+    interface Pool extends DataSource, AutoCloseable {
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Pool pool = mock(Pool.class);
+    private final Connection connection = mock(Connection.class);
+    private ConnectionHoldTrackingDataSource dataSource;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws SQLException {
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable()).thenReturn(meterRegistry);
+        when(pool.getConnection()).thenReturn(connection);
+        dataSource = new ConnectionHoldTrackingDataSource(pool, registryProvider);
+    }
+
+    @Test
+    void connectionUnwrapAndIsWrapperForReachTheDriverConnection() throws SQLException {
+        PoolConnection driverConnection = mock(PoolConnection.class);
+        when(connection.isWrapperFor(PoolConnection.class)).thenReturn(true);
+        when(connection.unwrap(PoolConnection.class)).thenReturn(driverConnection);
+
+        Connection tracked = dataSource.getConnection();
+
+        assertNotSame(connection, tracked);
+        assertTrue(tracked.isWrapperFor(PoolConnection.class));
+        assertSame(driverConnection, tracked.unwrap(PoolConnection.class));
+    }
+
+    @Test
+    void closeIsPassedThroughAndRecordedOncePerBorrow() throws SQLException {
+        Connection tracked = ConnectionHoldTrackingDataSource.inPhase("create-order.db-write", () -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        tracked.close();
+        tracked.close();
+
+        verify(connection, times(2)).close();
+        Timer hold = meterRegistry.get("order.db.connection.hold").tag("phase", "create-order.db-write").timer();
+        assertEquals(1, hold.count());
+    }
+
+    @Test
+    void connectionsBorrowedOutsideAPhaseAreUntracked() throws SQLException {
+        dataSource.getConnection().close();
+
+        assertEquals(1, meterRegistry.get("order.db.connection.hold").tag("phase", "untracked").timer().count());
+    }
+
+    @Test
+    void dataSourceUnwrapIsWrapperForAndCloseReachThePool() throws Exception {
+        when(pool.isWrapperFor(Pool.class)).thenReturn(true);
+        when(pool.unwrap(Pool.class)).thenReturn(pool);
+
+        assertTrue(dataSource.isWrapperFor(Pool.class));
+        assertSame(pool, dataSource.unwrap(Pool.class));
+        assertSame(dataSource, dataSource.unwrap(ConnectionHoldTrackingDataSource.class));
+
+        dataSource.close();
+        verify(pool).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void postProcessorWrapsEachDataSourceOnce() {
+        BeanPostProcessor postProcessor = DataSourceMetricsConfig.connectionHoldTrackingPostProcessor(
+                mock(ObjectProvider.class));
+
+        Object wrapped = postProcessor.postProcessAfterInitialization(pool, "dataSource");
+        assertInstanceOf(ConnectionHoldTrackingDataSource.class, wrapped);
+        assertSame(pool, ((ConnectionHoldTrackingDataSource) wrapped).getTargetDataSource());
+
+        assertSame(wrapped, postProcessor.postProcessAfterInitialization(wrapped, "dataSource"));
+        Object other = new Object();
+        assertSame(other, postProcessor.postProcessAfterInitialization(other, "other"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.shah_s.bakery_order_service.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderStatusTransitionTests {
+
+    @Test
+    void transitionTableAllowsExactlyTheOrderLifecycle() {
+        Map<Order.OrderStatus, Set<Order.OrderStatus>> expected = Map.of(
+                Order.OrderStatus.PENDING, EnumSet.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.CANCELLED),
+                Order.OrderStatus.CONFIRMED, EnumSet.of(Order.OrderStatus.PREPARING, Order.OrderStatus.CANCELLED),
+                Order.OrderStatus.PREPARING, EnumSet.of(Order.OrderStatus.READY),
+                Order.OrderStatus.READY, EnumSet.of(Order.OrderStatus.OUT_FOR_DELIVERY, Order.OrderStatus.DELIVERED),
+                Order.OrderStatus.OUT_FOR_DELIVERY, EnumSet.of(Order.OrderStatus.DELIVERED),
+                Order.OrderStatus.DELIVERED, EnumSet.noneOf(Order.OrderStatus.class),
+                Order.OrderStatus.CANCELLED, EnumSet.noneOf(Order.OrderStatus.class));
+
+        for (Order.OrderStatus from : Order.OrderStatus.values()) {
+            for (Order.OrderStatus to : Order.OrderStatus.values()) {
+                assertEquals(expected.get(from).contains(to), Order.canTransition(from, to), from + " -> " + to);
+            }
+            assertEquals(expected.get(from).contains(Order.OrderStatus.CANCELLED), Order.canBeCancelled(from));
+        }
+    }
+}
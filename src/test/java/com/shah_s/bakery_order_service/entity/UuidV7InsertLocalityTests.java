@@ -0,0 +1,100 @@
+package com.shah_s.bakery_order_service.entity;
+
+import com.shah_s.bakery_order_service.PostgresContainer;
+import com.shah_s.bakery_order_service.PostgresTest;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Random v4 vs time-ordered v7 primary keys on the same insert stream. v7 keys arrive in key order,
+// so rows land in the heap in index order and the primary key only ever splits its rightmost page;
+// v4 keys land anywhere. Checked through what PostgreSQL reports, not through timings, which are
+// only logged (BENCHMARK_ROWS raises the row count for a throughput comparison).
+@PostgresTest
+class UuidV7InsertLocalityTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(UuidV7InsertLocalityTests.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Test
+    void timeOrderedKeysInsertInIndexOrderAndPackTheIndexTighter() throws Exception {
+        int rows = Integer.parseInt(System.getenv().getOrDefault("BENCHMARK_ROWS", "200000"));
+        PostgreSQLContainer<?> postgres = PostgresContainer.start();
+
+        try (Connection connection = DriverManager.getConnection(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=true", postgres.getUsername(), postgres.getPassword())) {
+            connection.setAutoCommit(false);
+
+            Insertion random = run(connection, "locality_uuid_v4", rows, UUID::randomUUID);
+            Insertion timeOrdered = run(connection, "locality_uuid_v7", rows, UuidV7Generator::generate);
+
+            // Heap order follows key order for v7 only
+            assertThat(timeOrdered.correlation()).isGreaterThan(0.99);
+            assertThat(Math.abs(random.correlation())).isLessThan(0.1);
+            // Appending fills leaf pages to ~90%, random inserts leave them ~70% full after splits
+            assertThat(timeOrdered.primaryKeyBytes()).isLessThan((long) (random.primaryKeyBytes() * 0.85));
+        }
+    }
+
+    private Insertion run(Connection connection, String table, int rows, Supplier<UUID> ids) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            // The container is shared with other tests and outlives this one
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, order_id uuid NOT NULL, " +
+                    "quantity int NOT NULL, created_at timestamp NOT NULL DEFAULT now())");
+            statement.execute("CREATE INDEX " + table + "_order_idx ON " + table + " (order_id)");
+        }
+        connection.commit();
+
+        long started = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table + " (id, order_id, quantity) VALUES (?, ?, ?)")) {
+            UUID orderId = ids.get();
+            for (int i = 1; i <= rows; i++) {
+                if (i % 4 == 0) {
+                    orderId = ids.get();
+                }
+                insert.setObject(1, ids.get());
+                insert.setObject(2, orderId);
+                insert.setInt(3, 1);
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE " + table);
+            try (ResultSet stats = statement.executeQuery("SELECT pg_relation_size('" + table + "_pkey'), " +
+                    "(SELECT correlation FROM pg_stats WHERE tablename = '" + table + "' AND attname = 'id')")) {
+                stats.next();
+                Insertion insertion = new Insertion(stats.getLong(1), stats.getDouble(2));
+                logger.info("{}: {} rows in {} s ({} rows/s), pk index {} KB, heap/key correlation {}",
+                        table, rows, String.format("%.1f", seconds), String.format("%,.0f", rows / seconds),
+                        insertion.primaryKeyBytes() / 1024, String.format("%.3f", insertion.correlation()));
+                statement.execute("DROP TABLE " + table);
+                connection.commit();
+                return insertion;
+            }
+        }
+    }
+
+    private record Insertion(long primaryKeyBytes, double correlation) {}
+}
@@ -0,0 +1,229 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs outside a test transaction: the index is built CONCURRENTLY, which PostgreSQL refuses inside one
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderQueryRepository.class, CustomerSearchIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerSearchTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSearchTests.class);
+
+    @Autowired
+    private OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        customerSearchIndex.ensureIndex();
+        save("Anna Lee", "anna.lee@example.com", "555-0100");
+        save("Joanna Banks", "jbanks@example.org", "555-0101");
+        save("Bob Stone", "bob_stone@example.com", "555-0199");
+        save("Carl Axbridge", "carl@example.net", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void ranksWholeWordMatchesAboveSubstrings() {
+        assertEquals(List.of("Anna Lee", "Joanna Banks"), names(search("Anna")));
+    }
+
+    @Test
+    void matchesEmailAndPhone() {
+        // Other example.* addresses are close enough to follow, but rank below the exact domain
+        assertEquals("Joanna Banks", names(search("example.org")).getFirst());
+        assertEquals(List.of("Bob Stone"), names(search("0199")));
+    }
+
+    @Test
+    void likeWildcardsInTheTermAreLiteral() {
+        // Unescaped, the % would make this match Anna's phone number
+        assertTrue(search("100%").isEmpty());
+    }
+
+    @Test
+    void plainSearchMatchesSubstringsOfNameAndEmailOnly() {
+        assertEquals(Set.of("Anna Lee", "Joanna Banks"),
+                Set.copyOf(names(orderQueryRepository.searchByCustomerInfo("anna"))));
+        assertEquals(List.of("Bob Stone"), names(orderQueryRepository.searchByCustomerInfo("bo")));
+        // No phone numbers and no near matches
+        assertTrue(orderQueryRepository.searchByCustomerInfo("0199").isEmpty());
+        assertTrue(orderQueryRepository.searchByCustomerInfo("annna").isEmpty());
+    }
+
+    @Test
+    void pagesAreCappedAtMaxCandidates() {
+        for (int i = 0; i < 10; i++) {
+            save("Anna Clone " + i, "clone" + i + "@example.com", null);
+        }
+
+        Page<OrderResponse> page = orderQueryRepository.searchByCustomerInfo("anna", 5, PageRequest.of(0, 3));
+
+        assertEquals(3, page.getContent().size());
+        assertEquals(5, page.getTotalElements());
+        assertEquals(0, orderQueryRepository.searchByCustomerInfo("anna", 5, PageRequest.of(4, 3)).getContent().size());
+    }
+
+    @Test
+    void cappedCandidatesAreTheBestMatches() {
+        // Newer, weaker substring matches outnumber the cap
+        for (int i = 0; i < 10; i++) {
+            save("Joanna Clone " + i, "jclone" + i + "@example.com", null);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            Page<OrderResponse> page = orderQueryRepository.searchByCustomerInfo("anna", 3, PageRequest.of(0, 3));
+            assertEquals("Anna Lee", names(page).getFirst());
+            assertEquals(3, page.getTotalElements());
+        }
+    }
+
+    @Test
+    void candidatesAreReadNearestFirstFromTheTrigramIndex() {
+        // Both kinds of match the search reads: substring, and word similarity
+        for (String condition : List.of(CustomerSearchIndex.DOCUMENT + " LIKE '%anna%'",
+                "'anna' <% " + CustomerSearchIndex.DOCUMENT)) {
+            String plan = explain("SELECT id FROM orders WHERE " + condition +
+                    " ORDER BY 'anna' <<-> " + CustomerSearchIndex.DOCUMENT + " LIMIT 500");
+
+            // An ordered index scan that stops at the limit, not a bitmap scan followed by a sort
+            assertTrue(plan.contains("Index Scan using " + CustomerSearchIndex.INDEX_NAME), plan);
+            assertFalse(plan.contains("Sort"), plan);
+        }
+    }
+
+    @Test
+    void legacyGinIndexIsReplaced() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + CustomerSearchIndex.LEGACY_INDEX_NAME +
+                " ON orders USING gin ((" + CustomerSearchIndex.DOCUMENT + ") gin_trgm_ops)");
+
+        customerSearchIndex.ensureIndex();
+
+        assertEquals(List.of(CustomerSearchIndex.INDEX_NAME), jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'orders' AND indexname LIKE 'idx_order_customer_search%'",
+                String.class));
+    }
+
+    // Search latency against a large synthetic table, for narrow terms and for broad ones that match
+    // most of it (every order has an example.com address, a "Customer" name and a 555- phone).
+    // Opt-in: RUN_BENCHMARKS=true SEARCH_BENCHMARK_ORDERS=10000000 ./gradlew test --tests '*CustomerSearchTests'
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+    void benchmarkSearchLatency() {
+        int orders = Integer.parseInt(System.getenv().getOrDefault("SEARCH_BENCHMARK_ORDERS", "1000000"));
+        long maxP95Micros = Long.parseLong(System.getenv().getOrDefault("SEARCH_BENCHMARK_MAX_P95_MS", "10")) * 1000;
+        jdbcTemplate.update("INSERT INTO orders (id, order_number, user_id, customer_name, customer_email, " +
+                "customer_phone, status, delivery_type, subtotal, tax_amount, discount_amount, delivery_fee, " +
+                "total_amount, created_at, updated_at) " +
+                "SELECT gen_random_uuid(), 'ORD-BENCH-' || g, gen_random_uuid(), " +
+                "'Customer ' || md5(g::text), substr(md5(g::text), 1, 12) || '@example.com', " +
+                "'555-' || lpad((g % 10000)::text, 4, '0'), 'DELIVERED', 'PICKUP', 10, 0.8, 0, 0, 10.8, " +
+                "now() - (g || ' seconds')::interval, now() FROM generate_series(1, ?) g", orders);
+        jdbcTemplate.execute("ANALYZE orders");
+
+        List<String> terms = List.of("anna", "anna.lee@example.com", "0100", "customer 4f2a", "ab12cd",
+                "example.com", "customer", "555-");
+        for (String term : terms) {
+            PageRequest page = PageRequest.of(0, 20);
+            for (int i = 0; i < 20; i++) {
+                orderQueryRepository.searchByCustomerInfo(term, 500, page);
+            }
+            long[] micros = new long[50];
+            for (int i = 0; i < micros.length; i++) {
+                long started = System.nanoTime();
+                orderQueryRepository.searchByCustomerInfo(term, 500, page);
+                micros[i] = (System.nanoTime() - started) / 1000;
+            }
+            Arrays.sort(micros);
+            long p95 = micros[micros.length * 95 / 100];
+            logger.info("Search '{}' over {} orders: p50 {} us, p95 {} us", term, orders,
+                    micros[micros.length / 2], p95);
+            assertTrue(p95 < maxP95Micros, "p95 of '" + term + "' was " + p95 + " us");
+        }
+    }
+
+    // The plan PostgreSQL picks for the query. The table is tiny, so scanning and sorting it would
+    // otherwise win over any index.
+    private String explain(String query) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                statement.execute("SET enable_sort = off");
+                StringBuilder lines = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN " + query)) {
+                    while (rs.next()) {
+                        lines.append(rs.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                statement.execute("RESET enable_sort");
+                return lines.toString();
+            }
+        });
+    }
+
+    private Page<OrderResponse> search(String term) {
+        return orderQueryRepository.searchByCustomerInfo(term, 500, PageRequest.of(0, 20));
+    }
+
+    private static List<String> names(Page<OrderResponse> page) {
+        return names(page.getContent());
+    }
+
+    private static List<String> names(List<OrderResponse> orders) {
+        return orders.stream().map(OrderResponse::getCustomerName).toList();
+    }
+
+    private void save(String name, String email, String phone) {
+        Order order = new Order(UUID.randomUUID(), name, email, Order.DeliveryType.PICKUP);
+        order.setOrderNumber("ORD-" + UUID.randomUUID().toString().substring(0, 8));
+        order.setCustomerPhone(phone);
+        order.addOrderItem(new OrderItem(order, UUID.randomUUID(), "SKU-1", "Bagel", 1, new BigDecimal("1.50")));
+        order.calculateTotals(new BigDecimal("0.08"));
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,35 @@
+package com.shah_s.bakery_order_service.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderCursorTests {
+
+    @Test
+    void roundTripsThroughAnUrlSafeToken() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2025, 3, 14, 10, 15, 30, 123_456_000), UUID.randomUUID());
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertEquals(cursor, OrderCursor.decode(token));
+    }
+
+    @Test
+    void rejectsTamperedOrForeignTokens() {
+        String otherVersion = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("v0|2025-03-14T10:15:30|" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(otherVersion));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(""));
+    }
+}
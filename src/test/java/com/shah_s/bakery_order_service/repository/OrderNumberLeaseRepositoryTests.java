@@ -0,0 +1,59 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderNumberLeaseRepository.class)
+class OrderNumberLeaseRepositoryTests {
+
+    @Autowired
+    private OrderNumberLeaseRepository leaseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void liveLeasesAreNeverShared() {
+        assertEquals(Optional.of(0), leaseRepository.claim("a", 60, 1023));
+        assertEquals(Optional.of(1), leaseRepository.claim("b", 60, 1023));
+
+        assertTrue(leaseRepository.renew(0, "a", 60));
+        assertFalse(leaseRepository.renew(0, "b", 60));
+
+        // Only ids up to maxNodeId are handed out
+        assertEquals(Optional.empty(), leaseRepository.claim("c", 60, 1));
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndItsHolderCannotRenewIt() {
+        leaseRepository.claim("a", 60, 1023);
+        jdbcTemplate.update("UPDATE order_number_leases SET expires_at = LOCALTIMESTAMP - INTERVAL '1 second'");
+
+        assertEquals(Optional.of(0), leaseRepository.claim("b", 60, 1023));
+        assertFalse(leaseRepository.renew(0, "a", 60));
+        assertEquals("b", jdbcTemplate.queryForObject(
+                "SELECT holder FROM order_number_leases WHERE node_id = 0", String.class));
+    }
+
+    @Test
+    void releasedIdIsFreeAgain() {
+        leaseRepository.claim("a", 60, 1023);
+        leaseRepository.release(0, "b");
+        assertEquals(Optional.of(1), leaseRepository.claim("b", 60, 1023));
+
+        leaseRepository.release(0, "a");
+        assertEquals(Optional.of(0), leaseRepository.claim("c", 60, 1023));
+    }
+}
@@ -0,0 +1,209 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.dto.CursorPage;
+import com.shah_s.bakery_order_service.dto.OrderItemResponse;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.dto.OrderStatusNotification;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderQueryRepository.class)
+class OrderQueryRepositoryTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderQueryRepositoryTests.class);
+
+    private static final int ORDERS = 150;
+
+    @Autowired
+    private OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(userId, "Customer " + i, "customer" + i + "@example.com",
+                    i % 2 == 0 ? Order.DeliveryType.PICKUP : Order.DeliveryType.DELIVERY);
+            order.setOrderNumber(String.format("ORD-TEST-%05d", i));
+            order.setStatus(i % 3 == 0 ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.PENDING);
+            for (int j = 0; j <= i % 4; j++) {
+                OrderItem item = new OrderItem(order, UUID.randomUUID(), "SKU-" + j, "Product " + j, j + 1,
+                        new BigDecimal("2.50"));
+                item.setDiscountPerItem(j == 1 ? new BigDecimal("0.25") : BigDecimal.ZERO);
+                item.setPreparationTimeMinutes(j == 2 ? 5 : null);
+                order.addOrderItem(item);
+            }
+            order.calculateTotals(new BigDecimal("0.08"));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pageMatchesTheEntityMapping() throws Exception {
+        PageRequest page = PageRequest.of(1, 20, Sort.by(Sort.Direction.ASC, "orderNumber"));
+
+        Page<OrderResponse> fromRows = orderQueryRepository.findByUserId(userId, page);
+        Page<OrderResponse> fromEntities = orderRepository.findByUserId(userId, page).map(OrderResponse::from);
+
+        assertEquals(ORDERS, fromRows.getTotalElements());
+        assertEquals("ORD-TEST-00020", fromRows.getContent().getFirst().getOrderNumber());
+        assertEquals(json(fromEntities.getContent()), json(fromRows.getContent()));
+    }
+
+    @Test
+    void singleAndFilteredReadsMatchTheEntityMapping() throws Exception {
+        Order order = orderRepository.findByOrderNumber("ORD-TEST-00007").orElseThrow();
+
+        assertEquals(json(List.of(OrderResponse.from(order))),
+                json(List.of(orderQueryRepository.findById(order.getId()).orElseThrow())));
+        assertTrue(orderQueryRepository.findByOrderNumber("ORD-MISSING").isEmpty());
+
+        List<OrderResponse> filtered = orderQueryRepository.findWithFilters(userId, Order.OrderStatus.CONFIRMED,
+                Order.DeliveryType.PICKUP, null, null, null, null);
+        assertEquals(25, filtered.size());
+        assertTrue(filtered.stream().allMatch(o -> o.getStatus() == Order.OrderStatus.CONFIRMED
+                && o.getDeliveryType() == Order.DeliveryType.PICKUP));
+    }
+
+    @Test
+    void statusSnapshotsMatchTheEntityMapping() throws Exception {
+        Order order = orderRepository.findByOrderNumber("ORD-TEST-00003").orElseThrow();
+
+        assertEquals(objectMapper.writeValueAsString(OrderStatusNotification.snapshot(order)),
+                objectMapper.writeValueAsString(orderQueryRepository.findStatusById(order.getId()).orElseThrow()));
+        assertTrue(orderQueryRepository.findStatusById(UUID.randomUUID()).isEmpty());
+
+        List<OrderStatusNotification> confirmed = orderQueryRepository.findStatusesByStatus(Order.OrderStatus.CONFIRMED);
+        assertEquals(50, confirmed.size());
+        assertTrue(confirmed.stream().allMatch(n -> n.getStatus() == Order.OrderStatus.CONFIRMED));
+
+        assertEquals(ORDERS, orderQueryRepository.findStatusesByUserIdAndStatusIn(userId,
+                List.of(Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED)).size());
+        assertTrue(orderQueryRepository.findStatusesByUserIdAndStatusIn(userId,
+                List.of(Order.OrderStatus.DELIVERED)).isEmpty());
+    }
+
+    @Test
+    void cursorPagesWalkEveryOrderOnceInListingOrder() {
+        List<UUID> expected = orderQueryRepository.findByUserId(userId).stream().map(OrderResponse::getId).toList();
+
+        List<UUID> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<OrderResponse> page = orderQueryRepository.findByUserIdAfter(userId,
+                    cursor == null ? null : OrderCursor.decode(cursor), 40);
+            page.getItems().forEach(o -> walked.add(o.getId()));
+            assertEquals(page.getNextCursor() != null, page.isHasNext());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(expected, walked);
+        assertTrue(orderQueryRepository.findByUserIdAfter(UUID.randomUUID(), null, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void streamingHandsOverEachOrderOnceWithAllItsItems() throws Exception {
+        OrderFilter filter = new OrderFilter(userId, Order.OrderStatus.CONFIRMED, null, null, null, null, null);
+        List<OrderResponse> streamed = new ArrayList<>();
+
+        long count = orderQueryRepository.streamWithFilters(filter, streamed::add);
+
+        List<OrderResponse> expected = new ArrayList<>(orderQueryRepository.findWithFilters(userId,
+                Order.OrderStatus.CONFIRMED, null, null, null, null, null));
+        // Listings are newest first, exports oldest first
+        Collections.reverse(expected);
+        assertEquals(50, count);
+        assertEquals(json(expected), json(streamed));
+    }
+
+    @Test
+    void rejectsUnknownSortProperties() {
+        PageRequest page = PageRequest.of(0, 10, Sort.by("customerEmail; DROP TABLE orders"));
+
+        assertThrows(IllegalArgumentException.class, () -> orderQueryRepository.findAll(page));
+    }
+
+    // Latency and allocation of a 100-order page through each read path.
+    // Opt-in: RUN_BENCHMARKS=true ./gradlew test --tests '*OrderQueryRepositoryTests'
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+    void benchmarkHundredOrderPage() {
+        PageRequest page = PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+        measure("entities + OrderResponse.from", () -> {
+            List<OrderResponse> orders = orderRepository.findAll(page).map(OrderResponse::from).getContent();
+            entityManager.clear();
+            return orders;
+        });
+        measure("row mapping (OrderQueryRepository)", () -> orderQueryRepository.findAll(page).getContent());
+    }
+
+    private void measure(String name, Supplier<List<OrderResponse>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int warmup = 200;
+        int iterations = 500;
+        for (int i = 0; i < warmup; i++) {
+            assertEquals(100, read.get().size());
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            read.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        logger.info("{}: {} us/page, {} KB allocated/page", name,
+                elapsed / iterations / 1000, allocated / iterations / 1024);
+    }
+
+    private String json(List<OrderResponse> orders) throws Exception {
+        for (OrderResponse order : orders) {
+            order.getItems().sort(Comparator.comparing(OrderItemResponse::getId));
+        }
+        return objectMapper.writeValueAsString(orders);
+    }
+}
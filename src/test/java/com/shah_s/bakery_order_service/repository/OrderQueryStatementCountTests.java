@@ -0,0 +1,174 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.dto.CursorPage;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards the read paths the controllers serve against per-order statements: each list, page and
+// cursor read through OrderQueryRepository, items included, must stay within a fixed statement
+// budget however many orders it returns. Statements are counted on the connection the repository
+// borrows. Runs on H2 in every build and on PostgreSQL under the postgresTest task; customer
+// search needs pg_trgm, so it is only guarded on PostgreSQL.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+abstract class OrderQueryStatementCountTests {
+
+    private static final int ORDERS = 12;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 5;
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    @TestPropertySource(properties = {
+            "spring.datasource.url=jdbc:h2:mem:statement-count;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"})
+    static class OnH2 extends OrderQueryStatementCountTests {
+    }
+
+    @PostgresTest
+    static class OnPostgres extends OrderQueryStatementCountTests {
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Test
+        void searchReadsItemsWithTheMatches() {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+
+            // Matches and their items in one statement; the candidate count is carried on every row
+            Page<OrderResponse> page = assertStatements(1,
+                    () -> orderQueryRepository.searchByCustomerInfo("statement", 100, PageRequest.of(1, PAGE_SIZE)));
+            assertEquals(ORDERS, page.getTotalElements());
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    protected OrderQueryRepository orderQueryRepository;
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = TestOrders.order(userId, Order.DeliveryType.PICKUP);
+            order.setCustomerName("Statement Count " + i);
+            order.setOrderNumber("ORD-COUNT-" + i);
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                TestOrders.addItem(order, UUID.randomUUID(), "Product" + j, 1, new BigDecimal("2.50"));
+            }
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Joins the test transaction, so the repository sees the orders above
+        DataSource counting = new DelegatingDataSource(new TransactionAwareDataSourceProxy(dataSource)) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return counting(super.getConnection());
+            }
+        };
+        orderQueryRepository = new OrderQueryRepository(new NamedParameterJdbcTemplate(counting), 1000);
+    }
+
+    @Test
+    void listReadsAreOneStatement() {
+        assertStatements(1, () -> orderQueryRepository.findByUserId(userId));
+        assertStatements(1, () -> orderQueryRepository.findByStatus(Order.OrderStatus.PENDING));
+        assertStatements(1, () -> orderQueryRepository.findCreatedSince(LocalDateTime.now().minusDays(1)));
+        assertStatements(1, () -> orderQueryRepository.findWithFilters(userId, Order.OrderStatus.PENDING,
+                Order.DeliveryType.PICKUP, null, null, null, null));
+    }
+
+    @Test
+    void pagedReadsAreThePageAndItsCount() {
+        PageRequest page = PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+        assertStatements(2, () -> orderQueryRepository.findAll(page));
+        Page<OrderResponse> byUser = assertStatements(2, () -> orderQueryRepository.findByUserId(userId, page));
+        assertEquals(ORDERS, byUser.getTotalElements());
+    }
+
+    @Test
+    void cursorReadsAreOneStatementPerPage() {
+        CursorPage<OrderResponse> first = assertStatements(1,
+                () -> orderQueryRepository.findAllAfter(null, PAGE_SIZE), CursorPage::getItems);
+        assertTrue(first.isHasNext());
+
+        CursorPage<OrderResponse> byUser = assertStatements(1,
+                () -> orderQueryRepository.findByUserIdAfter(userId, null, PAGE_SIZE), CursorPage::getItems);
+        assertStatements(1, () -> orderQueryRepository.findByUserIdAfter(userId,
+                OrderCursor.decode(byUser.getNextCursor()), PAGE_SIZE), CursorPage::getItems);
+    }
+
+    protected <T extends Iterable<OrderResponse>> T assertStatements(int expected, Supplier<T> read) {
+        return assertStatements(expected, read, orders -> orders);
+    }
+
+    // Runs the read, checks how many statements it took and that every order came back with its items
+    private <T> T assertStatements(int expected, Supplier<T> read, Function<T, Iterable<OrderResponse>> orders) {
+        statements.set(0);
+
+        T result = read.get();
+
+        assertEquals(expected, statements.get(), "statements executed");
+        assertTrue(orders.apply(result).iterator().hasNext());
+        orders.apply(result).forEach(order -> assertEquals(ITEMS_PER_ORDER, order.getItems().size()));
+        return result;
+    }
+
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        statements.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,94 @@
+package com.shah_s.bakery_order_service.repository;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Guards the repository reads against N+1 item loading: each read plus mapping to OrderResponse
+// must stay within a fixed statement budget, however many orders it returns
+@PostgresTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderRepositoryQueryCountTests {
+
+    private static final int ORDERS = 12;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID userId = UUID.randomUUID();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(userId, "Customer " + i, "customer" + i + "@example.com", Order.DeliveryType.PICKUP);
+            order.setOrderNumber("ORD-TEST-" + i);
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                OrderItem item = new OrderItem(order, UUID.randomUUID(), "SKU-" + j, "Product " + j, 1, new BigDecimal("2.50"));
+                order.addOrderItem(item);
+            }
+            order.calculateTotals(new BigDecimal("0.08"));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void pagedReadsBatchLoadItems() {
+        PageRequest page = PageRequest.of(0, 5, Sort.by("createdAt").descending());
+
+        // Page query + count query + one batched item query
+        assertStatements(3, () -> orderRepository.findByUserId(userId, page).getContent());
+        assertStatements(3, () -> orderRepository.findAll(page).getContent());
+        assertStatements(3, () -> orderRepository.findByStatus(Order.OrderStatus.PENDING, page).getContent());
+    }
+
+    private void assertStatements(long maxStatements, Supplier<? extends Collection<Order>> read) {
+        entityManager.clear();
+        statistics.clear();
+
+        List<OrderResponse> responses = read.get().stream().map(OrderResponse::from).toList();
+
+        assertFalse(responses.isEmpty());
+        assertTrue(responses.stream().allMatch(r -> r.getItems().size() == ITEMS_PER_ORDER));
+        long executed = statistics.getPrepareStatementCount();
+        assertTrue(executed <= maxStatements,
+                "Expected at most " + maxStatements + " statements but " + executed + " were executed");
+        assertEquals(responses.size(), responses.stream().map(OrderResponse::getId).distinct().count());
+    }
+}
@@ -0,0 +1,104 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Flushed day sketches must answer range queries like counting distinct ids over orders, and
+// re-flushing or rebuilding must not inflate them
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DistinctCountService.class)
+class DistinctCountFlushTests {
+
+    // Monday 2025-03-10
+    private final LocalDateTime monday = LocalDateTime.of(2025, 3, 10, 9, 0);
+
+    @Autowired
+    private DistinctCountService distinctCountService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void daySketchesMergeIntoRangesWithoutDoubleCounting() {
+        List<UUID> customers = ids(40);
+        List<UUID> products = ids(12);
+        List<Order> orders = new ArrayList<>();
+        List<Order> imported = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // Ten days, customers and products recurring across them
+            Order order = order(customers.get(i % customers.size()), products.get(i % products.size()),
+                    monday.plusDays(i % 10), "ORD-HLL-" + i);
+            orders.add(order);
+            if (i % 2 == 0) {
+                distinctCountService.onOrderCreated(new OrderCreatedEvent(order));
+            } else {
+                imported.add(order);
+            }
+        }
+        distinctCountService.onOrdersImported(new OrdersImportedEvent(imported));
+        distinctCountService.flush();
+        entityManager.flush();
+
+        LocalDateTime start = monday;
+        LocalDateTime end = monday.plusDays(9);
+        Map<String, Object> daily = distinctCountService.getDistinctCounts(start, end, DistinctCountService.Granularity.DAY);
+        // Well below the register count the estimate is within a register collision or two
+        assertClose(40, daily.get("uniqueCustomers"));
+        assertClose(12, daily.get("uniqueProducts"));
+        assertEquals(10, ((List<?>) daily.get("periods")).size());
+
+        List<Map<String, Object>> weeks = (List<Map<String, Object>>) distinctCountService
+                .getDistinctCounts(start, end, DistinctCountService.Granularity.WEEK).get("periods");
+        assertEquals(List.of("2025-03-10", "2025-03-17"), weeks.stream().map(w -> w.get("periodStart")).toList());
+
+        // Seeing the same orders again, or rebuilding from the table, changes nothing
+        orders.forEach(order -> distinctCountService.onOrderCreated(new OrderCreatedEvent(order)));
+        distinctCountService.flush();
+        assertEquals(daily, distinctCountService.getDistinctCounts(start, end, DistinctCountService.Granularity.DAY));
+
+        distinctCountService.rebuild(start, end);
+        assertEquals(daily, distinctCountService.getDistinctCounts(start, end, DistinctCountService.Granularity.DAY));
+    }
+
+    private static void assertClose(long expected, Object estimate) {
+        long actual = (Long) estimate;
+        assertTrue(Math.abs(actual - expected) <= 2, "expected about " + expected + ", got " + actual);
+    }
+
+    private Order order(UUID userId, UUID productId, LocalDateTime createdAt, String orderNumber) {
+        Order order = TestOrders.order(userId, Order.DeliveryType.PICKUP);
+        order.setOrderNumber(orderNumber);
+        TestOrders.addItem(order, productId, 1, new BigDecimal("2.00"));
+        return TestOrders.persistCreatedAt(entityManager, order, createdAt);
+    }
+
+    private static List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,99 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Flushed hourly digests must answer percentile queries over the range, split by hour of day, and
+// a rebuild from the orders table must reproduce them
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(FulfillmentDurationService.class)
+class FulfillmentDurationFlushTests {
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    @Autowired
+    private FulfillmentDurationService fulfillmentDurationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void percentilesComeFromMergedHourlyDigests() {
+        // 100 pickup orders over three days at 08:00 and 12:00, confirmed after 1..100 minutes,
+        // ready 20 minutes later and collected 5 minutes after that
+        for (int i = 1; i <= 100; i++) {
+            LocalDateTime createdAt = start.plusDays(i % 3).plusHours(i % 2 == 0 ? 0 : 4);
+            Order order = order(createdAt, "ORD-TD-" + i);
+            order.setConfirmedAt(createdAt.plusMinutes(i));
+            order.setReadyAt(order.getConfirmedAt().plusMinutes(20));
+            order.setCompletedAt(order.getReadyAt().plusMinutes(5));
+            TestOrders.persistCreatedAt(entityManager, order, createdAt);
+
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+            fulfillmentDurationService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+            order.setStatus(Order.OrderStatus.READY);
+            fulfillmentDurationService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PREPARING));
+            order.setStatus(Order.OrderStatus.DELIVERED);
+            fulfillmentDurationService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.READY));
+        }
+        fulfillmentDurationService.flush();
+        entityManager.flush();
+
+        LocalDateTime end = start.plusDays(3);
+        Map<String, Object> result = fulfillmentDurationService.getFulfillmentPercentiles(start, end, true);
+        List<Map<String, Object>> stages = (List<Map<String, Object>>) result.get("stages");
+        assertEquals(3, stages.size());
+
+        Map<String, Object> confirmation = stages.get(0);
+        assertEquals("CREATED_TO_CONFIRMED", confirmation.get("stage"));
+        assertEquals("PICKUP", confirmation.get("deliveryType"));
+        assertEquals(100L, confirmation.get("count"));
+        // Few samples per digest stay as single points, so percentiles are within a sample
+        assertEquals(50.0, (Double) confirmation.get("p50Minutes"), 1.0);
+        assertEquals(90.0, (Double) confirmation.get("p90Minutes"), 1.0);
+        assertEquals(99.0, (Double) confirmation.get("p99Minutes"), 1.0);
+        assertEquals(20.0, (Double) stages.get(1).get("p90Minutes"), 0.01);
+        assertEquals(5.0, (Double) stages.get(2).get("p99Minutes"), 0.01);
+
+        List<Map<String, Object>> byHour = (List<Map<String, Object>>) result.get("byHourOfDay");
+        long confirmedBefore10 = byHour.stream()
+                .filter(row -> "CREATED_TO_CONFIRMED".equals(row.get("stage")) && (Integer) row.get("hourOfDay") < 10)
+                .mapToLong(row -> (Long) row.get("count")).sum();
+        // Even-numbered orders were placed at 08:00 and confirmed within 100 minutes
+        assertEquals(50, confirmedBefore10);
+
+        // Centroids may group differently when rebuilt, so percentiles are compared within a sample
+        fulfillmentDurationService.rebuild(start, end);
+        List<Map<String, Object>> rebuilt = (List<Map<String, Object>>) fulfillmentDurationService
+                .getFulfillmentPercentiles(start, end, false).get("stages");
+        assertEquals(stages.stream().map(row -> row.get("count")).toList(), rebuilt.stream().map(row -> row.get("count")).toList());
+        assertEquals((Double) confirmation.get("p90Minutes"), (Double) rebuilt.get(0).get("p90Minutes"), 1.0);
+    }
+
+    private Order order(LocalDateTime createdAt, String orderNumber) {
+        Order order = TestOrders.order();
+        order.setOrderNumber(orderNumber);
+        TestOrders.addItem(order, UUID.randomUUID(), 1, new BigDecimal("2.00"));
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
@@ -0,0 +1,93 @@
+package com.shah_s.bakery_order_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTests {
+
+    // Seeded, so the checks are deterministic
+    private final Random random = new Random(42);
+
+    @Test
+    void estimatesStayWithinThreeStandardErrorsAcrossTheRange() {
+        for (int precision : new int[] {10, 12, 14}) {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            double standardError = 1.04 / Math.sqrt(1 << precision);
+            int added = 0;
+            // Small counts (mostly empty registers) through to many times the register count
+            for (int target : new int[] {10, 100, 1_000, 5_000, 20_000, 200_000}) {
+                while (added < target) {
+                    sketch.add(new UUID(random.nextLong(), random.nextLong()));
+                    added++;
+                }
+                double relativeError = Math.abs(sketch.estimate() - target) / (double) target;
+                assertTrue(relativeError <= 3 * standardError,
+                        "precision " + precision + ", " + target + " ids: estimate " + sketch.estimate());
+            }
+        }
+    }
+
+    @Test
+    void repeatedIdsAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        List<UUID> ids = ids(1_000);
+        ids.forEach(sketch::add);
+        HyperLogLog once = sketch.copy();
+
+        ids.forEach(sketch::add);
+
+        assertEquals(once, sketch);
+    }
+
+    @Test
+    void unionMatchesASketchOfBothInputs() {
+        List<UUID> monday = ids(3_000);
+        List<UUID> tuesday = new ArrayList<>(monday.subList(0, 1_000));
+        tuesday.addAll(ids(2_000));
+
+        HyperLogLog both = new HyperLogLog(12);
+        monday.forEach(both::add);
+        tuesday.forEach(both::add);
+
+        assertEquals(both, HyperLogLog.union(sketch(12, monday), sketch(12, tuesday)));
+    }
+
+    @Test
+    void reducingPrecisionMatchesBuildingAtTheLowerPrecision() {
+        List<UUID> ids = ids(50_000);
+
+        assertEquals(sketch(10, ids), sketch(14, ids).reduceTo(10));
+        // Mixed precisions union at the lower one
+        HyperLogLog mixed = HyperLogLog.union(sketch(14, ids.subList(0, 25_000)), sketch(10, ids.subList(25_000, 50_000)));
+        assertEquals(sketch(10, ids), mixed);
+    }
+
+    @Test
+    void registersRoundTripThroughBytes() {
+        HyperLogLog sketch = sketch(12, ids(500));
+
+        assertEquals(sketch, HyperLogLog.fromBytes(12, sketch.toBytes()));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(11, sketch.toBytes()));
+        assertEquals(0, new HyperLogLog(12).estimate());
+    }
+
+    private static HyperLogLog sketch(int precision, List<UUID> ids) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        ids.forEach(sketch::add);
+        return sketch;
+    }
+
+    private List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return ids;
+    }
+}
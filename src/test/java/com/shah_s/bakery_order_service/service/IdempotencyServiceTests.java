@@ -0,0 +1,313 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.dto.OrderItemRequest;
+import com.shah_s.bakery_order_service.dto.OrderRequest;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.entity.IdempotencyRecord;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.exception.IdempotencyConflictException;
+import com.shah_s.bakery_order_service.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Each IdempotencyService instance plays one node; they share the key table, kept in a map with the
+// same conflict rules as the primary key and the conditional deletes and lease renewal
+class IdempotencyServiceTests {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+    private final ScheduledExecutorService leaseRenewalScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Runs inside findById, before the record is returned
+    private volatile Runnable onRead = () -> {};
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(anyString())).thenAnswer(invocation -> {
+            onRead.run();
+            return Optional.ofNullable(table.get(invocation.<String>getArgument(0)));
+        });
+        when(repository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            if (table.putIfAbsent(record.getIdempotencyKey(), record) != null) {
+                throw new DataIntegrityViolationException("duplicate key " + record.getIdempotencyKey());
+            }
+            return record;
+        });
+        when(repository.deleteIfUnchanged(anyString(), any(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            LocalDateTime createdAt = invocation.getArgument(1);
+            IdempotencyRecord.RecordStatus status = invocation.getArgument(2);
+            boolean[] deleted = {false};
+            table.computeIfPresent(key, (k, record) -> {
+                if (record.getCreatedAt().equals(createdAt) && record.getStatus() == status) {
+                    deleted[0] = true;
+                    return null;
+                }
+                return record;
+            });
+            return deleted[0] ? 1 : 0;
+        });
+        when(repository.deleteIfLeaseExpired(anyString(), any(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            LocalDateTime createdAt = invocation.getArgument(1);
+            LocalDateTime now = invocation.getArgument(2);
+            boolean[] deleted = {false};
+            table.computeIfPresent(key, (k, record) -> {
+                if (record.getCreatedAt().equals(createdAt)
+                        && record.getStatus() == IdempotencyRecord.RecordStatus.IN_PROGRESS
+                        && record.isLeaseExpired(now)) {
+                    deleted[0] = true;
+                    return null;
+                }
+                return record;
+            });
+            return deleted[0] ? 1 : 0;
+        });
+        when(repository.renewLease(anyString(), any(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = table.get(invocation.<String>getArgument(0));
+            if (record == null || !record.getCreatedAt().equals(invocation.getArgument(1))
+                    || record.getStatus() != IdempotencyRecord.RecordStatus.IN_PROGRESS) {
+                return 0;
+            }
+            record.setLeaseExpiresAt(invocation.getArgument(2));
+            return 1;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        leaseRenewalScheduler.shutdownNow();
+    }
+
+    @Test
+    void completedResponseIsReplayedOnThisNodeAndOthers() {
+        IdempotencyService node = node(15_000);
+        OrderRequest request = request("Sourdough");
+        AtomicInteger created = new AtomicInteger();
+
+        IdempotencyService.Result first = node.execute("key-1", request, () -> createOrder(created));
+        IdempotencyService.Result again = node.execute("key-1", request("Sourdough"), () -> createOrder(created));
+        IdempotencyService.Result elsewhere = node(15_000).execute("key-1", request, () -> createOrder(created));
+
+        assertEquals(1, created.get());
+        assertFalse(first.isReplayed());
+        assertTrue(again.isReplayed());
+        assertTrue(elsewhere.isReplayed());
+        assertEquals(first.getResponse().getId(), again.getResponse().getId());
+        assertEquals(first.getResponse().getId(), elsewhere.getResponse().getId());
+        assertEquals(IdempotencyRecord.RecordStatus.COMPLETED, table.get("key-1").getStatus());
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIsAConflict() {
+        IdempotencyService node = node(15_000);
+        AtomicInteger created = new AtomicInteger();
+        node.execute("key-1", request("Sourdough"), () -> createOrder(created));
+
+        // Answered 409 by GlobalExceptionHandler, on this node and on one that only has the table
+        assertThrows(IdempotencyConflictException.class,
+                () -> node.execute("key-1", request("Baguette"), () -> createOrder(created)));
+        assertThrows(IdempotencyConflictException.class,
+                () -> node(15_000).execute("key-1", request("Baguette"), () -> createOrder(created)));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void concurrentCallersOnOneNodeShareTheInFlightRequest() throws Exception {
+        IdempotencyService node = node(15_000);
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+
+        List<Future<IdempotencyService.Result>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results.add(executor.submit(() -> node.execute("key-1", request("Sourdough"), () -> {
+                entered.countDown();
+                await(proceed);
+                return createOrder(created);
+            })));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> node.execute("key-1", request("Sourdough"),
+                        () -> createOrder(created))));
+            }
+            // The duplicates wait on the first request's future, not on the key table
+            Thread.sleep(100);
+            proceed.countDown();
+
+            UUID orderId = results.get(0).get(5, TimeUnit.SECONDS).getResponse().getId();
+            for (Future<IdempotencyService.Result> result : results.subList(1, results.size())) {
+                assertTrue(result.get(5, TimeUnit.SECONDS).isReplayed());
+                assertEquals(orderId, result.get().getResponse().getId());
+            }
+        }
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void requestInProgressOnAnotherNodeTimesOutWithAConflict() {
+        table.put("key-1", claim(request("Sourdough"), LocalDateTime.now()));
+        AtomicInteger created = new AtomicInteger();
+
+        long started = System.nanoTime();
+        assertThrows(IdempotencyConflictException.class,
+                () -> node(300).execute("key-1", request("Sourdough"), () -> createOrder(created)));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) >= 300);
+        assertEquals(0, created.get());
+        assertEquals(IdempotencyRecord.RecordStatus.IN_PROGRESS, table.get("key-1").getStatus());
+    }
+
+    @Test
+    void requestOutlivingItsLeaseKeepsTheKeyWhileItsOwnerRenewsIt() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Stuck in remote pre-checks for three lease lengths
+            Future<IdempotencyService.Result> slow = executor.submit(() -> node(5_000, Duration.ofSeconds(1), 100)
+                    .execute("key-1", request("Sourdough"), () -> {
+                        entered.countDown();
+                        sleep(3_000);
+                        return createOrder(created);
+                    }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Thread.sleep(1_500);
+            Future<IdempotencyService.Result> retry = executor.submit(() -> node(5_000, Duration.ofSeconds(1), 100)
+                    .execute("key-1", request("Sourdough"), () -> createOrder(created)));
+
+            assertFalse(slow.get(10, TimeUnit.SECONDS).isReplayed());
+            assertTrue(retry.get(10, TimeUnit.SECONDS).isReplayed());
+            assertEquals(slow.get().getResponse().getId(), retry.get().getResponse().getId());
+        }
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void onlyOneNodeTakesOverAClaimWhoseLeaseLapsed() throws Exception {
+        // A node died two minutes ago while holding the key; its lease ran out a minute and a half ago
+        table.put("key-1", claim(request("Sourdough"), LocalDateTime.now().minusMinutes(2)));
+        AtomicInteger created = new AtomicInteger();
+
+        // Both nodes read the stale claim before either replaces it
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        AtomicInteger firstReads = new AtomicInteger();
+        onRead = () -> {
+            if (firstReads.incrementAndGet() <= 2) {
+                await(bothRead);
+            }
+        };
+
+        List<IdempotencyService.Result> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<IdempotencyService.Result> a = executor.submit(() -> node(5_000)
+                    .execute("key-1", request("Sourdough"), () -> createOrder(created)));
+            Future<IdempotencyService.Result> b = executor.submit(() -> node(5_000)
+                    .execute("key-1", request("Sourdough"), () -> createOrder(created)));
+            results.add(a.get(10, TimeUnit.SECONDS));
+            results.add(b.get(10, TimeUnit.SECONDS));
+        }
+
+        // The loser's conditional delete matched nothing; it waited for the winner and replayed
+        assertEquals(1, created.get());
+        assertEquals(1, results.stream().filter(IdempotencyService.Result::isReplayed).count());
+        assertEquals(results.get(0).getResponse().getId(), results.get(1).getResponse().getId());
+        assertEquals(IdempotencyRecord.RecordStatus.COMPLETED, table.get("key-1").getStatus());
+    }
+
+    private IdempotencyService node(long waitTimeoutMs) {
+        return node(waitTimeoutMs, LEASE, 5_000);
+    }
+
+    private IdempotencyService node(long waitTimeoutMs, Duration lease, long renewalIntervalMs) {
+        IdempotencyService node = new IdempotencyService(repository, objectMapper, new NoOpTransactionManager(),
+                leaseRenewalScheduler, 24, 1000);
+        ReflectionTestUtils.setField(node, "waitTimeoutMs", waitTimeoutMs);
+        ReflectionTestUtils.setField(node, "leaseSeconds", lease.toSeconds());
+        ReflectionTestUtils.setField(node, "leaseRenewalIntervalMs", renewalIntervalMs);
+        return node;
+    }
+
+    // A claim made at createdAt whose owner never renewed it
+    private IdempotencyRecord claim(OrderRequest request, LocalDateTime createdAt) {
+        IdempotencyRecord record = new IdempotencyRecord("key-1", hash(request), LocalDateTime.now().plusHours(24), LEASE);
+        record.setCreatedAt(createdAt.truncatedTo(ChronoUnit.MICROS));
+        record.setLeaseExpiresAt(record.getCreatedAt().plus(LEASE));
+        return record;
+    }
+
+    private String hash(OrderRequest request) {
+        return ReflectionTestUtils.invokeMethod(node(0), "hash", request);
+    }
+
+    private static OrderResponse createOrder(AtomicInteger created) {
+        created.incrementAndGet();
+        Order order = new Order(UUID.randomUUID(), "Customer", "customer@example.com", Order.DeliveryType.PICKUP);
+        order.setId(UUID.randomUUID());
+        order.setOrderNumber("ORD-" + order.getId());
+        return OrderResponse.from(order);
+    }
+
+    private static OrderRequest request(String product) {
+        OrderRequest request = new OrderRequest();
+        request.setUserId(new UUID(0, 1));
+        request.setCustomerName("Customer");
+        request.setCustomerEmail("customer@example.com");
+        request.setDeliveryType(Order.DeliveryType.PICKUP);
+        request.setPaymentMethod("CARD");
+        request.setPaymentAmount(new BigDecimal("10.00"));
+        request.setSpecialInstructions(product);
+        request.getItems().add(new OrderItemRequest(new UUID(0, 2), 1));
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
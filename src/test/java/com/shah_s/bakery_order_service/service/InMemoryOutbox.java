@@ -0,0 +1,70 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.entity.UuidV7Generator;
+import com.shah_s.bakery_order_service.repository.OutboxEventRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The order_outbox table in memory, behind a mocked OutboxEventRepository whose queries follow the
+// real ones, including the per-ordering-key claim order of findDueForDispatch
+class InMemoryOutbox {
+
+    // The order an ordering key's events were written in, as findDueForDispatch compares them
+    private static final Comparator<OutboxEvent> WRITE_ORDER =
+            Comparator.comparing(OutboxEvent::getCreatedAt).thenComparing(OutboxEvent::getId);
+
+    final Map<UUID, OutboxEvent> table = new ConcurrentHashMap<>();
+
+    final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+
+    InMemoryOutbox() {
+        when(repository.save(any(OutboxEvent.class))).thenAnswer(invocation -> {
+            OutboxEvent event = invocation.getArgument(0);
+            event.setId(UuidV7Generator.generate());
+            event.setCreatedAt(LocalDateTime.now());
+            table.put(event.getId(), event);
+            return event;
+        });
+        when(repository.findDueForDispatch(any(LocalDateTime.class), any(Pageable.class))).thenAnswer(invocation -> {
+            LocalDateTime now = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return table.values().stream()
+                    .filter(event -> event.getStatus() == OutboxEvent.OutboxStatus.PENDING)
+                    .filter(event -> !event.getNextAttemptAt().isAfter(now))
+                    .filter(event -> table.values().stream().noneMatch(earlier ->
+                            earlier.getAggregateId().equals(event.getAggregateId())
+                                    && earlier.getOrderingKey().equals(event.getOrderingKey())
+                                    && earlier.getStatus() == OutboxEvent.OutboxStatus.PENDING
+                                    && WRITE_ORDER.compare(earlier, event) < 0))
+                    .sorted(Comparator.comparing(OutboxEvent::getNextAttemptAt))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        when(repository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<UUID> ids = invocation.getArgument(0);
+            List<OutboxEvent> found = new ArrayList<>();
+            ids.forEach(id -> found.add(table.get(id)));
+            return found;
+        });
+        when(repository.findOldestPendingCreatedAt()).thenAnswer(invocation -> table.values().stream()
+                .filter(event -> event.getStatus() == OutboxEvent.OutboxStatus.PENDING)
+                .map(OutboxEvent::getCreatedAt)
+                .min(Comparator.naturalOrder())
+                .orElse(null));
+        when(repository.countByStatus(any())).thenAnswer(invocation -> table.values().stream()
+                .filter(event -> event.getStatus() == invocation.getArgument(0))
+                .count());
+    }
+
+    List<OutboxEvent> events(UUID orderId) {
+        return table.values().stream().filter(event -> event.getAggregateId().equals(orderId)).sorted(WRITE_ORDER).toList();
+    }
+}
@@ -0,0 +1,173 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveOrderMetricsTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-03-14T10:42:07Z"));
+
+    private SimpleMeterRegistry meterRegistry;
+    private LiveOrderMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new LiveOrderMetrics(clock);
+        metrics.bindTo(meterRegistry);
+    }
+
+    @Test
+    void newOrdersAreCountedByStatusDeliveryTypeAndWindow() {
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.DELIVERY)));
+
+        assertEquals(3, meterRegistry.get("orders.live.status").tag("status", "PENDING").gauge().value());
+        assertEquals(2, meterRegistry.get("orders.live.delivery_type").tag("delivery_type", "PICKUP").gauge().value());
+        assertEquals(3, meterRegistry.get("orders.live.window.orders").tag("window", "1h").gauge().value());
+
+        LiveOrderMetrics.Window lastHour = metrics.window(Duration.ofHours(1));
+        assertEquals(3, lastHour.orders());
+        assertEquals(0, new BigDecimal("16.20").compareTo(lastHour.revenue()));
+    }
+
+    @Test
+    void minuteBucketsRollOutOfTheWindow() {
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+        clock.advance(Duration.ofMinutes(30));
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+
+        clock.advance(Duration.ofMinutes(31));
+        assertEquals(1, metrics.window(Duration.ofHours(1)).orders());
+        assertEquals(2, metrics.window(Duration.ofHours(24)).orders());
+
+        // A full day later the slot of the first order is reused for the current minute
+        clock.advance(Duration.ofHours(24));
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+        assertEquals(1, metrics.window(Duration.ofHours(24)).orders());
+        assertEquals(3, meterRegistry.get("orders.live.status").tag("status", "PENDING").gauge().value());
+    }
+
+    @Test
+    void transitionsMoveOrdersBetweenStatuses() {
+        Order cancelled = order(Order.DeliveryType.PICKUP);
+        Order delivered = order(Order.DeliveryType.PICKUP);
+        metrics.onOrderCreated(new OrderCreatedEvent(cancelled));
+        metrics.onOrderCreated(new OrderCreatedEvent(delivered));
+
+        cancelled.setStatus(Order.OrderStatus.CANCELLED);
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(cancelled, Order.OrderStatus.PENDING));
+        delivered.setStatus(Order.OrderStatus.DELIVERED);
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(delivered, Order.OrderStatus.PENDING));
+
+        Map<String, Object> snapshot = metrics.snapshot(5);
+        @SuppressWarnings("unchecked")
+        Map<String, Long> byStatus = (Map<String, Long>) snapshot.get("byStatus");
+        assertEquals(0L, byStatus.get("PENDING"));
+        assertEquals(1L, byStatus.get("CANCELLED"));
+        assertEquals(1L, byStatus.get("DELIVERED"));
+        assertEquals(new BigDecimal("5.40"), snapshot.get("revenue"));
+
+        LiveOrderMetrics.Window lastHour = metrics.window(Duration.ofHours(1));
+        assertEquals(1, lastHour.cancellations());
+        assertEquals(1, lastHour.completions());
+        assertEquals(5, ((List<?>) snapshot.get("perMinute")).size());
+    }
+
+    @Test
+    void ordersNotCountedHereDoNotMoveTheTotals() {
+        metrics.onOrderCreated(new OrderCreatedEvent(order(Order.DeliveryType.PICKUP)));
+
+        // Placed before this instance started, or on another one
+        Order confirmed = order(Order.DeliveryType.PICKUP);
+        confirmed.setStatus(Order.OrderStatus.CONFIRMED);
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(confirmed, Order.OrderStatus.PENDING));
+        Order cancelled = order(Order.DeliveryType.PICKUP);
+        cancelled.setStatus(Order.OrderStatus.CANCELLED);
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(cancelled, Order.OrderStatus.PENDING));
+
+        Map<String, Object> snapshot = metrics.snapshot(0);
+        @SuppressWarnings("unchecked")
+        Map<String, Long> byStatus = (Map<String, Long>) snapshot.get("byStatus");
+        assertEquals(1L, byStatus.get("PENDING"));
+        assertEquals(0L, byStatus.get("CONFIRMED"));
+        assertEquals(0L, byStatus.get("CANCELLED"));
+        assertEquals(new BigDecimal("5.40"), snapshot.get("revenue"));
+        assertEquals("2025-03-14T10:42:07Z", snapshot.get("countingSince"));
+        // The cancellation still happened in this window
+        assertEquals(1, metrics.window(Duration.ofHours(1)).cancellations());
+    }
+
+    @Test
+    void finalStatusStopsTracking() {
+        Order order = order(Order.DeliveryType.PICKUP);
+        metrics.onOrderCreated(new OrderCreatedEvent(order));
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+
+        // A duplicate delivery of the same event changes nothing
+        metrics.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+
+        assertEquals(0, meterRegistry.get("orders.live.status").tag("status", "PENDING").gauge().value());
+        assertEquals(1, meterRegistry.get("orders.live.status").tag("status", "CANCELLED").gauge().value());
+    }
+
+    @Test
+    void concurrentWritersAcrossMinuteBoundariesLoseNoCounts() throws InterruptedException {
+        int threads = 8;
+        int ordersPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Order order = order(Order.DeliveryType.PICKUP);
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    // One thread keeps moving the clock so buckets are created while others write
+                    if (thread == 0 && i % 1_000 == 0) {
+                        clock.advance(Duration.ofMinutes(1));
+                    }
+                    metrics.onOrderCreated(new OrderCreatedEvent(order));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        long total = (long) threads * ordersPerThread;
+        assertEquals(total, metrics.window(Duration.ofHours(1)).orders());
+        assertEquals(BigDecimal.valueOf(total).multiply(new BigDecimal("5.40")).setScale(2),
+                metrics.window(Duration.ofHours(1)).revenue());
+    }
+
+    private static Order order(Order.DeliveryType deliveryType) {
+        Order order = TestOrders.order(deliveryType);
+        order.setId(UUID.randomUUID());
+        TestOrders.addItem(order, UUID.randomUUID(), "Bagel", 2, new BigDecimal("2.50"));
+        order.setStatus(Order.OrderStatus.PENDING);
+        return order;
+    }
+}
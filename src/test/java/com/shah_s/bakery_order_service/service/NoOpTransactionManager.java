@@ -0,0 +1,28 @@
+package com.shah_s.bakery_order_service.service;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+// Runs TransactionTemplate callbacks without a database, counting outcomes
+class NoOpTransactionManager implements PlatformTransactionManager {
+
+    int commits;
+    int rollbacks;
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+        return new SimpleTransactionStatus();
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+        commits++;
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+        rollbacks++;
+    }
+}
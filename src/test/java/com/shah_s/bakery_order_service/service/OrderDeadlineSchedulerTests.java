@@ -0,0 +1,96 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderDeadlineEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class OrderDeadlineSchedulerTests {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-03-10T09:00:00Z"));
+
+    private final List<Object> published = new ArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OrderDeadlineScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new OrderDeadlineScheduler(mock(JdbcTemplate.class), published::add, meterRegistry,
+                1_000, 30, clock);
+    }
+
+    @Test
+    void pendingOrdersExpireUnlessConfirmedInTime() {
+        Order stale = order(Order.OrderStatus.PENDING, null);
+        Order confirmed = order(Order.OrderStatus.PENDING, null);
+        scheduler.onOrderCreated(new OrderCreatedEvent(stale));
+        scheduler.onOrderCreated(new OrderCreatedEvent(confirmed));
+
+        clock.advance(Duration.ofMinutes(10));
+        // Confirmed without an estimate yet: nothing to wait for
+        confirmed.setStatus(Order.OrderStatus.CONFIRMED);
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(confirmed, Order.OrderStatus.PENDING));
+
+        clock.advance(Duration.ofMinutes(19));
+        scheduler.tick();
+        assertEquals(List.of(), published);
+
+        clock.advance(Duration.ofMinutes(1));
+        scheduler.tick();
+        assertEquals(List.of(new OrderDeadlineEvent(stale.getId(), OrderDeadlineEvent.Type.PENDING_EXPIRED,
+                now())), published);
+        assertEquals(0, scheduler.scheduled());
+    }
+
+    @Test
+    void preparingOrdersGoOverdueAndReadyOrdersComeDue() {
+        Order slow = order(Order.OrderStatus.PREPARING, now().plusMinutes(20));
+        Order quick = order(Order.OrderStatus.PREPARING, now().plusMinutes(20));
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(slow, Order.OrderStatus.CONFIRMED));
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(quick, Order.OrderStatus.CONFIRMED));
+
+        // Ready early: due at its estimated time rather than overdue
+        clock.advance(Duration.ofMinutes(15));
+        quick.setStatus(Order.OrderStatus.READY);
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(quick, Order.OrderStatus.PREPARING));
+
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+        assertEquals(List.of(OrderDeadlineEvent.Type.READY, OrderDeadlineEvent.Type.OVERDUE),
+                published.stream().map(event -> ((OrderDeadlineEvent) event).type()).sorted().toList());
+        assertEquals(1.0, meterRegistry.get("orders.deadlines.fired").tag("type", "OVERDUE").counter().count());
+
+        // Delivered and cancelled orders have no timer
+        quick.setStatus(Order.OrderStatus.DELIVERED);
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(quick, Order.OrderStatus.READY));
+        assertEquals(0, scheduler.scheduled());
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    private Order order(Order.OrderStatus status, LocalDateTime estimatedReadyTime) {
+        Order order = TestOrders.saved();
+        order.setStatus(status);
+        order.setCreatedAt(now());
+        order.setEstimatedReadyTime(estimatedReadyTime);
+        return order;
+    }
+}
@@ -0,0 +1,153 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.dto.OrderItemResponse;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.repository.OrderFilter;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderExportServiceTests {
+
+    private final OrderFilter filter = new OrderFilter(null, null, null, null, null, null, null);
+
+    private OrderQueryRepository orderQueryRepository;
+    private NoOpTransactionManager transactionManager;
+    private OrderExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        orderQueryRepository = mock(OrderQueryRepository.class);
+        transactionManager = new NoOpTransactionManager();
+        exportService = new OrderExportService(orderQueryRepository, transactionManager,
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(exportService, "flushEvery", 2);
+    }
+
+    @Test
+    void writesOneJsonOrderPerLine() throws Exception {
+        streams(order("ORD-1", 2), order("ORD-2", 0), order("ORD-3", 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(filter, OrderExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, exported);
+        assertEquals(3, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals("ORD-1", first.get("orderNumber").asText());
+        assertEquals(2, first.get("items").size());
+        assertEquals(1, transactionManager.commits);
+    }
+
+    @Test
+    void writesOneCsvRowPerItemWithTheImportColumns() throws Exception {
+        streams(order("ORD-1", 2), order("ORD-2", 0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(filter, OrderExportService.Format.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(String.join(",", OrderExportService.CSV_COLUMNS), lines.getFirst());
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).startsWith("ORD-1,ORD-1,"));
+        assertTrue(lines.get(2).contains(",SKU-1,"));
+        assertTrue(lines.get(3).startsWith("ORD-2,ORD-2,") && lines.get(3).endsWith(",,,,,,,,"));
+    }
+
+    @Test
+    void flushesAsItGoesInsteadOfBufferingTheWholeExport() throws Exception {
+        OrderResponse[] orders = new OrderResponse[5];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = order("ORD-" + i, 1);
+        }
+        streams(orders);
+        List<Integer> flushedAt = new ArrayList<>();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written.write(b);
+            }
+
+            @Override
+            public void flush() {
+                flushedAt.add(written.size());
+            }
+        };
+
+        exportService.export(filter, OrderExportService.Format.NDJSON, out);
+
+        // After orders 2 and 4, then on completion
+        assertEquals(3, flushedAt.size());
+        assertTrue(flushedAt.get(0) > 0 && flushedAt.get(0) < flushedAt.get(1));
+    }
+
+    @Test
+    void clientDisconnectAbortsTheExportAndRollsBack() {
+        streams(order("ORD-1", 1), order("ORD-2", 1), order("ORD-3", 1));
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException error = assertThrows(IOException.class,
+                () -> exportService.export(filter, OrderExportService.Format.NDJSON, out));
+
+        assertEquals("Broken pipe", error.getMessage());
+        assertEquals(1, transactionManager.rollbacks);
+    }
+
+    private void streams(OrderResponse... orders) {
+        when(orderQueryRepository.streamWithFilters(any(), any())).thenAnswer(invocation -> {
+            Consumer<OrderResponse> sink = invocation.getArgument(1);
+            for (OrderResponse order : orders) {
+                sink.accept(order);
+            }
+            return (long) orders.length;
+        });
+    }
+
+    private static OrderResponse order(String orderNumber, int items) {
+        OrderResponse order = new OrderResponse();
+        order.setId(UUID.randomUUID());
+        order.setOrderNumber(orderNumber);
+        order.setUserId(UUID.randomUUID());
+        order.setCustomerName("Test Customer");
+        order.setCustomerEmail("test@example.com");
+        order.setTotalAmount(new BigDecimal("7.56"));
+        order.setCreatedAt(LocalDateTime.of(2025, 1, 2, 9, 30));
+        order.setItems(new ArrayList<>());
+        for (int i = 0; i < items; i++) {
+            OrderItemResponse item = new OrderItemResponse();
+            item.setProductId(UUID.randomUUID());
+            item.setProductSku("SKU-" + i);
+            item.setProductName("Croissant");
+            item.setQuantity(2);
+            item.setUnitPrice(new BigDecimal("3.50"));
+            order.getItems().add(item);
+        }
+        return order;
+    }
+}
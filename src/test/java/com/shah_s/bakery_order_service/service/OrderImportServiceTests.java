@@ -0,0 +1,175 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.dto.OrderImportResult;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderImportServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private NoOpTransactionManager transactionManager;
+    private OrderImportService importService;
+
+    // Batch sizes written per statement, in call order
+    private final List<String> writes = new ArrayList<>();
+
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            BatchPreparedStatementSetter rows = invocation.getArgument(1);
+            writes.add(sql.substring("INSERT INTO ".length(), sql.indexOf(' ', "INSERT INTO ".length())) + ":" + rows.getBatchSize());
+            return new int[rows.getBatchSize()];
+        });
+
+        transactionManager = new NoOpTransactionManager();
+        OrderNumberGenerator orderNumberGenerator = new OrderNumberGenerator(null, 0, 16, 1, Clock.systemUTC());
+        orderNumberGenerator.init();
+
+        importService = new OrderImportService(jdbcTemplate, transactionManager, new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), orderNumberGenerator, events::add);
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 10);
+        ReflectionTestUtils.setField(importService, "taxRate", new BigDecimal("0.08"));
+    }
+
+    @Test
+    void importsNdjsonInChunksAndSkipsBadRecords() {
+        String body = order("ORD-A", 2) + "\n" +
+                "{not json\n" +
+                "\n" +
+                order("ORD-B", 1) + "\n" +
+                "{\"userId\":\"" + UUID.randomUUID() + "\",\"customerName\":\"No Items\",\"customerEmail\":\"x@example.com\",\"items\":[]}\n" +
+                order("ORD-C", 3) + "\n";
+
+        OrderImportResult result = importService.importOrders(stream(body), OrderImportService.Format.NDJSON);
+
+        assertEquals(5, result.getRecordsRead());
+        assertEquals(3, result.getOrdersImported());
+        assertEquals(6, result.getItemsImported());
+        assertEquals(2, result.getRecordsRejected());
+        assertEquals(2, result.getChunksWritten());
+        assertEquals(List.of(2L, 5L), result.getRecordErrors().stream().map(OrderImportResult.RecordError::getLine).toList());
+        assertEquals(List.of("orders:2", "order_items:3", "orders:1", "order_items:3"), writes);
+        assertEquals(2, transactionManager.commits);
+        assertEquals(List.of(2, 1), events.stream().map(e -> ((OrdersImportedEvent) e).orders().size()).toList());
+    }
+
+    @Test
+    void failedChunkIsReportedAndTheLoadContinues() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"))
+                .thenReturn(new int[1]);
+
+        String body = order("ORD-A", 1) + "\n" + order("ORD-A", 1) + "\n" + order("ORD-B", 1) + "\n";
+        OrderImportResult result = importService.importOrders(stream(body), OrderImportService.Format.NDJSON);
+
+        assertEquals(1, result.getChunksFailed());
+        assertEquals(1, result.getChunksWritten());
+        assertEquals(1, result.getOrdersImported());
+        OrderImportResult.ChunkError error = result.getChunkErrors().getFirst();
+        assertEquals(1, error.getFirstLine());
+        assertEquals(2, error.getLastLine());
+        assertTrue(error.getMessage().contains("duplicate key"));
+        assertEquals(1, transactionManager.rollbacks);
+    }
+
+    @Test
+    void groupsCsvRowsIntoOrdersByOrderRef() {
+        UUID userId = UUID.randomUUID();
+        String body = "orderRef,userId,customerName,customerEmail,deliveryType,createdAt,productId,productSku,productName,quantity,unitPrice\n" +
+                "pos-1," + userId + ",Ann,ann@example.com,PICKUP,2025-01-02T09:30:00," + UUID.randomUUID() + ",SKU-1,Bagel,2,1.50\n" +
+                "pos-1,,,,,," + UUID.randomUUID() + ",SKU-2,Latte,1,4.00\n" +
+                "pos-2," + userId + ",Bob,bob@example.com,DELIVERY,2025-01-02T10:00:00," + UUID.randomUUID() + ",SKU-1,Bagel,abc,1.50\n" +
+                "pos-3," + userId + ",Cy,cy@example.com,PICKUP,2025-01-02T11:00:00," + UUID.randomUUID() + ",SKU-3,Scone,1,3.25\n";
+
+        OrderImportResult result = importService.importOrders(stream(body), OrderImportService.Format.CSV);
+
+        assertEquals(3, result.getRecordsRead());
+        assertEquals(2, result.getOrdersImported());
+        assertEquals(3, result.getItemsImported());
+        assertEquals(1, result.getRecordsRejected());
+        assertEquals(4, result.getRecordErrors().getFirst().getLine());
+    }
+
+    @Test
+    void lifecycleTimesAreKeptOrFilledInFromTheStatus() {
+        String measured = order("ORD-A", 1).replace("\"createdAt\"",
+                "\"confirmedAt\":\"2025-01-02T09:32:00\",\"readyAt\":\"2025-01-02T09:50:00\"," +
+                "\"completedAt\":\"2025-01-02T10:05:00\",\"createdAt\"");
+        String partial = order("ORD-B", 1).replace("\"createdAt\"", "\"completedAt\":\"2025-01-02T10:15:00\",\"createdAt\"");
+        String cancelled = order("ORD-C", 1).replace("\"DELIVERED\"", "\"CANCELLED\"")
+                .replace("\"createdAt\"", "\"confirmedAt\":\"2025-01-02T09:40:00\",\"cancellationReason\":\"No show\",\"createdAt\"");
+        ReflectionTestUtils.setField(importService, "chunkSize", 10);
+
+        importService.importOrders(stream(measured + "\n" + partial + "\n" + cancelled + "\n"),
+                OrderImportService.Format.NDJSON);
+
+        OrdersImportedEvent event = (OrdersImportedEvent) events.getFirst();
+        Order a = event.orders().get(0);
+        assertEquals(LocalDateTime.parse("2025-01-02T09:32:00"), a.getConfirmedAt());
+        assertEquals(LocalDateTime.parse("2025-01-02T09:50:00"), a.getReadyAt());
+        assertEquals(LocalDateTime.parse("2025-01-02T10:05:00"), a.getCompletedAt());
+        assertEquals(a.getCompletedAt(), a.getUpdatedAt());
+        assertTrue(event.hasMeasuredHistory(a));
+
+        // Missing stages take the next later time supplied, so they stay in order
+        Order b = event.orders().get(1);
+        assertEquals(LocalDateTime.parse("2025-01-02T10:15:00"), b.getConfirmedAt());
+        assertEquals(LocalDateTime.parse("2025-01-02T10:15:00"), b.getReadyAt());
+        assertFalse(event.hasMeasuredHistory(b));
+
+        // A cancellation without its own time comes after the progress the order made
+        Order c = event.orders().get(2);
+        assertEquals(LocalDateTime.parse("2025-01-02T09:40:00"), c.getCancelledAt());
+        assertEquals("No show", c.getCancellationReason());
+        assertNull(c.getReadyAt());
+        assertNull(c.getCompletedAt());
+        assertFalse(event.hasMeasuredHistory(c));
+    }
+
+    private static String order(String orderNumber, int items) {
+        StringBuilder json = new StringBuilder("{\"orderNumber\":\"" + orderNumber + "\",\"userId\":\"" + UUID.randomUUID() +
+                "\",\"customerName\":\"Test Customer\",\"customerEmail\":\"test@example.com\",\"status\":\"DELIVERED\"," +
+                "\"createdAt\":\"2025-01-02T09:30:00\",\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"productId\":\"").append(UUID.randomUUID())
+                    .append("\",\"productSku\":\"SKU-").append(i)
+                    .append("\",\"productName\":\"Croissant\",\"quantity\":2,\"unitPrice\":3.50}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,290 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.OrderNumberLeaseRepository;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderNumberGeneratorTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberGeneratorTests.class);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-03-14T10:00:00Z"));
+
+    @Test
+    void numbersKeepTheReadableFormatWithinTheColumnLimit() {
+        OrderNumberGenerator generator = generator(5, 16);
+
+        String number = generator.next();
+
+        assertThat(number).hasSize(OrderNumberGenerator.ORDER_NUMBER_LENGTH).matches("ORD-20250314-[0-9A-Z]{7}");
+        assertThat(OrderNumberGenerator.decode(number.substring(13)) >>> OrderNumberGenerator.SEQUENCE_BITS)
+                .isEqualTo(5);
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameNumber() throws Exception {
+        int threads = 32;
+        int perThread = 50_000;
+        OrderNumberGenerator generator = generator(1, 256);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        seen.add(generator.next());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(threads * perThread);
+    }
+
+    @Test
+    void differentNodesNeverOverlap() {
+        OrderNumberGenerator first = generator(1, 16);
+        OrderNumberGenerator second = generator(2, 16);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < 10_000; i++) {
+            seen.add(first.next());
+            seen.add(second.next());
+        }
+
+        assertThat(seen).hasSize(20_000);
+    }
+
+    @Test
+    void sequenceRestartsOnTheNextDayAndNeverGoesBack() {
+        OrderNumberGenerator generator = generator(0, 16);
+        generator.next();
+
+        clock.advance(Duration.ofDays(1));
+        String nextDay = generator.next();
+        assertThat(nextDay).startsWith("ORD-20250315-").endsWith("0000000");
+
+        // Clock stepping back keeps the later day so earlier numbers are not reissued
+        clock.advance(Duration.ofDays(-1));
+        assertThat(generator.next()).startsWith("ORD-20250315-");
+    }
+
+    @Test
+    void restartResumesAfterTheHighestNumberIssuedToday() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findMaxOrderNumberBetween(anyString(), anyString(), anyInt()))
+                .thenReturn("ORD-20250314-" + OrderNumberGenerator.encode(4, 1000));
+        OrderNumberGenerator generator = new OrderNumberGenerator(orderRepository, 4, 16, 1, clock);
+        generator.init();
+
+        long sequence = OrderNumberGenerator.decode(generator.next().substring(13)) & OrderNumberGenerator.MAX_SEQUENCE;
+
+        assertThat(sequence).isGreaterThan(1000);
+    }
+
+    @Test
+    void exhaustedSequenceFailsInsteadOfWrapping() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findMaxOrderNumberBetween(anyString(), anyString(), anyInt()))
+                .thenReturn("ORD-20250314-" + OrderNumberGenerator.encode(0, OrderNumberGenerator.MAX_SEQUENCE - 1));
+        OrderNumberGenerator generator = new OrderNumberGenerator(orderRepository, 0, 16, 1, clock);
+        generator.init();
+
+        assertThatThrownBy(generator::next).isInstanceOf(OrderServiceException.class);
+    }
+
+    @Test
+    void leasedNodeIdIsUsedUntilShutdown() {
+        OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+        when(leaseRepository.claim(anyString(), eq(60L), eq(OrderNumberGenerator.MAX_NODE_ID)))
+                .thenReturn(Optional.of(7));
+        when(leaseRepository.renew(eq(7), anyString(), eq(60L))).thenReturn(true);
+        OrderNumberGenerator generator = leasedGenerator(null, leaseRepository);
+
+        assertThat(generator.getNodeId()).isEqualTo(7);
+        assertThat(nodeOf(generator.next())).isEqualTo(7);
+        generator.renewLease();
+        assertThat(nodeOf(generator.next())).isEqualTo(7);
+
+        generator.releaseLease();
+        verify(leaseRepository).release(eq(7), anyString());
+    }
+
+    @Test
+    void lostLeaseMovesToAnotherNodeIdAndResumesIt() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        // Node 9 was used earlier today by the instance whose lease expired
+        when(orderRepository.findMaxOrderNumberBetween(anyString(), anyString(), anyInt())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).endsWith(OrderNumberGenerator.encode(9, 0))
+                        ? "ORD-20250314-" + OrderNumberGenerator.encode(9, 500) : null);
+        OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+        when(leaseRepository.claim(anyString(), anyLong(), anyInt())).thenReturn(Optional.of(3), Optional.of(9));
+        when(leaseRepository.renew(eq(3), anyString(), anyLong())).thenReturn(false);
+        OrderNumberGenerator generator = leasedGenerator(orderRepository, leaseRepository);
+        assertThat(nodeOf(generator.next())).isEqualTo(3);
+
+        generator.renewLease();
+
+        String number = generator.next();
+        assertThat(nodeOf(number)).isEqualTo(9);
+        assertThat(OrderNumberGenerator.decode(number.substring(13)) & OrderNumberGenerator.MAX_SEQUENCE)
+                .isGreaterThan(500);
+    }
+
+    @Test
+    void lostLeaseWithNoFreeNodeIdStopsIssuing() {
+        OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+        when(leaseRepository.claim(anyString(), anyLong(), anyInt())).thenReturn(Optional.of(3), Optional.empty());
+        when(leaseRepository.renew(anyInt(), anyString(), anyLong())).thenReturn(false);
+        OrderNumberGenerator generator = leasedGenerator(null, leaseRepository);
+        generator.next();
+
+        generator.renewLease();
+
+        assertThatThrownBy(generator::next).isInstanceOf(OrderServiceException.class);
+    }
+
+    @Test
+    void failedRenewalKeepsTheLeaseUntilItLapses() {
+        OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+        when(leaseRepository.claim(anyString(), anyLong(), anyInt())).thenReturn(Optional.of(3));
+        when(leaseRepository.renew(anyInt(), anyString(), anyLong())).thenThrow(new IllegalStateException("db down"));
+        OrderNumberGenerator generator = leasedGenerator(null, leaseRepository);
+
+        generator.renewLease();
+
+        assertThat(nodeOf(generator.next())).isEqualTo(3);
+        verify(leaseRepository, times(1)).claim(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void startupFailsWhenEveryNodeIdIsLeased() {
+        OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+        when(leaseRepository.claim(anyString(), anyLong(), anyInt())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> leasedGenerator(null, leaseRepository)).isInstanceOf(OrderServiceException.class);
+    }
+
+    @Test
+    void leasingNeedsTheLeaseRepository() {
+        assertThatThrownBy(() -> new OrderNumberGenerator(null, OrderNumberGenerator.LEASED, 16, 1, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Rough throughput check; run on its own for meaningful numbers
+    @Test
+    void throughput() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perThread = 500_000;
+        OrderNumberGenerator generator = generator(3, 256);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int length = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        length += generator.next().length();
+                    }
+                    return length;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            long total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            double seconds = (System.nanoTime() - began) / 1e9;
+
+            assertThat(total).isEqualTo((long) threads * perThread * OrderNumberGenerator.ORDER_NUMBER_LENGTH);
+            logger.info("Generated {} order numbers on {} threads in {} s ({} per second)",
+                    threads * perThread, threads, String.format("%.3f", seconds),
+                    String.format("%,.0f", threads * perThread / seconds));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private OrderNumberGenerator generator(int nodeId, int blockSize) {
+        OrderNumberGenerator generator = new OrderNumberGenerator(null, nodeId, blockSize, 64, clock);
+        generator.init();
+        return generator;
+    }
+
+    private OrderNumberGenerator leasedGenerator(OrderRepository orderRepository,
+                                                 OrderNumberLeaseRepository leaseRepository) {
+        OrderNumberGenerator generator = new OrderNumberGenerator(orderRepository, leaseRepository,
+                OrderNumberGenerator.LEASED, 16, 60, 0, null, 1, clock);
+        generator.init();
+        return generator;
+    }
+
+    private static long nodeOf(String number) {
+        return OrderNumberGenerator.decode(number.substring(13)) >>> OrderNumberGenerator.SEQUENCE_BITS;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.config.ConcurrencyConfig;
+import com.shah_s.bakery_order_service.repository.OrderNumberLeaseRepository;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// The node id lease must stay live while @Scheduled jobs (outbox runs, sweeps, flushes) hold
+// Spring's single scheduler thread: a 2 s lease is only trusted for 1 s, and the shared scheduler
+// is blocked for 3 s.
+@SpringJUnitConfig(OrderNumberLeaseRenewalTests.Config.class)
+class OrderNumberLeaseRenewalTests {
+
+    @Configuration
+    @EnableScheduling
+    @Import(ConcurrencyConfig.class)
+    static class Config {
+
+        @Bean
+        OrderNumberLeaseRepository leaseRepository() {
+            OrderNumberLeaseRepository leaseRepository = mock(OrderNumberLeaseRepository.class);
+            when(leaseRepository.claim(anyString(), anyLong(), anyInt())).thenReturn(Optional.of(7));
+            when(leaseRepository.renew(anyInt(), anyString(), anyLong())).thenReturn(true);
+            return leaseRepository;
+        }
+
+        @Bean
+        OrderNumberGenerator orderNumberGenerator(OrderNumberLeaseRepository leaseRepository,
+                                                  @Qualifier("leaseRenewalScheduler") ScheduledExecutorService scheduler) {
+            return new OrderNumberGenerator(mock(OrderRepository.class), leaseRepository, OrderNumberGenerator.LEASED,
+                    16, 2, 200, scheduler, 1, Clock.systemDefaultZone());
+        }
+
+        @Bean
+        SlowJob slowJob() {
+            return new SlowJob();
+        }
+    }
+
+    // Stands in for a slow outbox run or sweep on the shared scheduler thread
+    static class SlowJob {
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        @Scheduled(fixedDelay = 60_000)
+        public void run() throws InterruptedException {
+            started.countDown();
+            Thread.sleep(3_000);
+        }
+    }
+
+    @Autowired
+    private OrderNumberGenerator generator;
+
+    @Autowired
+    private OrderNumberLeaseRepository leaseRepository;
+
+    @Autowired
+    private SlowJob slowJob;
+
+    @Test
+    void numbersKeepComingWhileTheSharedSchedulerIsBlocked() throws Exception {
+        assertThat(slowJob.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Past the lease validity, with the shared scheduler thread still busy
+        Thread.sleep(1_500);
+
+        assertThat(generator.next()).startsWith("ORD-");
+        verify(leaseRepository, atLeast(3)).renew(eq(7), anyString(), eq(2L));
+    }
+}
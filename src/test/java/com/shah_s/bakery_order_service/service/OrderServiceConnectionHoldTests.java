@@ -0,0 +1,182 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.config.ConnectionHoldTrackingDataSource;
+import com.shah_s.bakery_order_service.dto.OrderItemRequest;
+import com.shah_s.bakery_order_service.dto.OrderRequest;
+import com.shah_s.bakery_order_service.dto.OrderResponse;
+import com.shah_s.bakery_order_service.dto.ProductSnapshot;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// createOrder runs in three phases; only the middle one may hold a pooled connection. The pool is a
+// mock behind the real tracking wrapper and transaction manager, and every collaborator checks how
+// many connections are borrowed at the moment it is called.
+class OrderServiceConnectionHoldTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger borrowed = new AtomicInteger();
+
+    // Each collaborator call, with the number of connections borrowed at that moment
+    private final List<String> observed = new ArrayList<>();
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final ProductServiceClient productServiceClient = mock(ProductServiceClient.class);
+    private final ProductLookupService productLookupService = mock(ProductLookupService.class);
+    private final OutboxDispatcher outboxDispatcher = mock(OutboxDispatcher.class);
+    private final OrderNumberGenerator orderNumberGenerator = mock(OrderNumberGenerator.class);
+    private OrderService orderService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> {
+            borrowed.incrementAndGet();
+            Connection connection = mock(Connection.class);
+            doAnswer(close -> borrowed.decrementAndGet()).when(connection).close();
+            return connection;
+        });
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable()).thenReturn(meterRegistry);
+        DataSource dataSource = new ConnectionHoldTrackingDataSource(pool, registryProvider);
+
+        when(orderNumberGenerator.next()).thenReturn("ORD-1");
+        when(productLookupService.lookupItems(anyList())).thenAnswer(invocation -> {
+            observe("lookup");
+            List<OrderItemRequest> items = invocation.getArgument(0);
+            return items.stream().map(OrderServiceConnectionHoldTests::lookup).toList();
+        });
+        when(productServiceClient.reserveStock(any(), anyMap())).thenAnswer(invocation -> {
+            observe("reserve");
+            return Map.of("success", true);
+        });
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            observe("save");
+            Order order = invocation.getArgument(0);
+            order.setId(UUID.randomUUID());
+            return order;
+        });
+        doAnswer(invocation -> observe("enqueue")).when(outboxDispatcher)
+                .enqueue(any(), eq(OutboxEvent.EventType.PAYMENT_CREATE), anyMap());
+        doAnswer(invocation -> observe("dispatch")).when(outboxDispatcher).dispatchSoon();
+
+        orderService = new OrderService(orderRepository, mock(OrderQueryRepository.class), productServiceClient,
+                productLookupService, outboxDispatcher, orderNumberGenerator,
+                new DataSourceTransactionManager(dataSource), meterRegistry, event -> observe("event"));
+        ReflectionTestUtils.setField(orderService, "taxRate", new BigDecimal("0.08"));
+        ReflectionTestUtils.setField(orderService, "defaultDeliveryTimeMinutes", 60);
+        ReflectionTestUtils.setField(orderService, "maxItemsPerOrder", 50);
+        ReflectionTestUtils.setField(orderService, "maxOrderValue", new BigDecimal("500.00"));
+    }
+
+    @Test
+    void onlyTheWritePhaseHoldsAConnection() {
+        OrderResponse response = orderService.createOrder(request(2));
+
+        assertEquals("ORD-1", response.getOrderNumber());
+        assertEquals(List.of("lookup:0", "reserve:0", "reserve:0", "save:1", "event:1", "enqueue:1", "dispatch:0"),
+                observed);
+        assertEquals(0, borrowed.get());
+
+        // One connection, borrowed and returned inside the write phase
+        List<String> phases = meterRegistry.find("order.db.connection.hold").timers().stream()
+                .map(timer -> timer.getId().getTag("phase"))
+                .toList();
+        assertEquals(List.of("create-order.db-write"), phases);
+        assertEquals(1, meterRegistry.get("order.db.connection.hold").timer().count());
+        assertEquals(Set.of("remote-precheck", "db-write", "post-commit"), meterRegistry.find("order.create.phase")
+                .timers().stream().map(timer -> timer.getId().getTag("phase")).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void failedPrecheckNeverBorrowsAConnection() {
+        doAnswer(invocation -> {
+            observe("reserve");
+            return Map.of("success", false);
+        }).when(productServiceClient).reserveStock(any(), anyMap());
+
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(request(1)));
+
+        assertEquals(List.of("lookup:0", "reserve:0"), observed);
+        assertNull(meterRegistry.find("order.db.connection.hold").timer());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void failedPostCommitStepKeepsTheCommittedOrderAndItsStock() {
+        doThrow(new RejectedExecutionException("executor shut down")).when(outboxDispatcher).dispatchSoon();
+
+        OrderResponse response = orderService.createOrder(request(2));
+
+        assertEquals("ORD-1", response.getOrderNumber());
+        assertEquals(List.of("lookup:0", "reserve:0", "reserve:0", "save:1", "event:1", "enqueue:1"), observed);
+        verify(productServiceClient, never()).releaseReservedStock(any(), anyMap());
+    }
+
+    @Test
+    void failedWriteReleasesTheReservedStock() {
+        when(orderRepository.save(any(Order.class))).thenThrow(new IllegalStateException("constraint violated"));
+
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(request(2)));
+
+        verify(productServiceClient, times(2)).releaseReservedStock(any(), anyMap());
+        verify(outboxDispatcher, never()).dispatchSoon();
+    }
+
+    private Object observe(String step) {
+        observed.add(step + ":" + borrowed.get());
+        return null;
+    }
+
+    private static OrderRequest request(int items) {
+        OrderRequest request = new OrderRequest();
+        request.setUserId(UUID.randomUUID());
+        request.setCustomerName("Customer");
+        request.setCustomerEmail("customer@example.com");
+        request.setDeliveryType(Order.DeliveryType.PICKUP);
+        request.setPaymentMethod("CARD");
+        request.setPaymentAmount(new BigDecimal("100.00"));
+        for (int i = 0; i < items; i++) {
+            request.getItems().add(new OrderItemRequest(UUID.randomUUID(), 1));
+        }
+        return request;
+    }
+
+    private static ProductLookupService.ItemLookup lookup(OrderItemRequest item) {
+        ProductLookupService.ItemLookup lookup = new ProductLookupService.ItemLookup(item);
+        ReflectionTestUtils.setField(lookup, "product", ProductSnapshot.from(item.getProductId(),
+                Map.of("sku", "SKU", "name", "Product", "effectivePrice", 2.0), 1));
+        ReflectionTestUtils.setField(lookup, "stock", Map.of("sufficient", true));
+        return lookup;
+    }
+}
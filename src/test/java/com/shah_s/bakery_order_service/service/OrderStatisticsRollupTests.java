@@ -0,0 +1,93 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Rollup-backed statistics must agree with aggregating the orders table directly,
+// both when maintained through events and after a rebuild
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderStatisticsService.class)
+class OrderStatisticsRollupTests {
+
+    @Autowired
+    private OrderStatisticsService statisticsService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rollupsMatchTheOrdersTableThroughEventsAndRebuilds() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Order order = TestOrders.order(i % 3 == 0 ? Order.DeliveryType.DELIVERY : Order.DeliveryType.PICKUP);
+            order.setOrderNumber("ORD-STATS-" + i);
+            order.setDiscountAmount(i % 5 == 0 ? new BigDecimal("0.50") : BigDecimal.ZERO);
+            order.setDeliveryFee(order.getDeliveryType() == Order.DeliveryType.DELIVERY ? new BigDecimal("5.00") : BigDecimal.ZERO);
+            TestOrders.addItem(order, UUID.randomUUID(), "Bagel", 1 + i % 4, new BigDecimal("2.25"));
+            entityManager.persist(order);
+            statisticsService.onOrderCreated(new OrderCreatedEvent(order));
+            orders.add(order);
+        }
+        for (int i = 0; i < orders.size(); i += 2) {
+            Order order = orders.get(i);
+            Order.OrderStatus previous = order.getStatus();
+            order.setStatus(i % 4 == 0 ? Order.OrderStatus.CANCELLED : Order.OrderStatus.DELIVERED);
+            statisticsService.onOrderStatusChanged(new OrderStatusChangedEvent(order, previous));
+        }
+        statisticsService.flush();
+        entityManager.flush();
+
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusHours(1);
+        Map<String, Object> expectedRevenue = directRevenue();
+
+        assertRevenue(expectedRevenue, statisticsService.getRevenueStatistics(start, end));
+        assertEquals(30L, statisticsService.getOrderStatistics(start, end).get("totalOrders"));
+        assertEquals(8L, statisticsService.getOrderStatistics(start, end).get("cancelledOrders"));
+
+        jdbcTemplate.update("UPDATE order_stats_hourly SET order_count = 0, gross_amount = 0");
+        statisticsService.rebuild(start, end);
+
+        assertRevenue(expectedRevenue, statisticsService.getRevenueStatistics(start, end));
+        Map<String, Object> today = statisticsService.getDailyOrderStatistics(start, end).getFirst();
+        assertEquals(30L, today.get("orderCount"));
+    }
+
+    private Map<String, Object> directRevenue() {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*) AS orders, SUM(total_amount) AS gross, SUM(tax_amount) AS tax, " +
+                "SUM(discount_amount) AS discounts, SUM(delivery_fee) AS delivery_fees " +
+                "FROM orders WHERE status <> 'CANCELLED'");
+    }
+
+    private static void assertRevenue(Map<String, Object> expected, Map<String, Object> actual) {
+        assertEquals(((Number) expected.get("orders")).longValue(), actual.get("totalOrders"));
+        assertEquals(0, ((BigDecimal) expected.get("gross")).compareTo((BigDecimal) actual.get("totalRevenue")));
+        assertEquals(0, ((BigDecimal) expected.get("tax")).compareTo((BigDecimal) actual.get("totalTax")));
+        assertEquals(0, ((BigDecimal) expected.get("discounts")).compareTo((BigDecimal) actual.get("totalDiscounts")));
+        assertEquals(0, ((BigDecimal) expected.get("delivery_fees")).compareTo((BigDecimal) actual.get("totalDeliveryFees")));
+    }
+}
@@ -0,0 +1,144 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OrderStatisticsServiceTests {
+
+    private final LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 10, 42, 7);
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderStatisticsService statisticsService;
+
+    // Upserted rows as "bucket status deliveryType count gross"
+    private final List<String> upserts = new ArrayList<>();
+
+    private final Answer<int[]> recordUpserts = invocation -> {
+        BatchPreparedStatementSetter rows = invocation.getArgument(1);
+        for (int i = 0; i < rows.getBatchSize(); i++) {
+            List<Object> values = new ArrayList<>();
+            PreparedStatement ps = mock(PreparedStatement.class);
+            doAnswer(a -> values.add(a.getArgument(1))).when(ps).setObject(anyInt(), any());
+            doAnswer(a -> values.add(a.getArgument(1))).when(ps).setString(anyInt(), anyString());
+            doAnswer(a -> values.add(a.getArgument(1))).when(ps).setLong(anyInt(), anyLong());
+            doAnswer(a -> values.add(a.getArgument(1))).when(ps).setBigDecimal(anyInt(), any());
+            rows.setValues(ps, i);
+            upserts.add(values.get(0) + " " + values.get(1) + " " + values.get(2) + " " + values.get(3) + " " + values.get(4));
+        }
+        return new int[rows.getBatchSize()];
+    };
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(recordUpserts);
+        statisticsService = new OrderStatisticsService(jdbcTemplate, new NoOpTransactionManager());
+    }
+
+    @Test
+    void newOrderIsAddedToTheBucketOfTheHourItWasCreatedIn() {
+        statisticsService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, Order.DeliveryType.PICKUP)));
+        // Nothing is written from the order's own commit
+        verifyNoInteractions(jdbcTemplate);
+
+        statisticsService.flush();
+
+        assertEquals(List.of("2025-03-14T10:00 PENDING PICKUP 1 5.40"), upserts);
+    }
+
+    @Test
+    void statusChangeMovesTheOrderBetweenStatusRows() {
+        Order order = order(Order.OrderStatus.CONFIRMED, Order.DeliveryType.DELIVERY);
+
+        statisticsService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+        statisticsService.flush();
+
+        // Rows are written in key order so concurrent flushes lock them in the same order
+        assertEquals(List.of("2025-03-14T10:00 PENDING DELIVERY -1 -5.40",
+                "2025-03-14T10:00 CONFIRMED DELIVERY 1 5.40"), upserts);
+    }
+
+    @Test
+    void unchangedStatusWritesNothing() {
+        Order order = order(Order.OrderStatus.PENDING, Order.DeliveryType.PICKUP);
+
+        statisticsService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.PENDING));
+        statisticsService.flush();
+
+        assertTrue(upserts.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void importedOrdersAreMergedPerBucketBeforeWriting() {
+        List<Order> orders = List.of(
+                order(Order.OrderStatus.DELIVERED, Order.DeliveryType.PICKUP),
+                order(Order.OrderStatus.DELIVERED, Order.DeliveryType.PICKUP),
+                order(Order.OrderStatus.CANCELLED, Order.DeliveryType.PICKUP));
+
+        statisticsService.onOrdersImported(new OrdersImportedEvent(orders));
+        statisticsService.flush();
+
+        assertEquals(List.of("2025-03-14T10:00 CANCELLED PICKUP 1 5.40",
+                "2025-03-14T10:00 DELIVERED PICKUP 2 10.80"), upserts.stream().sorted().toList());
+    }
+
+    @Test
+    void ordersOfOneFlushAreSummedIntoOneWritePerRow() {
+        for (int i = 0; i < 5; i++) {
+            statisticsService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, Order.DeliveryType.PICKUP)));
+        }
+        Order confirmed = order(Order.OrderStatus.CONFIRMED, Order.DeliveryType.PICKUP);
+        statisticsService.onOrderStatusChanged(new OrderStatusChangedEvent(confirmed, Order.OrderStatus.PENDING));
+
+        statisticsService.flush();
+
+        assertEquals(List.of("2025-03-14T10:00 PENDING PICKUP 4 21.60",
+                "2025-03-14T10:00 CONFIRMED PICKUP 1 5.40"), upserts);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void deltasOfAFailedFlushAreWrittenByTheNextOne() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenAnswer(recordUpserts);
+        statisticsService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, Order.DeliveryType.PICKUP)));
+        statisticsService.flush();
+        statisticsService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, Order.DeliveryType.PICKUP)));
+
+        statisticsService.flush();
+
+        assertEquals(List.of("2025-03-14T10:00 PENDING PICKUP 2 10.80"), upserts);
+    }
+
+    private Order order(Order.OrderStatus status, Order.DeliveryType deliveryType) {
+        Order order = TestOrders.order(deliveryType);
+        TestOrders.addItem(order, UUID.randomUUID(), "Bagel", 2, new BigDecimal("2.50"));
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
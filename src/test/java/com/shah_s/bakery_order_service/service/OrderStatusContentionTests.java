@@ -0,0 +1,258 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.client.PaymentServiceClient;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.dto.OrderStatusUpdateRequest;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Status changes racing on the same orders must never overwrite each other: every change that
+// reports success is in the row exactly once (one version bump each), losers see the winner's
+// status, and side effects (stock calls) are queued once per change, never made while the row is
+// being written. Runs outside a test transaction so each service call commits on its own
+// connection, as in production. The scenarios run on H2 in every build and on PostgreSQL under
+// the postgresTest task.
+@DataJpaTest(properties = "order.status.max-attempts=3")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, OrderQueryRepository.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+abstract class OrderStatusContentionTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusContentionTests.class);
+
+    private static final int ITEMS_PER_ORDER = 2;
+
+    private static final Map<Order.OrderStatus, Order.OrderStatus> NEXT = Map.of(
+            Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED,
+            Order.OrderStatus.CONFIRMED, Order.OrderStatus.PREPARING,
+            Order.OrderStatus.PREPARING, Order.OrderStatus.READY,
+            Order.OrderStatus.READY, Order.OrderStatus.OUT_FOR_DELIVERY,
+            Order.OrderStatus.OUT_FOR_DELIVERY, Order.OrderStatus.DELIVERED);
+
+    // The conditional UPDATE is plain JPQL, and H2 takes row locks for it as PostgreSQL does
+    @TestPropertySource(properties = {
+            "spring.datasource.url=jdbc:h2:mem:contention;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"})
+    static class OnH2 extends OrderStatusContentionTests {
+    }
+
+    @PostgresTest
+    static class OnPostgres extends OrderStatusContentionTests {
+    }
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @MockitoBean
+    private PaymentServiceClient paymentServiceClient;
+
+    @MockitoBean
+    private ProductLookupService productLookupService;
+
+    @MockitoBean
+    private OutboxDispatcher outboxDispatcher;
+
+    @MockitoBean
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void kitchenStartRacingACancellationHasExactlyOneWinner() throws Exception {
+        // From CONFIRMED either change is valid, but neither is valid after the other
+        List<UUID> orderIds = createOrders(100, Order.OrderStatus.CONFIRMED);
+        AtomicInteger preparing = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (UUID orderId : orderIds) {
+                calls.add(executor.submit(() -> race(start, rejected, () -> {
+                    OrderStatusUpdateRequest request = new OrderStatusUpdateRequest();
+                    request.setStatus(Order.OrderStatus.PREPARING);
+                    orderService.updateOrderStatus(orderId, request);
+                    preparing.incrementAndGet();
+                })));
+                calls.add(executor.submit(() -> race(start, rejected, () -> {
+                    orderService.cancelOrder(orderId, "Changed my mind");
+                    cancelled.incrementAndGet();
+                })));
+            }
+            start.countDown();
+            for (Future<?> call : calls) {
+                call.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(orderIds.size(), preparing.get() + cancelled.get());
+        assertEquals(orderIds.size(), rejected.get());
+        for (UUID orderId : orderIds) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT status, version, cancelled_at, cancellation_reason FROM orders WHERE id = ?", orderId);
+            assertEquals(1L, ((Number) row.get("version")).longValue());
+            boolean wasCancelled = "CANCELLED".equals(row.get("status"));
+            assertTrue(wasCancelled || "PREPARING".equals(row.get("status")), "order " + orderId);
+            assertEquals(wasCancelled, row.get("cancelled_at") != null, "order " + orderId);
+            assertEquals(wasCancelled, row.get("cancellation_reason") != null, "order " + orderId);
+        }
+        // Stock release and payment cancellation are queued once per winning cancellation, never for an
+        // order the kitchen started, and delivered by the outbox after commit
+        verify(outboxDispatcher, times(cancelled.get() * ITEMS_PER_ORDER))
+                .enqueue(any(), eq(OutboxEvent.EventType.STOCK_RELEASE), anyMap());
+        verify(outboxDispatcher, times(cancelled.get()))
+                .enqueue(any(), eq(OutboxEvent.EventType.PAYMENT_CANCEL), anyMap());
+        verifyNoInteractions(productServiceClient, paymentServiceClient);
+    }
+
+    @Test
+    void contendedLifecycleLosesNoTransitions() throws Exception {
+        int orders = 20;
+        int threads = 16;
+        List<UUID> orderIds = createOrders(orders, Order.OrderStatus.PENDING);
+        AtomicInteger transitions = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Every thread walks every order to DELIVERED, so each step is attempted by all of them at once
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        long started;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < orders; i++) {
+                        UUID orderId = orderIds.get((i + offset) % orders);
+                        Order.OrderStatus status;
+                        while ((status = orderRepository.findById(orderId).orElseThrow().getStatus())
+                                != Order.OrderStatus.DELIVERED) {
+                            OrderStatusUpdateRequest request = new OrderStatusUpdateRequest();
+                            request.setStatus(NEXT.get(status));
+                            try {
+                                orderService.updateOrderStatus(orderId, request);
+                                transitions.incrementAndGet();
+                            } catch (OrderServiceException | OptimisticLockingFailureException e) {
+                                rejected.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            started = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(120, TimeUnit.SECONDS);
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        assertEquals(orders * NEXT.size(), transitions.get());
+        for (UUID orderId : orderIds) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT status, version, confirmed_at, ready_at, completed_at FROM orders WHERE id = ?", orderId);
+            assertEquals("DELIVERED", row.get("status"));
+            // One version bump per transition: none was applied twice or overwritten
+            assertEquals((long) NEXT.size(), ((Number) row.get("version")).longValue());
+            assertNotNull(row.get("confirmed_at"));
+            assertNotNull(row.get("ready_at"));
+            assertNotNull(row.get("completed_at"));
+        }
+        verify(outboxDispatcher, times(orders * ITEMS_PER_ORDER))
+                .enqueue(any(), eq(OutboxEvent.EventType.STOCK_CONSUME), anyMap());
+        verifyNoInteractions(productServiceClient);
+
+        logger.info("{} transitions by {} threads in {} s ({} transitions/s), {} rejected, {} write conflicts retried",
+                transitions.get(), threads, String.format("%.2f", seconds), Math.round(transitions.get() / seconds),
+                rejected.get(), (long) meterRegistry.get("orders.status.conflicts").counter().count());
+    }
+
+    private void race(CountDownLatch start, AtomicInteger rejected, Runnable call) {
+        try {
+            start.await();
+            call.run();
+        } catch (OrderServiceException e) {
+            // Lost the race: the winner's status no longer allows this change
+            rejected.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<UUID> createOrders(int count, Order.OrderStatus status) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(UUID.randomUUID(), "Customer " + i, "c" + i + "@example.com",
+                    Order.DeliveryType.DELIVERY);
+            order.setOrderNumber("ORD-RACE-" + i);
+            order.setStatus(status);
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                order.addOrderItem(new OrderItem(order, UUID.randomUUID(), "SKU-" + j, "Product " + j, 1,
+                        new BigDecimal("2.00")));
+            }
+            order.calculateTotals(new BigDecimal("0.08"));
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+}
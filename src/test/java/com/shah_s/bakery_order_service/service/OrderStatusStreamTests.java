@@ -0,0 +1,178 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.dto.OrderStatusNotification;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.repository.OrderQueryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderStatusStreamTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderQueryRepository repository = mock(OrderQueryRepository.class);
+    private OrderStatusStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new OrderStatusStream(repository, meterRegistry, 4, 15, 100);
+    }
+
+    @Test
+    void orderStreamSendsTheCurrentStatusThenChangesUntilDelivered() {
+        Order order = order(Order.OrderStatus.CONFIRMED);
+        Order other = order(Order.OrderStatus.CONFIRMED);
+
+        StepVerifier.create(stream.forOrder(OrderStatusNotification.snapshot(order)))
+                .assertNext(event -> assertEvent(event, "snapshot", Order.OrderStatus.CONFIRMED))
+                .then(() -> {
+                    change(other, Order.OrderStatus.PREPARING);
+                    change(order, Order.OrderStatus.PREPARING);
+                    change(order, Order.OrderStatus.READY);
+                    change(order, Order.OrderStatus.DELIVERED);
+                })
+                .assertNext(event -> assertEvent(event, "status", Order.OrderStatus.PREPARING))
+                .assertNext(event -> assertEvent(event, "status", Order.OrderStatus.READY))
+                .assertNext(event -> {
+                    assertEvent(event, "status", Order.OrderStatus.DELIVERED);
+                    assertEquals(Order.OrderStatus.READY, event.data().getPreviousStatus());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, stream.subscriberCount());
+    }
+
+    @Test
+    void changeCommittedBetweenTheSnapshotReadAndTheSubscriptionIsReplayed() {
+        Order order = order(Order.OrderStatus.CONFIRMED);
+        order.setUpdatedAt(LocalDateTime.now().minusSeconds(1));
+        OrderStatusNotification snapshot = OrderStatusNotification.snapshot(order);
+        change(order, Order.OrderStatus.PREPARING);
+
+        StepVerifier.create(stream.forOrder(snapshot))
+                .assertNext(event -> assertEvent(event, "snapshot", Order.OrderStatus.CONFIRMED))
+                .assertNext(event -> {
+                    assertEvent(event, "snapshot", Order.OrderStatus.PREPARING);
+                    assertEquals(Order.OrderStatus.CONFIRMED, event.data().getPreviousStatus());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        // A snapshot read after the change gets nothing replayed
+        StepVerifier.create(stream.forOrder(OrderStatusNotification.snapshot(order)))
+                .assertNext(event -> assertEvent(event, "snapshot", Order.OrderStatus.PREPARING))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void statusStreamSeesOrdersEnteringAndLeavingTheStatus() {
+        Order waiting = order(Order.OrderStatus.CONFIRMED);
+        when(repository.findStatusesByStatus(Order.OrderStatus.CONFIRMED))
+                .thenReturn(List.of(OrderStatusNotification.snapshot(waiting)));
+        Order placed = order(Order.OrderStatus.PENDING);
+
+        StepVerifier.create(stream.forStatus(Order.OrderStatus.CONFIRMED))
+                .assertNext(event -> assertEquals(waiting.getId(), event.data().getOrderId()))
+                .then(() -> {
+                    stream.onOrderCreated(new OrderCreatedEvent(placed));
+                    change(placed, Order.OrderStatus.CONFIRMED);
+                    change(waiting, Order.OrderStatus.PREPARING);
+                })
+                .assertNext(event -> {
+                    assertEquals(placed.getId(), event.data().getOrderId());
+                    assertEquals(Order.OrderStatus.CONFIRMED, event.data().getStatus());
+                })
+                .assertNext(event -> {
+                    assertEquals(waiting.getId(), event.data().getOrderId());
+                    assertEquals(Order.OrderStatus.PREPARING, event.data().getStatus());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutHoldingBackOthers() {
+        UUID userId = UUID.randomUUID();
+        when(repository.findStatusesByUserIdAndStatusIn(any(), any())).thenReturn(List.of());
+        List<OrderStatusNotification> fast = new CopyOnWriteArrayList<>();
+        stream.forUser(userId).subscribe(event -> fast.add(event.data()));
+
+        // The slow subscriber requests nothing until 200 changes were published
+        StepVerifier.create(stream.forUser(userId), 0)
+                .then(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        Order order = order(Order.OrderStatus.PENDING);
+                        order.setUserId(userId);
+                        stream.onOrderCreated(new OrderCreatedEvent(order));
+                    }
+                })
+                .thenRequest(Long.MAX_VALUE)
+                // Only what fit in its bounded buffers is delivered before it is cut off
+                .recordWith(ArrayList::new)
+                .thenConsumeWhile(event -> "status".equals(event.event()))
+                .consumeRecordedWith(buffered -> assertTrue(buffered.size() < 50, "buffered " + buffered.size()))
+                .assertNext(event -> assertEquals("dropped", event.event()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(200, fast.size());
+        assertEquals(1.0, meterRegistry.get("orders.stream.dropped").counter().count());
+        assertEquals(1, stream.subscriberCount());
+    }
+
+    @Test
+    void idleStreamsGetHeartbeats() {
+        when(repository.findStatusesByUserIdAndStatusIn(any(), any())).thenReturn(List.of());
+
+        StepVerifier.withVirtualTime(() -> stream.forUser(UUID.randomUUID()))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofSeconds(14))
+                .thenAwait(Duration.ofSeconds(1))
+                .assertNext(event -> {
+                    assertNull(event.data());
+                    assertEquals("heartbeat", event.comment());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private void change(Order order, Order.OrderStatus status) {
+        Order.OrderStatus previous = order.getStatus();
+        order.setStatus(status);
+        order.setUpdatedAt(LocalDateTime.now());
+        stream.onOrderStatusChanged(new OrderStatusChangedEvent(order, previous));
+    }
+
+    private static void assertEvent(ServerSentEvent<OrderStatusNotification> event, String name,
+                                    Order.OrderStatus status) {
+        assertEquals(name, event.event());
+        assertEquals(status, event.data().getStatus());
+    }
+
+    private static Order order(Order.OrderStatus status) {
+        Order order = TestOrders.saved();
+        order.setStatus(status);
+        order.setUpdatedAt(LocalDateTime.now());
+        return order;
+    }
+}
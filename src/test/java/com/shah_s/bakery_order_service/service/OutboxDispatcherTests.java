@@ -0,0 +1,275 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.client.StubPaymentServiceClient;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTests {
+
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+    private final Map<UUID, OutboxEvent> table = outbox.table;
+    private final StubPaymentServiceClient paymentService = new StubPaymentServiceClient();
+    private final ProductServiceClient productService = mock(ProductServiceClient.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxEventRepository repository;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = outbox.repository;
+        dispatcher = new OutboxDispatcher(repository, paymentService, productService, new ObjectMapper(),
+                new NoOpTransactionManager(), executor, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deliversEveryPendingEventWithAnIdempotencyKey() {
+        for (int i = 0; i < 25; i++) {
+            dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.PAYMENT_CREATE, Map.of("amount", 12.5));
+        }
+
+        dispatcher.dispatchPending();
+
+        assertEquals(25, paymentService.createdPayments.size());
+        assertTrue(table.values().stream().allMatch(event -> event.getStatus() == OutboxEvent.OutboxStatus.DISPATCHED));
+        assertEquals(25, paymentService.createdPayments.stream().map(p -> p.get("idempotencyKey")).distinct().count());
+        assertEquals(0.0, dispatcher.getLagSeconds());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedUntilItSucceeds() {
+        OutboxEvent event = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.PAYMENT_CREATE, Map.of("amount", 3));
+        paymentService.failuresRemaining.set(2);
+        // Zero backoff would otherwise let one run retry the event in its next batch
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+
+        dispatcher.dispatchPending();
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, event.getStatus());
+        assertNotNull(event.getLastError());
+
+        dispatcher.dispatchPending();
+        dispatcher.dispatchPending();
+
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, event.getStatus());
+        assertEquals(3, event.getAttempts());
+        assertEquals(1, paymentService.createdPayments.size());
+    }
+
+    @Test
+    void eventIsMarkedFailedAfterMaxAttempts() {
+        OutboxEvent event = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.PAYMENT_CREATE, Map.of("amount", 3));
+        paymentService.failuresRemaining.set(100);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatchPending();
+        }
+
+        assertEquals(OutboxEvent.OutboxStatus.FAILED, event.getStatus());
+        assertEquals(3, event.getAttempts());
+        assertEquals(1.0, meterRegistry.get("order.outbox.failed.events").gauge().value());
+        assertEquals(0.0, dispatcher.getLagSeconds());
+    }
+
+    @Test
+    void lagKeepsRisingWhileDispatchFails() {
+        OutboxEvent event = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.PAYMENT_CREATE, Map.of("amount", 3));
+        event.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        when(repository.findDueForDispatch(any(LocalDateTime.class), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        dispatcher.dispatchPending();
+
+        assertTrue(paymentService.createdPayments.isEmpty());
+        assertTrue(dispatcher.getLagSeconds() >= 300);
+        assertEquals(0.0, meterRegistry.get("order.outbox.failed.events").gauge().value());
+    }
+
+    @Test
+    void stockEventsCallTheProductServiceForTheirItem() {
+        UUID orderId = UUID.randomUUID();
+        UUID bread = UUID.randomUUID();
+        UUID cake = UUID.randomUUID();
+        dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_CONSUME, Map.of("productId", bread, "quantity", 2));
+        dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_RELEASE, Map.of("productId", cake, "quantity", 3));
+
+        dispatcher.dispatchPending();
+
+        verify(productService).consumeStock(eq(bread), eq(Map.of("quantity", 2)), anyString());
+        verify(productService).releaseReservedStock(eq(cake), eq(Map.of("quantity", 3)), anyString());
+        assertTrue(table.values().stream().allMatch(event -> event.getStatus() == OutboxEvent.OutboxStatus.DISPATCHED));
+    }
+
+    @Test
+    void stockCallsCarryTheEventIdAsIdempotencyKey() {
+        UUID bread = UUID.randomUUID();
+        OutboxEvent event = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.STOCK_CONSUME,
+                Map.of("productId", bread, "quantity", 2));
+        when(productService.consumeStock(any(), anyMap(), anyString()))
+                .thenThrow(new IllegalStateException("read timed out"))
+                .thenReturn(Map.of("success", true));
+
+        dispatcher.dispatchPending();
+
+        // The redelivery after a lost response repeats the key, so product-service applies it once
+        verify(productService, times(2)).consumeStock(bread, Map.of("quantity", 2), event.getId().toString());
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, event.getStatus());
+    }
+
+    @Test
+    void stockCallsOfOneProductAreDeliveredInTheOrderTheyWereWritten() {
+        UUID orderId = UUID.randomUUID();
+        UUID bread = UUID.randomUUID();
+        UUID cake = UUID.randomUUID();
+        OutboxEvent consume = dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_CONSUME,
+                Map.of("productId", bread, "quantity", 2));
+        OutboxEvent release = dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_RELEASE,
+                Map.of("productId", bread, "quantity", 2));
+        OutboxEvent otherProduct = dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_RELEASE,
+                Map.of("productId", cake, "quantity", 3));
+        OutboxEvent otherOrder = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.STOCK_CONSUME,
+                Map.of("productId", bread, "quantity", 1));
+        when(productService.consumeStock(eq(bread), eq(Map.of("quantity", 2)), anyString()))
+                .thenThrow(new IllegalStateException("product-service unavailable"))
+                .thenReturn(Map.of("success", true));
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+
+        dispatcher.dispatchPending();
+
+        // The release waits behind the consume being retried; other products and orders are not held up
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, consume.getStatus());
+        assertEquals(0, release.getAttempts());
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, otherProduct.getStatus());
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, otherOrder.getStatus());
+
+        dispatcher.dispatchPending();
+        dispatcher.dispatchPending();
+
+        InOrder inOrder = inOrder(productService);
+        inOrder.verify(productService, times(2)).consumeStock(eq(bread), eq(Map.of("quantity", 2)), anyString());
+        inOrder.verify(productService).releaseReservedStock(eq(bread), anyMap(), anyString());
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, release.getStatus());
+    }
+
+    @Test
+    void failedEventNoLongerHoldsBackTheOrdersLaterEvents() {
+        UUID orderId = UUID.randomUUID();
+        UUID bread = UUID.randomUUID();
+        OutboxEvent consume = dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_CONSUME,
+                Map.of("productId", bread, "quantity", 2));
+        OutboxEvent release = dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_RELEASE,
+                Map.of("productId", bread, "quantity", 2));
+        when(productService.consumeStock(any(), anyMap(), anyString()))
+                .thenThrow(new IllegalStateException("product-service unavailable"));
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatchPending();
+        }
+
+        assertEquals(OutboxEvent.OutboxStatus.FAILED, consume.getStatus());
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, release.getStatus());
+    }
+
+    @Test
+    void paymentCancelWaitsForThePaymentToBeCreated() {
+        UUID orderId = UUID.randomUUID();
+        // Payment creation is still queued (leased by another dispatcher)
+        OutboxEvent create = dispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CREATE,
+                Map.of("orderId", orderId));
+        create.setNextAttemptAt(LocalDateTime.now().plusSeconds(30));
+        OutboxEvent cancel = dispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CANCEL,
+                Map.of("orderId", orderId, "reason", "Changed my mind"));
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+
+        dispatcher.dispatchPending();
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, cancel.getStatus());
+        assertEquals(0, cancel.getAttempts());
+
+        paymentService.createPayment(Map.of("orderId", orderId.toString()));
+        create.setStatus(OutboxEvent.OutboxStatus.DISPATCHED);
+        dispatcher.dispatchPending();
+
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, cancel.getStatus());
+        assertEquals("CANCELLED", paymentService.createdPayments.getFirst().get("status"));
+    }
+
+    @Test
+    void cancelledOrdersReleasesAreClaimedTogetherWhileItsPaymentIsRetried() {
+        UUID orderId = UUID.randomUUID();
+        paymentService.failuresRemaining.set(100);
+        OutboxEvent create = dispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CREATE,
+                Map.of("orderId", orderId));
+        List<OutboxEvent> releases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            releases.add(dispatcher.enqueue(orderId, OutboxEvent.EventType.STOCK_RELEASE,
+                    Map.of("productId", UUID.randomUUID(), "quantity", 1)));
+        }
+        OutboxEvent cancel = dispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CANCEL,
+                Map.of("orderId", orderId, "reason", "Expired"));
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+
+        dispatcher.dispatchPending();
+
+        // One batch returns all of the stock; only the payment cancel waits behind the failing create
+        assertTrue(releases.stream().allMatch(release -> release.getStatus() == OutboxEvent.OutboxStatus.DISPATCHED));
+        verify(productService, times(3)).releaseReservedStock(any(), eq(Map.of("quantity", 1)), anyString());
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, create.getStatus());
+        assertEquals(1, create.getAttempts());
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, cancel.getStatus());
+        assertEquals(0, cancel.getAttempts());
+    }
+
+    @Test
+    void paymentCancelWithoutAPaymentIsDone() {
+        UUID orderId = UUID.randomUUID();
+        OutboxEvent cancel = dispatcher.enqueue(orderId, OutboxEvent.EventType.PAYMENT_CANCEL,
+                Map.of("orderId", orderId, "reason", "Changed my mind"));
+
+        dispatcher.dispatchPending();
+
+        assertEquals(OutboxEvent.OutboxStatus.DISPATCHED, cancel.getStatus());
+        assertEquals(1, cancel.getAttempts());
+    }
+
+    @Test
+    void claimedEventIsNotPickedUpAgainWhileLeased() {
+        OutboxEvent event = dispatcher.enqueue(UUID.randomUUID(), OutboxEvent.EventType.PAYMENT_CREATE, Map.of("amount", 3));
+        event.setNextAttemptAt(LocalDateTime.now().plusSeconds(30));
+
+        dispatcher.dispatchPending();
+
+        assertTrue(paymentService.createdPayments.isEmpty());
+        assertTrue(dispatcher.getLagSeconds() >= 0);
+    }
+}
@@ -0,0 +1,244 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.client.StubPaymentServiceClient;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OutboxEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PendingOrderSweeperTests {
+
+    private final List<Order> table = new ArrayList<>();
+    private final List<Object> published = new CopyOnWriteArrayList<>();
+    // Orders a concurrent write (payment webhook, admin) changed after the sweeper read them
+    private final Set<UUID> changedConcurrently = new HashSet<>();
+    // Outbox events written by the sweeper, in order
+    private final List<Enqueued> enqueued = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutboxDispatcher outboxDispatcher = mock(OutboxDispatcher.class);
+    private final List<UUID> products = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private OrderRepository repository;
+    private PendingOrderSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OrderRepository.class);
+        // Keyset walk over the in-memory table, like the indexed query
+        when(repository.findPendingOrdersOlderThan(any(), any(), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime cutoff = invocation.getArgument(0);
+            LocalDateTime afterCreatedAt = invocation.getArgument(1);
+            UUID afterId = invocation.getArgument(2);
+            Pageable page = invocation.getArgument(3);
+            Comparator<Order> keyset = Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId);
+            return table.stream()
+                    .filter(order -> order.getStatus() == Order.OrderStatus.PENDING)
+                    .filter(order -> !order.getCreatedAt().isAfter(cutoff))
+                    .filter(order -> order.getCreatedAt().isAfter(afterCreatedAt)
+                            || order.getCreatedAt().equals(afterCreatedAt) && order.getId().compareTo(afterId) > 0)
+                    .sorted(keyset)
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        when(repository.countByStatusAndCreatedAtLessThanEqual(any(), any())).thenAnswer(invocation -> table.stream()
+                .filter(order -> order.getStatus() == invocation.getArgument(0))
+                .filter(order -> !order.getCreatedAt().isAfter(invocation.getArgument(1)))
+                .count());
+
+        // The conditional update; the sweeper mirrors a successful write onto the entity itself
+        when(repository.updateStatusIfUnchanged(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    UUID id = invocation.getArgument(0);
+                    Order order = table.stream().filter(o -> o.getId().equals(id)).findFirst().orElseThrow();
+                    boolean unchanged = !changedConcurrently.contains(id)
+                            && order.getStatus() == invocation.getArgument(1)
+                            && order.getVersion().equals(invocation.getArgument(2));
+                    return unchanged ? 1 : 0;
+                });
+        when(outboxDispatcher.enqueue(any(), any(), anyMap())).thenAnswer(invocation -> {
+            enqueued.add(new Enqueued(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+            return null;
+        });
+
+        sweeper = sweeper(outboxDispatcher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cancelsExpiredOrdersChunkByChunkAndQueuesTheirStockAndPayment() {
+        LocalDateTime expired = LocalDateTime.now().minusHours(2);
+        for (int i = 0; i < 25; i++) {
+            // Several orders share a creation time, so the keyset needs the id tie-breaker
+            table.add(order(expired.plusSeconds(i / 3), Order.OrderStatus.PENDING));
+        }
+        Order fresh = order(LocalDateTime.now(), Order.OrderStatus.PENDING);
+        Order confirmed = order(expired, Order.OrderStatus.CONFIRMED);
+        table.add(fresh);
+        table.add(confirmed);
+
+        sweeper.sweep();
+
+        assertEquals(25, table.stream().filter(order -> order.getStatus() == Order.OrderStatus.CANCELLED).count());
+        assertEquals(Order.OrderStatus.PENDING, fresh.getStatus());
+        assertEquals(Order.OrderStatus.CONFIRMED, confirmed.getStatus());
+        assertEquals(25, published.stream().filter(OrderStatusChangedEvent.class::isInstance).count());
+        // Each order holds 1 of every product and 2 more of the first
+        Map<Object, Integer> released = new HashMap<>();
+        enqueued.stream().filter(event -> event.type() == OutboxEvent.EventType.STOCK_RELEASE)
+                .forEach(event -> released.merge(event.payload().get("productId"),
+                        (Integer) event.payload().get("quantity"), Integer::sum));
+        assertEquals(Map.of(products.get(0), 75, products.get(1), 25, products.get(2), 25), released);
+        // As in a manual cancellation: each item's release, then the payment cancel, for every order
+        List<UUID> cancelledPayments = enqueued.stream()
+                .filter(event -> event.type() == OutboxEvent.EventType.PAYMENT_CANCEL)
+                .map(Enqueued::orderId)
+                .toList();
+        assertEquals(25, Set.copyOf(cancelledPayments).size());
+        assertEquals(100, enqueued.size());
+        assertEquals(OutboxEvent.EventType.PAYMENT_CANCEL, enqueued.get(3).type());
+        // Delivery starts after each chunk commits
+        verify(outboxDispatcher, times(3)).dispatchSoon();
+        assertEquals(25.0, meterRegistry.get("orders.sweeper.expired").counter().count());
+        assertEquals(0.0, meterRegistry.get("orders.sweeper.backlog").gauge().value());
+    }
+
+    @Test
+    void runStopsAfterMaxChunksAndReportsTheBacklog() {
+        LocalDateTime expired = LocalDateTime.now().minusHours(2);
+        for (int i = 0; i < 45; i++) {
+            table.add(order(expired.plusSeconds(i), Order.OrderStatus.PENDING));
+        }
+
+        sweeper.sweep();
+        assertEquals(15.0, meterRegistry.get("orders.sweeper.backlog").gauge().value());
+
+        sweeper.sweep();
+        assertEquals(0.0, meterRegistry.get("orders.sweeper.backlog").gauge().value());
+        // Three full chunks, then a full and a partial one
+        assertEquals(5, meterRegistry.get("orders.sweeper.chunk").timer().count());
+    }
+
+    @Test
+    void ordersChangedConcurrentlyAreSkippedWithoutFailingTheChunk() {
+        LocalDateTime expired = LocalDateTime.now().minusHours(2);
+        for (int i = 0; i < 11; i++) {
+            table.add(order(expired.plusSeconds(i), Order.OrderStatus.PENDING));
+        }
+        Order lost = table.get(3);
+        changedConcurrently.add(lost.getId());
+        changedConcurrently.add(table.get(10).getId());
+
+        sweeper.sweep();
+
+        assertEquals(9, table.stream().filter(order -> order.getStatus() == Order.OrderStatus.CANCELLED).count());
+        assertEquals(Order.OrderStatus.PENDING, lost.getStatus());
+        assertEquals(0L, lost.getVersion());
+        assertTrue(enqueued.stream().noneMatch(event -> changedConcurrently.contains(event.orderId())));
+        assertEquals(9, published.stream().filter(OrderStatusChangedEvent.class::isInstance).count());
+        assertEquals(2.0, meterRegistry.get("orders.sweeper.skipped").counter().count());
+        assertEquals(9.0, meterRegistry.get("orders.sweeper.expired").counter().count());
+        // The walk moved past the skipped orders: a full chunk, then one holding only a skipped order,
+        // which has nothing to deliver
+        assertEquals(2, meterRegistry.get("orders.sweeper.chunk").timer().count());
+        verify(outboxDispatcher, times(1)).dispatchSoon();
+    }
+
+    @Test
+    void nothingIsQueuedWhenNoOrderExpired() {
+        table.add(order(LocalDateTime.now(), Order.OrderStatus.PENDING));
+
+        sweeper.sweep();
+
+        assertTrue(enqueued.isEmpty());
+        verify(outboxDispatcher, never()).dispatchSoon();
+    }
+
+    @Test
+    void sweptOrdersReleasesAreDeliveredInOneDispatchRun() {
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        StubPaymentServiceClient paymentService = new StubPaymentServiceClient();
+        ProductServiceClient productService = mock(ProductServiceClient.class);
+        OutboxDispatcher dispatcher = spy(new OutboxDispatcher(outbox.repository, paymentService, productService,
+                new ObjectMapper(), new NoOpTransactionManager(), executor, meterRegistry));
+        // The run below is the first delivery
+        doNothing().when(dispatcher).dispatchSoon();
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 1);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 0L);
+        Order order = order(LocalDateTime.now().minusHours(2), Order.OrderStatus.PENDING);
+        table.add(order);
+        // The order's payment request is still being retried against a payment-service that is down
+        OutboxEvent create = dispatcher.enqueue(order.getId(), OutboxEvent.EventType.PAYMENT_CREATE,
+                Map.of("orderId", order.getId().toString()));
+        paymentService.failuresRemaining.set(100);
+
+        sweeper(dispatcher).sweep();
+        dispatcher.dispatchPending();
+
+        // Every item's stock is back after a single batch; the payment cancel waits for the create alone
+        verify(productService).releaseReservedStock(eq(products.get(0)), eq(Map.of("quantity", 3)), anyString());
+        verify(productService).releaseReservedStock(eq(products.get(1)), eq(Map.of("quantity", 1)), anyString());
+        verify(productService).releaseReservedStock(eq(products.get(2)), eq(Map.of("quantity", 1)), anyString());
+        List<OutboxEvent> events = outbox.events(order.getId());
+        assertEquals(5, events.size());
+        assertTrue(events.stream().filter(event -> event.getEventType() == OutboxEvent.EventType.STOCK_RELEASE)
+                .allMatch(event -> event.getStatus() == OutboxEvent.OutboxStatus.DISPATCHED));
+        assertEquals(1, create.getAttempts());
+        assertEquals(OutboxEvent.EventType.PAYMENT_CANCEL, events.getLast().getEventType());
+        assertEquals(OutboxEvent.OutboxStatus.PENDING, events.getLast().getStatus());
+        assertEquals(0, events.getLast().getAttempts());
+    }
+
+    private PendingOrderSweeper sweeper(OutboxDispatcher dispatcher) {
+        PendingOrderSweeper sweeper = new PendingOrderSweeper(repository, dispatcher, published::add,
+                new NoOpTransactionManager(), mock(ExecutorService.class), meterRegistry, 5);
+        ReflectionTestUtils.setField(sweeper, "enabled", true);
+        ReflectionTestUtils.setField(sweeper, "pendingTimeoutMinutes", 30L);
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 10);
+        ReflectionTestUtils.setField(sweeper, "maxChunksPerRun", 3);
+        return sweeper;
+    }
+
+    private Order order(LocalDateTime createdAt, Order.OrderStatus status) {
+        Order order = TestOrders.saved();
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setVersion(0L);
+        TestOrders.addItem(order, products.get(0), 3, new BigDecimal("2.00"));
+        TestOrders.addItem(order, products.get(1), 1, new BigDecimal("2.00"));
+        TestOrders.addItem(order, products.get(2), 1, new BigDecimal("2.00"));
+        return order;
+    }
+
+    private record Enqueued(UUID orderId, OutboxEvent.EventType type, Map<String, Object> payload) {}
+}
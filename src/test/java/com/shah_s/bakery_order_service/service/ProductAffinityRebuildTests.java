@@ -0,0 +1,99 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Pair counts kept by the order events must equal a parallel rebuild from history. Runs outside a
+// test transaction: the rebuild workers use their own connections and must see the orders.
+@PostgresTest
+@DataJpaTest(properties = "order.affinity.max-basket-products=3")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductAffinityService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductAffinityRebuildTests {
+
+    @Autowired
+    private ProductAffinityService affinityService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_pair_counts");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void eventCountsMatchAParallelRebuild() {
+        List<UUID> products = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                UUID.randomUUID());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                Order order = TestOrders.order();
+                order.setOrderNumber("ORD-PAIR-" + i);
+                // Baskets of 1 to 4 products; 4 exceeds the cap and is left out on both paths
+                for (int p = 0; p <= i % 4; p++) {
+                    TestOrders.addItem(order, products.get((i + p) % products.size()), "Product " + p, 1,
+                            new BigDecimal("2.00"));
+                }
+                entityManager.persist(order);
+                affinityService.onOrderCreated(new OrderCreatedEvent(order));
+                orders.add(order);
+            }
+            for (int i = 0; i < orders.size(); i += 5) {
+                Order order = orders.get(i);
+                Order.OrderStatus previous = order.getStatus();
+                order.setStatus(Order.OrderStatus.CANCELLED);
+                affinityService.onOrderStatusChanged(new OrderStatusChangedEvent(order, previous));
+            }
+        });
+
+        affinityService.flush();
+        List<Map<String, Object>> fromEvents = pairs();
+        affinityService.rebuild();
+
+        assertEquals(fromEvents, pairs());
+        UUID first = products.getFirst();
+        Long topCount = jdbcTemplate.queryForObject(
+                "SELECT MAX(pair_count) FROM product_pair_counts WHERE product_id = ?", Long.class, first);
+        assertEquals(topCount, affinityService.getBoughtTogether(first, 10).getFirst().timesOrderedTogether());
+    }
+
+    private List<Map<String, Object>> pairs() {
+        return jdbcTemplate.queryForList("SELECT product_id, related_product_id, pair_count FROM product_pair_counts " +
+                "WHERE pair_count > 0 ORDER BY 1, 2");
+    }
+}
@@ -0,0 +1,134 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProductAffinityServiceTests {
+
+    private static final UUID BAGEL = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID CROISSANT = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID COFFEE = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductAffinityService affinityService;
+
+    // Upserted rows as "product related count", using the last digit of each id
+    private final List<String> upserts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter rows = invocation.getArgument(1);
+            for (int i = 0; i < rows.getBatchSize(); i++) {
+                List<Object> values = new ArrayList<>();
+                PreparedStatement ps = mock(PreparedStatement.class);
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setObject(anyInt(), any());
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setLong(anyInt(), anyLong());
+                rows.setValues(ps, i);
+                upserts.add(digit(values.get(0)) + " " + digit(values.get(1)) + " " + values.get(2));
+            }
+            return new int[rows.getBatchSize()];
+        });
+        affinityService = new ProductAffinityService(jdbcTemplate, new NoOpTransactionManager(),
+                new SimpleMeterRegistry(), 2, 3, 100, 300, 2);
+    }
+
+    @Test
+    void eachPairOfDistinctProductsIsCountedOnceInBothDirections() {
+        // Bagel appears on two lines but the order still counts once per pair
+        affinityService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, BAGEL, CROISSANT, BAGEL, COFFEE)));
+        affinityService.flush();
+
+        assertEquals(List.of("1 2 1", "1 3 1", "2 1 1", "2 3 1", "3 1 1", "3 2 1"), upserts);
+    }
+
+    @Test
+    void cancellationTakesThePairsBackOut() {
+        Order order = order(Order.OrderStatus.CANCELLED, BAGEL, CROISSANT);
+
+        affinityService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.CONFIRMED));
+        affinityService.flush();
+
+        assertEquals(List.of("1 2 -1", "2 1 -1"), upserts);
+    }
+
+    @Test
+    void singleProductAndOversizedBasketsAddNoPairs() {
+        affinityService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, BAGEL, BAGEL)));
+        affinityService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING,
+                BAGEL, CROISSANT, COFFEE, UUID.randomUUID())));
+        affinityService.flush();
+
+        assertTrue(upserts.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void importedOrdersAreMergedPerPair() {
+        affinityService.onOrdersImported(new OrdersImportedEvent(List.of(
+                order(Order.OrderStatus.DELIVERED, BAGEL, CROISSANT),
+                order(Order.OrderStatus.DELIVERED, CROISSANT, BAGEL),
+                order(Order.OrderStatus.CANCELLED, BAGEL, CROISSANT))));
+        affinityService.flush();
+
+        assertEquals(List.of("1 2 2", "2 1 2"), upserts);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lookupsAreCachedUntilAFlushTouchesTheProduct() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(BAGEL), eq(2))).thenReturn(List.of(
+                new ProductAffinityService.RelatedProduct(CROISSANT, 7),
+                new ProductAffinityService.RelatedProduct(COFFEE, 3)));
+
+        assertEquals(1, affinityService.getBoughtTogether(BAGEL, 1).size());
+        assertEquals(2, affinityService.getBoughtTogether(BAGEL, 10).size());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), eq(BAGEL), eq(2));
+
+        // The order's pairs are not stored yet, so the cached list still holds
+        affinityService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING, BAGEL, COFFEE)));
+        affinityService.getBoughtTogether(BAGEL, 10);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), eq(BAGEL), eq(2));
+
+        affinityService.flush();
+        affinityService.getBoughtTogether(BAGEL, 10);
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq(BAGEL), eq(2));
+    }
+
+    private static Order order(Order.OrderStatus status, UUID... products) {
+        Order order = TestOrders.order();
+        for (UUID product : products) {
+            TestOrders.addItem(order, product, 1, new BigDecimal("2.50"));
+        }
+        order.setStatus(status);
+        return order;
+    }
+
+    private static String digit(Object id) {
+        String text = id.toString();
+        return text.substring(text.length() - 1);
+    }
+}
@@ -0,0 +1,165 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.client.ProductBatchLoader;
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.dto.OrderItemRequest;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductLookupServiceTests {
+
+    private final ProductServiceClient productServiceClient = mock(ProductServiceClient.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private ProductBatchLoader batchLoader;
+    private ProductLookupService lookupService;
+
+    @BeforeEach
+    void setUp() {
+        batchLoader = new ProductBatchLoader(productServiceClient, executor, false, 2000, 100);
+        // Cache disabled so every lookup reaches the product-service
+        ProductSnapshotCache cache = new ProductSnapshotCache(productServiceClient, executor, new SimpleMeterRegistry(),
+                false, 100, 600, 300, 30);
+        lookupService = new ProductLookupService(productServiceClient, executor, batchLoader, cache);
+        ReflectionTestUtils.setField(lookupService, "concurrent", true);
+        ReflectionTestUtils.setField(lookupService, "maxConcurrency", 3);
+        ReflectionTestUtils.setField(lookupService, "timeoutMs", 10_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchLoader.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void resultsFollowRequestOrderWhateverOrderCallsFinishIn() {
+        List<OrderItemRequest> items = items(8);
+        // Earlier items answer last
+        when(productServiceClient.getProductById(any())).thenAnswer(invocation -> {
+            UUID productId = invocation.getArgument(0);
+            Thread.sleep(10L * (items.size() - indexOf(items, productId)));
+            return product(productId);
+        });
+        when(productServiceClient.checkStockAvailability(any(), anyInt())).thenAnswer(invocation ->
+                Map.of("productId", invocation.getArgument(0).toString(), "sufficient", true));
+
+        List<ProductLookupService.ItemLookup> lookups = lookupService.lookupItems(items);
+
+        assertEquals(items.size(), lookups.size());
+        for (int i = 0; i < items.size(); i++) {
+            UUID productId = items.get(i).getProductId();
+            assertSame(items.get(i), lookups.get(i).getItemRequest());
+            assertEquals(productId, lookups.get(i).getProduct().getProductId());
+            assertEquals(productId.toString(), lookups.get(i).getStock().get("productId"));
+        }
+    }
+
+    @Test
+    void inFlightCallsPerOrderNeverExceedTheCap() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(productServiceClient.getProductById(any())).thenAnswer(invocation ->
+                timed(inFlight, maxInFlight, () -> product(invocation.getArgument(0))));
+        when(productServiceClient.checkStockAvailability(any(), anyInt())).thenAnswer(invocation ->
+                timed(inFlight, maxInFlight, () -> Map.of("sufficient", true)));
+
+        lookupService.lookupItems(items(10));
+
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "calls should overlap");
+    }
+
+    @Test
+    void firstFailureCancelsTheSiblingCalls() throws Exception {
+        // Enough permits for every call, so the failing one is never starved by the blocked ones
+        ReflectionTestUtils.setField(lookupService, "maxConcurrency", 12);
+        List<OrderItemRequest> items = items(6);
+        UUID failing = items.get(0).getProductId();
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger blocked = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(11);
+        when(productServiceClient.getProductById(any())).thenAnswer(invocation -> {
+            if (failing.equals(invocation.getArgument(0))) {
+                // Fails once every other call is blocked on the product-service
+                while (blocked.get() < 11) {
+                    Thread.sleep(1);
+                }
+                throw new IllegalStateException("product-service unavailable");
+            }
+            return block(never, blocked, interrupted);
+        });
+        when(productServiceClient.checkStockAvailability(any(), anyInt()))
+                .thenAnswer(invocation -> block(never, blocked, interrupted));
+
+        long started = System.nanoTime();
+        assertThrows(OrderServiceException.class, () -> lookupService.lookupItems(items));
+
+        // Well before the 10 s lookup timeout, and the blocked calls were interrupted
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5_000);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "blocked calls were not cancelled");
+    }
+
+    private static Object block(CountDownLatch never, AtomicInteger blocked, CountDownLatch interrupted) {
+        blocked.incrementAndGet();
+        try {
+            never.await();
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("interrupted");
+    }
+
+    private static Object timed(AtomicInteger inFlight, AtomicInteger maxInFlight,
+                                Supplier<Object> call) throws InterruptedException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(20);
+            return call.get();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static int indexOf(List<OrderItemRequest> items, UUID productId) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getProductId().equals(productId)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(productId.toString());
+    }
+
+    private static List<OrderItemRequest> items(int count) {
+        List<OrderItemRequest> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new OrderItemRequest(UUID.randomUUID(), 1));
+        }
+        return items;
+    }
+
+    private static Map<String, Object> product(UUID productId) {
+        return Map.of("id", productId.toString(), "sku", "SKU", "name", "Product", "effectivePrice", 2.0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Best-seller and category reports from product_sales_daily must agree with grouping order_items
+// directly, both when maintained through events and after a rebuild
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductSalesService.class)
+class ProductSalesRollupTests {
+
+    @Autowired
+    private ProductSalesService productSalesService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reportsMatchOrderItemsThroughEventsAndRebuilds() {
+        List<UUID> products = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Order order = TestOrders.order();
+            order.setOrderNumber("ORD-SALES-" + i);
+            for (int p = 0; p <= i % products.size(); p++) {
+                OrderItem item = TestOrders.addItem(order, products.get(p), "Product " + p, 1 + (i + p) % 3,
+                        new BigDecimal("1.75").add(BigDecimal.valueOf(p)));
+                item.setProductCategory(p % 2 == 0 ? "Bread" : "Pastry");
+            }
+            entityManager.persist(order);
+            productSalesService.onOrderCreated(new OrderCreatedEvent(order));
+            orders.add(order);
+        }
+        for (int i = 0; i < orders.size(); i += 3) {
+            Order order = orders.get(i);
+            Order.OrderStatus previous = order.getStatus();
+            order.setStatus(Order.OrderStatus.CANCELLED);
+            productSalesService.onOrderStatusChanged(new OrderStatusChangedEvent(order, previous));
+        }
+        productSalesService.flush();
+        entityManager.flush();
+
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+        List<Map<String, Object>> expectedProducts = directBestSellers();
+        List<Map<String, Object>> expectedCategories = directCategories();
+
+        assertReports(expectedProducts, expectedCategories, start, end);
+
+        jdbcTemplate.update("UPDATE product_sales_daily SET quantity = 0, revenue = 0, order_count = 0");
+        productSalesService.rebuild(start, end);
+
+        assertReports(expectedProducts, expectedCategories, start, end);
+    }
+
+    private void assertReports(List<Map<String, Object>> expectedProducts, List<Map<String, Object>> expectedCategories,
+                               LocalDateTime start, LocalDateTime end) {
+        List<Map<String, Object>> products = productSalesService.getBestSellingProducts(start, end, 10);
+        assertEquals(expectedProducts.size(), products.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertEquals(expectedProducts.get(i).get("product_id"), products.get(i).get("productId"));
+            assertEquals(((Number) expectedProducts.get(i).get("quantity")).longValue(), products.get(i).get("totalQuantity"));
+            assertEquals(((Number) expectedProducts.get(i).get("orders")).longValue(), products.get(i).get("orderCount"));
+            assertEquals(0, ((BigDecimal) expectedProducts.get(i).get("revenue"))
+                    .compareTo((BigDecimal) products.get(i).get("totalRevenue")));
+        }
+
+        List<Map<String, Object>> categories = productSalesService.getSalesByCategory(start, end);
+        assertEquals(expectedCategories.size(), categories.size());
+        for (int i = 0; i < categories.size(); i++) {
+            assertEquals(expectedCategories.get(i).get("category"), categories.get(i).get("category"));
+            assertEquals(((Number) expectedCategories.get(i).get("quantity")).longValue(), categories.get(i).get("totalQuantity"));
+            assertEquals(((Number) expectedCategories.get(i).get("products")).longValue(), categories.get(i).get("productCount"));
+        }
+    }
+
+    private List<Map<String, Object>> directBestSellers() {
+        return jdbcTemplate.queryForList("SELECT oi.product_id, SUM(oi.quantity) AS quantity, " +
+                "COUNT(DISTINCT o.id) AS orders, SUM(oi.unit_price * oi.quantity) AS revenue " +
+                "FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE o.status <> 'CANCELLED' " +
+                "GROUP BY oi.product_id ORDER BY 2 DESC, 1");
+    }
+
+    private List<Map<String, Object>> directCategories() {
+        return jdbcTemplate.queryForList("SELECT oi.product_category AS category, SUM(oi.quantity) AS quantity, " +
+                "COUNT(DISTINCT oi.product_id) AS products " +
+                "FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE o.status <> 'CANCELLED' " +
+                "GROUP BY 1 ORDER BY 2 DESC, 1");
+    }
+}
@@ -0,0 +1,136 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.TestOrders;
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import com.shah_s.bakery_order_service.event.OrderStatusChangedEvent;
+import com.shah_s.bakery_order_service.event.OrdersImportedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProductSalesServiceTests {
+
+    private static final UUID BAGEL = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID CROISSANT = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private final LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 10, 42, 7);
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductSalesService productSalesService;
+
+    // Upserted rows as "date sku quantity revenue orders"
+    private final List<String> upserts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter rows = invocation.getArgument(1);
+            for (int i = 0; i < rows.getBatchSize(); i++) {
+                List<Object> values = new ArrayList<>();
+                PreparedStatement ps = mock(PreparedStatement.class);
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setObject(anyInt(), any());
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setString(anyInt(), any());
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setLong(anyInt(), anyLong());
+                doAnswer(a -> values.add(a.getArgument(1))).when(ps).setBigDecimal(anyInt(), any());
+                rows.setValues(ps, i);
+                upserts.add(values.get(0) + " " + values.get(2) + " " + values.get(5) + " " + values.get(6) + " " + values.get(7));
+            }
+            return new int[rows.getBatchSize()];
+        });
+        productSalesService = new ProductSalesService(jdbcTemplate, new NoOpTransactionManager());
+    }
+
+    @Test
+    void productOnSeveralLinesCountsTheOrderOnce() {
+        Order order = order(Order.OrderStatus.PENDING);
+        TestOrders.addItem(order, BAGEL, "Bagel", 1, new BigDecimal("2.50"));
+
+        productSalesService.onOrderCreated(new OrderCreatedEvent(order));
+        productSalesService.flush();
+
+        // Rows are written in key order so concurrent flushes lock them in the same order
+        assertEquals(List.of("2025-03-14 SKU-BAGEL 3 7.50 1", "2025-03-14 SKU-CROISSANT 1 3.25 1"), upserts);
+    }
+
+    @Test
+    void cancellationTakesTheItemsBackOut() {
+        Order order = order(Order.OrderStatus.CANCELLED);
+
+        productSalesService.onOrderStatusChanged(new OrderStatusChangedEvent(order, Order.OrderStatus.CONFIRMED));
+        productSalesService.flush();
+
+        assertEquals(List.of("2025-03-14 SKU-BAGEL -2 -5.00 -1", "2025-03-14 SKU-CROISSANT -1 -3.25 -1"), upserts);
+    }
+
+    @Test
+    void transitionsBetweenLiveStatusesWriteNothing() {
+        productSalesService.onOrderStatusChanged(new OrderStatusChangedEvent(order(Order.OrderStatus.DELIVERED),
+                Order.OrderStatus.OUT_FOR_DELIVERY));
+        productSalesService.flush();
+
+        assertTrue(upserts.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void importedOrdersAreMergedPerProductDaySkippingCancelled() {
+        List<Order> orders = List.of(order(Order.OrderStatus.DELIVERED), order(Order.OrderStatus.DELIVERED),
+                order(Order.OrderStatus.CANCELLED));
+
+        productSalesService.onOrdersImported(new OrdersImportedEvent(orders));
+        productSalesService.flush();
+
+        assertEquals(List.of("2025-03-14 SKU-BAGEL 4 10.00 2", "2025-03-14 SKU-CROISSANT 2 6.50 2"), upserts);
+    }
+
+    @Test
+    void ordersOfOneFlushAreSummedIntoOneWritePerProductDay() {
+        for (int i = 0; i < 3; i++) {
+            productSalesService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING)));
+        }
+        // Nothing is written from the orders' own commits
+        verifyNoInteractions(jdbcTemplate);
+
+        productSalesService.flush();
+
+        assertEquals(List.of("2025-03-14 SKU-BAGEL 6 15.00 3", "2025-03-14 SKU-CROISSANT 3 9.75 3"), upserts);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void orderPlacedAndCancelledWithinOneFlushWritesNothing() {
+        productSalesService.onOrderCreated(new OrderCreatedEvent(order(Order.OrderStatus.PENDING)));
+        productSalesService.onOrderStatusChanged(new OrderStatusChangedEvent(order(Order.OrderStatus.CANCELLED),
+                Order.OrderStatus.PENDING));
+
+        productSalesService.flush();
+
+        assertTrue(upserts.isEmpty());
+    }
+
+    private Order order(Order.OrderStatus status) {
+        Order order = TestOrders.order();
+        TestOrders.addItem(order, CROISSANT, "Croissant", 1, new BigDecimal("3.25"));
+        TestOrders.addItem(order, BAGEL, "Bagel", 2, new BigDecimal("2.50"));
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
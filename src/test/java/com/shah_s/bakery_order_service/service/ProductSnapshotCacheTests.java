@@ -0,0 +1,133 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.client.ProductServiceClient;
+import com.shah_s.bakery_order_service.exception.OrderServiceException;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSnapshotCacheTests {
+
+    private static final UUID PRODUCT = UUID.randomUUID();
+
+    private final ProductServiceClient productServiceClient = mock(ProductServiceClient.class);
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Background work (refreshes, maintenance) waits here until the test runs it
+    private final Queue<Runnable> background = new ArrayDeque<>();
+
+    // TTL 600 s, refresh after 300 s, not-found answers kept 30 s
+    private final ProductSnapshotCache cache = new ProductSnapshotCache(productServiceClient, background::add,
+            meterRegistry, true, 100, 600, 300, 30, nanos::get);
+
+    @Test
+    void staleEntryIsServedWhileItIsRefreshed() {
+        when(productServiceClient.getProductById(PRODUCT))
+                .thenReturn(product("Sourdough", 4.0, null))
+                .thenReturn(product("Sourdough", 4.5, null));
+
+        assertEquals(4.0, cache.get(PRODUCT).getEffectivePrice().doubleValue());
+        advance(Duration.ofSeconds(299));
+        assertEquals(4.0, cache.get(PRODUCT).getEffectivePrice().doubleValue());
+        verify(productServiceClient, times(1)).getProductById(PRODUCT);
+
+        // Past the refresh age the old value answers this read and the reload runs in the background
+        advance(Duration.ofSeconds(2));
+        assertEquals(4.0, cache.get(PRODUCT).getEffectivePrice().doubleValue());
+        runBackground();
+        assertEquals(4.5, cache.get(PRODUCT).getEffectivePrice().doubleValue());
+        verify(productServiceClient, times(2)).getProductById(PRODUCT);
+    }
+
+    @Test
+    void unknownProductIsRememberedBriefly() {
+        when(productServiceClient.getProductById(PRODUCT)).thenThrow(notFound());
+
+        assertThrows(OrderServiceException.class, () -> cache.get(PRODUCT));
+        assertThrows(OrderServiceException.class, () -> cache.get(PRODUCT));
+        verify(productServiceClient, times(1)).getProductById(PRODUCT);
+        assertEquals(2.0, meterRegistry.get("order.product.cache.negative.hits").counter().count());
+
+        // The negative TTL is much shorter than the normal one
+        advance(Duration.ofSeconds(31));
+        assertThrows(OrderServiceException.class, () -> cache.get(PRODUCT));
+        verify(productServiceClient, times(2)).getProductById(PRODUCT);
+    }
+
+    @Test
+    void transientFailuresAreNotCached() {
+        when(productServiceClient.getProductById(PRODUCT))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(product("Baguette", 3.0, null));
+
+        assertThrows(OrderServiceException.class, () -> cache.get(PRODUCT));
+        assertEquals("Baguette", cache.get(PRODUCT).getName());
+    }
+
+    @Test
+    void versionedInvalidationOnlyDropsOlderSnapshots() {
+        when(productServiceClient.getProductById(PRODUCT)).thenReturn(product("Croissant", 2.0, 7L));
+        cache.get(PRODUCT);
+
+        assertFalse(cache.invalidateIfOlderThan(PRODUCT, 7));
+        assertFalse(cache.invalidateIfOlderThan(PRODUCT, 3));
+        assertNotNull(cache.getIfPresent(PRODUCT));
+
+        assertTrue(cache.invalidateIfOlderThan(PRODUCT, 8));
+        assertNull(cache.getIfPresent(PRODUCT));
+    }
+
+    @Test
+    void unversionedSnapshotsAreAlwaysInvalidated() {
+        when(productServiceClient.getProductById(any())).thenReturn(product("Muffin", 2.5, null));
+        // Push the local load sequence well past the remote version used below
+        for (int i = 0; i < 10; i++) {
+            cache.get(UUID.randomUUID());
+        }
+        cache.get(PRODUCT);
+        assertTrue(cache.getIfPresent(PRODUCT).getVersion() > 1);
+
+        assertTrue(cache.invalidateIfOlderThan(PRODUCT, 1));
+        assertNull(cache.getIfPresent(PRODUCT));
+    }
+
+    private void runBackground() {
+        Runnable task;
+        while ((task = background.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static Map<String, Object> product(String name, double price, Long version) {
+        Map<String, Object> product = new HashMap<>(Map.of("id", PRODUCT.toString(), "sku", "SKU-" + name,
+                "name", name, "effectivePrice", price));
+        if (version != null) {
+            product.put("version", version);
+        }
+        return product;
+    }
+
+    private static FeignException.NotFound notFound() {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/products/" + PRODUCT, Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return new FeignException.NotFound("Not Found", request, null, Map.of());
+    }
+}
@@ -0,0 +1,131 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks the documented error bounds against exact counts on skewed streams
+class SpaceSavingSketchTests {
+
+    private static final int CAPACITY = 50;
+
+    @Test
+    void countsAreExactWhileDistinctProductsFit() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        UUID bagel = UUID.randomUUID();
+        UUID croissant = UUID.randomUUID();
+        sketch.add(bagel, 2);
+        sketch.add(croissant, 5);
+        sketch.add(bagel, 1);
+
+        SpaceSavingSketch.Snapshot snapshot = sketch.snapshot();
+
+        assertEquals(List.of(new SpaceSavingSketch.Snapshot.Entry(croissant, 5, 0),
+                new SpaceSavingSketch.Snapshot.Entry(bagel, 3, 0)), snapshot.entries());
+        assertEquals(0, snapshot.floor());
+        assertEquals(0, snapshot.estimate(UUID.randomUUID()));
+    }
+
+    @Test
+    void singleSketchStaysWithinTotalOverCapacity() {
+        Map<UUID, Long> exact = new HashMap<>();
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        feed(new Random(7), products(2_000), 50_000, sketch, exact);
+
+        assertBounds(sketch.snapshot(), exact, 1, 1);
+    }
+
+    @Test
+    void mergedBucketsAndNodesStayWithinTheirBounds() {
+        Random random = new Random(11);
+        List<UUID> products = products(2_000);
+        Map<UUID, Long> exact = new HashMap<>();
+        List<SpaceSavingSketch.Snapshot> windows = new ArrayList<>();
+
+        for (int node = 0; node < 3; node++) {
+            Map<UUID, Long> nodeExact = new HashMap<>();
+            List<SpaceSavingSketch.Snapshot> minutes = new ArrayList<>();
+            for (int minute = 0; minute < 15; minute++) {
+                SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+                // Shift popularity over time so buckets disagree about the leaders
+                Collections.rotate(products, 7);
+                feed(random, products, 2_000, sketch, nodeExact);
+                minutes.add(sketch.snapshot());
+            }
+            SpaceSavingSketch.Snapshot window = SpaceSavingSketch.Snapshot.merge(CAPACITY, minutes);
+            assertEquals(CAPACITY, window.entries().size());
+            assertBounds(window, nodeExact, 1, 2);
+
+            nodeExact.forEach((product, quantity) -> exact.merge(product, quantity, Long::sum));
+            windows.add(window);
+        }
+
+        assertBounds(SpaceSavingSketch.Snapshot.merge(CAPACITY, windows), exact, 2, 3);
+    }
+
+    @Test
+    void snapshotsSurviveJsonForMergingAcrossInstances() throws Exception {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        feed(new Random(3), products(200), 1_000, sketch, new HashMap<>());
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        SpaceSavingSketch.Snapshot snapshot = sketch.snapshot();
+        SpaceSavingSketch.Snapshot copy = objectMapper.readValue(objectMapper.writeValueAsString(snapshot),
+                SpaceSavingSketch.Snapshot.class);
+
+        assertEquals(snapshot, copy);
+    }
+
+    // Listed counts overestimate by at most listedFactor * N / m, never underestimate, and their
+    // error field is a valid lower bound; unlisted products are below floor <= floorFactor * N / m
+    private static void assertBounds(SpaceSavingSketch.Snapshot snapshot, Map<UUID, Long> exact,
+                                     int listedFactor, int floorFactor) {
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, snapshot.total());
+        double bound = (double) total / CAPACITY;
+        assertTrue(snapshot.floor() <= floorFactor * bound, "floor " + snapshot.floor() + " > " + floorFactor * bound);
+
+        Set<UUID> listed = new HashSet<>();
+        for (SpaceSavingSketch.Snapshot.Entry entry : snapshot.entries()) {
+            long actual = exact.getOrDefault(entry.item(), 0L);
+            listed.add(entry.item());
+            assertTrue(entry.count() >= actual, "underestimated " + entry);
+            assertTrue(entry.count() - actual <= listedFactor * bound, "overestimated " + entry + " vs " + actual);
+            assertTrue(entry.count() - entry.error() <= actual, "lower bound above actual " + entry);
+        }
+        exact.forEach((product, actual) -> {
+            if (!listed.contains(product)) {
+                assertTrue(actual <= snapshot.floor(), "unlisted " + actual + " > floor " + snapshot.floor());
+            }
+        });
+    }
+
+    // Zipf-like: product i is picked with weight 1 / (i + 1), quantities 1-3
+    private static void feed(Random random, List<UUID> products, int orders, SpaceSavingSketch sketch,
+                             Map<UUID, Long> exact) {
+        double[] cumulative = new double[products.size()];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < orders; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            UUID product = products.get(index >= 0 ? index : -index - 1);
+            long quantity = 1 + random.nextInt(3);
+            sketch.add(product, quantity);
+            exact.merge(product, quantity, Long::sum);
+        }
+    }
+
+    private static List<UUID> products(int count) {
+        List<UUID> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(UUID.randomUUID());
+        }
+        return products;
+    }
+}
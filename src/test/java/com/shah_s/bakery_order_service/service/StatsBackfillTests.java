@@ -0,0 +1,97 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.PostgresTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs outside a test transaction: the advisory lock and the marker are seen across connections
+@PostgresTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatsBackfillTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        jdbcTemplate.update("DELETE FROM stats_backfills");
+    }
+
+    @Test
+    void completedBackfillIsNotRunAgain() {
+        StatsBackfill backfill = instance();
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(backfill.runOnce("order_stats_hourly", runs::incrementAndGet));
+        assertFalse(backfill.runOnce("order_stats_hourly", runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        assertTrue(backfill.isComplete("order_stats_hourly"));
+    }
+
+    @Test
+    void interruptedBackfillRunsAgainOnTheNextStart() {
+        StatsBackfill backfill = instance();
+
+        assertFalse(backfill.runOnce("product_sales_daily", () -> {
+            throw new IllegalStateException("killed mid-rebuild");
+        }));
+        assertFalse(backfill.isComplete("product_sales_daily"));
+
+        AtomicInteger runs = new AtomicInteger();
+        assertTrue(instance().runOnce("product_sales_daily", runs::incrementAndGet));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void instancesStartingTogetherBackfillOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        Runnable rebuild = () -> {
+            runs.incrementAndGet();
+            firstRunning.countDown();
+            sleep(300);
+        };
+
+        Future<Boolean> first = executor.submit(() -> instance().runOnce("product_pair_counts", rebuild));
+        assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+        // Blocks on the advisory lock, then finds the marker
+        Future<Boolean> second = executor.submit(() -> instance().runOnce("product_pair_counts", rebuild));
+
+        assertEquals(List.of(true, false), List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS)));
+        assertEquals(1, runs.get());
+    }
+
+    private StatsBackfill instance() {
+        return new StatsBackfill(dataSource, jdbcTemplate, executor, List.of());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.shah_s.bakery_order_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDigestTests {
+
+    // Seeded, so the checks are deterministic
+    private final Random random = new Random(42);
+
+    @Test
+    void quantilesStayCloseInRankForSkewedDurations() {
+        // Log-normal, like preparation times: most orders take minutes, a few take hours
+        double[] samples = new double[200_000];
+        TDigest digest = new TDigest(100);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = Math.exp(6 + random.nextGaussian());
+            digest.add(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        assertRankWithin(samples, digest, 0.5, 0.01);
+        assertRankWithin(samples, digest, 0.9, 0.005);
+        assertRankWithin(samples, digest, 0.99, 0.001);
+        assertEquals(samples[0], digest.quantile(0));
+        assertEquals(samples[samples.length - 1], digest.quantile(1));
+        assertEquals(samples.length, digest.count());
+    }
+
+    @Test
+    void mergedDigestsMatchTheirCombinedInput() {
+        // Sixty hourly digests of different shapes merged into one
+        double[] samples = new double[60 * 2_000];
+        TDigest merged = new TDigest(100);
+        for (int hour = 0; hour < 60; hour++) {
+            TDigest hourly = new TDigest(100);
+            double scale = 60 + hour * 10;
+            for (int i = 0; i < 2_000; i++) {
+                double sample = scale * -Math.log(1 - random.nextDouble());
+                samples[hour * 2_000 + i] = sample;
+                hourly.add(sample);
+            }
+            merged.merge(hourly);
+        }
+        Arrays.sort(samples);
+
+        assertRankWithin(samples, merged, 0.5, 0.01);
+        assertRankWithin(samples, merged, 0.9, 0.005);
+        assertRankWithin(samples, merged, 0.99, 0.002);
+        assertEquals(samples.length, merged.count());
+    }
+
+    @Test
+    void centroidsStayBoundedAndRoundTripThroughBytes() {
+        TDigest digest = new TDigest(100);
+        for (int i = 0; i < 1_000_000; i++) {
+            digest.add(random.nextDouble() * 3_600);
+        }
+        byte[] bytes = digest.toBytes();
+        // Header plus at most about compression * pi / 2 centroids of 16 bytes
+        assertTrue(bytes.length < 32 + 170 * 16, "serialised to " + bytes.length + " bytes");
+
+        TDigest copy = TDigest.fromBytes(bytes);
+        assertEquals(digest.count(), copy.count());
+        for (double q : new double[] {0, 0.5, 0.9, 0.99, 1}) {
+            assertEquals(digest.quantile(q), copy.quantile(q), 1e-6);
+        }
+    }
+
+    @Test
+    void smallAndEmptyDigests() {
+        TDigest digest = new TDigest(100);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+        digest.add(90);
+        assertEquals(90, digest.quantile(0.5));
+
+        for (int i = 1; i <= 99; i++) {
+            digest.add(i);
+        }
+        // Few samples stay as single points, so quantiles are nearly exact
+        assertEquals(50, digest.quantile(0.5), 1);
+        assertEquals(99, digest.quantile(1));
+        assertThrows(IllegalArgumentException.class, () -> digest.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new TDigest(5));
+    }
+
+    // The estimate's rank in the sorted samples is within maxError of q
+    private static void assertRankWithin(double[] sorted, TDigest digest, double q, double maxError) {
+        double estimate = digest.quantile(q);
+        int index = Arrays.binarySearch(sorted, estimate);
+        double rank = (index >= 0 ? index : -index - 1) / (double) sorted.length;
+        assertTrue(Math.abs(rank - q) <= maxError, "q " + q + ": estimate " + estimate + " has rank " + rank);
+    }
+}
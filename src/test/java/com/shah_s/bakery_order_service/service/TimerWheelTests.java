@@ -0,0 +1,65 @@
+package com.shah_s.bakery_order_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTests {
+
+    @Test
+    void timersFireOnTheirTickAcrossAllLevels() {
+        long start = 1_700_000_000_000L;
+        TimerWheel<Integer, String> wheel = new TimerWheel<>(1_000, start);
+        // Seeded; deadlines from one second to about a month out land on every level and cascade
+        Random random = new Random(7);
+        long[] deadlines = new long[2_000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = start + 1_000 + (long) (random.nextDouble() * 30L * 24 * 3_600 * 1_000);
+            wheel.schedule(i, deadlines[i], "timer-" + i);
+        }
+
+        int firedCount = 0;
+        for (long now = start; firedCount < deadlines.length; now += 60_000) {
+            for (TimerWheel.Timer<Integer, String> timer : wheel.advance(now)) {
+                // Never early, and never later than the step we advanced by
+                assertTrue(timer.deadlineMillis() <= now, "fired early: " + timer);
+                assertTrue(now - timer.deadlineMillis() < 60_000, "fired late: " + timer);
+                assertEquals(deadlines[timer.key()], timer.deadlineMillis());
+                firedCount++;
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingReplacesAndCancellingRemoves() {
+        TimerWheel<String, String> wheel = new TimerWheel<>(1_000, 0);
+        wheel.schedule("a", 10_000, "first");
+        wheel.schedule("a", 5_000, "second");
+        wheel.schedule("b", 5_000, "b");
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+
+        assertEquals(List.of(), wheel.advance(4_999));
+        List<TimerWheel.Timer<String, String>> due = wheel.advance(5_000);
+        assertEquals(List.of(new TimerWheel.Timer<>("a", 5_000L, "second")), due);
+        assertEquals(List.of(), wheel.advance(20_000));
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextAdvanceInDeadlineOrder() {
+        TimerWheel<String, String> wheel = new TimerWheel<>(1_000, 100_000);
+        wheel.schedule("late", 90_000, "late");
+        wheel.schedule("later", 50_000, "later");
+        wheel.schedule("future", 200_000, "future");
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(100_000).forEach(timer -> fired.add(timer.key()));
+        assertEquals(List.of("later", "late"), fired);
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.shah_s.bakery_order_service.service;
+
+import com.shah_s.bakery_order_service.entity.Order;
+import com.shah_s.bakery_order_service.entity.OrderItem;
+import com.shah_s.bakery_order_service.event.OrderCreatedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrendingProductsServiceTests {
+
+    private static final UUID BAGEL = UUID.randomUUID();
+    private static final UUID CROISSANT = UUID.randomUUID();
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-03-14T10:42:07Z"));
+
+    @Test
+    void windowsSlideByWholeMinutes() {
+        TrendingProductsService trending = new TrendingProductsService(10, 0, clock);
+        trending.onOrderCreated(order(BAGEL, 5));
+        clock.advance(Duration.ofMinutes(20));
+        trending.onOrderCreated(order(CROISSANT, 2));
+
+        assertEquals(List.of(new TrendingProductsService.TrendingProduct(CROISSANT, 2, 2)), trending.getTrending(15, 10));
+        assertEquals(List.of(BAGEL, CROISSANT), products(trending.getTrending(60, 10)));
+
+        clock.advance(Duration.ofMinutes(41));
+        assertEquals(List.of(CROISSANT), products(trending.getTrending(60, 10)));
+
+        // A bucket an hour old is reused, not added to
+        clock.advance(Duration.ofMinutes(40));
+        trending.onOrderCreated(order(BAGEL, 1));
+        assertEquals(List.of(new TrendingProductsService.TrendingProduct(BAGEL, 1, 1)), trending.getTrending(60, 10));
+    }
+
+    @Test
+    void mergedWindowsAreServedUntilTheRefreshInterval() {
+        TrendingProductsService trending = new TrendingProductsService(10, 1_000, clock);
+        trending.onOrderCreated(order(BAGEL, 1));
+        assertEquals(1, trending.getTrending(15, 10).size());
+
+        trending.onOrderCreated(order(CROISSANT, 3));
+        assertEquals(1, trending.getTrending(15, 10).size());
+
+        clock.advance(Duration.ofMillis(1_001));
+        assertEquals(List.of(CROISSANT, BAGEL), products(trending.getTrending(15, 10)));
+    }
+
+    @Test
+    void windowsFromSeveralInstancesCombine() {
+        TrendingProductsService first = new TrendingProductsService(10, 0, clock);
+        TrendingProductsService second = new TrendingProductsService(10, 0, clock);
+        first.onOrderCreated(order(BAGEL, 3));
+        first.onOrderCreated(order(CROISSANT, 1));
+        second.onOrderCreated(order(CROISSANT, 4));
+
+        assertEquals(List.of(new TrendingProductsService.TrendingProduct(CROISSANT, 5, 5),
+                        new TrendingProductsService.TrendingProduct(BAGEL, 3, 3)),
+                first.merge(List.of(first.window(15), second.window(15)), 10));
+    }
+
+    private static OrderCreatedEvent order(UUID product, int quantity) {
+        Order order = new Order(UUID.randomUUID(), "Test Customer", "test@example.com", Order.DeliveryType.PICKUP);
+        order.addOrderItem(new OrderItem(order, product, "SKU", "Product", quantity, new BigDecimal("2.50")));
+        return new OrderCreatedEvent(order);
+    }
+
+    private static List<UUID> products(List<TrendingProductsService.TrendingProduct> trending) {
+        return trending.stream().map(TrendingProductsService.TrendingProduct::productId).toList();
+    }
+}